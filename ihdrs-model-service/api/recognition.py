@@ -4,54 +4,128 @@ import base64
 import numpy as np
 import time
 from services.image_processor import ImageProcessor
-from utils.validators import validate_recognition_request
+from utils.validators import validate_recognition_request, validate_batch_recognition_request
 
 recognition_bp = Blueprint('recognition', __name__)
 
+# 二进制传输：请求体为原始图像字节（或预处理后的张量），模型ID等元数据放在请求头
+BINARY_CONTENT_TYPE = 'application/octet-stream'
+PAYLOAD_TYPE_IMAGE = 'image'
+PAYLOAD_TYPE_TENSOR = 'tensor'  # 28x28 uint8行优先，255为笔迹，共784字节
+TENSOR_SIZE = 28 * 28
+
+
+@recognition_bp.after_request
+def mark_binary_transport(response):
+    """二进制请求的响应带上X-Transport头，后端据此判断服务端支持二进制传输"""
+    if request.mimetype == BINARY_CONTENT_TYPE:
+        response.headers['X-Transport'] = 'binary'
+    return response
+
+
+def _is_binary_request():
+    return request.mimetype == BINARY_CONTENT_TYPE
+
+
+def _binary_model_id():
+    """从请求头读取模型ID，格式错误时抛出ValueError"""
+    value = request.headers.get('X-Model-Id')
+    return int(value) if value else 1
+
+
+def _split_binary_images(body):
+    """按X-Image-Lengths头切分批量请求体，缺少该头时整个请求体为一张图像"""
+    lengths_header = request.headers.get('X-Image-Lengths')
+    if not lengths_header:
+        return [body]
+
+    lengths = [int(length) for length in lengths_header.split(',')]
+    if any(length <= 0 for length in lengths) or sum(lengths) != len(body):
+        raise ValueError('X-Image-Lengths与请求体长度不一致')
+
+    images = []
+    offset = 0
+    for length in lengths:
+        images.append(body[offset:offset + length])
+        offset += length
+    return images
+
+
+def _preprocess_payload(payload, payload_type, image_processor):
+    """图像字节走完整预处理；张量直接还原为归一化的28x28数组"""
+    if payload_type == PAYLOAD_TYPE_TENSOR:
+        if len(payload) != TENSOR_SIZE:
+            return None
+        return np.frombuffer(payload, dtype=np.uint8).reshape(28, 28).astype(np.float32) / 255.0
+    return image_processor.preprocess_for_recognition(payload)
+
+
 @recognition_bp.route('/recognize', methods=['POST'])
 def recognize():
     """手写数字识别接口"""
     start_time = time.time()
 
     try:
-        if not request.is_json:
-            return jsonify({
-                'status': 'error',
-                'message': '请求Content-Type必须为application/json'
-            }), 400
+        payload_type = PAYLOAD_TYPE_IMAGE
 
-        # 获取请求数据
-        data = request.get_json(silent=True)  # 使用silent=True避免抛出异常
-        if not data:
-            return jsonify({
-                'status': 'error',
-                'message': '请求数据不能为空'
-            }), 400
+        if _is_binary_request():
+            # 二进制传输：请求体即图像字节，无需Base64解码
+            try:
+                model_id = _binary_model_id()
+            except ValueError:
+                return jsonify({
+                    'status': 'error',
+                    'message': 'X-Model-Id必须是整数'
+                }), 400
 
-        # 验证请求参数
-        validation_error = validate_recognition_request(data)
-        if validation_error:
-            return jsonify({
-                'status': 'error',
-                'message': validation_error
-            }), 400
+            payload_type = request.headers.get('X-Payload-Type', PAYLOAD_TYPE_IMAGE)
+            image_bytes = request.get_data()
+            if not image_bytes:
+                return jsonify({
+                    'status': 'error',
+                    'message': '请求数据不能为空'
+                }), 400
 
-        image_data = data.get('image')
-        model_id = data.get('model_id', 1)
+        else:
+            if not request.is_json:
+                return jsonify({
+                    'status': 'error',
+                    'message': '请求Content-Type必须为application/json或application/octet-stream'
+                }), 415
 
-        # 解码Base64图像
-        try:
-            image_bytes = base64.b64decode(image_data)
-        except Exception as e:
-            current_app.logger.error(f"Base64解码失败: {e}")
-            return jsonify({
-                'status': 'error',
-                'message': 'Base64图像数据格式错误'
-            }), 400
+            # 获取请求数据
+            data = request.get_json(silent=True)  # 使用silent=True避免抛出异常
+            if not data:
+                return jsonify({
+                    'status': 'error',
+                    'message': '请求数据不能为空'
+                }), 400
+
+            # 验证请求参数
+            validation_error = validate_recognition_request(data)
+            if validation_error:
+                return jsonify({
+                    'status': 'error',
+                    'message': validation_error
+                }), 400
+
+            image_data = data.get('image')
+            model_id = data.get('model_id', 1)
+            payload_type = data.get('payload_type', PAYLOAD_TYPE_IMAGE)
+
+            # 解码Base64图像
+            try:
+                image_bytes = base64.b64decode(image_data)
+            except Exception as e:
+                current_app.logger.error(f"Base64解码失败: {e}")
+                return jsonify({
+                    'status': 'error',
+                    'message': 'Base64图像数据格式错误'
+                }), 400
 
         # 图像预处理
         image_processor = ImageProcessor()
-        processed_image = image_processor.preprocess_for_recognition(image_bytes)
+        processed_image = _preprocess_payload(image_bytes, payload_type, image_processor)
 
         if processed_image is None:
             return jsonify({
@@ -94,4 +168,107 @@ def recognize():
             'status': 'error',
             'message': '识别服务异常',
             'error': str(e)
-        }), 500
\ No newline at end of file
+        }), 500
+
+
+@recognition_bp.route('/recognize/batch', methods=['POST'])
+def recognize_batch():
+    """批量手写数字识别接口 - 单次调用完成多张图像推理"""
+    start_time = time.time()
+
+    try:
+        max_batch_size = current_app.config.get('MAX_BATCH_SIZE', 32)
+        payload_type = PAYLOAD_TYPE_IMAGE
+
+        if _is_binary_request():
+            # 二进制传输：各图像字节依次拼接，长度由X-Image-Lengths给出
+            try:
+                model_id = _binary_model_id()
+                payloads = _split_binary_images(request.get_data())
+            except ValueError as e:
+                return jsonify({
+                    'status': 'error',
+                    'message': f'二进制请求格式错误: {e}'
+                }), 400
+
+            if len(payloads) > max_batch_size:
+                return jsonify({
+                    'status': 'error',
+                    'message': f'单次批量识别最多{max_batch_size}张图像'
+                }), 400
+
+            payload_type = request.headers.get('X-Payload-Type', PAYLOAD_TYPE_IMAGE)
+
+        else:
+            data = request.get_json(silent=True)
+            if not data:
+                return jsonify({
+                    'status': 'error',
+                    'message': '请求数据不能为空'
+                }), 400
+
+            validation_error = validate_batch_recognition_request(data, max_batch_size)
+            if validation_error:
+                return jsonify({
+                    'status': 'error',
+                    'message': validation_error
+                }), 400
+
+            model_id = data.get('model_id', 1)
+            payload_type = data.get('payload_type', PAYLOAD_TYPE_IMAGE)
+            payloads = data['images']
+
+        image_processor = ImageProcessor()
+
+        # 逐张预处理，失败的图像在结果中返回null，不影响同批次其它图像
+        processed_images = []
+        valid_indexes = []
+        for index, payload in enumerate(payloads):
+            try:
+                image_bytes = payload if isinstance(payload, bytes) else base64.b64decode(payload)
+                processed_image = _preprocess_payload(image_bytes, payload_type, image_processor)
+            except Exception as e:
+                current_app.logger.warning(f"第{index}张图像解码失败: {e}")
+                processed_image = None
+
+            if processed_image is not None:
+                processed_images.append(processed_image)
+                valid_indexes.append(index)
+
+        results = [None] * len(payloads)
+
+        if processed_images:
+            predictions = current_app.model_service.predict_batch(processed_images, model_id)
+            if predictions is None:
+                return jsonify({
+                    'status': 'error',
+                    'message': '模型预测失败'
+                }), 500
+
+            for index, prediction in zip(valid_indexes, predictions):
+                results[index] = {
+                    'result': int(prediction['digit']),
+                    'confidence': float(prediction['confidence']),
+                    'all_probabilities': prediction.get('all_probabilities', [])
+                }
+
+        processing_time = int((time.time() - start_time) * 1000)
+
+        current_app.logger.info(f"批量识别完成 - 数量: {len(results)}, "
+                                f"成功: {len(valid_indexes)}, 耗时: {processing_time}ms")
+
+        return jsonify({
+            'status': 'success',
+            'data': {
+                'results': results,
+                'processing_time': processing_time
+            }
+        })
+
+    except Exception as e:
+        current_app.logger.error(f"批量识别过程发生错误: {e}", exc_info=True)
+        return jsonify({
+            'status': 'error',
+            'message': '识别服务异常',
+            'error': str(e)
+        }), 500
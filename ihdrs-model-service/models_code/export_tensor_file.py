@@ -0,0 +1,161 @@
+# models_code/export_tensor_file.py - 导出模型权重为张量文件（供Java后端进程内推理）
+#!/usr/bin/env python3
+"""
+将Keras顺序模型导出为 .ihdt 张量文件，后端 LocalCnnInferenceBackend 直接加载该文件在JVM内推理。
+
+文件格式（小端序）：
+    头部:   b'IHDT' | int32 版本(1) | int32 输入高 | int32 输入宽 | int32 输入通道 | int32 层数
+    每一层: int32 层类型，之后为该层参数
+        1 CONV2D      int32 kh, kw, in_c, out_c, padding(0=valid,1=same), activation
+                      float32[kh*kw*in_c*out_c] 权重(HWIO) | float32[out_c] 偏置
+        2 MAX_POOL    int32 pool（步长等于pool）
+        3 DENSE       int32 in, out, activation | float32[in*out] 权重(行=输入) | float32[out] 偏置
+        4 SCALE_SHIFT int32 channels | float32[channels] scale | float32[channels] shift
+        5 FLATTEN     无参数（NHWC顺序展平）
+    activation: 0=linear 1=relu 2=softmax
+
+BatchNormalization 按推理时的均值方差折算为 SCALE_SHIFT，Dropout 推理时为恒等变换直接跳过。
+
+用法: python models_code/export_tensor_file.py models/default_cnn_v1.0.0.h5 [输出路径]
+"""
+import logging
+import struct
+import sys
+from pathlib import Path
+
+import numpy as np
+
+logger = logging.getLogger(__name__)
+
+MAGIC = b'IHDT'
+VERSION = 1
+
+LAYER_CONV2D = 1
+LAYER_MAX_POOL = 2
+LAYER_DENSE = 3
+LAYER_SCALE_SHIFT = 4
+LAYER_FLATTEN = 5
+
+ACTIVATIONS = {'linear': 0, 'relu': 1, 'softmax': 2}
+
+
+def tensor_file_path(model_path):
+    """与模型文件同目录、同名的 .ihdt 文件"""
+    return Path(model_path).with_suffix('.ihdt')
+
+
+def _int32(*values):
+    return struct.pack('<' + 'i' * len(values), *values)
+
+
+def _float32(array):
+    return np.ascontiguousarray(array, dtype='<f4').tobytes()
+
+
+def _activation(layer):
+    name = layer.get_config().get('activation', 'linear')
+    if name not in ACTIVATIONS:
+        raise ValueError(f"不支持的激活函数: {layer.name} {name}")
+    return ACTIVATIONS[name]
+
+
+def _encode_layer(layer):
+    kind = layer.__class__.__name__
+
+    if kind in ('InputLayer', 'Dropout'):
+        return None
+
+    if kind == 'Conv2D':
+        config = layer.get_config()
+        if tuple(config['strides']) != (1, 1) or tuple(config['dilation_rate']) != (1, 1):
+            raise ValueError(f"只支持步长1、无空洞的卷积: {layer.name}")
+        kernel, bias = layer.get_weights() if config['use_bias'] else (layer.get_weights()[0], None)
+        kh, kw, in_c, out_c = kernel.shape
+        if bias is None:
+            bias = np.zeros(out_c, dtype=np.float32)
+        padding = 1 if config['padding'] == 'same' else 0
+        return (_int32(LAYER_CONV2D, kh, kw, in_c, out_c, padding, _activation(layer))
+                + _float32(kernel) + _float32(bias))
+
+    if kind == 'MaxPooling2D':
+        config = layer.get_config()
+        pool = tuple(config['pool_size'])
+        strides = tuple(config['strides'] or pool)
+        if pool[0] != pool[1] or strides != pool or config['padding'] != 'valid':
+            raise ValueError(f"只支持正方形、步长等于窗口的池化: {layer.name}")
+        return _int32(LAYER_MAX_POOL, pool[0])
+
+    if kind == 'Dense':
+        config = layer.get_config()
+        weights = layer.get_weights()
+        kernel = weights[0]
+        bias = weights[1] if config['use_bias'] else np.zeros(kernel.shape[1], dtype=np.float32)
+        return (_int32(LAYER_DENSE, kernel.shape[0], kernel.shape[1], _activation(layer))
+                + _float32(kernel) + _float32(bias))
+
+    if kind == 'BatchNormalization':
+        config = layer.get_config()
+        params = dict(zip([w.name.split('/')[-1].split(':')[0] for w in layer.weights], layer.get_weights()))
+        mean = params['moving_mean']
+        variance = params['moving_variance']
+        gamma = params.get('gamma', np.ones_like(mean))
+        beta = params.get('beta', np.zeros_like(mean))
+        scale = gamma / np.sqrt(variance + config['epsilon'])
+        shift = beta - mean * scale
+        return _int32(LAYER_SCALE_SHIFT, mean.shape[0]) + _float32(scale) + _float32(shift)
+
+    if kind == 'Flatten':
+        return _int32(LAYER_FLATTEN)
+
+    raise ValueError(f"不支持的层类型: {layer.name} ({kind})")
+
+
+def export_tensor_file(model, output_path):
+    """导出已加载的Keras模型，返回输出路径"""
+    input_shape = model.input_shape
+    if len(input_shape) == 4:
+        _, height, width, channels = input_shape
+    elif len(input_shape) == 2:
+        height, width, channels = 1, input_shape[1], 1
+    else:
+        raise ValueError(f"不支持的输入形状: {input_shape}")
+
+    encoded = [e for e in (_encode_layer(layer) for layer in model.layers) if e is not None]
+
+    output_path = Path(output_path)
+    tmp_path = output_path.with_suffix('.ihdt.tmp')
+    with open(tmp_path, 'wb') as f:
+        f.write(MAGIC)
+        f.write(_int32(VERSION, height, width, channels, len(encoded)))
+        for data in encoded:
+            f.write(data)
+    # 写完后再替换，避免后端读到半个文件
+    tmp_path.replace(output_path)
+    return output_path
+
+
+def export_alongside(model, model_path):
+    """保存模型后同时导出同名 .ihdt 文件；导出失败只记录日志，不影响模型保存"""
+    try:
+        output_path = export_tensor_file(model, tensor_file_path(model_path))
+        logger.info(f"张量文件已导出: {output_path}")
+    except Exception as e:
+        logger.warning(f"张量文件导出失败，后端只能通过HTTP调用该模型: {e}")
+
+
+def main():
+    if len(sys.argv) < 2:
+        print(__doc__)
+        sys.exit(1)
+
+    from tensorflow import keras
+
+    model_path = Path(sys.argv[1])
+    output_path = Path(sys.argv[2]) if len(sys.argv) > 2 else tensor_file_path(model_path)
+    model = keras.models.load_model(model_path)
+    export_tensor_file(model, output_path)
+    print(f"张量文件已导出: {output_path} ({output_path.stat().st_size} 字节)")
+
+
+if __name__ == '__main__':
+    main()
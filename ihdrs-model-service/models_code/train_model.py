@@ -9,6 +9,7 @@ from tensorflow import keras
 import numpy as np
 from pathlib import Path
 from config import Config
+from models_code.export_tensor_file import export_tensor_file, tensor_file_path
 
 def train_default_model():
     # 初始化配置
@@ -108,6 +109,8 @@ def train_default_model():
     model.save(model_path)
     print(f"\n模型已保存到: {model_path}")
 
+    print(f"张量文件已导出: {export_tensor_file(model, tensor_file_path(model_path))}")
+
     # 7. 快速验证
     print("\n快速验证模型...")
     sample_indices = np.random.choice(len(x_test), 5)
@@ -5,6 +5,7 @@ from tensorflow import keras
 import logging
 import os
 from pathlib import Path
+from models_code.export_tensor_file import export_alongside
 
 logger = logging.getLogger(__name__)
 
@@ -149,6 +150,47 @@ class ModelService:
             logger.error(f"预测失败: {e}", exc_info=True)
             return None
 
+    def predict_batch(self, images, model_id=None):
+        """批量预测 - 多张图像合并为一次model.predict调用"""
+        try:
+            target_model_id = model_id if model_id is not None else self.active_model_id
+
+            if target_model_id is None or target_model_id not in self.models:
+                logger.error(f"模型不可用: {target_model_id}")
+                return None
+
+            if not images:
+                return []
+
+            model = self.models[target_model_id]
+            input_type = self.model_input_type.get(target_model_id, 'unknown')
+
+            # 准备批量输入数据
+            if input_type == 'flatten':
+                batch_input = np.stack([image.reshape(784) for image in images])
+            else:
+                batch_input = np.stack([image.reshape(28, 28, 1) for image in images])
+
+            predictions = model.predict(batch_input, verbose=0)
+
+            results = []
+            for confidence_scores in predictions:
+                predicted_digit = np.argmax(confidence_scores)
+                results.append({
+                    'digit': int(predicted_digit),
+                    'confidence': float(confidence_scores[predicted_digit]),
+                    'all_probabilities': confidence_scores.tolist(),
+                    'model_id': target_model_id,
+                    'input_type': input_type
+                })
+
+            logger.debug(f"批量预测完成 - 数量: {len(results)}")
+            return results
+
+        except Exception as e:
+            logger.error(f"批量预测失败: {e}", exc_info=True)
+            return None
+
     def get_active_model_id(self):
         return self.active_model_id
 
@@ -175,8 +217,9 @@ class ModelService:
             from config import Config
             model_path = Config.MODEL_PATH / f"{model_name}.h5"
 
-            # 保存模型文件
+            # 保存模型文件，同时导出供后端进程内推理的张量文件
             model.save(model_path)
+            export_alongside(model, model_path)
 
             # 生成模型ID（简单自增）
             model_id = max(self.models.keys()) + 1 if self.models else 2
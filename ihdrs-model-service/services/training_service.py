@@ -5,6 +5,7 @@ import numpy as np
 import time
 import logging
 from models_code.cnn_model import create_cnn_model, create_advanced_cnn_model
+from models_code.export_tensor_file import export_alongside
 
 logger = logging.getLogger(__name__)
 
@@ -82,6 +83,7 @@ class TrainingService:
             from config import Config
             model_path = Config.MODEL_PATH / f"trained_model_{int(time.time())}.h5"
             model.save(model_path)
+            export_alongside(model, model_path)
 
             self.training_status['is_training'] = False
             logger.info(f"训练完成，模型已保存到: {model_path}")
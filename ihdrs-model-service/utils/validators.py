@@ -22,4 +22,27 @@ def validate_recognition_request(data):
     if model_id is not None and not isinstance(model_id, int):
         return "model_id必须是整数"
 
-    return None
\ No newline at end of file
+    return None
+
+
+def validate_batch_recognition_request(data, max_batch_size):
+    """验证批量识别请求数据"""
+    if not isinstance(data, dict):
+        return "请求数据必须是JSON对象"
+
+    images = data.get('images')
+    if not isinstance(images, list) or len(images) == 0:
+        return "images字段必须是非空数组"
+
+    if len(images) > max_batch_size:
+        return f"单次批量识别最多{max_batch_size}张图像"
+
+    for index, image_data in enumerate(images):
+        if not isinstance(image_data, str) or len(image_data) == 0:
+            return f"第{index}张图像数据无效"
+
+    model_id = data.get('model_id')
+    if model_id is not None and not isinstance(model_id, int):
+        return "model_id必须是整数"
+
+    return None
@@ -7,8 +7,13 @@ public class Constants {
     public static final String REDIS_KEY_USER_INFO = "user:info:";
     public static final String REDIS_KEY_MODEL_ACTIVE = "model:active";
     public static final String REDIS_KEY_RECOGNITION_RESULT = "recognition:result:";
+    public static final String REDIS_KEY_RECOGNITION_INFLIGHT = "recognition:inflight:";
+    public static final String REDIS_KEY_RECOGNITION_GENERATION = "recognition:generation";
     public static final String REDIS_KEY_SYSTEM_CONFIG = "system:config:";
 
+    // Redis 发布订阅频道
+    public static final String REDIS_CHANNEL_RECOGNITION_CACHE = "recognition:cache:invalidate";
+
     // 缓存过期时间（秒）
     public static final long CACHE_EXPIRE_USER_INFO = 3600; // 1小时
     public static final long CACHE_EXPIRE_MODEL_INFO = 1800; // 30分钟
@@ -25,6 +30,9 @@ public class Constants {
     public static final double MIN_CONFIDENCE_THRESHOLD = 0.8;
     public static final int RECOGNITION_TIMEOUT = 10000; // 10秒
     public static final int MAX_RECOGNITION_RETRIES = 3;
+    public static final int MAX_BATCH_RECOGNITION_SIZE = 32; // 批量识别单次最多图像数
+    public static final int MAX_STROKES = 64; // 笔画输入最多笔数
+    public static final int MAX_STROKE_POINTS = 4096; // 笔画输入最多总点数
 
     // 训练相关常量
     public static final int DEFAULT_EPOCHS = 10;
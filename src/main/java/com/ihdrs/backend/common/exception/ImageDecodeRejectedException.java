@@ -0,0 +1,12 @@
+// ImageDecodeRejectedException.java - 图像解码过载异常
+package com.ihdrs.backend.common.exception;
+
+/**
+ * 解码内存预算在排队期限内仍不足时拒绝请求，调用方应返回503而不是继续等待
+ */
+public class ImageDecodeRejectedException extends RuntimeException {
+
+    public ImageDecodeRejectedException(String message) {
+        super(message);
+    }
+}
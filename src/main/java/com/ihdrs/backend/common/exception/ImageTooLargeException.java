@@ -0,0 +1,14 @@
+// ImageTooLargeException.java - 图像尺寸超限异常
+package com.ihdrs.backend.common.exception;
+
+import java.io.IOException;
+
+/**
+ * 图像头部声明的尺寸或解码所需内存超过限制，在分配像素内存前拒绝（防止解压炸弹）
+ */
+public class ImageTooLargeException extends IOException {
+
+    public ImageTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+// ModelServiceUnavailableException.java - 模型服务暂不可用异常
+package com.ihdrs.backend.common.exception;
+
+/**
+ * 模型服务熔断或并发已达上限时快速失败，调用方应返回503而不是等待
+ */
+public class ModelServiceUnavailableException extends RuntimeException {
+
+    public ModelServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,35 @@
+// JwtVerificationEvent.java - JWT校验JFR事件
+package com.ihdrs.backend.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 请求携带的JWT的一次校验（验签、检查过期并解析用户信息）
+ */
+@Name("ihdrs.JwtVerification")
+@Label("JWT Verification")
+@Description("JWT验签和解析")
+@Category({"IHDRS", "Security"})
+@StackTrace(false)
+public class JwtVerificationEvent extends Event {
+
+    @Label("Valid")
+    boolean valid;
+
+    @Label("Role")
+    String role;
+
+    public void finish(boolean valid, String role) {
+        end();
+        if (shouldCommit()) {
+            this.valid = valid;
+            this.role = role;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+// ModelServiceCallEvent.java - 模型服务调用JFR事件
+package com.ihdrs.backend.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 向单个模型服务实例发送的一次HTTP请求（重试和对冲的每次请求各一个事件）
+ */
+@Name("ihdrs.ModelServiceCall")
+@Label("Model Service Call")
+@Description("向模型服务实例发送的一次HTTP请求")
+@Category({"IHDRS", "Model Service"})
+@StackTrace(false)
+public class ModelServiceCallEvent extends Event {
+
+    @Label("Replica")
+    String replica;
+
+    @Label("Path")
+    String path;
+
+    @Label("Status")
+    @Description("HTTP状态码，连接失败或超时为0，被取消为-1")
+    int status;
+
+    @Label("Request Bytes")
+    @DataAmount
+    long requestBytes;
+
+    @Label("Response Bytes")
+    @DataAmount
+    @Description("响应的Content-Length，未知时为-1")
+    long responseBytes;
+
+    /**
+     * 开始计时，请求发送前调用
+     */
+    public static ModelServiceCallEvent start(String replica, String path, long requestBytes) {
+        ModelServiceCallEvent event = new ModelServiceCallEvent();
+        event.replica = replica;
+        event.path = path;
+        event.requestBytes = requestBytes;
+        event.responseBytes = -1;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * 请求结束时调用
+     */
+    public void finish(int status, long responseBytes) {
+        end();
+        if (shouldCommit()) {
+            this.status = status;
+            this.responseBytes = responseBytes;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+// RecognitionEvent.java - 单张识别JFR事件
+package com.ihdrs.backend.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 一次单张识别请求，事件时长为整个请求，各阶段耗时见对应字段（阶段划分同RecognitionStageMetrics，未经过的阶段为-1）
+ */
+@Name("ihdrs.Recognition")
+@Label("Recognition")
+@Description("单张识别请求及各阶段耗时")
+@Category({"IHDRS", "Recognition"})
+@StackTrace(false)
+public class RecognitionEvent extends Event {
+
+    @Label("Model Id")
+    long modelId;
+
+    @Label("Input Type")
+    String inputType;
+
+    @Label("Cache")
+    @Description("hit、miss，画布预检拒绝时为none")
+    String cache;
+
+    @Label("Decode")
+    @Timespan
+    long decode;
+
+    @Label("Precheck")
+    @Timespan
+    long precheck;
+
+    @Label("Cache Lookup")
+    @Timespan
+    long cacheLookup;
+
+    @Label("Inference")
+    @Timespan
+    long inference;
+
+    @Label("Persist")
+    @Timespan
+    long persist;
+
+    /**
+     * 请求结束时调用：填写请求信息和各阶段耗时（纳秒，按decode、precheck、cache、inference、persist顺序）并提交
+     */
+    public void finish(Long modelId, String inputType, String cache, long[] stageNanos) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+        this.modelId = modelId != null ? modelId : -1;
+        this.inputType = inputType;
+        this.cache = cache;
+        this.decode = stageNanos[0];
+        this.precheck = stageNanos[1];
+        this.cacheLookup = stageNanos[2];
+        this.inference = stageNanos[3];
+        this.persist = stageNanos[4];
+        commit();
+    }
+}
@@ -0,0 +1,35 @@
+// RecordPersistEvent.java - 识别记录写库JFR事件
+package com.ihdrs.backend.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 识别记录写入队列的一次批量写库
+ */
+@Name("ihdrs.RecordPersist")
+@Label("Record Persist")
+@Description("识别记录批量写库")
+@Category({"IHDRS", "Database"})
+@StackTrace(false)
+public class RecordPersistEvent extends Event {
+
+    @Label("Batch Size")
+    int batchSize;
+
+    @Label("Success")
+    boolean success;
+
+    public void finish(int batchSize, boolean success) {
+        end();
+        if (shouldCommit()) {
+            this.batchSize = batchSize;
+            this.success = success;
+            commit();
+        }
+    }
+}
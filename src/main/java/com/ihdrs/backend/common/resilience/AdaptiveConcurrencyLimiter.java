@@ -0,0 +1,116 @@
+// AdaptiveConcurrencyLimiter.java - 自适应并发限制器
+package com.ihdrs.backend.common.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD（加性增、乘性减）并发限制器。
+ * 调用在延迟阈值内成功且并发已用到上限的一半以上时上限加1/limit，并发用满时约每一轮往返（limit个调用）加1；
+ * 超时、失败或延迟超过阈值时上限乘以backoffRatio。
+ * 下游变慢时并发上限随之收缩，超出上限的请求立即拒绝，而不是占住线程排队等待。
+ * 上限的调整和CircuitBreaker一样由ReentrantLock保护，虚拟线程在此等待时不固定载体线程。
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejectedCalls = new AtomicLong();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile double limit; // 保留小数部分累积加性增长，getLimit取整
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      double backoffRatio, Duration latencyThreshold) {
+        if (minLimit <= 0 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("并发上限范围无效: " + minLimit + "-" + maxLimit);
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("backoffRatio必须在(0,1)之间");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * 申请一个并发名额，返回false表示已达上限。获得名额后必须调用onSuccess、onDropped或onIgnore之一
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= getLimit()) {
+                rejectedCalls.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 调用成功，延迟超过阈值视为过载信号
+     */
+    public void onSuccess(long durationNanos) {
+        int current = inFlight.getAndDecrement();
+        if (durationNanos > latencyThresholdNanos) {
+            decrease();
+            return;
+        }
+
+        lock.lock();
+        try {
+            // 并发远未用满时说明上限不是瓶颈，不继续放大
+            if (current * 2 >= limit) {
+                // 每个调用加1会让上限每轮往返翻倍，延迟信号到来前就已涨到maxLimit
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 调用超时或失败
+     */
+    public void onDropped() {
+        inFlight.decrementAndGet();
+        decrease();
+    }
+
+    /**
+     * 结果与下游负载无关（如请求本身无效），只释放名额
+     */
+    public void onIgnore() {
+        inFlight.decrementAndGet();
+    }
+
+    private void decrease() {
+        lock.lock();
+        try {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejectedCalls() {
+        return rejectedCalls.get();
+    }
+}
@@ -0,0 +1,91 @@
+// CancellationScope.java - 阻塞请求取消作用域
+package com.ihdrs.backend.common.resilience;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 在作用域内（同一线程）发出的HTTP请求登记到作用域，cancel()时逐个中止。
+ * HttpComponents的阻塞读取不响应线程中断，只能通过请求对象本身中止，中止后连接被关闭并归还连接池名额。
+ * 作用域已取消后才登记的请求立即中止。
+ * 中止会关闭连接，cancel()在锁内取出已登记的请求，在锁外逐个中止。
+ */
+public class CancellationScope {
+
+    private static final ThreadLocal<CancellationScope> CURRENT = new ThreadLocal<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Runnable> aborts = new ArrayList<>();
+    private boolean cancelled;
+
+    /**
+     * 在当前线程上以本作用域执行task
+     */
+    public <T> T run(Supplier<T> task) {
+        CancellationScope previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * 登记当前线程正在发出的请求，不在作用域内时忽略
+     */
+    public static void register(Runnable abort) {
+        CancellationScope scope = CURRENT.get();
+        if (scope != null) {
+            scope.add(abort);
+        }
+    }
+
+    /**
+     * 当前线程所在的作用域是否已取消
+     */
+    public static boolean isCurrentCancelled() {
+        CancellationScope scope = CURRENT.get();
+        return scope != null && scope.isCancelled();
+    }
+
+    public void cancel() {
+        List<Runnable> registered;
+        lock.lock();
+        try {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            registered = new ArrayList<>(aborts);
+            aborts.clear();
+        } finally {
+            lock.unlock();
+        }
+        registered.forEach(Runnable::run);
+    }
+
+    public boolean isCancelled() {
+        lock.lock();
+        try {
+            return cancelled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void add(Runnable abort) {
+        lock.lock();
+        try {
+            if (!cancelled) {
+                aborts.add(abort);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        abort.run();
+    }
+}
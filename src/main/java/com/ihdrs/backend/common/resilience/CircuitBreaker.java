@@ -0,0 +1,202 @@
+// CircuitBreaker.java - 熔断器
+package com.ihdrs.backend.common.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 基于计数滑动窗口的熔断器。
+ * 最近windowSize次调用中失败（含慢调用）比例达到阈值即打开，打开期间直接拒绝；
+ * 经过openDuration后进入半开状态，只放行少量探测请求，全部成功则关闭，任一失败重新打开。
+ * 每次模型调用都要进出两次临界区，使用ReentrantLock而不是synchronized，虚拟线程竞争时不会占住平台线程。
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallThresholdNanos;
+    private final long openDurationNanos;
+    private final int halfOpenPermits;
+    private final LongSupplier nanoClock;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final boolean[] outcomes; // 环形窗口，true表示失败
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSuccesses;
+    private long rejectedCalls;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          Duration slowCallThreshold, Duration openDuration, int halfOpenPermits) {
+        this(windowSize, minimumCalls, failureRateThreshold, slowCallThreshold, openDuration,
+                halfOpenPermits, System::nanoTime);
+    }
+
+    CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                   Duration slowCallThreshold, Duration openDuration, int halfOpenPermits,
+                   LongSupplier nanoClock) {
+        if (windowSize <= 0 || halfOpenPermits <= 0) {
+            throw new IllegalArgumentException("windowSize和halfOpenPermits必须大于0");
+        }
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(Math.max(minimumCalls, 1), windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallThresholdNanos = slowCallThreshold.toNanos();
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenPermits = halfOpenPermits;
+        this.nanoClock = nanoClock;
+        this.outcomes = new boolean[windowSize];
+    }
+
+    /**
+     * 申请调用许可，返回false表示熔断中应快速失败。获得许可后必须调用onSuccess或onError之一
+     */
+    public boolean tryAcquirePermission() {
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (nanoClock.getAsLong() - openedAt < openDurationNanos) {
+                    rejectedCalls++;
+                    return false;
+                }
+                transitionTo(State.HALF_OPEN);
+            }
+
+            if (state == State.HALF_OPEN) {
+                if (halfOpenInFlight >= halfOpenPermits) {
+                    rejectedCalls++;
+                    return false;
+                }
+                halfOpenInFlight++;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 调用成功，耗时超过慢调用阈值时按失败计
+     */
+    public void onSuccess(long durationNanos) {
+        lock.lock();
+        try {
+            record(durationNanos >= slowCallThresholdNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 调用失败（超时、连接失败、服务端错误）
+     */
+    public void onError() {
+        lock.lock();
+        try {
+            record(true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(boolean failure) {
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+            if (failure) {
+                transitionTo(State.OPEN);
+            } else if (++halfOpenSuccesses >= halfOpenPermits) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // 打开前已放行的调用，结果不再计入
+            return;
+        }
+
+        if (windowCount == windowSize) {
+            if (outcomes[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        outcomes[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % windowSize;
+
+        if (windowCount >= minimumCalls && failureRate() >= failureRateThreshold) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private void transitionTo(State newState) {
+        state = newState;
+        halfOpenInFlight = 0;
+        halfOpenSuccesses = 0;
+        if (newState == State.OPEN) {
+            openedAt = nanoClock.getAsLong();
+        } else if (newState == State.CLOSED) {
+            windowIndex = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+    }
+
+    private double failureRate() {
+        return windowCount == 0 ? 0.0 : (double) windowFailures / windowCount;
+    }
+
+    public State getState() {
+        lock.lock();
+        try {
+            // 打开时长已到但尚无请求进入时，对外也呈现为半开
+            if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openDurationNanos) {
+                return State.HALF_OPEN;
+            }
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getFailureRate() {
+        lock.lock();
+        try {
+            return failureRate();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getBufferedCalls() {
+        lock.lock();
+        try {
+            return windowCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRejectedCalls() {
+        lock.lock();
+        try {
+            return rejectedCalls;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
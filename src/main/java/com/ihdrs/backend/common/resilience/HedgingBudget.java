@@ -0,0 +1,56 @@
+// HedgingBudget.java - 对冲请求预算
+package com.ihdrs.backend.common.resilience;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 限制对冲请求占正常请求的比例：每个正常请求存入ratio个令牌，每发出一个对冲请求消耗一个令牌，
+ * 令牌最多累积maxTokens个，下游整体变慢时对冲不会成倍放大负载。
+ * 令牌计数由ReentrantLock保护（原因同CircuitBreaker）。
+ */
+public class HedgingBudget {
+
+    private final double ratio;
+    private final double maxTokens;
+    private final ReentrantLock lock = new ReentrantLock();
+    private double tokens;
+
+    public HedgingBudget(double ratio, double maxTokens) {
+        if (ratio < 0 || maxTokens < 1) {
+            throw new IllegalArgumentException("对冲预算参数无效");
+        }
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+    }
+
+    public void onRequest() {
+        lock.lock();
+        try {
+            tokens = Math.min(maxTokens, tokens + ratio);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getTokens() {
+        lock.lock();
+        try {
+            return tokens;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
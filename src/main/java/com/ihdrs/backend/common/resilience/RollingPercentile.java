@@ -0,0 +1,66 @@
+// RollingPercentile.java - 滑动窗口延迟分位数
+package com.ihdrs.backend.common.resilience;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 记录最近windowSize个延迟样本并给出指定分位数。
+ * 分位数每记录recomputeEvery个样本重新排序计算一次，读取时只返回缓存值，避免每次调用都排序。
+ * 排序在锁内进行，使用ReentrantLock，虚拟线程等待时不会占住平台线程。
+ */
+public class RollingPercentile {
+
+    private final double percentile;
+    private final int recomputeEvery;
+    private final long[] samples;
+    private final ReentrantLock lock = new ReentrantLock();
+    private int index;
+    private int count;
+    private int sinceRecompute;
+    private volatile long cachedValue = -1;
+
+    public RollingPercentile(double percentile, int windowSize, int recomputeEvery) {
+        if (percentile <= 0 || percentile >= 1) {
+            throw new IllegalArgumentException("percentile必须在(0,1)之间");
+        }
+        this.percentile = percentile;
+        this.recomputeEvery = Math.max(1, recomputeEvery);
+        this.samples = new long[windowSize];
+    }
+
+    public void record(long valueNanos) {
+        lock.lock();
+        try {
+            samples[index] = valueNanos;
+            index = (index + 1) % samples.length;
+            if (count < samples.length) {
+                count++;
+            }
+            if (++sinceRecompute >= recomputeEvery) {
+                sinceRecompute = 0;
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                cachedValue = sorted[(int) Math.min(count - 1, Math.ceil(percentile * count) - 1)];
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 当前分位数，样本不足一次计算时返回-1
+     */
+    public long get() {
+        return cachedValue;
+    }
+
+    public int getCount() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
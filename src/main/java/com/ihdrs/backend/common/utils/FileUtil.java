@@ -12,7 +12,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.UUID;
 
 @Slf4j
@@ -64,19 +66,31 @@ public class FileUtil {
      */
     public String calculateFileHash(byte[] data) {
         try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] hash = md.digest(data);
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hash) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
+            return toHex(newMd5().digest(data));
         } catch (Exception e) {
             log.error("计算文件哈希失败", e);
             return null;
         }
     }
 
+    /**
+     * 新建MD5摘要，用于边读取边计算哈希
+     */
+    public static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5不可用", e);
+        }
+    }
+
+    /**
+     * 摘要转为小写十六进制字符串
+     */
+    public static String toHex(byte[] digest) {
+        return HexFormat.of().formatHex(digest);
+    }
+
     /**
      * 删除文件
      */
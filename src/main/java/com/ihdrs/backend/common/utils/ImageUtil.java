@@ -1,20 +1,80 @@
 // ImageUtil.java - 图像处理工具类
 package com.ihdrs.backend.common.utils;
 
+import com.ihdrs.backend.common.exception.ImageTooLargeException;
+import com.ihdrs.backend.config.RecognitionConfig;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageInputStreamImpl;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
 
 @Slf4j
 @Component
 public class ImageUtil {
 
+    public static final int MNIST_SIZE = 28;
+    public static final int MNIST_PIXELS = MNIST_SIZE * MNIST_SIZE;
+    static final int MNIST_DIGIT_SIZE = 20; // MNIST中数字缩放后的最长边
+
+    public static final int FORMAT_HEADER_SIZE = 8; // 判断图像格式需要的文件头字节数
+    private static final byte[] PNG_MAGIC = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] JPEG_MAGIC = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final long maxPixels;
+    private final long maxDecodeBytes;
+    private final int maxWorkingSize;
+
+    public ImageUtil() {
+        this(new RecognitionConfig());
+    }
+
+    @Autowired
+    public ImageUtil(RecognitionConfig recognitionConfig) {
+        RecognitionConfig.Decode decode = recognitionConfig.getDecode();
+        this.maxPixels = decode.getMaxPixels();
+        this.maxDecodeBytes = decode.getMaxDecodeSize().toBytes();
+        this.maxWorkingSize = decode.getMaxWorkingSize();
+    }
+
+    /**
+     * 按文件头（魔数）判断图像格式，不信任客户端声明的Content-Type。
+     * 只接受PNG和JPEG，返回 "png" 或 "jpeg"，其他返回null
+     */
+    public static String detectFormat(byte[] header) {
+        if (startsWith(header, PNG_MAGIC)) {
+            return "png";
+        }
+        if (startsWith(header, JPEG_MAGIC)) {
+            return "jpeg";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        return data != null && data.length >= prefix.length
+                && Arrays.equals(data, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
     /**
      * 调整图像大小到28x28像素（MNIST标准）
      */
@@ -68,4 +128,509 @@ public class ImageUtil {
 
         return resizedImage;
     }
+
+    /**
+     * 转换为模型输入张量：28x28灰度、白字黑底、归一化到[0,1]，按行优先排列，预处理同toMnistBytes
+     */
+    public float[] toMnistTensor(byte[] imageData) throws IOException {
+        float[] tensor = new float[MNIST_PIXELS];
+        toMnistTensor(imageData, tensor);
+        return tensor;
+    }
+
+    /**
+     * 同toMnistTensor(byte[])，结果写入调用方提供的长度为784的数组
+     */
+    public void toMnistTensor(byte[] imageData, float[] tensor) throws IOException {
+        checkLength(tensor.length);
+        byte[] pixels = SCRATCH.get().mnist;
+        toMnistBytes(imageData, pixels);
+        for (int i = 0; i < MNIST_PIXELS; i++) {
+            tensor[i] = (pixels[i] & 0xFF) / 255f;
+        }
+    }
+
+    /**
+     * 转换为28x28 uint8张量（255为笔迹，即模型服务的tensor载荷格式），按MNIST数据集的方式归一化：
+     * Otsu二值化（反色）→ 裁剪笔画包围盒 → 保持宽高比区域平均缩放到20x20以内 → 按质心平移到28x28中心。
+     * 不经过Graphics2D重绘和PNG重新编码，中间数据写入线程本地缓冲区，除解码外每次调用不分配内存
+     */
+    public byte[] toMnistBytes(byte[] imageData) throws IOException {
+        byte[] pixels = new byte[MNIST_PIXELS];
+        toMnistBytes(imageData, pixels);
+        return pixels;
+    }
+
+    /**
+     * 同toMnistBytes(byte[])，结果写入调用方提供的长度为784的数组
+     */
+    public void toMnistBytes(byte[] imageData, byte[] pixels) throws IOException {
+        checkLength(pixels.length);
+        toMnistBytes(decode(imageData), pixels);
+    }
+
+    /**
+     * 有界解码：先读取头部尺寸，像素数或解码内存超限时在分配前抛出ImageTooLargeException；
+     * 最长边超过maxWorkingSize的大图（如相机照片）按整数倍降采样解码，不会先解出全分辨率图像
+     */
+    public BufferedImage decode(byte[] imageData) throws IOException {
+        return decode(imageData, maxWorkingSize);
+    }
+
+    private BufferedImage decode(byte[] imageData, int workingSize) throws IOException {
+        // 直接读取字节数组：ImageIO.read默认为字节流创建临时文件缓存，内存缓存也会再复制一份数据
+        try (ImageInputStream input = new ByteArrayImageInputStream(imageData)) {
+            ImageReader reader = openReader(input);
+            try {
+                int subsampling = plan(reader, workingSize).subsampling;
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 只读取头部，估算decode解码后像素数组的字节数，超限时同样抛出ImageTooLargeException
+     */
+    public long estimateDecodeBytes(byte[] imageData) throws IOException {
+        try (ImageInputStream input = new ByteArrayImageInputStream(imageData)) {
+            ImageReader reader = openReader(input);
+            try {
+                return plan(reader, maxWorkingSize).decodeBytes;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static ImageReader openReader(ImageInputStream input) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new IOException("无法解析图像数据");
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(input, true, true);
+        return reader;
+    }
+
+    /**
+     * 根据头部尺寸确定降采样倍数和解码内存，超限时抛出ImageTooLargeException
+     */
+    private DecodePlan plan(ImageReader reader, int workingSize) throws IOException {
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        if (width <= 0 || height <= 0 || (long) width * height > maxPixels) {
+            throw new ImageTooLargeException("图像尺寸超过限制: " + width + "x" + height);
+        }
+
+        int subsampling = subsampling(width, height, workingSize);
+        long decodeBytes = (long) ceilDiv(width, subsampling) * ceilDiv(height, subsampling)
+                * bytesPerPixel(reader);
+        if (decodeBytes > maxDecodeBytes) {
+            throw new ImageTooLargeException("图像解码所需内存超过限制: " + decodeBytes + " 字节");
+        }
+        return new DecodePlan(subsampling, decodeBytes);
+    }
+
+    /**
+     * 使最长边不超过maxWorkingSize的最小整数降采样倍数
+     */
+    int subsampling(int width, int height) {
+        return subsampling(width, height, maxWorkingSize);
+    }
+
+    private static int subsampling(int width, int height, int workingSize) {
+        return Math.max(1, ceilDiv(Math.max(width, height), workingSize));
+    }
+
+    /**
+     * 解码后每像素字节数，按读取器的原始图像类型估算，无法确定时按4字节（ARGB）计
+     */
+    private static int bytesPerPixel(ImageReader reader) throws IOException {
+        ImageTypeSpecifier type = reader.getRawImageType(0);
+        if (type == null) {
+            Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+            type = types.hasNext() ? types.next() : null;
+        }
+        return type != null ? Math.max(1, (type.getColorModel().getPixelSize() + 7) / 8) : 4;
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    /**
+     * 对已解码的图像做MNIST归一化，结果写入长度为784的数组
+     */
+    public void toMnistBytes(BufferedImage source, byte[] pixels) {
+        checkLength(pixels.length);
+        Scratch scratch = SCRATCH.get();
+        int width = source.getWidth();
+        int height = source.getHeight();
+        byte[] gray = scratch.gray(width * height);
+        int[] histogram = scratch.histogram;
+        Arrays.fill(histogram, 0);
+        toGray(source, gray, histogram, scratch);
+        int threshold = otsuThreshold(histogram, width * height);
+
+        // 原地转换为笔迹掩码（反色后灰度<=阈值为1，否则为0），同时求笔画包围盒
+        int minX = width, minY = height, maxX = -1, maxY = -1;
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            int rowInk = 0;
+            for (int x = 0; x < width; x++) {
+                int ink = (threshold - (gray[row + x] & 0xFF)) >>> 31 ^ 1;
+                gray[row + x] = (byte) ink;
+                rowInk |= ink;
+            }
+            if (rowInk == 0) {
+                continue;
+            }
+            if (minY == height) {
+                minY = y;
+            }
+            maxY = y;
+            // 只需扫描当前包围盒左右两侧
+            for (int x = 0; x < minX; x++) {
+                if (gray[row + x] != 0) {
+                    minX = x;
+                    break;
+                }
+            }
+            for (int x = width - 1; x > maxX; x--) {
+                if (gray[row + x] != 0) {
+                    maxX = x;
+                    break;
+                }
+            }
+        }
+
+        Arrays.fill(pixels, (byte) 0);
+        if (maxX < 0) {
+            return; // 没有笔迹
+        }
+
+        // 保持宽高比缩放到最长边为20像素，区域平均得到抗锯齿的灰度
+        int boxWidth = maxX - minX + 1;
+        int boxHeight = maxY - minY + 1;
+        int longest = Math.max(boxWidth, boxHeight);
+        int digitWidth = Math.max(1, Math.round(boxWidth * (float) MNIST_DIGIT_SIZE / longest));
+        int digitHeight = Math.max(1, Math.round(boxHeight * (float) MNIST_DIGIT_SIZE / longest));
+        int[] digit = scratch.digit;
+        for (int dy = 0; dy < digitHeight; dy++) {
+            int y0 = minY + dy * boxHeight / digitHeight;
+            int y1 = Math.max(y0 + 1, minY + (dy + 1) * boxHeight / digitHeight);
+            for (int dx = 0; dx < digitWidth; dx++) {
+                int x0 = minX + dx * boxWidth / digitWidth;
+                int x1 = Math.max(x0 + 1, minX + (dx + 1) * boxWidth / digitWidth);
+                int ink = 0;
+                for (int y = y0; y < y1; y++) {
+                    int row = y * width;
+                    for (int x = x0; x < x1; x++) {
+                        ink += gray[row + x];
+                    }
+                }
+                digit[dy * MNIST_DIGIT_SIZE + dx] = ink * 255 / ((y1 - y0) * (x1 - x0));
+            }
+        }
+        placeDigit(digit, digitWidth, digitHeight, pixels);
+    }
+
+    /**
+     * 将缩放后的数字（按MNIST_DIGIT_SIZE行宽存放，取值0-255）平移到28x28中，使质心落在中心且数字不超出边界。
+     * 调用方需先将pixels清零
+     */
+    static void placeDigit(int[] digit, int digitWidth, int digitHeight, byte[] pixels) {
+        long mass = 0, massX = 0, massY = 0;
+        for (int dy = 0; dy < digitHeight; dy++) {
+            for (int dx = 0; dx < digitWidth; dx++) {
+                int value = digit[dy * MNIST_DIGIT_SIZE + dx];
+                mass += value;
+                massX += (long) value * (2 * dx + 1);
+                massY += (long) value * (2 * dy + 1);
+            }
+        }
+        if (mass == 0) {
+            return;
+        }
+
+        int offsetX = clamp(Math.round(MNIST_SIZE / 2f - massX / (2f * mass)), MNIST_SIZE - digitWidth);
+        int offsetY = clamp(Math.round(MNIST_SIZE / 2f - massY / (2f * mass)), MNIST_SIZE - digitHeight);
+        for (int dy = 0; dy < digitHeight; dy++) {
+            int target = (offsetY + dy) * MNIST_SIZE + offsetX;
+            for (int dx = 0; dx < digitWidth; dx++) {
+                pixels[target + dx] = (byte) digit[dy * MNIST_DIGIT_SIZE + dx];
+            }
+        }
+    }
+
+    /**
+     * 按最长边不超过maxSize降采样解码后统计笔迹，用于在调用模型前识别空白或无效画布
+     */
+    public InkStats inkStats(byte[] imageData, int maxSize) throws IOException {
+        return inkStats(decode(imageData, Math.min(maxSize, maxWorkingSize)));
+    }
+
+    /**
+     * 笔迹统计：笔迹按Otsu阈值划分（与toMnistBytes一致），对比度为背景与笔迹两类的平均亮度之差，
+     * 包围盒按相对图像宽高的比例计算。不分配像素缓冲区
+     */
+    public InkStats inkStats(BufferedImage source) {
+        Scratch scratch = SCRATCH.get();
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int total = width * height;
+        byte[] gray = scratch.gray(total);
+        int[] histogram = scratch.histogram;
+        Arrays.fill(histogram, 0);
+        toGray(source, gray, histogram, scratch);
+        int threshold = otsuThreshold(histogram, total);
+
+        long ink = 0, inkSum = 0, backgroundSum = 0;
+        for (int i = 0; i < 256; i++) {
+            if (i <= threshold) {
+                ink += histogram[i];
+                inkSum += (long) i * histogram[i];
+            } else {
+                backgroundSum += (long) i * histogram[i];
+            }
+        }
+        int contrast = ink == 0 || ink == total ? 0
+                : (int) (backgroundSum / (total - ink) - inkSum / ink);
+
+        int minX = width, minY = height, maxX = -1, maxY = -1;
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                if ((gray[row + x] & 0xFF) <= threshold) {
+                    minX = Math.min(minX, x);
+                    maxX = Math.max(maxX, x);
+                    minY = Math.min(minY, y);
+                    maxY = y;
+                }
+            }
+        }
+
+        double boxRatio = maxX < 0 ? 0
+                : Math.max((maxX - minX + 1) / (double) width, (maxY - minY + 1) / (double) height);
+        return new InkStats((double) ink / total, boxRatio, contrast);
+    }
+
+    /**
+     * 画布笔迹统计
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class InkStats {
+        private final double inkRatio; // 笔迹像素占比
+        private final double boxRatio; // 笔迹包围盒相对图像宽高的最大比例
+        private final int contrast; // 背景与笔迹的平均亮度之差（0-255），没有笔迹时为0
+    }
+
+    /**
+     * 转为灰度（透明部分按白色背景合成）并统计直方图，按栅格类型直接读取像素数组，避免逐像素getRGB
+     */
+    private static void toGray(BufferedImage source, byte[] gray, int[] histogram, Scratch scratch) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int size = width * height;
+        WritableRaster raster = source.getRaster();
+        boolean packed = raster.getParent() == null && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0;
+
+        switch (packed ? source.getType() : BufferedImage.TYPE_CUSTOM) {
+            case BufferedImage.TYPE_BYTE_GRAY: {
+                byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                System.arraycopy(data, 0, gray, 0, size);
+                for (int i = 0; i < size; i++) {
+                    histogram[gray[i] & 0xFF]++;
+                }
+                return;
+            }
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB: {
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                if (source.getType() == BufferedImage.TYPE_INT_ARGB) {
+                    for (int i = 0; i < size; i++) {
+                        int value = luminance(data[i]);
+                        gray[i] = (byte) value;
+                        histogram[value]++;
+                    }
+                } else {
+                    for (int i = 0; i < size; i++) {
+                        int rgb = data[i];
+                        int value = (77 * ((rgb >> 16) & 0xFF) + 150 * ((rgb >> 8) & 0xFF) + 29 * (rgb & 0xFF)) >> 8;
+                        gray[i] = (byte) value;
+                        histogram[value]++;
+                    }
+                }
+                return;
+            }
+            case BufferedImage.TYPE_3BYTE_BGR: {
+                byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                for (int i = 0, j = 0; i < size; i++, j += 3) {
+                    int value = (29 * (data[j] & 0xFF) + 150 * (data[j + 1] & 0xFF) + 77 * (data[j + 2] & 0xFF)) >> 8;
+                    gray[i] = (byte) value;
+                    histogram[value]++;
+                }
+                return;
+            }
+            case BufferedImage.TYPE_4BYTE_ABGR: {
+                byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                for (int i = 0, j = 0; i < size; i++, j += 4) {
+                    int argb = (data[j] & 0xFF) << 24 | (data[j + 3] & 0xFF) << 16
+                            | (data[j + 2] & 0xFF) << 8 | (data[j + 1] & 0xFF);
+                    int value = luminance(argb);
+                    gray[i] = (byte) value;
+                    histogram[value]++;
+                }
+                return;
+            }
+            default: {
+                // 调色板、16位等其它类型逐行转换为ARGB
+                int[] row = scratch.row(width);
+                for (int y = 0; y < height; y++) {
+                    source.getRGB(0, y, width, 1, row, 0, width);
+                    for (int x = 0; x < width; x++) {
+                        int value = luminance(row[x]);
+                        gray[y * width + x] = (byte) value;
+                        histogram[value]++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * ARGB像素的亮度（BT.601加权），透明度按白色背景合成
+     */
+    private static int luminance(int argb) {
+        int luma = (77 * ((argb >> 16) & 0xFF) + 150 * ((argb >> 8) & 0xFF) + 29 * (argb & 0xFF)) >> 8;
+        int alpha = argb >>> 24;
+        return alpha == 255 ? luma : (luma * alpha + 255 * (255 - alpha)) / 255;
+    }
+
+    private static int clamp(int offset, int max) {
+        return Math.max(0, Math.min(max, offset));
+    }
+
+    private static void checkLength(int length) {
+        if (length != MNIST_PIXELS) {
+            throw new IllegalArgumentException("张量长度应为 " + MNIST_PIXELS + "，实际为 " + length);
+        }
+    }
+
+    /**
+     * Otsu阈值：使前景与背景类间方差最大的灰度值
+     */
+    static int otsuThreshold(int[] histogram, long total) {
+        long sumAll = 0;
+        for (int i = 0; i < 256; i++) {
+            sumAll += (long) i * histogram[i];
+        }
+
+        long backgroundCount = 0;
+        long backgroundSum = 0;
+        double bestVariance = -1;
+        int threshold = 0;
+        for (int t = 0; t < 256; t++) {
+            backgroundCount += histogram[t];
+            if (backgroundCount == 0) {
+                continue;
+            }
+            long foregroundCount = total - backgroundCount;
+            if (foregroundCount == 0) {
+                break;
+            }
+            backgroundSum += (long) t * histogram[t];
+            double meanBackground = (double) backgroundSum / backgroundCount;
+            double meanForeground = (double) (sumAll - backgroundSum) / foregroundCount;
+            double variance = (double) backgroundCount * foregroundCount
+                    * (meanBackground - meanForeground) * (meanBackground - meanForeground);
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                threshold = t;
+            }
+        }
+        return threshold;
+    }
+
+    /**
+     * 每个线程复用的预处理缓冲区。超过上限的大图使用临时数组，避免线程长期持有大块内存
+     */
+    private static final class Scratch {
+        private static final int MAX_RETAINED_PIXELS = 1 << 22; // 4M像素
+
+        private final int[] histogram = new int[256];
+        private final int[] digit = new int[MNIST_DIGIT_SIZE * MNIST_DIGIT_SIZE];
+        private final byte[] mnist = new byte[MNIST_PIXELS];
+        private byte[] gray = new byte[0];
+        private int[] row = new int[0];
+
+        private byte[] gray(int size) {
+            if (size > MAX_RETAINED_PIXELS) {
+                return new byte[size];
+            }
+            if (gray.length < size) {
+                gray = new byte[size];
+            }
+            return gray;
+        }
+
+        private int[] row(int width) {
+            if (row.length < width) {
+                row = new int[width];
+            }
+            return row;
+        }
+    }
+
+    private static final class DecodePlan {
+        private final int subsampling;
+        private final long decodeBytes;
+
+        private DecodePlan(int subsampling, long decodeBytes) {
+            this.subsampling = subsampling;
+            this.decodeBytes = decodeBytes;
+        }
+    }
+
+    /**
+     * 基于字节数组的ImageInputStream，支持随机访问且不复制数据
+     */
+    private static final class ByteArrayImageInputStream extends ImageInputStreamImpl {
+        private final byte[] data;
+
+        private ByteArrayImageInputStream(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public int read() {
+            bitOffset = 0;
+            return streamPos < data.length ? data[(int) streamPos++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            bitOffset = 0;
+            if (streamPos >= data.length) {
+                return -1;
+            }
+            int count = (int) Math.min(length, data.length - streamPos);
+            System.arraycopy(data, (int) streamPos, buffer, offset, count);
+            streamPos += count;
+            return count;
+        }
+
+        @Override
+        public long length() {
+            return data.length;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,291 @@
+// StrokeRasterizer.java - 笔画光栅化工具类
+package com.ihdrs.backend.common.utils;
+
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.ihdrs.backend.common.utils.ImageUtil.MNIST_DIGIT_SIZE;
+import static com.ihdrs.backend.common.utils.ImageUtil.MNIST_PIXELS;
+
+/**
+ * 将画布笔画（折线点列表和笔宽）直接光栅化为28x28模型输入，归一化方式与ImageUtil.toMnistBytes一致：
+ * 笔画包围盒（含笔宽）保持宽高比缩放到最长边20像素 → 每像素4x4超采样计算覆盖率得到抗锯齿灰度 → 按质心平移到28x28中心。
+ * 缓存键为规范化笔画的哈希：坐标换算到缩放后的20像素坐标系并量化，与画布大小、书写位置和整体缩放无关
+ */
+@Component
+public class StrokeRasterizer {
+
+    private static final int SUBSAMPLES = 4; // 每像素每个方向的采样数
+    private static final int SAMPLE_COUNT = SUBSAMPLES * SUBSAMPLES;
+    private static final int FULL_MASK = (1 << SAMPLE_COUNT) - 1;
+    private static final float HALF_DIAGONAL = 0.7072f; // 像素中心到角点的距离（略大于√2/2）
+    private static final float[] SAMPLE_X = new float[SAMPLE_COUNT]; // 采样点在像素内的位置
+    private static final float[] SAMPLE_Y = new float[SAMPLE_COUNT];
+    private static final float MIN_RADIUS = 0.5f; // 缩放后的最小笔画半径（像素），避免细笔画漏采样
+    private static final int HASH_GRID = 16; // 哈希时每像素的量化格数，小于光栅化可分辨的精度
+    private static final int STROKE_END = Integer.MIN_VALUE;
+
+    private static final ThreadLocal<int[]> COVERAGE =
+            ThreadLocal.withInitial(() -> new int[MNIST_DIGIT_SIZE * MNIST_DIGIT_SIZE]);
+
+    static {
+        for (int s = 0; s < SAMPLE_COUNT; s++) {
+            SAMPLE_X[s] = (s % SUBSAMPLES + 0.5f) / SUBSAMPLES;
+            SAMPLE_Y[s] = (s / SUBSAMPLES + 0.5f) / SUBSAMPLES;
+        }
+    }
+
+    /**
+     * 光栅化为28x28 uint8张量（255为笔迹，即模型服务的tensor载荷格式）
+     */
+    public byte[] rasterize(List<float[]> strokes, float penWidth) {
+        byte[] pixels = new byte[MNIST_PIXELS];
+        rasterize(strokes, penWidth, pixels);
+        return pixels;
+    }
+
+    /**
+     * 同rasterize(List, float)，结果写入调用方提供的长度为784的数组；没有笔画时全为0
+     */
+    public void rasterize(List<float[]> strokes, float penWidth, byte[] pixels) {
+        if (pixels.length != MNIST_PIXELS) {
+            throw new IllegalArgumentException("张量长度应为 " + MNIST_PIXELS + "，实际为 " + pixels.length);
+        }
+        Arrays.fill(pixels, (byte) 0);
+        Frame frame = Frame.of(strokes, penWidth);
+        if (frame == null) {
+            return;
+        }
+
+        // 每个像素一个16位掩码，记录被任一线段覆盖的采样点，线段重叠处不会重复计入
+        int[] coverage = COVERAGE.get();
+        Arrays.fill(coverage, 0);
+        float radius = Math.max(frame.radius, MIN_RADIUS);
+        for (float[] stroke : strokes) {
+            float ax = frame.x(stroke[0]);
+            float ay = frame.y(stroke[1]);
+            if (stroke.length == 2) {
+                cover(coverage, frame, ax, ay, ax, ay, radius);
+            }
+            for (int i = 2; i < stroke.length; i += 2) {
+                float bx = frame.x(stroke[i]);
+                float by = frame.y(stroke[i + 1]);
+                cover(coverage, frame, ax, ay, bx, by, radius);
+                ax = bx;
+                ay = by;
+            }
+        }
+
+        for (int i = 0; i < coverage.length; i++) {
+            coverage[i] = Integer.bitCount(coverage[i]) * 255 / SAMPLE_COUNT;
+        }
+        ImageUtil.placeDigit(coverage, frame.digitWidth, frame.digitHeight, pixels);
+    }
+
+    /**
+     * 标记线段（两端为半圆的胶囊形）覆盖的采样点，只遍历线段包围盒内的像素；
+     * 先按像素中心到线段的距离判断整像素在内或在外，只有跨越边缘的像素逐个检查采样点
+     */
+    private static void cover(int[] coverage, Frame frame, float ax, float ay, float bx, float by, float radius) {
+        int x0 = Math.max(0, (int) Math.floor(Math.min(ax, bx) - radius));
+        int x1 = Math.min(frame.digitWidth - 1, (int) Math.ceil(Math.max(ax, bx) + radius));
+        int y0 = Math.max(0, (int) Math.floor(Math.min(ay, by) - radius));
+        int y1 = Math.min(frame.digitHeight - 1, (int) Math.ceil(Math.max(ay, by) + radius));
+        float dx = bx - ax;
+        float dy = by - ay;
+        float length2 = dx * dx + dy * dy;
+        float inverseLength2 = length2 == 0 ? 0 : 1 / length2;
+        float radius2 = radius * radius;
+        float inside = Math.max(0, radius - HALF_DIAGONAL);
+        float inside2 = inside * inside;
+        float outside = radius + HALF_DIAGONAL;
+        float outside2 = outside * outside;
+
+        for (int py = y0; py <= y1; py++) {
+            for (int px = x0; px <= x1; px++) {
+                int index = py * MNIST_DIGIT_SIZE + px;
+                int mask = coverage[index];
+                if (mask == FULL_MASK) {
+                    continue;
+                }
+                float center = distance2(px + 0.5f - ax, py + 0.5f - ay, dx, dy, inverseLength2);
+                if (center > outside2) {
+                    continue;
+                }
+                if (center <= inside2) {
+                    coverage[index] = FULL_MASK;
+                    continue;
+                }
+                for (int s = 0; s < SAMPLE_COUNT; s++) {
+                    if (distance2(px + SAMPLE_X[s] - ax, py + SAMPLE_Y[s] - ay, dx, dy, inverseLength2) <= radius2) {
+                        mask |= 1 << s;
+                    }
+                }
+                coverage[index] = mask;
+            }
+        }
+    }
+
+    /**
+     * 点（相对线段起点的坐标）到线段的距离的平方
+     */
+    private static float distance2(float x, float y, float dx, float dy, float inverseLength2) {
+        float t = Math.max(0, Math.min(1, (x * dx + y * dy) * inverseLength2));
+        float ex = x - t * dx;
+        float ey = y - t * dy;
+        return ex * ex + ey * ey;
+    }
+
+    /**
+     * 规范化笔画的MD5：坐标换算到光栅化使用的20像素坐标系后按1/16像素量化，去掉量化后重复的相邻点。
+     * 平移、整体缩放或画布大小不同但光栅化结果相同的笔画得到相同的哈希
+     */
+    public String canonicalHash(List<float[]> strokes, float penWidth) {
+        MessageDigest md5 = FileUtil.newMd5();
+        byte[] buffer = new byte[4];
+        Frame frame = Frame.of(strokes, penWidth);
+        if (frame != null) {
+            update(md5, buffer, quantize(Math.max(frame.radius, MIN_RADIUS)));
+            update(md5, buffer, frame.digitWidth);
+            update(md5, buffer, frame.digitHeight);
+            for (float[] stroke : strokes) {
+                int lastX = STROKE_END, lastY = STROKE_END;
+                for (int i = 0; i < stroke.length; i += 2) {
+                    int x = quantize(frame.x(stroke[i]));
+                    int y = quantize(frame.y(stroke[i + 1]));
+                    if (x != lastX || y != lastY) {
+                        update(md5, buffer, x);
+                        update(md5, buffer, y);
+                        lastX = x;
+                        lastY = y;
+                    }
+                }
+                update(md5, buffer, STROKE_END);
+            }
+        }
+        return FileUtil.toHex(md5.digest());
+    }
+
+    private static int quantize(float value) {
+        return Math.round(value * HASH_GRID);
+    }
+
+    private static void update(MessageDigest md5, byte[] buffer, int value) {
+        buffer[0] = (byte) (value >>> 24);
+        buffer[1] = (byte) (value >>> 16);
+        buffer[2] = (byte) (value >>> 8);
+        buffer[3] = (byte) value;
+        md5.update(buffer);
+    }
+
+    /**
+     * 按画布像素估算笔迹统计，供画布预检使用：笔迹占比为各线段长度乘笔宽加端点圆面积（重叠部分重复计入），
+     * 包围盒含笔宽，对比度固定为255
+     */
+    public static ImageUtil.InkStats inkStats(List<float[]> strokes, float penWidth, int width, int height) {
+        Frame frame = Frame.of(strokes, penWidth);
+        if (frame == null) {
+            return new ImageUtil.InkStats(0, 0, 0);
+        }
+        double area = 0;
+        for (float[] stroke : strokes) {
+            area += Math.PI * penWidth * penWidth / 4;
+            for (int i = 2; i < stroke.length; i += 2) {
+                area += Math.hypot(stroke[i] - stroke[i - 2], stroke[i + 1] - stroke[i - 1]) * penWidth;
+            }
+        }
+        double inkRatio = Math.min(1, area / ((double) width * height));
+        double boxRatio = Math.min(1, Math.max(frame.boxWidth / width, frame.boxHeight / height));
+        return new ImageUtil.InkStats(inkRatio, boxRatio, 255);
+    }
+
+    /**
+     * 将28x28张量编码为白底黑字的灰度PNG，用于图像存储和缓存预热，与画布图像的颜色约定一致
+     */
+    public byte[] toPng(byte[] pixels) throws IOException {
+        BufferedImage image = new BufferedImage(ImageUtil.MNIST_SIZE, ImageUtil.MNIST_SIZE, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < MNIST_PIXELS; i++) {
+            data[i] = (byte) (255 - (pixels[i] & 0xFF));
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream(256);
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+    /**
+     * toPng的逆变换，还原为28x28张量（PNG无损，与原张量逐字节相同）
+     */
+    public byte[] fromPng(byte[] png) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        if (image == null || image.getWidth() != ImageUtil.MNIST_SIZE || image.getHeight() != ImageUtil.MNIST_SIZE) {
+            throw new IOException("不是28x28的张量图像");
+        }
+        Raster raster = image.getRaster();
+        byte[] pixels = new byte[MNIST_PIXELS];
+        for (int i = 0; i < MNIST_PIXELS; i++) {
+            pixels[i] = (byte) (255 - raster.getSample(i % ImageUtil.MNIST_SIZE, i / ImageUtil.MNIST_SIZE, 0));
+        }
+        return pixels;
+    }
+
+    /**
+     * 画布坐标到20像素数字坐标系的变换
+     */
+    private static final class Frame {
+        private final float originX;
+        private final float originY;
+        private final float scale;
+        private final float radius; // 缩放后的笔画半径
+        private final float boxWidth; // 画布坐标下含笔宽的包围盒
+        private final float boxHeight;
+        private final int digitWidth;
+        private final int digitHeight;
+
+        private Frame(float minX, float minY, float maxX, float maxY, float penWidth) {
+            this.boxWidth = maxX - minX + penWidth;
+            this.boxHeight = maxY - minY + penWidth;
+            this.originX = minX - penWidth / 2;
+            this.originY = minY - penWidth / 2;
+            this.scale = MNIST_DIGIT_SIZE / Math.max(boxWidth, boxHeight);
+            this.radius = penWidth / 2 * scale;
+            this.digitWidth = Math.max(1, Math.min(MNIST_DIGIT_SIZE, Math.round(boxWidth * scale)));
+            this.digitHeight = Math.max(1, Math.min(MNIST_DIGIT_SIZE, Math.round(boxHeight * scale)));
+        }
+
+        /**
+         * 按所有点的包围盒建立坐标系，没有点时返回null
+         */
+        private static Frame of(List<float[]> strokes, float penWidth) {
+            float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+            float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+            for (float[] stroke : strokes) {
+                for (int i = 0; i + 1 < stroke.length; i += 2) {
+                    minX = Math.min(minX, stroke[i]);
+                    maxX = Math.max(maxX, stroke[i]);
+                    minY = Math.min(minY, stroke[i + 1]);
+                    maxY = Math.max(maxY, stroke[i + 1]);
+                }
+            }
+            return minX > maxX ? null : new Frame(minX, minY, maxX, maxY, penWidth);
+        }
+
+        private float x(float canvasX) {
+            return (canvasX - originX) * scale;
+        }
+
+        private float y(float canvasY) {
+            return (canvasY - originY) * scale;
+        }
+    }
+}
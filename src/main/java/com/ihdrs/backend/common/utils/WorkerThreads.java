@@ -0,0 +1,86 @@
+// WorkerThreads.java - 后台阻塞任务线程工具类
+package com.ihdrs.backend.common.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 为调用模型服务、写库等阻塞任务创建线程。与Tomcat请求线程共用开关 spring.threads.virtual.enabled：
+ * 开启且运行在JDK 21及以上时使用虚拟线程，阻塞期间不占用平台线程，并发只受下游限流约束；
+ * 否则为命名的守护平台线程。CPU密集的任务（如图像解码）不应使用这里的线程
+ */
+@Slf4j
+@Component
+public class WorkerThreads {
+
+    private final boolean virtual;
+
+    @Autowired
+    public WorkerThreads(Environment environment) {
+        this(Threading.VIRTUAL.isActive(environment));
+        if (!virtual && environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            log.warn("已开启虚拟线程，但当前JDK {} 不支持，继续使用平台线程", Runtime.version().feature());
+        }
+    }
+
+    public WorkerThreads(boolean virtual) {
+        this.virtual = virtual;
+        if (virtual) {
+            log.info("后台阻塞任务使用虚拟线程");
+        }
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * 线程工厂，线程名为 name-序号
+     */
+    public ThreadFactory factory(String name) {
+        if (virtual) {
+            return new VirtualThreadTaskExecutor(name + "-").getVirtualThreadFactory();
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 启动单个长期运行的线程（如后台刷写线程）
+     */
+    public Thread start(String name, Runnable task) {
+        Thread thread = factory(name).newThread(task);
+        thread.setName(name);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * 执行阻塞任务的线程池：虚拟线程模式下每个任务一个新的虚拟线程（不复用、不设上限），
+     * 否则使用platformPool创建的平台线程池
+     */
+    public ExecutorService executor(String name, Supplier<ExecutorService> platformPool) {
+        if (!virtual) {
+            return platformPool.get();
+        }
+        // 核心线程数和空闲存活时间为0，任务结束后线程即退出，等同于JDK 21的newThreadPerTaskExecutor
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), factory(name));
+    }
+}
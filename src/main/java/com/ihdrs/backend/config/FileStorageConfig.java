@@ -38,6 +38,7 @@ public class FileStorageConfig {
         private String path = "./uploads/";
         private Long maxSize = 5242880L; // 5MB
         private String allowedTypes = "image/png,image/jpeg,image/jpg";
+        private String imageStoreDir = "images"; // 按哈希去重存储的识别图像目录（相对于path）
     }
 
     @Getter
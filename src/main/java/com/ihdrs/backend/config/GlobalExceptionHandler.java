@@ -2,16 +2,22 @@
 package com.ihdrs.backend.config;
 
 import com.ihdrs.backend.common.Result;
+import com.ihdrs.backend.common.exception.ImageDecodeRejectedException;
+import com.ihdrs.backend.common.exception.ImageTooLargeException;
+import com.ihdrs.backend.common.exception.ModelServiceUnavailableException;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
 import java.util.stream.Collectors;
 
@@ -42,6 +48,24 @@ public class GlobalExceptionHandler {
         return Result.error(400, message);
     }
 
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<Result<?>> handleHttpMessageNotReadableException(HttpMessageNotReadableException ex) {
+        // 请求体中的图像在流式解码时超过大小限制
+        if (ex.getMostSpecificCause() instanceof ImageTooLargeException tooLarge) {
+            log.warn("请求图像过大: {}", tooLarge.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Result.error(413, tooLarge.getMessage()));
+        }
+        log.warn("请求体格式错误: {}", ex.getMessage());
+        return ResponseEntity.badRequest().body(Result.error(400, "请求体格式错误"));
+    }
+
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    public Result<?> handleMaxUploadSizeExceededException(MaxUploadSizeExceededException ex) {
+        log.warn("上传文件过大: {}", ex.getMessage());
+        return Result.error(413, "上传文件超过大小限制");
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public Result<?> handleIllegalArgumentException(IllegalArgumentException ex) {
@@ -49,6 +73,20 @@ public class GlobalExceptionHandler {
         return Result.error(400, ex.getMessage());
     }
 
+    @ExceptionHandler(ModelServiceUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Result<?> handleModelServiceUnavailableException(ModelServiceUnavailableException ex) {
+        log.warn("模型服务不可用: {}", ex.getMessage());
+        return Result.error(503, ex.getMessage());
+    }
+
+    @ExceptionHandler(ImageDecodeRejectedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Result<?> handleImageDecodeRejectedException(ImageDecodeRejectedException ex) {
+        log.warn("图像解码被拒绝: {}", ex.getMessage());
+        return Result.error(503, ex.getMessage());
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public Result<?> handleGenericException(Exception ex) {
@@ -0,0 +1,175 @@
+// JfrEndpoint.java - 按需JFR记录端点
+package com.ihdrs.backend.config;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按需JFR记录，仅管理员可访问，同一时间只有一个记录：
+ * GET /actuator/jfr 查看当前记录状态；
+ * POST /actuator/jfr/start 启动记录，可选参数duration（秒，不超过jfr.max-duration）和settings（default/profile）；
+ * POST /actuator/jfr/stop 停止记录；
+ * GET /actuator/jfr/download 下载当前记录（运行中或已停止），可用JDK Mission Control或jfr命令打开。
+ * 除JDK自带事件外，记录中包含ihdrs.*自定义事件（识别各阶段、模型服务调用、JWT校验、记录写入）
+ */
+@Slf4j
+@Component
+@Endpoint(id = "jfr")
+@RequiredArgsConstructor
+public class JfrEndpoint {
+
+    private static final String RECORDING_NAME = "ihdrs-on-demand";
+
+    private final JfrConfig config;
+
+    private Recording recording;
+    private Path lastDump;
+
+    @ReadOperation
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("maxDuration", config.getMaxDuration().toString());
+        status.put("maxSize", config.getMaxSize().toBytes());
+        if (recording == null) {
+            status.put("state", "NONE");
+            return status;
+        }
+        status.put("id", recording.getId());
+        status.put("state", recording.getState().name());
+        status.put("startTime", recording.getStartTime() != null ? recording.getStartTime().toString() : null);
+        status.put("duration", recording.getDuration() != null ? recording.getDuration().toString() : null);
+        status.put("size", recording.getSize());
+        return status;
+    }
+
+    @WriteOperation
+    public synchronized WebEndpointResponse<Map<String, Object>> control(@Selector String action,
+                                                                         @Nullable Long duration,
+                                                                         @Nullable String settings) {
+        switch (action) {
+            case "start":
+                return start(duration, settings);
+            case "stop":
+                if (recording == null || !isRunning()) {
+                    return error(WebEndpointResponse.STATUS_BAD_REQUEST, "没有正在运行的记录");
+                }
+                recording.stop();
+                log.info("JFR记录已停止，大小: {} 字节", recording.getSize());
+                return new WebEndpointResponse<>(status());
+            default:
+                return error(WebEndpointResponse.STATUS_NOT_FOUND, "未知操作: " + action);
+        }
+    }
+
+    /**
+     * 导出当前记录到临时文件并返回，上一次导出的文件随之删除
+     */
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized WebEndpointResponse<Resource> download(@Selector String file) {
+        if (!"download".equals(file) || recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        Path dump = null;
+        try {
+            dump = Files.createTempFile(RECORDING_NAME + "-", ".jfr");
+            recording.dump(dump);
+            deleteLastDump();
+            lastDump = dump;
+            return new WebEndpointResponse<>(new FileSystemResource(dump));
+        } catch (IOException e) {
+            log.error("导出JFR记录失败", e);
+            if (dump != null) {
+                dump.toFile().delete();
+            }
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+        deleteLastDump();
+    }
+
+    private WebEndpointResponse<Map<String, Object>> start(Long durationSeconds, String settings) {
+        if (recording != null && isRunning()) {
+            return error(WebEndpointResponse.STATUS_BAD_REQUEST, "已有记录正在运行");
+        }
+        Duration duration = config.getMaxDuration();
+        if (durationSeconds != null && durationSeconds > 0 && durationSeconds < duration.toSeconds()) {
+            duration = Duration.ofSeconds(durationSeconds);
+        }
+
+        Recording next;
+        try {
+            next = new Recording(Configuration.getConfiguration(settings != null ? settings : config.getSettings()));
+        } catch (IOException | ParseException e) {
+            return error(WebEndpointResponse.STATUS_BAD_REQUEST, "无效的JFR配置: " + settings);
+        }
+        next.setName(RECORDING_NAME);
+        next.setToDisk(true);
+        next.setMaxSize(config.getMaxSize().toBytes());
+        next.setDuration(duration);
+        next.start();
+
+        // 上一个记录已停止，新记录启动后不再保留
+        if (recording != null) {
+            recording.close();
+        }
+        recording = next;
+        log.info("JFR记录已启动，时长: {}，配置: {}", duration, settings != null ? settings : config.getSettings());
+        return new WebEndpointResponse<>(status());
+    }
+
+    private boolean isRunning() {
+        switch (recording.getState()) {
+            case NEW:
+            case DELAYED:
+            case RUNNING:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void deleteLastDump() {
+        if (lastDump == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(lastDump);
+        } catch (IOException e) {
+            log.warn("删除JFR导出文件失败: {}", lastDump, e);
+        }
+        lastDump = null;
+    }
+
+    private static WebEndpointResponse<Map<String, Object>> error(int status, String message) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", message);
+        return new WebEndpointResponse<>(body, status);
+    }
+}
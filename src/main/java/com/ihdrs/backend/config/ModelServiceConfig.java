@@ -1,41 +1,342 @@
 // ModelServiceConfig.java
 package com.ihdrs.backend.config;
 
+import com.ihdrs.backend.common.resilience.CancellationScope;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import io.netty.channel.ChannelOption;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.ClientHttpRequestFactory;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.net.http.HttpClient;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
 @ConfigurationProperties(prefix = "model-service")
 public class ModelServiceConfig {
 
     private String baseUrl = "http://localhost:5000";
-    private Duration timeout = Duration.ofSeconds(30);
+    private List<String> baseUrls = new ArrayList<>(); // 多个模型服务实例，配置后取代baseUrl
+    private Duration healthCheckInterval = Duration.ofSeconds(5); // 各实例后台健康检查间隔
+    private Integer ejectAfterFailures = 3; // 实例连续失败多少次后摘除，健康检查恢复后重新加入
+    private Double latencyEwmaAlpha = 0.3; // 实例延迟EWMA的平滑系数，越大越偏向最近的调用
+    private Duration timeout = Duration.ofSeconds(30); // 读取（响应）超时
+    private Duration connectTimeout = Duration.ofSeconds(2); // 建立连接超时
+    private Duration poolAcquireTimeout = Duration.ofSeconds(1); // 从连接池获取连接超时
+    private Integer maxConnections = 200; // 连接池最大连接数
+    private Integer maxConnectionsPerRoute = 50; // 每个模型服务地址的最大连接数
+    private Duration idleEvictTimeout = Duration.ofSeconds(30); // 空闲连接超过该时间后关闭
+    private Boolean http2 = false; // 使用JDK HttpClient的HTTP/2（h2c），模型服务需支持HTTP/2；请求无法中止，开启后不进行对冲
+    private Transport transport = Transport.AUTO; // 图像传输方式
+    private Duration binaryRetryInterval = Duration.ofMinutes(5); // 协商失败退回JSON后，间隔多久再尝试二进制
     private Integer maxRetries = 3;
     private Duration retryDelay = Duration.ofSeconds(1);
+    private Breaker circuitBreaker = new Breaker();
+    private ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+    private Hedging hedging = new Hedging();
+
+    /**
+     * 图像传输方式：BINARY以application/octet-stream直接发送图像字节，JSON为Base64编码，
+     * AUTO优先使用二进制，模型服务不支持时自动退回JSON
+     */
+    public enum Transport {
+        AUTO, BINARY, JSON
+    }
+
+    /**
+     * 熔断器配置
+     */
+    public static class Breaker {
+        private Boolean enabled = true;
+        private Integer windowSize = 50; // 统计最近多少次调用
+        private Integer minimumCalls = 20; // 窗口内至少多少次调用才计算失败率
+        private Double failureRateThreshold = 0.5; // 失败率达到该值即熔断
+        private Duration slowCallThreshold = Duration.ofSeconds(5); // 超过该耗时的调用按失败计
+        private Duration openDuration = Duration.ofSeconds(10); // 熔断多久后进入半开状态
+        private Integer halfOpenCalls = 3; // 半开状态放行的探测请求数
+
+        public Boolean getEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(Boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Integer getWindowSize() {
+            return windowSize;
+        }
+
+        public void setWindowSize(Integer windowSize) {
+            this.windowSize = windowSize;
+        }
+
+        public Integer getMinimumCalls() {
+            return minimumCalls;
+        }
+
+        public void setMinimumCalls(Integer minimumCalls) {
+            this.minimumCalls = minimumCalls;
+        }
+
+        public Double getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(Double failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public Duration getSlowCallThreshold() {
+            return slowCallThreshold;
+        }
+
+        public void setSlowCallThreshold(Duration slowCallThreshold) {
+            this.slowCallThreshold = slowCallThreshold;
+        }
+
+        public Duration getOpenDuration() {
+            return openDuration;
+        }
+
+        public void setOpenDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+        }
+
+        public Integer getHalfOpenCalls() {
+            return halfOpenCalls;
+        }
+
+        public void setHalfOpenCalls(Integer halfOpenCalls) {
+            this.halfOpenCalls = halfOpenCalls;
+        }
+    }
+
+    /**
+     * 自适应并发限制配置（AIMD）
+     */
+    public static class ConcurrencyLimit {
+        private Boolean enabled = true;
+        private Integer initialLimit = 20;
+        private Integer minLimit = 2;
+        private Integer maxLimit = 200;
+        private Double backoffRatio = 0.9; // 过载时上限乘以该系数
+        private Duration latencyThreshold = Duration.ofSeconds(2); // 超过该耗时视为过载
+
+        public Boolean getEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(Boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Integer getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(Integer initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public Integer getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(Integer minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public Integer getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(Integer maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public Double getBackoffRatio() {
+            return backoffRatio;
+        }
+
+        public void setBackoffRatio(Double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+        }
+
+        public Duration getLatencyThreshold() {
+            return latencyThreshold;
+        }
+
+        public void setLatencyThreshold(Duration latencyThreshold) {
+            this.latencyThreshold = latencyThreshold;
+        }
+    }
+
+    /**
+     * 对冲请求配置：调用超过近期延迟分位数仍未返回时，向另一实例发送相同请求，取先成功者
+     */
+    public static class Hedging {
+        private Boolean enabled = false; // 至少配置两个实例且未开启http2时才生效
+        private Double percentile = 0.95; // 等待超过该分位数的近期延迟后发出对冲
+        private Duration minDelay = Duration.ofMillis(20); // 对冲等待时间下限
+        private Integer minSamples = 50; // 近期样本不足时不对冲
+        private Integer windowSize = 1000; // 统计最近多少次调用的延迟
+        private Double maxExtraLoad = 0.05; // 对冲请求最多占正常请求的比例
+
+        public Boolean getEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(Boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(Double percentile) {
+            this.percentile = percentile;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
+
+        public Integer getMinSamples() {
+            return minSamples;
+        }
+
+        public void setMinSamples(Integer minSamples) {
+            this.minSamples = minSamples;
+        }
+
+        public Integer getWindowSize() {
+            return windowSize;
+        }
+
+        public void setWindowSize(Integer windowSize) {
+            this.windowSize = windowSize;
+        }
+
+        public Double getMaxExtraLoad() {
+            return maxExtraLoad;
+        }
+
+        public void setMaxExtraLoad(Double maxExtraLoad) {
+            this.maxExtraLoad = maxExtraLoad;
+        }
+    }
 
     @Bean
-    public RestTemplate restTemplate() {
+    public RestTemplate restTemplate(ClientHttpRequestFactory clientHttpRequestFactory) {
         RestTemplate restTemplate = new RestTemplate();
+        restTemplate.setRequestFactory(clientHttpRequestFactory);
+        return restTemplate;
+    }
 
-        // 配置超时时间
-        ClientHttpRequestFactory factory = clientHttpRequestFactory();
-        restTemplate.setRequestFactory(factory);
+    /**
+     * 模型服务连接池：复用长连接，避免每次识别都重新建立TCP连接
+     */
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager modelServiceConnectionManager(ObjectProvider<MeterRegistry> meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(timeout))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
 
-        return restTemplate;
+        // 连接池使用情况指标：httpcomponents.httpclient.pool.*{httpclient="model-service"}
+        meterRegistry.ifAvailable(registry ->
+                new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "model-service")
+                        .bindTo(registry));
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient modelServiceHttpClient(PoolingHttpClientConnectionManager modelServiceConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(modelServiceConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(poolAcquireTimeout))
+                        .setResponseTimeout(Timeout.of(timeout))
+                        .build())
+                .evictIdleConnections(TimeValue.of(idleEvictTimeout))
+                .evictExpiredConnections()
+                .disableAutomaticRetries() // 重试由ModelServiceClient控制
+                .build();
     }
 
     @Bean
-    public ClientHttpRequestFactory clientHttpRequestFactory() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout((int) timeout.toMillis());
-        factory.setReadTimeout((int) timeout.toMillis());
-        return factory;
+    public ClientHttpRequestFactory clientHttpRequestFactory(CloseableHttpClient modelServiceHttpClient) {
+        if (http2) {
+            // JDK HttpClient内部自行管理连接复用，HTTP/2下单连接多路复用
+            // 请求不登记到CancellationScope，落败的对冲请求无法中止，因此ModelServiceHedger在此模式下不对冲
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(connectTimeout)
+                    .build();
+            JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+            factory.setReadTimeout(timeout);
+            return factory;
+        }
+
+        // 请求登记到当前线程的CancellationScope，对冲落败时中止请求并释放连接
+        return new HttpComponentsClientHttpRequestFactory(modelServiceHttpClient) {
+            @Override
+            protected void postProcessHttpRequest(ClassicHttpRequest request) {
+                if (request instanceof Cancellable) {
+                    CancellationScope.register(((Cancellable) request)::cancel);
+                }
+            }
+        };
+    }
+
+    /**
+     * 非阻塞识别接口使用的WebClient（Reactor Netty），连接池上限和超时与RestTemplate一致，
+     * 等待响应期间不占用线程
+     */
+    @Bean
+    public WebClient modelServiceWebClient(WebClient.Builder builder) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("model-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(poolAcquireTimeout)
+                .maxIdleTime(idleEvictTimeout)
+                .metrics(true)
+                .build();
+        reactor.netty.http.client.HttpClient httpClient = reactor.netty.http.client.HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(timeout);
+        return builder.clientConnector(new ReactorClientHttpConnector(httpClient)).build();
     }
 
     // Getters and Setters
@@ -47,6 +348,38 @@ public class ModelServiceConfig {
         this.baseUrl = baseUrl;
     }
 
+    public List<String> getBaseUrls() {
+        return baseUrls;
+    }
+
+    public void setBaseUrls(List<String> baseUrls) {
+        this.baseUrls = baseUrls;
+    }
+
+    public Duration getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+
+    public void setHealthCheckInterval(Duration healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    public Integer getEjectAfterFailures() {
+        return ejectAfterFailures;
+    }
+
+    public void setEjectAfterFailures(Integer ejectAfterFailures) {
+        this.ejectAfterFailures = ejectAfterFailures;
+    }
+
+    public Double getLatencyEwmaAlpha() {
+        return latencyEwmaAlpha;
+    }
+
+    public void setLatencyEwmaAlpha(Double latencyEwmaAlpha) {
+        this.latencyEwmaAlpha = latencyEwmaAlpha;
+    }
+
     public Duration getTimeout() {
         return timeout;
     }
@@ -55,6 +388,70 @@ public class ModelServiceConfig {
         this.timeout = timeout;
     }
 
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getPoolAcquireTimeout() {
+        return poolAcquireTimeout;
+    }
+
+    public void setPoolAcquireTimeout(Duration poolAcquireTimeout) {
+        this.poolAcquireTimeout = poolAcquireTimeout;
+    }
+
+    public Integer getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(Integer maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public Integer getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(Integer maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public Duration getIdleEvictTimeout() {
+        return idleEvictTimeout;
+    }
+
+    public void setIdleEvictTimeout(Duration idleEvictTimeout) {
+        this.idleEvictTimeout = idleEvictTimeout;
+    }
+
+    public Boolean getHttp2() {
+        return http2;
+    }
+
+    public void setHttp2(Boolean http2) {
+        this.http2 = http2;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    public Duration getBinaryRetryInterval() {
+        return binaryRetryInterval;
+    }
+
+    public void setBinaryRetryInterval(Duration binaryRetryInterval) {
+        this.binaryRetryInterval = binaryRetryInterval;
+    }
+
     public Integer getMaxRetries() {
         return maxRetries;
     }
@@ -70,4 +467,28 @@ public class ModelServiceConfig {
     public void setRetryDelay(Duration retryDelay) {
         this.retryDelay = retryDelay;
     }
+
+    public Breaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(Breaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public ConcurrencyLimit getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public void setConcurrencyLimit(ConcurrencyLimit concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    public Hedging getHedging() {
+        return hedging;
+    }
+
+    public void setHedging(Hedging hedging) {
+        this.hedging = hedging;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+// ModelServiceEndpoint.java - 模型服务熔断与限流状态端点
+package com.ihdrs.backend.config;
+
+import com.ihdrs.backend.service.ModelServiceGuard;
+import com.ihdrs.backend.service.ModelServiceHedger;
+import com.ihdrs.backend.service.ModelServiceReplicaPool;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * GET /actuator/modelservice：熔断器状态、失败率、当前并发上限、各实例负载及对冲情况
+ */
+@Component
+@Endpoint(id = "modelservice")
+@RequiredArgsConstructor
+public class ModelServiceEndpoint {
+
+    private final ModelServiceGuard modelServiceGuard;
+    private final ModelServiceReplicaPool replicaPool;
+    private final ModelServiceHedger hedger;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> status = modelServiceGuard.snapshot();
+        status.put("replicas", replicaPool.snapshot());
+        status.put("hedging", hedger.snapshot());
+        return status;
+    }
+}
@@ -0,0 +1,123 @@
+// RecognitionConfig.java - 识别配置
+package com.ihdrs.backend.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "recognition")
+@Getter
+@Setter
+public class RecognitionConfig {
+
+    private Double minConfidenceThreshold = 0.8;
+    private Integer maxRetries = 3;
+    private Long cacheExpire = 86400L; // 1天
+    private Duration activeModelRefreshInterval = Duration.ofMinutes(1); // 后台重新加载活跃模型的间隔，识别直接写库启用的模型
+
+    private Batch batch = new Batch();
+    private WriteBehind writeBehind = new WriteBehind();
+    private Cache cache = new Cache();
+    private SingleFlight singleFlight = new SingleFlight();
+    private Inference inference = new Inference();
+    private Decode decode = new Decode();
+    private Reactive reactive = new Reactive();
+
+    /**
+     * 微批处理配置：合并并发的单张识别请求，一次调用模型服务
+     */
+    @Getter
+    @Setter
+    public static class Batch {
+        private Boolean enabled = true;
+        private Integer maxSize = 16; // 单批最多图像数
+        private Duration maxWait = Duration.ofMillis(5); // 攒批最长等待时间
+        private Integer dispatchThreads = 4; // 并发发送批次的线程数，虚拟线程模式下不限
+    }
+
+    /**
+     * 识别记录异步批量写入配置
+     */
+    @Getter
+    @Setter
+    public static class WriteBehind {
+        private Boolean enabled = true; // 关闭时在请求线程内同步写入
+        private Integer queueCapacity = 10000; // 队列满时丢弃并计数
+        private Integer batchSize = 100; // 单次JDBC批量插入条数
+        private Duration flushInterval = Duration.ofMillis(200); // 最长攒批时间
+        private Integer idStep = 1000; // 每次领取的ID号段长度
+    }
+
+    /**
+     * 识别结果进程内一级缓存配置（二级为Redis）
+     */
+    @Getter
+    @Setter
+    public static class Cache {
+        private Boolean l1Enabled = true;
+        private Long l1MaximumSize = 10000L; // 最大条目数，超出后按访问频率淘汰
+        private Duration l1ExpireAfterWrite = Duration.ofMinutes(10); // 不超过Redis中的过期时间
+        private Boolean invalidationEnabled = true; // 通过Redis发布订阅通知其它节点失效
+        private Integer prewarmSize = 0; // 切换模型后按识别频次预热的图像数，0表示不预热
+        private Duration prewarmLookback = Duration.ofDays(7); // 统计识别频次的时间范围
+    }
+
+    /**
+     * 相同图像并发识别合并配置：同一哈希只有一个请求调用模型服务
+     */
+    @Getter
+    @Setter
+    public static class SingleFlight {
+        private Boolean enabled = true;
+        private Boolean distributed = true; // 通过Redis标记键跨节点合并
+        private Duration lockTtl = Duration.ofSeconds(10); // 标记键过期时间，持有节点宕机后自动释放
+        private Duration waitTimeout = Duration.ofSeconds(5); // 等待其它请求结果的最长时间，超时后自行调用
+        private Duration pollInterval = Duration.ofMillis(50); // 等待其它节点结果时查询缓存的间隔
+    }
+
+    /**
+     * 推理后端配置：remote为Flask模型服务，local为进程内加载 .ihdt 张量文件的CNN
+     */
+    @Getter
+    @Setter
+    public static class Inference {
+        private String defaultBackend = "remote";
+        private Map<Long, String> models = new HashMap<>(); // 按模型ID指定后端，未配置的模型使用defaultBackend
+        private Boolean fallbackToLocal = true; // 模型服务不可用时，有张量文件的模型改用本地推理
+    }
+
+    /**
+     * 图像解码配置：请求体中的Base64图像按字节数限制流式解码；
+     * 先读取图像头部尺寸，超限的图像在分配像素内存前拒绝，大图按降采样解码；
+     * 解码在独立线程池中执行，按估算的解码内存准入
+     */
+    @Getter
+    @Setter
+    public static class Decode {
+        private DataSize maxPayloadSize = DataSize.ofMegabytes(5); // 请求中Base64解码后的图像字节数上限
+        private Long maxPixels = 40_000_000L; // 原图像素数上限（宽x高）
+        private DataSize maxDecodeSize = DataSize.ofMegabytes(16); // 解码后像素数组的估算大小上限
+        private Integer maxWorkingSize = 1024; // 解码后最长边，超过时按整数倍降采样
+        private Integer threads = Runtime.getRuntime().availableProcessors(); // 解码与预处理线程数
+        private DataSize memoryBudget = DataSize.ofMegabytes(64); // 同时解码的图像估算内存总和上限
+        private Duration queueTimeout = Duration.ofSeconds(2); // 内存预算不足时排队的最长时间，0表示立即拒绝
+    }
+
+    /**
+     * 非阻塞识别接口配置：画布预检、本地推理和保存记录等阻塞步骤在有界调度器上执行，
+     * 调用模型服务和Redis不占用线程
+     */
+    @Getter
+    @Setter
+    public static class Reactive {
+        private Integer blockingThreads = 2 * Runtime.getRuntime().availableProcessors(); // 阻塞步骤的最大线程数
+        private Integer blockingQueueSize = 10000; // 等待线程的阻塞任务上限，超出时请求失败
+    }
+}
@@ -1,11 +1,16 @@
 // RedisConfig.java - Redis配置类
 package com.ihdrs.backend.config;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
@@ -27,4 +32,27 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
-}
\ No newline at end of file
+
+    /**
+     * 非阻塞识别接口使用的响应式模板，序列化方式与redisTemplate相同，两者读写的缓存值互通
+     */
+    @Bean
+    public ReactiveRedisTemplate<String, Object> reactiveRedisTemplate(ReactiveRedisConnectionFactory connectionFactory) {
+        RedisSerializationContext<String, Object> context = RedisSerializationContext
+                .<String, Object>newSerializationContext(new StringRedisSerializer())
+                .value(new GenericJackson2JsonRedisSerializer())
+                .build();
+        return new ReactiveRedisTemplate<>(connectionFactory, context);
+    }
+
+    /**
+     * Redis发布订阅监听容器，用于节点间缓存失效和活跃模型切换通知
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "recognition.cache", name = "invalidation-enabled", matchIfMissing = true)
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+}
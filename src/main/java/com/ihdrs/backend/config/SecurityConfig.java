@@ -38,10 +38,17 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // JFR记录可能包含敏感数据，模型服务端点暴露熔断状态、并发上限和实例地址，需在/actuator/**放行之前匹配
+                        .requestMatchers("/actuator/jfr", "/actuator/jfr/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/modelservice", "/actuator/modelservice/**").hasRole("ADMIN")
+
                         // 公开访问的端点
                         .requestMatchers(
                                 "/auth/**",
                                 "/recognition/recognize",
+                                "/recognition/recognize/upload",
+                                "/recognition/recognize-batch",
+                                "/recognition/reactive/recognize",
                                 "/health/**",
                                 "/test/**",
                                 "/actuator/**",
@@ -0,0 +1,40 @@
+// ImageStoreController.java - 图像存储管理控制器
+package com.ihdrs.backend.controller;
+
+import com.ihdrs.backend.common.Result;
+import com.ihdrs.backend.service.ImageBackfillService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@Tag(name = "图像存储管理", description = "识别图像存储与历史数据迁移接口")
+@RestController
+@RequestMapping("/admin/images")
+@RequiredArgsConstructor
+public class ImageStoreController {
+
+    private final ImageBackfillService imageBackfillService;
+
+    @Operation(summary = "启动图像迁移", description = "将识别记录中的历史图像BLOB分块迁移到图像存储")
+    @PostMapping("/backfill")
+    public Result<Map<String, Object>> startBackfill(
+            @RequestParam(defaultValue = "200") Integer chunkSize,
+            @RequestParam(defaultValue = "100") Long pauseMillis) {
+        return imageBackfillService.start(chunkSize, pauseMillis);
+    }
+
+    @Operation(summary = "停止图像迁移", description = "当前块处理完成后停止迁移任务")
+    @PostMapping("/backfill/stop")
+    public Result<Map<String, Object>> stopBackfill() {
+        return imageBackfillService.stop();
+    }
+
+    @Operation(summary = "图像迁移进度", description = "查询图像迁移任务状态")
+    @GetMapping("/backfill")
+    public Result<Map<String, Object>> getBackfillStatus() {
+        return imageBackfillService.getStatus();
+    }
+}
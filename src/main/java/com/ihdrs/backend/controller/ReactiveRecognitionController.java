@@ -0,0 +1,35 @@
+// ReactiveRecognitionController.java - 非阻塞识别控制器
+package com.ihdrs.backend.controller;
+
+import com.ihdrs.backend.common.Result;
+import com.ihdrs.backend.dto.request.RecognitionRequest;
+import com.ihdrs.backend.dto.response.RecognitionResponse;
+import com.ihdrs.backend.service.ReactiveRecognitionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * 识别接口的非阻塞版本，请求和返回格式与 /recognition/recognize 相同。
+ * 返回Mono后请求以异步方式处理，等待缓存和模型服务期间请求线程即被释放
+ */
+@Tag(name = "识别服务（非阻塞）", description = "手写数字识别的响应式接口")
+@RestController
+@RequestMapping("/recognition/reactive")
+@RequiredArgsConstructor
+@Validated
+public class ReactiveRecognitionController {
+
+    private final ReactiveRecognitionService reactiveRecognitionService;
+
+    @Operation(summary = "数字识别", description = "识别手写数字图片，语义同 /recognition/recognize（无需登录）")
+    @PostMapping("/recognize")
+    public Mono<Result<RecognitionResponse>> recognize(@Valid @RequestBody RecognitionRequest request) {
+        // 与RecognitionController相同，暂未从Token中解析用户ID，按匿名用户处理
+        return reactiveRecognitionService.recognize(request, null);
+    }
+}
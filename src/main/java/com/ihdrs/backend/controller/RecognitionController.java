@@ -2,17 +2,23 @@
 package com.ihdrs.backend.controller;
 
 import com.ihdrs.backend.common.Result;
+import com.ihdrs.backend.dto.request.BatchRecognitionRequest;
 import com.ihdrs.backend.dto.request.RecognitionRequest;
+import com.ihdrs.backend.dto.response.BatchRecognitionResponse;
 import com.ihdrs.backend.dto.response.RecognitionResponse;
 import com.ihdrs.backend.service.RecognitionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
 
 
 @Tag(name = "识别服务", description = "手写数字识别相关接口")
@@ -36,6 +42,52 @@ public class RecognitionController {
         return recognitionService.recognize(request, userId);
     }
 
+    @Operation(summary = "上传图像识别", description = "以multipart文件（字段file）上传PNG或JPEG图像进行识别（无需登录）")
+    @PostMapping(value = "/recognize/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Result<RecognitionResponse> recognizeUpload(
+            @RequestPart("file") MultipartFile file,
+            @RequestParam(required = false) String sessionId,
+            @RequestParam(required = false) String clientInfo,
+            HttpServletRequest httpRequest) throws IOException {
+
+        Long userId = getUserIdFromRequest(httpRequest);
+
+        try (InputStream input = file.getInputStream()) {
+            return recognitionService.recognizeUpload(input, uploadRequest(sessionId, clientInfo), userId);
+        }
+    }
+
+    @Operation(summary = "上传图像识别（原始请求体）", description = "请求体即图像文件，不做Base64编码；格式按文件头判断（无需登录）")
+    @PostMapping(value = "/recognize/upload", consumes = {"image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public Result<RecognitionResponse> recognizeUploadBody(
+            @RequestParam(required = false) String sessionId,
+            @RequestParam(required = false) String clientInfo,
+            HttpServletRequest httpRequest) throws IOException {
+
+        Long userId = getUserIdFromRequest(httpRequest);
+
+        return recognitionService.recognizeUpload(httpRequest.getInputStream(),
+                uploadRequest(sessionId, clientInfo), userId);
+    }
+
+    @Operation(summary = "批量数字识别", description = "一次识别多张手写数字图片，结果按请求顺序返回（无需登录）")
+    @PostMapping("/recognize-batch")
+    public Result<BatchRecognitionResponse> recognizeBatch(
+            @Valid @RequestBody BatchRecognitionRequest request,
+            HttpServletRequest httpRequest) {
+
+        Long userId = getUserIdFromRequest(httpRequest);
+
+        return recognitionService.recognizeBatch(request, userId);
+    }
+
+    private RecognitionRequest uploadRequest(String sessionId, String clientInfo) {
+        RecognitionRequest request = new RecognitionRequest();
+        request.setSessionId(sessionId);
+        request.setClientInfo(clientInfo);
+        return request;
+    }
+
     /**
      * 从请求中获取用户ID
      */
@@ -0,0 +1,19 @@
+// BatchRecognitionRequest.java - 批量识别请求
+package com.ihdrs.backend.dto.request;
+
+import com.ihdrs.backend.common.constants.Constants;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchRecognitionRequest {
+
+    @Valid
+    @NotEmpty(message = "识别图像列表不能为空")
+    @Size(max = Constants.MAX_BATCH_RECOGNITION_SIZE, message = "单次批量识别图像数量超过限制")
+    private List<RecognitionRequest> items; // 按顺序返回对应的识别结果
+}
@@ -0,0 +1,84 @@
+// ImagePayload.java - 请求中的图像数据
+package com.ihdrs.backend.dto.request;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.ihdrs.backend.common.utils.FileUtil;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * 请求中已解码的图像字节及其MD5哈希。
+ * JSON中仍是Base64字符串，由ImagePayloadDeserializer边读取边解码并计算哈希，不生成中间字符串；
+ * Base64格式错误时data和hash为null，由调用方按单项失败处理。
+ * 笔画输入光栅化后同样以本类传递，此时data为28x28 uint8张量（tensor为true），hash为规范化笔画的哈希
+ */
+@Getter
+@JsonDeserialize(using = ImagePayloadDeserializer.class)
+public class ImagePayload {
+
+    private static final ImagePayload INVALID = new ImagePayload(null, null);
+
+    private final byte[] data;
+    private final String hash; // MD5十六进制，用作缓存键和图像存储文件名
+    private final boolean tensor; // data是否为已预处理的28x28张量（而非图像文件）
+    private final long decodeNanos; // 解码（或光栅化）并计算哈希的耗时
+
+    public ImagePayload(byte[] data, String hash) {
+        this(data, hash, 0);
+    }
+
+    public ImagePayload(byte[] data, String hash, long decodeNanos) {
+        this(data, hash, false, decodeNanos);
+    }
+
+    private ImagePayload(byte[] data, String hash, boolean tensor, long decodeNanos) {
+        this.data = data;
+        this.hash = hash;
+        this.tensor = tensor;
+        this.decodeNanos = decodeNanos;
+    }
+
+    public static ImagePayload invalid() {
+        return INVALID;
+    }
+
+    /**
+     * 已光栅化的模型输入：784字节，255为笔迹
+     */
+    public static ImagePayload tensor(byte[] pixels, String hash, long rasterizeNanos) {
+        return new ImagePayload(pixels, hash, true, rasterizeNanos);
+    }
+
+    public boolean isValid() {
+        return data != null;
+    }
+
+    /**
+     * 从输入流（上传文件或原始请求体）读取图像，边读取边计算哈希；超过maxBytes时抛出ImageTooLargeException并停止读取
+     */
+    public static ImagePayload read(InputStream input, long maxBytes) throws IOException {
+        long startNanos = System.nanoTime();
+        MessageDigest md5 = FileUtil.newMd5();
+        ImagePayloadBuffer buffer = new ImagePayloadBuffer(maxBytes);
+        try {
+            buffer.readFrom(input, md5);
+            return new ImagePayload(buffer.toByteArray(), FileUtil.toHex(md5.digest()),
+                    System.nanoTime() - startNanos);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * 从Base64字符串构建（非请求体来源，如测试和内部调用）
+     */
+    public static ImagePayload fromBase64(String base64) {
+        long startNanos = System.nanoTime();
+        byte[] data = Base64.getDecoder().decode(base64);
+        return new ImagePayload(data, FileUtil.toHex(FileUtil.newMd5().digest(data)), System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,115 @@
+// ImagePayloadBuffer.java - 请求图像池化缓冲区
+package com.ihdrs.backend.dto.request;
+
+import com.ihdrs.backend.common.exception.ImageTooLargeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 由缓冲池中的定长块组成的输出缓冲区，增长时借用新块而不复制已写入的数据，超过上限时在写入前拒绝；
+ * 结果按实际长度复制一份返回，各块归还后可被其他请求复用
+ */
+class ImagePayloadBuffer extends OutputStream {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final BlockingQueue<byte[]> CHUNK_POOL = new ArrayBlockingQueue<>(256); // 最多保留16MB
+
+    private final long limit;
+    private final List<byte[]> chunks = new ArrayList<>();
+    private byte[] current;
+    private int position;
+    private int count;
+
+    ImagePayloadBuffer(long limit) {
+        this.limit = limit;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureCapacity(1);
+        if (current == null || position == CHUNK_SIZE) {
+            nextChunk();
+        }
+        current[position++] = (byte) b;
+        count++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureCapacity(length);
+        while (length > 0) {
+            if (current == null || position == CHUNK_SIZE) {
+                nextChunk();
+            }
+            int n = Math.min(length, CHUNK_SIZE - position);
+            System.arraycopy(bytes, offset, current, position, n);
+            position += n;
+            offset += n;
+            length -= n;
+            count += n;
+        }
+    }
+
+    /**
+     * 从输入流直接读入缓冲块并更新摘要，不经过中间数组；
+     * 每次最多多读一个字节用于判断是否超限，超限时不再继续读取
+     */
+    void readFrom(InputStream input, MessageDigest digest) throws IOException {
+        while (true) {
+            if (current == null || position == CHUNK_SIZE) {
+                nextChunk();
+            }
+            int max = (int) Math.min(CHUNK_SIZE - position, limit - count + 1);
+            int n = input.read(current, position, max);
+            if (n < 0) {
+                return;
+            }
+            ensureCapacity(n);
+            digest.update(current, position, n);
+            position += n;
+            count += n;
+        }
+    }
+
+    private void ensureCapacity(int length) throws ImageTooLargeException {
+        if ((long) count + length > limit) {
+            throw new ImageTooLargeException("图像数据超过大小限制: " + limit + " 字节");
+        }
+    }
+
+    private void nextChunk() {
+        byte[] chunk = CHUNK_POOL.poll();
+        current = chunk != null ? chunk : new byte[CHUNK_SIZE];
+        chunks.add(current);
+        position = 0;
+    }
+
+    byte[] toByteArray() {
+        byte[] result = new byte[count];
+        int offset = 0;
+        for (byte[] chunk : chunks) {
+            int n = Math.min(CHUNK_SIZE, count - offset);
+            System.arraycopy(chunk, 0, result, offset, n);
+            offset += n;
+        }
+        return result;
+    }
+
+    /**
+     * 归还缓冲块，池满时多出的块直接丢弃，偶发的大图不长期占用内存
+     */
+    void release() {
+        for (byte[] chunk : chunks) {
+            CHUNK_POOL.offer(chunk);
+        }
+        chunks.clear();
+        current = null;
+    }
+}
@@ -0,0 +1,59 @@
+// ImagePayloadDeserializer.java - 请求图像流式解码
+package com.ihdrs.backend.dto.request;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.ihdrs.backend.common.utils.FileUtil;
+import com.ihdrs.backend.config.RecognitionConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.IOException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+
+/**
+ * 把JSON中的Base64字符串直接从请求体解码为字节：Jackson按块读取输入并解码，
+ * 解码结果写入池化缓冲区（ImagePayloadBuffer）的同时更新MD5，不生成Base64字符串和中间字符数组。
+ * 解码字节数超过recognition.decode.max-payload-size时立即抛出ImageTooLargeException，不再读取剩余请求体；
+ * 解码和计算哈希的耗时（含读取请求体）记入ImagePayload.decodeNanos，供识别阶段耗时统计；
+ * Base64格式错误时返回ImagePayload.invalid()。
+ * 由Spring的ObjectMapper创建时注入RecognitionConfig，直接new ObjectMapper时使用默认配置
+ */
+public class ImagePayloadDeserializer extends StdDeserializer<ImagePayload> {
+
+    private final long maxPayloadBytes;
+
+    public ImagePayloadDeserializer() {
+        this(new RecognitionConfig());
+    }
+
+    @Autowired
+    public ImagePayloadDeserializer(RecognitionConfig recognitionConfig) {
+        super(ImagePayload.class);
+        this.maxPayloadBytes = recognitionConfig.getDecode().getMaxPayloadSize().toBytes();
+    }
+
+    @Override
+    public ImagePayload deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (!parser.hasToken(JsonToken.VALUE_STRING)) {
+            return (ImagePayload) context.handleUnexpectedToken(ImagePayload.class, parser);
+        }
+
+        long startNanos = System.nanoTime();
+        MessageDigest md5 = FileUtil.newMd5();
+        ImagePayloadBuffer buffer = new ImagePayloadBuffer(maxPayloadBytes);
+        try {
+            parser.readBinaryValue(context.getBase64Variant(), new DigestOutputStream(buffer, md5));
+            return new ImagePayload(buffer.toByteArray(), FileUtil.toHex(md5.digest()),
+                    System.nanoTime() - startNanos);
+        } catch (JsonParseException | IllegalArgumentException e) {
+            // 非法Base64字符：解析器读取下一个字段时会跳过该字符串剩余部分，只让这一项失败
+            return ImagePayload.invalid();
+        } finally {
+            buffer.release();
+        }
+    }
+}
@@ -1,18 +1,34 @@
 // RecognitionRequest.java - 识别请求
 package com.ihdrs.backend.dto.request;
 
-import jakarta.validation.constraints.NotNull;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
 import lombok.Data;
 
 @Data
 public class RecognitionRequest {
 
-    @NotNull(message = "图像数据不能为空")
-    private String imageData; // Base64编码的图像数据
+    @Schema(type = "string", format = "byte", description = "Base64编码的图像数据，与strokes二选一")
+    private ImagePayload imageData; // 请求体中为Base64字符串，读取时已解码并计算哈希
+
+    @Valid
+    @Schema(description = "画布笔画数据，与imageData二选一，服务端直接光栅化为模型输入")
+    private StrokePayload strokes;
 
     private String inputType = "CANVAS"; // CANVAS, UPLOAD, CAMERA
 
     private String sessionId; // 会话ID
 
     private String clientInfo; // 客户端信息JSON
+
+    /**
+     * 图像数据与笔画数据必须且只能提供一个
+     */
+    @JsonIgnore
+    @AssertTrue(message = "图像数据不能为空，且不能与笔画数据同时提供")
+    public boolean isSingleInput() {
+        return (imageData != null) != (strokes != null);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+// StrokePayload.java - 请求中的笔画数据
+package com.ihdrs.backend.dto.request;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.ihdrs.backend.common.constants.Constants;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 画布笔画：每一笔为按顺序排列的折线点坐标 [x0, y0, x1, y1, ...]（画布像素坐标），
+ * 由服务端直接光栅化为28x28模型输入，不经过PNG编码和解码
+ */
+@Data
+public class StrokePayload {
+
+    @NotNull(message = "画布宽度不能为空")
+    @Min(value = 1, message = "画布宽度至少为1")
+    @Max(value = 4096, message = "画布宽度不能超过4096")
+    private Integer width;
+
+    @NotNull(message = "画布高度不能为空")
+    @Min(value = 1, message = "画布高度至少为1")
+    @Max(value = 4096, message = "画布高度不能超过4096")
+    private Integer height;
+
+    @NotNull(message = "笔宽不能为空")
+    @DecimalMin(value = "0.5", message = "笔宽至少为0.5")
+    @DecimalMax(value = "256", message = "笔宽不能超过256")
+    private Float penWidth;
+
+    @NotNull(message = "笔画不能为空")
+    @Size(max = Constants.MAX_STROKES, message = "笔画数量超过限制")
+    @Schema(description = "笔画列表，每笔为 [x0, y0, x1, y1, ...]")
+    private List<float[]> strokes;
+
+    /**
+     * 每笔至少一个点且坐标成对、均为有限值，总点数不超过限制
+     */
+    @JsonIgnore
+    @AssertTrue(message = "笔画坐标格式错误或点数超过限制")
+    public boolean isWellFormed() {
+        if (strokes == null) {
+            return true;
+        }
+        int points = 0;
+        for (float[] stroke : strokes) {
+            if (stroke == null || stroke.length < 2 || stroke.length % 2 != 0) {
+                return false;
+            }
+            for (float value : stroke) {
+                if (!Float.isFinite(value)) {
+                    return false;
+                }
+            }
+            points += stroke.length / 2;
+        }
+        return points <= Constants.MAX_STROKE_POINTS;
+    }
+}
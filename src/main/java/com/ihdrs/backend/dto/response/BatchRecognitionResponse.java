@@ -0,0 +1,21 @@
+// BatchRecognitionResponse.java - 批量识别响应
+package com.ihdrs.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRecognitionResponse {
+
+    private List<RecognitionResponse> results; // 与请求顺序一致，失败项recognitionResult为空
+    private Integer total;
+    private Integer cacheHits; // 命中缓存的数量
+    private Integer processingTime; // 整批处理时间（毫秒）
+}
@@ -0,0 +1,30 @@
+// IdSegment.java - 号段ID分配实体类
+package com.ihdrs.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "id_segments")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdSegment {
+
+    @Id
+    @Column(name = "biz_tag", length = 64)
+    private String bizTag;
+
+    @Column(name = "max_id", nullable = false)
+    private Long maxId; // 已分配出去的最大ID
+
+    @Column(name = "step", nullable = false)
+    private Integer step; // 每次分配的号段长度
+
+    @Column(name = "update_time")
+    private LocalDateTime updateTime;
+}
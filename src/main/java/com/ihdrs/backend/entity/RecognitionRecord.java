@@ -18,8 +18,8 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class RecognitionRecord {
 
+    // 由RecordIdGenerator按号段预先分配，写入前即可返回给客户端
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "record_id")
     private Long recordId;
 
@@ -40,10 +40,12 @@ public class RecognitionRecord {
     @Column(name = "confidence", nullable = false, precision = 5, scale = 4)
     private BigDecimal confidence;
 
+    // 历史数据字段，新记录的图像按哈希存入ImageStore，可通过ImageBackfillService迁移
     @Lob
     @Column(name = "image_data")
     private byte[] imageData;
 
+    // 相对于上传目录的图像路径，同一imageHash的记录共享同一文件
     @Column(name = "image_path", length = 500)
     private String imagePath;
 
@@ -57,6 +59,9 @@ public class RecognitionRecord {
     @Column(name = "processing_time")
     private Integer processingTime;
 
+    @Column(name = "processing_breakdown", columnDefinition = "JSON")
+    private String processingBreakdown; // 各阶段耗时（毫秒），见RecognitionStageMetrics
+
     @Column(name = "client_info", columnDefinition = "JSON")
     private String clientInfo;
 
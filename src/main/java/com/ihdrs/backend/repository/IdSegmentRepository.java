@@ -0,0 +1,20 @@
+// IdSegmentRepository.java - 号段ID数据访问
+package com.ihdrs.backend.repository;
+
+import com.ihdrs.backend.entity.IdSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IdSegmentRepository extends JpaRepository<IdSegment, String> {
+
+    /**
+     * 将号段上限推进一个步长，返回受影响行数
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE IdSegment s SET s.maxId = s.maxId + s.step, s.updateTime = CURRENT_TIMESTAMP WHERE s.bizTag = :bizTag")
+    int increaseMaxId(@Param("bizTag") String bizTag);
+}
@@ -54,6 +54,17 @@ public interface ModelRepository extends JpaRepository<Model, Long> {
     @Query("UPDATE Model m SET m.status = 'COMPLETED' WHERE m.status = 'ACTIVE'")
     int deactivateAllModels();
 
+    /**
+     * 一条语句完成活跃模型切换：指定模型设为ACTIVE，原活跃模型改为COMPLETED，不存在无活跃模型的中间状态
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Model m SET m.status = CASE WHEN m.modelId = :modelId " +
+            "THEN com.ihdrs.backend.entity.Model.ModelStatus.ACTIVE " +
+            "ELSE com.ihdrs.backend.entity.Model.ModelStatus.COMPLETED END, " +
+            "m.updateTime = CURRENT_TIMESTAMP " +
+            "WHERE m.status = com.ihdrs.backend.entity.Model.ModelStatus.ACTIVE OR m.modelId = :modelId")
+    int switchActiveModel(@Param("modelId") Long modelId);
+
     /**
      * 统计各状态模型数量
      */
@@ -83,6 +83,19 @@ public interface RecognitionRecordRepository extends JpaRepository<RecognitionRe
     List<Object[]> getAccuracyStatistics(@Param("startTime") LocalDateTime startTime,
                                          @Param("endTime") LocalDateTime endTime);
 
+    /**
+     * 查询当前最大的记录ID（用于初始化号段）
+     */
+    @Query("SELECT COALESCE(MAX(r.recordId), 0) FROM RecognitionRecord r")
+    Long findMaxRecordId();
+
+    /**
+     * 查询指定时间之后识别次数最多的图片哈希（用于切换模型后预热缓存）
+     */
+    @Query("SELECT r.imageHash FROM RecognitionRecord r WHERE r.createTime >= :since AND r.imageHash IS NOT NULL " +
+            "GROUP BY r.imageHash ORDER BY COUNT(r) DESC")
+    List<String> findFrequentImageHashes(@Param("since") LocalDateTime since, Pageable pageable);
+
     /**
      * 根据图片哈希查找相似记录
      */
@@ -1,6 +1,7 @@
 // JwtAuthenticationFilter.java - JWT认证过滤器
 package com.ihdrs.backend.security;
 
+import com.ihdrs.backend.common.jfr.JwtVerificationEvent;
 import com.ihdrs.backend.common.utils.JwtUtil;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -32,6 +33,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
 
         String token = getTokenFromRequest(request);
+        JwtVerificationEvent event = new JwtVerificationEvent();
+        event.begin();
+        boolean valid = false;
+        String verifiedRole = null;
 
         if (StringUtils.hasText(token) && !jwtUtil.isTokenExpired(token)) {
             try {
@@ -53,11 +58,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                         new UsernamePasswordAuthenticationToken(username, null, authorities);
 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
+                valid = true;
+                verifiedRole = role;
 
             } catch (Exception e) {
                 log.error("JWT token解析失败", e);
             }
         }
+        if (token != null) {
+            event.finish(valid, verifiedRole);
+        }
 
         filterChain.doFilter(request, response);
     }
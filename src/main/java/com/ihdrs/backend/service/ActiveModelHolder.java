@@ -0,0 +1,224 @@
+// ActiveModelHolder.java - 活跃模型内存指针
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.constants.Constants;
+import com.ihdrs.backend.common.utils.WorkerThreads;
+import com.ihdrs.backend.config.RecognitionConfig;
+import com.ihdrs.backend.entity.Model;
+import com.ihdrs.backend.repository.ModelRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 当前活跃模型的内存指针，识别热路径直接读取，不查询数据库（没有活跃模型时同样只读快照）。
+ * 启动时从数据库加载，切换模型提交后原子替换，并通过Redis发布订阅通知其它节点重新加载；
+ * 后台按 recognition.active-model-refresh-interval 定期重新加载，识别直接写库启用的模型。
+ * 每次切换递增Redis中的缓存代数，识别结果缓存键包含模型ID和代数，旧缓存无需扫描删除即全部失效。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ActiveModelHolder {
+
+    private final ModelRepository modelRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectProvider<RedisMessageListenerContainer> listenerContainer;
+    private final ApplicationEventPublisher eventPublisher;
+    private final WorkerThreads workerThreads;
+    private final RecognitionConfig recognitionConfig;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicReference<ActiveModel> current = new AtomicReference<>(new ActiveModel(null, 0, 0));
+    private ScheduledExecutorService refreshExecutor;
+
+    /**
+     * 活跃模型快照，version在每次切换后递增，cacheGeneration为集群共享的缓存代数
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ActiveModel {
+        private final Model model;
+        private final long version;
+        private final long cacheGeneration;
+
+        /**
+         * 识别结果缓存命名空间：模型ID + 缓存代数
+         */
+        public String getCacheNamespace() {
+            return (model != null ? model.getModelId() : "none") + ":g" + cacheGeneration;
+        }
+    }
+
+    /**
+     * 活跃模型变更事件，initiator表示由本节点发起切换
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ActiveModelChangedEvent {
+        private final ActiveModel activeModel;
+        private final boolean initiator;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        refresh();
+
+        RedisMessageListenerContainer container = listenerContainer.getIfAvailable();
+        if (container != null) {
+            container.addMessageListener((message, pattern) -> {
+                String payload = new String(message.getBody(), StandardCharsets.UTF_8);
+                if (!payload.startsWith(nodeId + "|")) {
+                    log.info("收到活跃模型切换通知: {}", payload);
+                    refresh();
+                }
+            }, new ChannelTopic(Constants.REDIS_KEY_MODEL_ACTIVE));
+        }
+
+        refreshExecutor = Executors.newSingleThreadScheduledExecutor(workerThreads.factory("active-model-refresh"));
+        long intervalMillis = recognitionConfig.getActiveModelRefreshInterval().toMillis();
+        refreshExecutor.scheduleWithFixedDelay(this::refreshQuietly,
+                intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 获取当前活跃模型，没有活跃模型时返回null
+     */
+    public Model get() {
+        return current().getModel();
+    }
+
+    /**
+     * 获取当前活跃模型快照，只读内存，没有活跃模型时快照中的model为null
+     */
+    public ActiveModel current() {
+        return current.get();
+    }
+
+    /**
+     * 从数据库重新加载活跃模型
+     */
+    public ActiveModel refresh() {
+        Model model = modelRepository.findByStatus(Model.ModelStatus.ACTIVE).orElse(null);
+        return replace(model, readGeneration(), false);
+    }
+
+    /**
+     * 定期重新加载，数据库或Redis异常时保留当前快照
+     */
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.warn("重新加载活跃模型失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 切换活跃模型：在事务中调用时等提交后再替换指针并通知其它节点
+     */
+    public void activate(Model model) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            switchTo(model);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                switchTo(model);
+            }
+        });
+    }
+
+    private void switchTo(Model model) {
+        replace(model, nextGeneration(), true);
+        publish(model);
+    }
+
+    private ActiveModel replace(Model model, long cacheGeneration, boolean initiator) {
+        Long modelId = model != null ? model.getModelId() : null;
+        while (true) {
+            ActiveModel previous = current.get();
+            boolean changed = !Objects.equals(modelId, modelIdOf(previous))
+                    || cacheGeneration != previous.getCacheGeneration();
+            ActiveModel updated = new ActiveModel(model,
+                    changed ? previous.getVersion() + 1 : previous.getVersion(), cacheGeneration);
+            if (current.compareAndSet(previous, updated)) {
+                if (changed) {
+                    log.info("活跃模型已更新: modelId={}, version={}, cacheGeneration={}",
+                            modelId, updated.getVersion(), cacheGeneration);
+                    eventPublisher.publishEvent(new ActiveModelChangedEvent(updated, initiator));
+                }
+                return updated;
+            }
+        }
+    }
+
+    /**
+     * 读取集群共享的缓存代数，Redis不可用时沿用本地值
+     */
+    private long readGeneration() {
+        try {
+            String value = stringRedisTemplate.opsForValue().get(Constants.REDIS_KEY_RECOGNITION_GENERATION);
+            return value != null ? Long.parseLong(value) : 0;
+        } catch (Exception e) {
+            log.warn("读取识别缓存代数失败: {}", e.getMessage());
+            return current.get().getCacheGeneration();
+        }
+    }
+
+    /**
+     * 递增缓存代数，一次INCR即让所有旧缓存键失效
+     */
+    private long nextGeneration() {
+        try {
+            Long value = stringRedisTemplate.opsForValue().increment(Constants.REDIS_KEY_RECOGNITION_GENERATION);
+            if (value != null) {
+                return value;
+            }
+        } catch (Exception e) {
+            log.warn("递增识别缓存代数失败: {}", e.getMessage());
+        }
+        return current.get().getCacheGeneration() + 1;
+    }
+
+    private static Long modelIdOf(ActiveModel snapshot) {
+        return snapshot.getModel() != null ? snapshot.getModel().getModelId() : null;
+    }
+
+    private void publish(Model model) {
+        try {
+            stringRedisTemplate.convertAndSend(Constants.REDIS_KEY_MODEL_ACTIVE, nodeId + "|" + model.getModelId());
+        } catch (Exception e) {
+            log.warn("发布活跃模型切换通知失败: {}", e.getMessage());
+        }
+    }
+}
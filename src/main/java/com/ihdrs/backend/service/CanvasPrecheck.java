@@ -0,0 +1,226 @@
+// CanvasPrecheck.java - 画布输入预检
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.exception.ImageDecodeRejectedException;
+import com.ihdrs.backend.common.utils.ImageUtil;
+import com.ihdrs.backend.common.utils.StrokeRasterizer;
+import com.ihdrs.backend.common.utils.WorkerThreads;
+import com.ihdrs.backend.dto.request.StrokePayload;
+import com.ihdrs.backend.entity.SystemConfig;
+import com.ihdrs.backend.repository.SystemConfigRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在查缓存和调用模型之前拦截空白或无效的画布：在ImageDecodeExecutor中按最长边128像素降采样解码（计入解码内存预算），
+ * 依次检查亮度对比度、笔迹像素占比和笔迹包围盒大小，不合格时直接返回需要重写，不调用模型也不保存记录。
+ * 笔画输入按笔画几何估算相同的统计量，不需要解码。
+ * 阈值保存在system_configs表（canvas_precheck_*），启动时读取，之后由后台线程每30秒重新读取，
+ * 请求只读取内存中的阈值，修改后无需重新部署
+ */
+@Slf4j
+@Component
+public class CanvasPrecheck {
+
+    static final String KEY_PREFIX = "canvas_precheck_";
+    static final String KEY_ENABLED = KEY_PREFIX + "enabled";
+    static final String KEY_MIN_CONTRAST = KEY_PREFIX + "min_contrast";
+    static final String KEY_MIN_INK_RATIO = KEY_PREFIX + "min_ink_ratio";
+    static final String KEY_MAX_INK_RATIO = KEY_PREFIX + "max_ink_ratio";
+    static final String KEY_MIN_BOX_RATIO = KEY_PREFIX + "min_box_ratio";
+
+    private static final int ANALYSIS_SIZE = 128;
+    private static final long REFRESH_MILLIS = 30_000;
+
+    /**
+     * 预检不通过的原因
+     */
+    @Getter
+    public enum Rejection {
+        LOW_CONTRAST("low_contrast", "画布上没有清晰的笔迹，请重新书写"),
+        BLANK("blank", "未检测到笔迹，请重新书写"),
+        TOO_SMALL("too_small", "书写的数字太小，请写大一些"),
+        OVERFILLED("overfilled", "画布涂抹过多，请清空后重新书写");
+
+        private final String reason;
+        private final String message;
+
+        Rejection(String reason, String message) {
+            this.reason = reason;
+            this.message = message;
+        }
+    }
+
+    private final ImageUtil imageUtil;
+    private final ImageDecodeExecutor decodeExecutor;
+    private final SystemConfigRepository systemConfigRepository;
+    private final WorkerThreads workerThreads;
+    private final Map<Rejection, Counter> rejectedCounters = new EnumMap<>(Rejection.class);
+
+    private volatile Thresholds thresholds = new Thresholds();
+    private ScheduledExecutorService refreshExecutor;
+
+    public CanvasPrecheck(ImageUtil imageUtil, ImageDecodeExecutor decodeExecutor,
+                          SystemConfigRepository systemConfigRepository, WorkerThreads workerThreads,
+                          MeterRegistry meterRegistry) {
+        this.imageUtil = imageUtil;
+        this.decodeExecutor = decodeExecutor;
+        this.systemConfigRepository = systemConfigRepository;
+        this.workerThreads = workerThreads;
+        for (Rejection rejection : Rejection.values()) {
+            rejectedCounters.put(rejection, Counter.builder("recognition.precheck.rejected")
+                    .description("预检拦截的空白或无效画布")
+                    .tag("reason", rejection.getReason())
+                    .register(meterRegistry));
+        }
+        refresh();
+    }
+
+    @PostConstruct
+    public void startRefresh() {
+        refreshExecutor = Executors.newSingleThreadScheduledExecutor(workerThreads.factory("canvas-precheck-refresh"));
+        refreshExecutor.scheduleWithFixedDelay(this::refresh, REFRESH_MILLIS, REFRESH_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopRefresh() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 检查画布图像，通过时返回null；图像无法解析或解码内存预算不足时也返回null，由后续流程按原方式处理
+     */
+    public Rejection check(byte[] imageData) {
+        Thresholds current = thresholds();
+        if (!current.enabled) {
+            return null;
+        }
+
+        ImageUtil.InkStats stats;
+        try {
+            stats = decodeExecutor.execute(imageData, data -> imageUtil.inkStats(data, ANALYSIS_SIZE));
+        } catch (IOException e) {
+            return null;
+        } catch (ImageDecodeRejectedException e) {
+            log.debug("解码内存预算不足，跳过画布预检: {}", e.getMessage());
+            return null;
+        }
+        return reject(stats, current);
+    }
+
+    /**
+     * 检查笔画输入，通过时返回null
+     */
+    public Rejection check(StrokePayload strokes) {
+        Thresholds current = thresholds();
+        if (!current.enabled) {
+            return null;
+        }
+        return reject(StrokeRasterizer.inkStats(strokes.getStrokes(), strokes.getPenWidth(),
+                strokes.getWidth(), strokes.getHeight()), current);
+    }
+
+    private Rejection reject(ImageUtil.InkStats stats, Thresholds current) {
+        Rejection rejection = evaluate(stats, current);
+        if (rejection != null) {
+            rejectedCounters.get(rejection).increment();
+            log.debug("画布预检未通过: {} (对比度 {}, 笔迹占比 {}, 包围盒 {})", rejection.getReason(),
+                    stats.getContrast(), stats.getInkRatio(), stats.getBoxRatio());
+        }
+        return rejection;
+    }
+
+    static Rejection evaluate(ImageUtil.InkStats stats, Thresholds thresholds) {
+        if (stats.getInkRatio() == 0) {
+            return Rejection.BLANK;
+        }
+        // 对比度过低时Otsu阈值会把噪点当成笔迹，先于占比判断
+        if (stats.getContrast() < thresholds.minContrast) {
+            return Rejection.LOW_CONTRAST;
+        }
+        if (stats.getInkRatio() < thresholds.minInkRatio) {
+            return Rejection.BLANK;
+        }
+        if (stats.getInkRatio() > thresholds.maxInkRatio) {
+            return Rejection.OVERFILLED;
+        }
+        if (stats.getBoxRatio() < thresholds.minBoxRatio) {
+            return Rejection.TOO_SMALL;
+        }
+        return null;
+    }
+
+    /**
+     * 当前阈值，只读内存
+     */
+    Thresholds thresholds() {
+        return thresholds;
+    }
+
+    /**
+     * 从system_configs重新读取阈值，读取失败时继续使用当前阈值
+     */
+    void refresh() {
+        try {
+            thresholds = load();
+        } catch (Exception e) {
+            log.warn("读取画布预检配置失败，继续使用当前阈值: {}", e.getMessage());
+        }
+    }
+
+    private Thresholds load() {
+        Thresholds loaded = new Thresholds();
+        for (SystemConfig config : systemConfigRepository.findByConfigKeyContaining(KEY_PREFIX)) {
+            String value = config.getConfigValue().trim();
+            try {
+                switch (config.getConfigKey()) {
+                    case KEY_ENABLED:
+                        loaded.enabled = Boolean.parseBoolean(value);
+                        break;
+                    case KEY_MIN_CONTRAST:
+                        loaded.minContrast = Integer.parseInt(value);
+                        break;
+                    case KEY_MIN_INK_RATIO:
+                        loaded.minInkRatio = Double.parseDouble(value);
+                        break;
+                    case KEY_MAX_INK_RATIO:
+                        loaded.maxInkRatio = Double.parseDouble(value);
+                        break;
+                    case KEY_MIN_BOX_RATIO:
+                        loaded.minBoxRatio = Double.parseDouble(value);
+                        break;
+                    default:
+                        log.debug("未知的画布预检配置: {}", config.getConfigKey());
+                }
+            } catch (NumberFormatException e) {
+                log.warn("画布预检配置格式错误，使用默认值: {}={}", config.getConfigKey(), value);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 预检阈值，system_configs中未配置的项使用默认值
+     */
+    static class Thresholds {
+        boolean enabled = true;
+        int minContrast = 40; // 背景与笔迹平均亮度之差的下限（0-255）
+        double minInkRatio = 0.002; // 笔迹像素占比下限
+        double maxInkRatio = 0.5; // 笔迹像素占比上限
+        double minBoxRatio = 0.08; // 笔迹包围盒相对画布宽高的最大比例下限
+    }
+}
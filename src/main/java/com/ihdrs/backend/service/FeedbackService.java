@@ -23,12 +23,16 @@ public class FeedbackService {
 
     private final FeedbackDataRepository feedbackRepository;
     private final RecognitionRecordRepository recordRepository;
+    private final RecognitionRecordWriter recordWriter;
 
     /**
      * 提交用户反馈
      */
     @Transactional
     public Result<Void> submitFeedback(FeedbackRequest request, Long userId) {
+        // 识别记录可能仍在异步写入队列中，先确保已落库
+        recordWriter.flushIfPending(request.getRecordId());
+
         // 验证识别记录是否存在
         RecognitionRecord record = recordRepository.findById(request.getRecordId())
                 .orElse(null);
@@ -0,0 +1,205 @@
+// ImageBackfillService.java - 历史识别图像迁移服务
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.Result;
+import com.ihdrs.backend.common.utils.FileUtil;
+import com.ihdrs.backend.common.utils.WorkerThreads;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 将recognition_records.image_data中的历史BLOB分块迁移到ImageStore，
+ * 迁移后记录只保留image_hash和image_path，image_data置空。
+ * 按record_id游标分页，每块在独立事务中更新，可随时停止后从头重跑（已迁移的行不会再被选中）。
+ * 同一时间只有一个迁移线程：停止后需等当前块处理完，线程退出后才能再次启动。
+ */
+@Slf4j
+@Service
+public class ImageBackfillService {
+
+    private static final String SELECT_SQL = "SELECT record_id, image_hash, image_data FROM recognition_records " +
+            "WHERE image_data IS NOT NULL AND record_id > ? ORDER BY record_id LIMIT ?";
+    private static final String UPDATE_SQL = "UPDATE recognition_records " +
+            "SET image_path = ?, image_hash = ?, image_data = NULL WHERE record_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ImageStore imageStore;
+    private final FileUtil fileUtil;
+    private final ExecutorService executor;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private Future<?> worker; // 最近一次启动的迁移线程，由start()在同步块内读写
+    private long generation; // 每次启动加一，旧线程退出时不清理新一轮的状态
+    private volatile long lastRecordId;
+    private volatile long migratedCount;
+    private volatile long failedCount;
+    private volatile LocalDateTime startTime;
+    private volatile LocalDateTime finishTime;
+    private volatile String lastError;
+
+    public ImageBackfillService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                ImageStore imageStore,
+                                FileUtil fileUtil,
+                                WorkerThreads workerThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.imageStore = imageStore;
+        this.fileUtil = fileUtil;
+        this.executor = workerThreads.executor("image-backfill",
+                () -> Executors.newSingleThreadExecutor(workerThreads.factory("image-backfill")));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running.set(false);
+        executor.shutdownNow();
+    }
+
+    /**
+     * 启动后台迁移任务
+     *
+     * @param chunkSize   每块迁移的记录数
+     * @param pauseMillis 每块之间的停顿时间，用于限制对线上数据库的压力
+     */
+    public synchronized Result<Map<String, Object>> start(int chunkSize, long pauseMillis) {
+        if (chunkSize <= 0) {
+            return Result.error(400, "chunkSize必须大于0");
+        }
+        if (running.get()) {
+            return Result.error(400, "图像迁移任务正在执行");
+        }
+        if (isWorkerAlive()) {
+            // 已请求停止但当前块尚未处理完，两个线程会同时迁移同一段记录
+            return Result.error(400, "图像迁移任务正在停止，请稍后重试");
+        }
+
+        running.set(true);
+        lastRecordId = 0;
+        migratedCount = 0;
+        failedCount = 0;
+        lastError = null;
+        startTime = LocalDateTime.now();
+        finishTime = null;
+
+        long runGeneration = ++generation;
+        worker = executor.submit(() -> run(runGeneration, chunkSize, pauseMillis));
+
+        log.info("图像迁移任务启动: chunkSize={}, pauseMillis={}", chunkSize, pauseMillis);
+        return Result.success("图像迁移任务已启动", buildStatus());
+    }
+
+    /**
+     * 停止迁移任务，当前块处理完后退出
+     */
+    public synchronized Result<Map<String, Object>> stop() {
+        running.set(false);
+        return Result.success("图像迁移任务已请求停止", buildStatus());
+    }
+
+    /**
+     * 查询迁移进度
+     */
+    public synchronized Result<Map<String, Object>> getStatus() {
+        return Result.success(buildStatus());
+    }
+
+    private boolean isWorkerAlive() {
+        return worker != null && !worker.isDone();
+    }
+
+    private void run(long runGeneration, int chunkSize, long pauseMillis) {
+        try {
+            while (running.get()) {
+                List<LegacyImageRow> rows = jdbcTemplate.query(SELECT_SQL,
+                        (rs, rowNum) -> new LegacyImageRow(
+                                rs.getLong("record_id"), rs.getString("image_hash"), rs.getBytes("image_data")),
+                        lastRecordId, chunkSize);
+
+                if (rows.isEmpty()) {
+                    break;
+                }
+
+                migrateChunk(rows);
+                lastRecordId = rows.get(rows.size() - 1).recordId;
+
+                if (pauseMillis > 0) {
+                    Thread.sleep(pauseMillis);
+                }
+            }
+            log.info("图像迁移任务结束: 已迁移 {}, 失败 {}", migratedCount, failedCount);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            log.error("图像迁移任务异常中止, lastRecordId={}", lastRecordId, e);
+        } finally {
+            synchronized (this) {
+                if (generation == runGeneration) {
+                    finishTime = LocalDateTime.now();
+                    running.set(false);
+                }
+            }
+        }
+    }
+
+    private void migrateChunk(List<LegacyImageRow> rows) {
+        List<Object[]> updates = new ArrayList<>(rows.size());
+        for (LegacyImageRow row : rows) {
+            try {
+                String imageHash = row.imageHash != null ? row.imageHash : fileUtil.calculateFileHash(row.imageData);
+                String imagePath = imageStore.store(imageHash, row.imageData);
+                updates.add(new Object[]{imagePath, imageHash, row.recordId});
+            } catch (Exception e) {
+                // 单条失败不影响整块，下次重跑会再次选中该记录
+                failedCount++;
+                log.warn("迁移识别图像失败: recordId={}", row.recordId, e);
+            }
+        }
+
+        if (!updates.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_SQL, updates));
+            migratedCount += updates.size();
+        }
+    }
+
+    private Map<String, Object> buildStatus() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("running", running.get());
+        data.put("stopping", !running.get() && isWorkerAlive());
+        data.put("lastRecordId", lastRecordId);
+        data.put("migratedCount", migratedCount);
+        data.put("failedCount", failedCount);
+        data.put("startTime", startTime);
+        data.put("finishTime", finishTime);
+        data.put("lastError", lastError);
+        return data;
+    }
+
+    private static class LegacyImageRow {
+        private final long recordId;
+        private final String imageHash;
+        private final byte[] imageData;
+
+        private LegacyImageRow(long recordId, String imageHash, byte[] imageData) {
+            this.recordId = recordId;
+            this.imageHash = imageHash;
+            this.imageData = imageData;
+        }
+    }
+}
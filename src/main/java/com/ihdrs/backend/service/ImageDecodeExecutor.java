@@ -0,0 +1,178 @@
+// ImageDecodeExecutor.java - 图像解码线程池
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.exception.ImageDecodeRejectedException;
+import com.ihdrs.backend.common.utils.ImageUtil;
+import com.ihdrs.backend.config.RecognitionConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 在独立的有界线程池中解码和预处理图像，不占用请求线程的内存预算。
+ * 准入按头部估算的解码内存（宽x高x每像素字节数）计算，而不是任务个数：同时解码的图像内存总和不超过memoryBudget，
+ * 预算不足时在请求线程上最多排队queueTimeout，超时抛出ImageDecodeRejectedException。
+ * 预处理的线程本地缓冲区随之固定在这几个线程上。
+ * 开启虚拟线程时该线程池仍使用平台线程：解码是CPU密集任务，请求线程在预算和结果上等待时会让出平台线程。
+ */
+@Slf4j
+@Component
+public class ImageDecodeExecutor {
+
+    private static final int BYTES_PER_PERMIT = 1024;
+
+    /**
+     * 在解码线程上执行的图像任务
+     */
+    @FunctionalInterface
+    public interface ImageTask<T> {
+        T apply(byte[] imageData) throws IOException;
+    }
+
+    private final ImageUtil imageUtil;
+    private final RecognitionConfig.Decode config;
+    private final Semaphore budget;
+    private final int budgetPermits;
+    private final AtomicLong inFlightBytes = new AtomicLong();
+    private final Timer queueWaitTimer;
+    private final Counter rejectedCounter;
+    private final ExecutorService executor;
+
+    public ImageDecodeExecutor(ImageUtil imageUtil, RecognitionConfig recognitionConfig, MeterRegistry meterRegistry) {
+        this.imageUtil = imageUtil;
+        this.config = recognitionConfig.getDecode();
+        this.budgetPermits = (int) Math.max(1, config.getMemoryBudget().toBytes() / BYTES_PER_PERMIT);
+        this.budget = new Semaphore(budgetPermits, true);
+
+        this.queueWaitTimer = Timer.builder("image.decode.queue.wait")
+                .description("图像从提交到开始解码的等待时间")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("image.decode.rejected")
+                .description("解码内存预算不足被拒绝的图像数")
+                .register(meterRegistry);
+        Gauge.builder("image.decode.inflight.bytes", inFlightBytes, AtomicLong::get)
+                .description("已准入（排队或解码中）图像的估算解码内存")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(config.getThreads(), r -> {
+            Thread thread = new Thread(r, "image-decode-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 按估算的解码内存准入后在解码线程上执行task，当前线程等待结果。
+     * 图像尺寸超限时抛出ImageTooLargeException，内存预算在排队期限内不足时抛出ImageDecodeRejectedException
+     */
+    public <T> T execute(byte[] imageData, ImageTask<T> task) throws IOException {
+        long submitNanos = System.nanoTime();
+        long bytes = imageUtil.estimateDecodeBytes(imageData);
+        // 单张超过整个预算的图像仍可在空闲时独占预算执行
+        int permits = (int) Math.min(budgetPermits, Math.max(1, (bytes + BYTES_PER_PERMIT - 1) / BYTES_PER_PERMIT));
+
+        if (!acquire(permits)) {
+            rejectedCounter.increment();
+            throw new ImageDecodeRejectedException("图像解码繁忙，请稍后重试");
+        }
+        inFlightBytes.addAndGet(bytes);
+
+        // 预算由先取得claimed的一方释放：任务开始执行时取得，结束时释放；任务开始前调用方被中断则由调用方释放
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return null;
+                }
+                queueWaitTimer.record(System.nanoTime() - submitNanos, TimeUnit.NANOSECONDS);
+                try {
+                    return task.apply(imageData);
+                } finally {
+                    release(permits, bytes);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            release(permits, bytes);
+            throw new ImageDecodeRejectedException("图像解码服务已关闭");
+        }
+
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            // 尚未开始的任务不会再执行，由当前线程释放预算；已开始的任务结束时自行释放。
+            // 不能以cancel的返回值判断：任务执行中FutureTask仍未完成，cancel(false)同样返回true
+            future.cancel(false);
+            if (claimed.compareAndSet(false, true)) {
+                release(permits, bytes);
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待图像解码时被中断");
+        }
+    }
+
+    private boolean acquire(int permits) throws InterruptedIOException {
+        long timeoutNanos = config.getQueueTimeout().toNanos();
+        try {
+            return timeoutNanos <= 0
+                    ? budget.tryAcquire(permits)
+                    : budget.tryAcquire(permits, timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待图像解码内存预算时被中断");
+        }
+    }
+
+    private void release(int permits, long bytes) {
+        inFlightBytes.addAndGet(-bytes);
+        budget.release(permits);
+    }
+
+    public long getInFlightBytes() {
+        return inFlightBytes.get();
+    }
+
+    int getAvailablePermits() {
+        return budget.availablePermits();
+    }
+
+    int getBudgetPermits() {
+        return budgetPermits;
+    }
+}
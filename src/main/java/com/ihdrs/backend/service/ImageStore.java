@@ -0,0 +1,158 @@
+// ImageStore.java - 按内容哈希寻址的图像存储
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.config.FileStorageConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Pattern;
+
+/**
+ * 识别图像以imageHash为键存储为文件，按哈希前缀两级分目录（images/ab/cd/abcd....img），
+ * 相同图像只写一次，识别记录中只保存哈希和相对路径。
+ * 笔画输入光栅化得到的28x28张量以PNG存为 .tensor.png，与原始图像区分，缓存预热时按张量重新识别。
+ */
+@Slf4j
+@Component
+public class ImageStore {
+
+    private static final String FILE_SUFFIX = ".img";
+    private static final String TENSOR_SUFFIX = ".tensor.png";
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{4,64}");
+
+    private final Path uploadRoot;
+    private final String storeDir;
+
+    public ImageStore(FileStorageConfig fileStorageConfig) {
+        this.uploadRoot = Paths.get(fileStorageConfig.getUpload().getPath()).toAbsolutePath().normalize();
+        this.storeDir = fileStorageConfig.getUpload().getImageStoreDir();
+    }
+
+    /**
+     * 保存图像，已存在相同哈希的文件时直接复用，返回相对于上传目录的路径
+     */
+    public String store(String imageHash, byte[] imageData) {
+        return write(imageHash, relativePath(imageHash, FILE_SUFFIX), imageData);
+    }
+
+    private String write(String imageHash, String relativePath, byte[] imageData) {
+        Path target = uploadRoot.resolve(relativePath);
+
+        if (Files.exists(target)) {
+            return relativePath;
+        }
+
+        try {
+            Files.createDirectories(target.getParent());
+
+            // 先写临时文件再原子改名，并发写同一图像时读者不会看到半个文件
+            Path temp = Files.createTempFile(target.getParent(), imageHash, ".tmp");
+            try {
+                Files.write(temp, imageData);
+                moveIntoPlace(temp, target);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            log.debug("图像已存储: {}", relativePath);
+            return relativePath;
+        } catch (IOException e) {
+            throw new UncheckedIOException("图像存储失败: " + imageHash, e);
+        }
+    }
+
+    /**
+     * 同store(String, byte[])，图像字节只在文件不存在时才生成（如笔画输入的PNG编码）
+     */
+    public String store(String imageHash, ImageSource source) {
+        return store(imageHash, FILE_SUFFIX, source);
+    }
+
+    /**
+     * 保存笔画光栅化得到的张量，pngSource为其PNG编码，只在文件不存在时才生成
+     */
+    public String storeTensor(String imageHash, ImageSource pngSource) {
+        return store(imageHash, TENSOR_SUFFIX, pngSource);
+    }
+
+    private String store(String imageHash, String suffix, ImageSource source) {
+        String relativePath = relativePath(imageHash, suffix);
+        if (Files.exists(uploadRoot.resolve(relativePath))) {
+            return relativePath;
+        }
+        try {
+            return write(imageHash, relativePath, source.get());
+        } catch (IOException e) {
+            throw new UncheckedIOException("图像生成失败: " + imageHash, e);
+        }
+    }
+
+    /**
+     * 按需生成的图像字节
+     */
+    @FunctionalInterface
+    public interface ImageSource {
+        byte[] get() throws IOException;
+    }
+
+    /**
+     * 根据哈希读取图像，不存在时返回null
+     */
+    public byte[] load(String imageHash) {
+        return read(relativePath(imageHash, FILE_SUFFIX));
+    }
+
+    /**
+     * 根据哈希读取笔画张量的PNG编码，不是笔画输入或不存在时返回null
+     */
+    public byte[] loadTensor(String imageHash) {
+        return read(relativePath(imageHash, TENSOR_SUFFIX));
+    }
+
+    private byte[] read(String relativePath) {
+        Path path = uploadRoot.resolve(relativePath);
+        try {
+            return Files.exists(path) ? Files.readAllBytes(path) : null;
+        } catch (IOException e) {
+            log.error("读取图像失败: {}", path, e);
+            return null;
+        }
+    }
+
+    /**
+     * 图像是否已存储
+     */
+    public boolean exists(String imageHash) {
+        return Files.exists(uploadRoot.resolve(relativePath(imageHash, FILE_SUFFIX)));
+    }
+
+    private String relativePath(String imageHash, String suffix) {
+        if (imageHash == null || !HASH_PATTERN.matcher(imageHash).matches()) {
+            throw new IllegalArgumentException("无效的图像哈希: " + imageHash);
+        }
+        return storeDir + "/" + imageHash.substring(0, 2) + "/" + imageHash.substring(2, 4)
+                + "/" + imageHash + suffix;
+    }
+
+    private void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // 其它线程已写入相同内容
+        } catch (AtomicMoveNotSupportedException e) {
+            try {
+                Files.move(temp, target);
+            } catch (FileAlreadyExistsException ignored) {
+                // 其它线程已写入相同内容
+            }
+        }
+    }
+}
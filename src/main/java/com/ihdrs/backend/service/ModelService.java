@@ -23,6 +23,7 @@ import java.util.stream.Collectors;
 public class ModelService {
 
     private final ModelRepository modelRepository;
+    private final ActiveModelHolder activeModelHolder;
 
     /**
      * 分页查询模型列表
@@ -37,8 +38,7 @@ public class ModelService {
         Page<Model> modelPage = modelRepository.findAll(springPageRequest);
 
         // 获取当前活跃模型ID
-        Model activeModel = modelRepository.findByStatus(Model.ModelStatus.ACTIVE)
-                .orElse(null);
+        Model activeModel = activeModelHolder.get();
         Long activeModelId = activeModel != null ? activeModel.getModelId() : null;
 
         List<ModelResponse> modelList = modelPage.getContent().stream()
@@ -59,8 +59,7 @@ public class ModelService {
      * 获取当前活跃模型
      */
     public Result<ModelResponse> getActiveModel() {
-        Model model = modelRepository.findByStatus(Model.ModelStatus.ACTIVE)
-                .orElse(null);
+        Model model = activeModelHolder.get();
 
         if (model == null) {
             return Result.error(404, "没有活跃的模型");
@@ -85,12 +84,12 @@ public class ModelService {
             return Result.error(400, "只有已完成的模型才能设置为活跃状态");
         }
 
-        // 将所有模型设置为COMPLETED状态
-        modelRepository.deactivateAllModels();
+        // 原活跃模型改为COMPLETED、当前模型改为ACTIVE在同一条UPDATE中完成
+        modelRepository.switchActiveModel(modelId);
 
-        // 设置当前模型为ACTIVE
+        // 事务提交后替换内存中的活跃模型并通知其它节点
         model.setStatus(Model.ModelStatus.ACTIVE);
-        modelRepository.save(model);
+        activeModelHolder.activate(model);
 
         log.info("切换活跃模型: modelId={}, modelName={}", modelId, model.getModelName());
         return Result.success("模型切换成功", null);
@@ -107,8 +106,7 @@ public class ModelService {
             return Result.error(404, "模型不存在");
         }
 
-        Model activeModel = modelRepository.findByStatus(Model.ModelStatus.ACTIVE)
-                .orElse(null);
+        Model activeModel = activeModelHolder.get();
         Long activeModelId = activeModel != null ? activeModel.getModelId() : null;
 
         return Result.success(convertToModelResponse(model, activeModelId));
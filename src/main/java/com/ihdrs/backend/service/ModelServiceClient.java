@@ -1,86 +1,403 @@
 // ModelServiceClient.java - 专门的模型服务客户端
 package com.ihdrs.backend.service;
 
+import com.ihdrs.backend.common.jfr.ModelServiceCallEvent;
+import com.ihdrs.backend.common.resilience.CancellationScope;
+import com.ihdrs.backend.common.utils.WorkerThreads;
 import com.ihdrs.backend.config.ModelServiceConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * 模型服务客户端。识别图像默认以application/octet-stream直接发送原始字节，模型ID等元数据放在请求头，
+ * 省去Base64编码和JSON包装；模型服务不支持二进制时退回JSON，并在一段时间后重新尝试。
+ * 笔画输入在本服务光栅化后以张量发送（X-Payload-Type: tensor，JSON时为payload_type字段），模型服务跳过图像预处理。
+ * 识别调用经ModelServiceGuard保护，熔断或并发达到上限时抛出ModelServiceUnavailableException；
+ * 配置多个实例时由ModelServiceReplicaPool选择实例，并在后台定期检查各实例健康状态。
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ModelServiceClient {
 
+    static final String HEADER_MODEL_ID = "X-Model-Id";
+    static final String HEADER_IMAGE_LENGTHS = "X-Image-Lengths";
+    static final String HEADER_PAYLOAD_TYPE = "X-Payload-Type";
+    static final String HEADER_TRANSPORT = "X-Transport";
+    static final String PAYLOAD_TYPE_IMAGE = "image";
+    static final String PAYLOAD_TYPE_TENSOR = "tensor";
+
     private final RestTemplate restTemplate;
     private final ModelServiceConfig config;
+    private final ModelServiceGuard guard;
+    private final ModelServiceReplicaPool replicaPool;
+    private final ModelServiceHedger hedger;
+    private final WorkerThreads workerThreads;
+
+    private volatile long binaryRetryAt = 0; // 二进制传输协商失败后，下次尝试的时间
+    private ScheduledExecutorService healthCheckExecutor;
+
+    @PostConstruct
+    public void startHealthChecks() {
+        healthCheckExecutor = Executors.newSingleThreadScheduledExecutor(
+                workerThreads.factory("model-service-health-check"));
+        long intervalMillis = config.getHealthCheckInterval().toMillis();
+        healthCheckExecutor.scheduleWithFixedDelay(this::checkReplicas,
+                intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopHealthChecks() {
+        if (healthCheckExecutor != null) {
+            healthCheckExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 检查各实例健康状态，摘除失败的实例，恢复通过检查的实例
+     */
+    void checkReplicas() {
+        for (ModelServiceReplicaPool.Replica replica : replicaPool.getReplicas()) {
+            replicaPool.onHealthCheck(replica, checkHealth(replica.getBaseUrl()));
+        }
+    }
 
     /**
      * 调用模型识别服务
      */
     public Map<String, Object> recognize(byte[] imageData, Long modelId) {
-        String url = config.getBaseUrl() + "/api/recognize";
+        return recognize(imageData, modelId, PAYLOAD_TYPE_IMAGE);
+    }
 
-        for (int attempt = 1; attempt <= config.getMaxRetries(); attempt++) {
+    /**
+     * 识别已光栅化的28x28 uint8张量（784字节，255为笔迹）
+     */
+    public Map<String, Object> recognizeTensor(byte[] pixels, Long modelId) {
+        return recognize(pixels, modelId, PAYLOAD_TYPE_TENSOR);
+    }
+
+    private Map<String, Object> recognize(byte[] payload, Long modelId, String payloadType) {
+        String path = "/api/recognize";
+
+        if (useBinaryTransport()) {
             try {
-                HttpHeaders headers = new HttpHeaders();
-                headers.setContentType(MediaType.APPLICATION_JSON);
+                return postForData(path, binaryEntity(payload, modelId, payloadType, null));
+            } catch (BinaryTransportUnsupportedException e) {
+                fallbackToJson();
+            }
+        }
 
-                Map<String, Object> requestBody = new HashMap<>();
-                requestBody.put("image", Base64.getEncoder().encodeToString(imageData));
-                requestBody.put("model_id", modelId);
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("image", Base64.getEncoder().encodeToString(payload));
+        requestBody.put("model_id", modelId);
+        putPayloadType(requestBody, payloadType);
 
-                HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+        return postForData(path, jsonEntity(requestBody));
+    }
 
-                ResponseEntity<Map> response = restTemplate.exchange(
-                        url, HttpMethod.POST, entity, Map.class);
+    /**
+     * 批量调用模型识别服务，返回结果与输入顺序一致，单张失败的位置为null
+     */
+    public List<Map<String, Object>> recognizeBatch(List<byte[]> images, Long modelId) {
+        return recognizeBatch(images, modelId, PAYLOAD_TYPE_IMAGE);
+    }
 
-                if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                    Map<String, Object> body = response.getBody();
-                    if ("success".equals(body.get("status"))) {
-                        return (Map<String, Object>) body.get("data");
-                    }
-                }
+    /**
+     * 批量识别张量，返回约定同recognizeBatch
+     */
+    public List<Map<String, Object>> recognizeTensorBatch(List<byte[]> tensors, Long modelId) {
+        return recognizeBatch(tensors, modelId, PAYLOAD_TYPE_TENSOR);
+    }
 
-                log.warn("模型服务返回错误状态: {}", response.getStatusCode());
+    private List<Map<String, Object>> recognizeBatch(List<byte[]> images, Long modelId, String payloadType) {
+        String path = "/api/recognize/batch";
+        Map<String, Object> data = null;
+        boolean sent = false;
 
-            } catch (ResourceAccessException e) {
-                log.warn("第 {} 次调用模型服务超时，剩余重试次数: {}",
-                        attempt, config.getMaxRetries() - attempt);
+        if (useBinaryTransport()) {
+            try {
+                data = postForData(path, binaryBatchEntity(images, modelId, payloadType));
+                sent = true;
+            } catch (BinaryTransportUnsupportedException e) {
+                fallbackToJson();
+            }
+        }
+
+        if (!sent) {
+            List<String> encodedImages = new ArrayList<>(images.size());
+            for (byte[] imageData : images) {
+                encodedImages.add(Base64.getEncoder().encodeToString(imageData));
+            }
+
+            Map<String, Object> requestBody = new HashMap<>();
+            requestBody.put("images", encodedImages);
+            requestBody.put("model_id", modelId);
+            putPayloadType(requestBody, payloadType);
+
+            data = postForData(path, jsonEntity(requestBody));
+        }
 
-                if (attempt < config.getMaxRetries()) {
+        if (data == null || !(data.get("results") instanceof List)) {
+            return null;
+        }
+
+        List<Map<String, Object>> results = (List<Map<String, Object>>) data.get("results");
+        if (results.size() != images.size()) {
+            log.warn("批量识别结果数量不匹配: 期望 {}, 实际 {}", images.size(), results.size());
+            return null;
+        }
+        return results;
+    }
+
+    /**
+     * JSON请求中只有张量需要标明载荷类型，图像请求保持原格式
+     */
+    private static void putPayloadType(Map<String, Object> requestBody, String payloadType) {
+        if (!PAYLOAD_TYPE_IMAGE.equals(payloadType)) {
+            requestBody.put("payload_type", payloadType);
+        }
+    }
+
+    /**
+     * 单张图像的二进制请求：请求体即图像字节
+     */
+    static HttpEntity<byte[]> binaryEntity(byte[] body, Long modelId, String payloadType, String imageLengths) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.set(HEADER_MODEL_ID, String.valueOf(modelId));
+        headers.set(HEADER_PAYLOAD_TYPE, payloadType);
+        if (imageLengths != null) {
+            headers.set(HEADER_IMAGE_LENGTHS, imageLengths);
+        }
+        return new HttpEntity<>(body, headers);
+    }
+
+    /**
+     * 批量二进制请求：各图像字节依次拼接，每张的长度放在X-Image-Lengths头中
+     */
+    static HttpEntity<byte[]> binaryBatchEntity(List<byte[]> images, Long modelId, String payloadType) {
+        int totalLength = 0;
+        StringJoiner lengths = new StringJoiner(",");
+        for (byte[] image : images) {
+            totalLength += image.length;
+            lengths.add(String.valueOf(image.length));
+        }
+
+        byte[] body = new byte[totalLength];
+        int offset = 0;
+        for (byte[] image : images) {
+            System.arraycopy(image, 0, body, offset, image.length);
+            offset += image.length;
+        }
+        return binaryEntity(body, modelId, payloadType, lengths.toString());
+    }
+
+    static HttpEntity<Map<String, Object>> jsonEntity(Map<String, Object> requestBody) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new HttpEntity<>(requestBody, headers);
+    }
+
+    private boolean useBinaryTransport() {
+        switch (config.getTransport()) {
+            case BINARY:
+                return true;
+            case JSON:
+                return false;
+            default:
+                return System.currentTimeMillis() >= binaryRetryAt;
+        }
+    }
+
+    private void fallbackToJson() {
+        if (config.getTransport() == ModelServiceConfig.Transport.AUTO) {
+            binaryRetryAt = System.currentTimeMillis() + config.getBinaryRetryInterval().toMillis();
+        }
+        log.warn("模型服务不支持二进制传输，改用JSON，{} 后重新尝试", config.getBinaryRetryInterval());
+    }
+
+    /**
+     * 发送POST请求并返回响应中的data字段，超时按配置重试，重试时优先换一个实例。
+     * 整个调用（含重试）占用一个并发名额，结果计入熔断器
+     */
+    private Map<String, Object> postForData(String path, HttpEntity<?> entity) {
+        guard.acquire();
+        long startNanos = System.nanoTime();
+        ModelServiceGuard.Outcome outcome = ModelServiceGuard.Outcome.FAILURE;
+        ModelServiceReplicaPool.Replica replica = null;
+        boolean backoff = false;
+
+        try {
+            for (int attempt = 1; attempt <= config.getMaxRetries(); attempt++) {
+                if (backoff) {
                     try {
                         Thread.sleep(config.getRetryDelay().toMillis());
                     } catch (InterruptedException ie) {
                         Thread.currentThread().interrupt();
                         break;
                     }
+                    backoff = false;
+                }
+
+                replica = replicaPool.choose(replica);
+
+                try {
+                    ResponseEntity<Map> response = exchange(replica, path, entity);
+                    outcome = ModelServiceGuard.Outcome.SUCCESS;
+
+                    if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
+                        Map<String, Object> body = response.getBody();
+                        if ("success".equals(body.get("status"))) {
+                            return (Map<String, Object>) body.get("data");
+                        }
+                    }
+
+                    log.warn("模型服务返回错误状态: {} - {}", response.getStatusCode(), replica.getBaseUrl());
+
+                } catch (HttpClientErrorException e) {
+                    // 请求本身被拒绝，与模型服务负载无关
+                    outcome = ModelServiceGuard.Outcome.IGNORED;
+
+                    // 旧版模型服务不认识二进制请求，响应中没有X-Transport头
+                    if (isBinary(entity) && !acknowledgesBinary(e.getResponseHeaders())) {
+                        throw new BinaryTransportUnsupportedException();
+                    }
+                    log.warn("模型服务拒绝请求: {} - {}", e.getStatusCode(), replica.getBaseUrl());
+                    break;
+
+                } catch (ResourceAccessException e) {
+                    outcome = ModelServiceGuard.Outcome.FAILURE;
+                    log.warn("第 {} 次调用模型服务超时: {}，剩余重试次数: {}",
+                            attempt, replica.getBaseUrl(), config.getMaxRetries() - attempt);
+                    backoff = true;
+
+                } catch (Exception e) {
+                    outcome = ModelServiceGuard.Outcome.FAILURE;
+                    log.error("调用模型服务失败 (第 {} 次尝试): {}", attempt, replica.getBaseUrl(), e);
+                    break;
                 }
-            } catch (Exception e) {
-                log.error("调用模型服务失败 (第 {} 次尝试)", attempt, e);
-                break;
             }
+
+            return null;
+        } finally {
+            guard.release(outcome, System.nanoTime() - startNanos);
         }
+    }
 
-        return null;
+    /**
+     * 向选定实例发送请求，开启对冲时超过近期延迟分位数仍未返回会向另一实例发送相同请求
+     */
+    private ResponseEntity<Map> exchange(ModelServiceReplicaPool.Replica replica, String path, HttpEntity<?> entity) {
+        if (hedger.isEnabled()) {
+            return hedger.execute(replica, target -> exchangeOn(target, path, entity));
+        }
+        return exchangeOn(replica, path, entity);
+    }
+
+    /**
+     * 向单个实例发送请求并记录该实例的在途数、延迟和失败，每次请求写入一个ModelServiceCallEvent
+     */
+    private ResponseEntity<Map> exchangeOn(ModelServiceReplicaPool.Replica replica, String path, HttpEntity<?> entity) {
+        replica.begin();
+        long startNanos = System.nanoTime();
+        boolean failed = true;
+        int status = 0;
+        long responseBytes = -1;
+        ModelServiceCallEvent event = ModelServiceCallEvent.start(replica.getBaseUrl(), path, requestBytes(entity));
+        try {
+            ResponseEntity<Map> response = restTemplate.exchange(
+                    replica.getBaseUrl() + path, HttpMethod.POST, entity, Map.class);
+            failed = false;
+            status = response.getStatusCode().value();
+            responseBytes = response.getHeaders().getContentLength();
+            return response;
+        } catch (HttpClientErrorException e) {
+            failed = false;
+            status = e.getStatusCode().value();
+            throw e;
+        } catch (HttpStatusCodeException e) {
+            status = e.getStatusCode().value();
+            throw e;
+        } finally {
+            boolean cancelled = failed
+                    && (Thread.currentThread().isInterrupted() || CancellationScope.isCurrentCancelled());
+            event.finish(cancelled ? -1 : status, responseBytes);
+            if (!failed) {
+                replicaPool.onSuccess(replica, System.nanoTime() - startNanos);
+            } else if (cancelled) {
+                // 对冲落败被取消，不算实例故障
+                replicaPool.onCancelled(replica);
+            } else {
+                replicaPool.onFailure(replica);
+            }
+        }
+    }
+
+    /**
+     * 请求体字节数，JSON请求体在发送时才序列化，记为-1
+     */
+    static long requestBytes(HttpEntity<?> entity) {
+        return entity.getBody() instanceof byte[] ? ((byte[]) entity.getBody()).length : -1;
+    }
+
+    private static boolean isBinary(HttpEntity<?> entity) {
+        return MediaType.APPLICATION_OCTET_STREAM.equals(entity.getHeaders().getContentType());
+    }
+
+    private static boolean acknowledgesBinary(HttpHeaders responseHeaders) {
+        return responseHeaders != null && "binary".equals(responseHeaders.getFirst(HEADER_TRANSPORT));
+    }
+
+    /**
+     * 模型服务不支持二进制传输
+     */
+    private static class BinaryTransportUnsupportedException extends RuntimeException {
+        BinaryTransportUnsupportedException() {
+            super(null, null, false, false);
+        }
     }
 
     /**
-     * 检查模型服务健康状态
+     * 检查模型服务健康状态，任一实例可用即视为可用
      */
     public boolean checkHealth() {
+        for (ModelServiceReplicaPool.Replica replica : replicaPool.getReplicas()) {
+            if (checkHealth(replica.getBaseUrl())) {
+                return true;
+            }
+        }
+        log.error("模型服务所有实例健康检查均失败");
+        return false;
+    }
+
+    /**
+     * 检查单个模型服务实例的健康状态
+     */
+    public boolean checkHealth(String baseUrl) {
         try {
-            String url = config.getBaseUrl() + "/health";
+            String url = baseUrl + "/health";
             ResponseEntity<Map> response = restTemplate.getForEntity(url, Map.class);
             return response.getStatusCode() == HttpStatus.OK;
         } catch (Exception e) {
-            log.error("检查模型服务健康状态失败", e);
+            log.debug("模型服务实例健康检查失败: {} - {}", baseUrl, e.getMessage());
             return false;
         }
     }
@@ -90,7 +407,7 @@ public class ModelServiceClient {
      */
     public Map<String, Object> startTraining(Map<String, Object> trainingConfig) {
         try {
-            String url = config.getBaseUrl() + "/api/train";
+            String url = replicaPool.primary().getBaseUrl() + "/api/train";
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
@@ -0,0 +1,150 @@
+// ModelServiceGuard.java - 模型服务调用保护（熔断与自适应限流）
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.exception.ModelServiceUnavailableException;
+import com.ihdrs.backend.common.resilience.AdaptiveConcurrencyLimiter;
+import com.ihdrs.backend.common.resilience.CircuitBreaker;
+import com.ihdrs.backend.config.ModelServiceConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 包裹所有识别类模型服务调用：熔断器打开或并发达到自适应上限时立即抛出ModelServiceUnavailableException，
+ * 不再让请求线程在变慢的模型服务上阻塞。
+ */
+@Component
+public class ModelServiceGuard {
+
+    /**
+     * 单次调用的结果，决定熔断器和限流器如何计数
+     */
+    public enum Outcome {
+        SUCCESS, // 模型服务正常响应
+        FAILURE, // 超时、连接失败或服务端错误
+        IGNORED  // 与模型服务负载无关（如请求被拒绝）
+    }
+
+    private final CircuitBreaker circuitBreaker;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final Counter breakerRejections;
+    private final Counter limiterRejections;
+
+    public ModelServiceGuard(ModelServiceConfig config, MeterRegistry meterRegistry) {
+        ModelServiceConfig.Breaker breaker = config.getCircuitBreaker();
+        this.circuitBreaker = breaker.getEnabled()
+                ? new CircuitBreaker(breaker.getWindowSize(), breaker.getMinimumCalls(),
+                        breaker.getFailureRateThreshold(), breaker.getSlowCallThreshold(),
+                        breaker.getOpenDuration(), breaker.getHalfOpenCalls())
+                : null;
+
+        ModelServiceConfig.ConcurrencyLimit limit = config.getConcurrencyLimit();
+        this.limiter = limit.getEnabled()
+                ? new AdaptiveConcurrencyLimiter(limit.getInitialLimit(), limit.getMinLimit(),
+                        limit.getMaxLimit(), limit.getBackoffRatio(), limit.getLatencyThreshold())
+                : null;
+
+        this.breakerRejections = Counter.builder("model.service.rejected")
+                .tag("reason", "circuit_open")
+                .register(meterRegistry);
+        this.limiterRejections = Counter.builder("model.service.rejected")
+                .tag("reason", "concurrency_limit")
+                .register(meterRegistry);
+
+        if (circuitBreaker != null) {
+            // 0=CLOSED 1=HALF_OPEN 2=OPEN
+            Gauge.builder("model.service.circuit.state", this, guard -> stateValue(guard.circuitBreaker.getState()))
+                    .register(meterRegistry);
+            Gauge.builder("model.service.circuit.failure.rate", this, guard -> guard.circuitBreaker.getFailureRate())
+                    .register(meterRegistry);
+        }
+        if (limiter != null) {
+            Gauge.builder("model.service.concurrency.limit", this, guard -> guard.limiter.getLimit())
+                    .register(meterRegistry);
+            Gauge.builder("model.service.concurrency.inflight", this, guard -> guard.limiter.getInFlight())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * 申请调用许可，熔断或超出并发上限时抛出ModelServiceUnavailableException。
+     * 获得许可后必须以release结束
+     */
+    public void acquire() {
+        if (limiter != null && !limiter.tryAcquire()) {
+            limiterRejections.increment();
+            throw new ModelServiceUnavailableException("模型服务繁忙，请稍后重试");
+        }
+        if (circuitBreaker != null && !circuitBreaker.tryAcquirePermission()) {
+            if (limiter != null) {
+                limiter.onIgnore();
+            }
+            breakerRejections.increment();
+            throw new ModelServiceUnavailableException("模型服务暂不可用，请稍后重试");
+        }
+    }
+
+    /**
+     * 释放许可并按调用结果更新熔断器和并发上限
+     */
+    public void release(Outcome outcome, long durationNanos) {
+        if (circuitBreaker != null) {
+            if (outcome == Outcome.FAILURE) {
+                circuitBreaker.onError();
+            } else {
+                circuitBreaker.onSuccess(outcome == Outcome.SUCCESS ? durationNanos : 0);
+            }
+        }
+        if (limiter != null) {
+            if (outcome == Outcome.SUCCESS) {
+                limiter.onSuccess(durationNanos);
+            } else if (outcome == Outcome.FAILURE) {
+                limiter.onDropped();
+            } else {
+                limiter.onIgnore();
+            }
+        }
+    }
+
+    /**
+     * 当前熔断与限流状态，供actuator端点展示
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+
+        Map<String, Object> breaker = new LinkedHashMap<>();
+        breaker.put("enabled", circuitBreaker != null);
+        if (circuitBreaker != null) {
+            breaker.put("state", circuitBreaker.getState());
+            breaker.put("failureRate", circuitBreaker.getFailureRate());
+            breaker.put("bufferedCalls", circuitBreaker.getBufferedCalls());
+            breaker.put("rejectedCalls", circuitBreaker.getRejectedCalls());
+        }
+        snapshot.put("circuitBreaker", breaker);
+
+        Map<String, Object> concurrency = new LinkedHashMap<>();
+        concurrency.put("enabled", limiter != null);
+        if (limiter != null) {
+            concurrency.put("limit", limiter.getLimit());
+            concurrency.put("inFlight", limiter.getInFlight());
+            concurrency.put("rejectedCalls", limiter.getRejectedCalls());
+        }
+        snapshot.put("concurrencyLimit", concurrency);
+        return snapshot;
+    }
+
+    private static double stateValue(CircuitBreaker.State state) {
+        switch (state) {
+            case OPEN:
+                return 2;
+            case HALF_OPEN:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+// ModelServiceHedger.java - 模型服务对冲请求
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.resilience.CancellationScope;
+import com.ihdrs.backend.common.resilience.HedgingBudget;
+import com.ihdrs.backend.common.resilience.RollingPercentile;
+import com.ihdrs.backend.common.utils.WorkerThreads;
+import com.ihdrs.backend.config.ModelServiceConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 对冲请求：调用超过近期延迟分位数仍未返回时，向另一实例发送相同请求，取先成功的结果并取消另一个。
+ * 对冲数量受HedgingBudget限制。每个请求在各自的CancellationScope中执行，取消时中止登记的HttpComponents请求
+ * （关闭连接，模型服务端随之结束处理），并中断执行线程。
+ * http2模式使用JDK HttpClient，请求不登记到CancellationScope，落败的请求无法中止，此时不启用对冲。
+ */
+@Slf4j
+@Component
+public class ModelServiceHedger {
+
+    private final ModelServiceReplicaPool replicaPool;
+    private final ModelServiceConfig.Hedging config;
+    private final boolean cancellable;
+    private final RollingPercentile latency;
+    private final HedgingBudget budget;
+    private final Counter firedCounter;
+    private final Counter wonCounter;
+    private final Counter budgetExhaustedCounter;
+    private final ExecutorService executor;
+
+    public ModelServiceHedger(ModelServiceReplicaPool replicaPool, ModelServiceConfig modelServiceConfig,
+                              WorkerThreads workerThreads, MeterRegistry meterRegistry) {
+        this.replicaPool = replicaPool;
+        this.config = modelServiceConfig.getHedging();
+        this.cancellable = !modelServiceConfig.getHttp2();
+        if (config.getEnabled() && !cancellable) {
+            log.warn("model-service.http2开启时落败的对冲请求无法中止，不启用对冲");
+        }
+        this.latency = new RollingPercentile(config.getPercentile(), config.getWindowSize(),
+                Math.max(1, config.getWindowSize() / 20));
+        this.budget = new HedgingBudget(config.getMaxExtraLoad(), 10);
+
+        this.firedCounter = Counter.builder("model.service.hedge.fired")
+                .description("发出的对冲请求数")
+                .register(meterRegistry);
+        this.wonCounter = Counter.builder("model.service.hedge.won")
+                .description("对冲请求先于原请求成功返回的次数")
+                .register(meterRegistry);
+        this.budgetExhaustedCounter = Counter.builder("model.service.hedge.skipped")
+                .tag("reason", "budget")
+                .description("因预算耗尽未发出的对冲请求数")
+                .register(meterRegistry);
+
+        ThreadFactory threadFactory = workerThreads.factory("model-service-hedge");
+        this.executor = workerThreads.executor("model-service-hedge",
+                () -> Executors.newCachedThreadPool(threadFactory));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 是否启用对冲：需要开启配置、至少有两个实例，且请求可以中止（未开启http2）
+     */
+    public boolean isEnabled() {
+        return config.getEnabled() && cancellable && replicaPool.getReplicas().size() > 1;
+    }
+
+    /**
+     * 在primary上执行调用，超过对冲延迟仍未返回时在另一实例上并行执行，返回先成功的结果。
+     * 4xx响应是确定的结果，直接返回给调用方，不等待另一个请求
+     */
+    public <T> T execute(ModelServiceReplicaPool.Replica primary, Function<ModelServiceReplicaPool.Replica, T> call) {
+        budget.onRequest();
+
+        long hedgeDelayNanos = hedgeDelayNanos();
+        if (hedgeDelayNanos < 0) {
+            // 样本不足，直接在当前线程调用并积累延迟样本
+            return timed(primary, call);
+        }
+
+        HedgedCall<T> hedgedCall = new HedgedCall<>();
+        CompletableFuture<Attempt<T>> winner = hedgedCall.winner;
+        CancellationScope primaryScope = new CancellationScope();
+        Future<?> primaryTask = submit(primary, call, hedgedCall, false, primaryScope);
+        CancellationScope hedgeScope = null;
+        Future<?> hedgeTask = null;
+
+        try {
+            try {
+                return winner.get(hedgeDelayNanos, TimeUnit.NANOSECONDS).result;
+            } catch (TimeoutException e) {
+                ModelServiceReplicaPool.Replica other = replicaPool.choose(primary);
+                if (other == primary) {
+                    return winner.get().result;
+                }
+                if (!budget.tryAcquire()) {
+                    budgetExhaustedCounter.increment();
+                    return winner.get().result;
+                }
+
+                hedgedCall.launched.incrementAndGet();
+                if (winner.isDone()) {
+                    return winner.get().result;
+                }
+                firedCounter.increment();
+                log.debug("模型服务调用超过 {}ms 未返回，向 {} 发送对冲请求",
+                        TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos), other.getBaseUrl());
+                hedgeScope = new CancellationScope();
+                hedgeTask = submit(other, call, hedgedCall, true, hedgeScope);
+                Attempt<T> attempt = winner.get();
+                if (attempt.hedge) {
+                    wonCounter.increment();
+                }
+                return attempt.result;
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待模型服务响应时被中断", e);
+        } finally {
+            // 取消落败或未完成的请求
+            cancel(primaryTask, primaryScope);
+            if (hedgeTask != null) {
+                cancel(hedgeTask, hedgeScope);
+            }
+        }
+    }
+
+    /**
+     * 先中断线程再中止请求，请求因中止失败时执行线程已能看到取消状态
+     */
+    private static void cancel(Future<?> task, CancellationScope scope) {
+        if (task.isDone()) {
+            return;
+        }
+        task.cancel(true);
+        scope.cancel();
+    }
+
+    private <T> Future<?> submit(ModelServiceReplicaPool.Replica replica,
+                                 Function<ModelServiceReplicaPool.Replica, T> call,
+                                 HedgedCall<T> hedgedCall, boolean hedge, CancellationScope scope) {
+        return executor.submit(() -> {
+            try {
+                hedgedCall.winner.complete(new Attempt<>(scope.run(() -> timed(replica, call)), hedge));
+            } catch (HttpClientErrorException e) {
+                hedgedCall.winner.completeExceptionally(e);
+            } catch (RuntimeException e) {
+                // 已发出的请求全部失败时才向调用方报告失败
+                if (hedgedCall.failures.incrementAndGet() >= hedgedCall.launched.get()) {
+                    hedgedCall.winner.completeExceptionally(e);
+                }
+            }
+        });
+    }
+
+    private <T> T timed(ModelServiceReplicaPool.Replica replica, Function<ModelServiceReplicaPool.Replica, T> call) {
+        long startNanos = System.nanoTime();
+        T result = call.apply(replica);
+        latency.record(System.nanoTime() - startNanos);
+        return result;
+    }
+
+    /**
+     * 当前对冲状态，供actuator端点展示
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("enabled", isEnabled());
+        long delayNanos = hedgeDelayNanos();
+        snapshot.put("delayMs", delayNanos < 0 ? null : delayNanos / 1_000_000.0);
+        snapshot.put("budgetTokens", budget.getTokens());
+        snapshot.put("fired", (long) firedCounter.count());
+        snapshot.put("won", (long) wonCounter.count());
+        return snapshot;
+    }
+
+    /**
+     * 一次对冲调用的共享状态
+     */
+    private static class HedgedCall<T> {
+        private final CompletableFuture<Attempt<T>> winner = new CompletableFuture<>();
+        private final AtomicInteger launched = new AtomicInteger(1);
+        private final AtomicInteger failures = new AtomicInteger();
+    }
+
+    /**
+     * 先成功返回的结果及其是否来自对冲请求
+     */
+    private static class Attempt<T> {
+        private final T result;
+        private final boolean hedge;
+
+        private Attempt(T result, boolean hedge) {
+            this.result = result;
+            this.hedge = hedge;
+        }
+    }
+
+    /**
+     * 当前对冲等待时间，近期样本不足时返回-1
+     */
+    private long hedgeDelayNanos() {
+        long percentileNanos = latency.get();
+        if (percentileNanos < 0 || latency.getCount() < config.getMinSamples()) {
+            return -1;
+        }
+        return Math.max(percentileNanos, config.getMinDelay().toNanos());
+    }
+}
@@ -0,0 +1,225 @@
+// ModelServiceReplicaPool.java - 模型服务多实例负载均衡
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.config.ModelServiceConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 模型服务实例池。每次调用选择在途请求最少的健康实例，在途数相同时选延迟EWMA更低者；
+ * 连续失败的实例被摘除，由后台健康检查确认恢复后重新加入。
+ * 所有实例都被摘除时退化为在全部实例间选择，避免健康检查误判导致识别整体不可用。
+ */
+@Slf4j
+@Component
+public class ModelServiceReplicaPool {
+
+    private final List<Replica> replicas;
+    private final int ejectAfterFailures;
+    private final double ewmaAlpha;
+
+    public ModelServiceReplicaPool(ModelServiceConfig config, MeterRegistry meterRegistry) {
+        List<String> urls = config.getBaseUrls() != null && !config.getBaseUrls().isEmpty()
+                ? config.getBaseUrls()
+                : List.of(config.getBaseUrl());
+        this.ejectAfterFailures = config.getEjectAfterFailures();
+        this.ewmaAlpha = config.getLatencyEwmaAlpha();
+
+        List<Replica> list = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            list.add(new Replica(stripTrailingSlash(url), meterRegistry));
+        }
+        this.replicas = Collections.unmodifiableList(list);
+        log.info("模型服务实例: {}", urls);
+    }
+
+    /**
+     * 选择一个实例，重试时传入上次失败的实例以优先换一个
+     */
+    public Replica choose(Replica avoid) {
+        Replica best = null;
+        for (Replica replica : replicas) {
+            if (replica.healthy && replica != avoid && isBetter(replica, best)) {
+                best = replica;
+            }
+        }
+        if (best == null && avoid != null && avoid.healthy) {
+            best = avoid;
+        }
+        if (best == null) {
+            for (Replica replica : replicas) {
+                if (isBetter(replica, best)) {
+                    best = replica;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static boolean isBetter(Replica candidate, Replica best) {
+        if (best == null) {
+            return true;
+        }
+        int candidateInFlight = candidate.inFlight.get();
+        int bestInFlight = best.inFlight.get();
+        if (candidateInFlight != bestInFlight) {
+            return candidateInFlight < bestInFlight;
+        }
+        return candidate.ewmaNanos < best.ewmaNanos;
+    }
+
+    /**
+     * 第一个配置的实例，用于训练等不需要负载均衡的调用
+     */
+    public Replica primary() {
+        return replicas.get(0);
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * 调用结束：记录延迟并重置失败计数
+     */
+    public void onSuccess(Replica replica, long durationNanos) {
+        replica.inFlight.decrementAndGet();
+        replica.latency.record(durationNanos, TimeUnit.NANOSECONDS);
+        replica.ewmaLock.lock();
+        try {
+            replica.ewmaNanos = replica.ewmaNanos == 0
+                    ? durationNanos
+                    : ewmaAlpha * durationNanos + (1 - ewmaAlpha) * replica.ewmaNanos;
+        } finally {
+            replica.ewmaLock.unlock();
+        }
+        replica.consecutiveFailures.set(0);
+    }
+
+    /**
+     * 调用失败（超时、连接失败、服务端错误），连续失败达到阈值时摘除实例
+     */
+    public void onFailure(Replica replica) {
+        replica.inFlight.decrementAndGet();
+        replica.failures.increment();
+        if (replica.consecutiveFailures.incrementAndGet() >= ejectAfterFailures && replica.healthy) {
+            replica.healthy = false;
+            log.warn("模型服务实例连续失败 {} 次，已摘除: {}", ejectAfterFailures, replica.baseUrl);
+        }
+    }
+
+    /**
+     * 调用被取消（对冲落败），只释放在途计数
+     */
+    public void onCancelled(Replica replica) {
+        replica.inFlight.decrementAndGet();
+    }
+
+    /**
+     * 根据健康检查结果更新实例状态
+     */
+    public void onHealthCheck(Replica replica, boolean healthy) {
+        if (healthy && !replica.healthy) {
+            replica.consecutiveFailures.set(0);
+            replica.healthy = true;
+            log.info("模型服务实例已恢复: {}", replica.baseUrl);
+        } else if (!healthy && replica.healthy) {
+            replica.healthy = false;
+            log.warn("模型服务实例健康检查失败，已摘除: {}", replica.baseUrl);
+        }
+    }
+
+    /**
+     * 各实例当前状态，供actuator端点展示
+     */
+    public List<Map<String, Object>> snapshot() {
+        List<Map<String, Object>> snapshot = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("baseUrl", replica.baseUrl);
+            item.put("healthy", replica.healthy);
+            item.put("inFlight", replica.inFlight.get());
+            item.put("latencyEwmaMs", replica.ewmaNanos / 1_000_000.0);
+            item.put("requests", replica.latency.count());
+            item.put("failures", (long) replica.failures.count());
+            snapshot.add(item);
+        }
+        return snapshot;
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * 单个模型服务实例
+     */
+    public static class Replica {
+        private final String baseUrl;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final Counter failures;
+        private final Timer latency;
+        private volatile double ewmaNanos;
+        private final ReentrantLock ewmaLock = new ReentrantLock(); // 每次成功调用都会更新，不用synchronized以免固定虚拟线程
+        private volatile boolean healthy = true;
+
+        private Replica(String baseUrl, MeterRegistry meterRegistry) {
+            this.baseUrl = baseUrl;
+            this.latency = Timer.builder("model.service.replica.latency")
+                    .tag("replica", baseUrl)
+                    .description("模型服务各实例的调用延迟")
+                    .register(meterRegistry);
+            this.failures = Counter.builder("model.service.replica.failures")
+                    .tag("replica", baseUrl)
+                    .description("模型服务各实例的失败调用数")
+                    .register(meterRegistry);
+            Gauge.builder("model.service.replica.inflight", inFlight, AtomicInteger::get)
+                    .tag("replica", baseUrl)
+                    .register(meterRegistry);
+            Gauge.builder("model.service.replica.latency.ewma", this, replica -> replica.ewmaNanos / 1_000_000.0)
+                    .tag("replica", baseUrl)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            Gauge.builder("model.service.replica.healthy", this, replica -> replica.healthy ? 1 : 0)
+                    .tag("replica", baseUrl)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * 开始一次调用，计入在途请求数
+         */
+        public void begin() {
+            inFlight.incrementAndGet();
+        }
+
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        public double getLatencyEwmaNanos() {
+            return ewmaNanos;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+// ReactiveModelServiceClient.java - 非阻塞模型服务客户端
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.jfr.ModelServiceCallEvent;
+import com.ihdrs.backend.config.ModelServiceConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.retry.Retry;
+
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static com.ihdrs.backend.service.ModelServiceClient.HEADER_TRANSPORT;
+import static com.ihdrs.backend.service.ModelServiceClient.PAYLOAD_TYPE_IMAGE;
+import static com.ihdrs.backend.service.ModelServiceClient.PAYLOAD_TYPE_TENSOR;
+
+/**
+ * ModelServiceClient的非阻塞版本，供响应式识别接口使用：基于WebClient，等待模型服务响应期间不占用线程。
+ * 请求格式、二进制协商、重试、实例选择以及ModelServiceGuard的熔断和限流与阻塞客户端一致；
+ * 不做请求对冲和批量合并。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReactiveModelServiceClient {
+
+    private static final String RECOGNIZE_PATH = "/api/recognize";
+
+    private final WebClient modelServiceWebClient;
+    private final ModelServiceConfig config;
+    private final ModelServiceGuard guard;
+    private final ModelServiceReplicaPool replicaPool;
+
+    private volatile long binaryRetryAt = 0; // 二进制传输协商失败后，下次尝试的时间
+
+    /**
+     * 调用模型识别服务，失败时为空
+     */
+    public Mono<Map<String, Object>> recognize(byte[] imageData, Long modelId) {
+        return recognize(imageData, modelId, PAYLOAD_TYPE_IMAGE);
+    }
+
+    /**
+     * 识别已光栅化的28x28 uint8张量（784字节，255为笔迹）
+     */
+    public Mono<Map<String, Object>> recognizeTensor(byte[] pixels, Long modelId) {
+        return recognize(pixels, modelId, PAYLOAD_TYPE_TENSOR);
+    }
+
+    private Mono<Map<String, Object>> recognize(byte[] payload, Long modelId, String payloadType) {
+        Mono<Map<String, Object>> json = Mono.defer(() -> {
+            Map<String, Object> requestBody = new HashMap<>();
+            requestBody.put("image", Base64.getEncoder().encodeToString(payload));
+            requestBody.put("model_id", modelId);
+            if (!PAYLOAD_TYPE_IMAGE.equals(payloadType)) {
+                requestBody.put("payload_type", payloadType);
+            }
+            return postForData(ModelServiceClient.jsonEntity(requestBody));
+        });
+
+        if (!useBinaryTransport()) {
+            return json;
+        }
+        return postForData(ModelServiceClient.binaryEntity(payload, modelId, payloadType, null))
+                .onErrorResume(BinaryTransportUnsupportedException.class, e -> {
+                    fallbackToJson();
+                    return json;
+                });
+    }
+
+    private boolean useBinaryTransport() {
+        switch (config.getTransport()) {
+            case BINARY:
+                return true;
+            case JSON:
+                return false;
+            default:
+                return System.currentTimeMillis() >= binaryRetryAt;
+        }
+    }
+
+    private void fallbackToJson() {
+        if (config.getTransport() == ModelServiceConfig.Transport.AUTO) {
+            binaryRetryAt = System.currentTimeMillis() + config.getBinaryRetryInterval().toMillis();
+        }
+        log.warn("模型服务不支持二进制传输，改用JSON，{} 后重新尝试", config.getBinaryRetryInterval());
+    }
+
+    /**
+     * 发送POST请求并返回响应中的data字段，连接失败或超时按配置重试，重试时优先换一个实例。
+     * 整个调用（含重试）占用一个并发名额，结果计入熔断器；订阅被取消时不计入熔断器。
+     * 名额在结果交给下游之前释放（doFinally在下游收到结果之后才执行），调用方拿到结果时熔断器已更新
+     */
+    private Mono<Map<String, Object>> postForData(HttpEntity<?> entity) {
+        return Mono.defer(() -> {
+            guard.acquire();
+            long startNanos = System.nanoTime();
+            CallState state = new CallState();
+            AtomicBoolean released = new AtomicBoolean();
+            Consumer<ModelServiceGuard.Outcome> release = outcome -> {
+                if (released.compareAndSet(false, true)) {
+                    guard.release(outcome, System.nanoTime() - startNanos);
+                }
+            };
+
+            return Mono.defer(() -> exchange(state, entity))
+                    .retryWhen(Retry.fixedDelay(Math.max(0, config.getMaxRetries() - 1), config.getRetryDelay())
+                            .filter(WebClientRequestException.class::isInstance)
+                            .doBeforeRetry(signal -> log.warn("第 {} 次调用模型服务超时: {}，剩余重试次数: {}",
+                                    signal.totalRetries() + 1, state.replica.getBaseUrl(),
+                                    config.getMaxRetries() - signal.totalRetries() - 1))
+                            .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                    .onErrorResume(WebClientRequestException.class, e -> {
+                        log.warn("调用模型服务超时，重试次数已用完: {}", state.replica.getBaseUrl());
+                        return Mono.empty();
+                    })
+                    .doOnNext(data -> release.accept(state.outcome))
+                    .doOnTerminate(() -> release.accept(state.outcome))
+                    .doOnCancel(() -> release.accept(ModelServiceGuard.Outcome.IGNORED));
+        });
+    }
+
+    /**
+     * 向选定实例发送一次请求并记录该实例的在途数、延迟和失败
+     */
+    private Mono<Map<String, Object>> exchange(CallState state, HttpEntity<?> entity) {
+        ModelServiceReplicaPool.Replica replica = replicaPool.choose(state.replica);
+        state.replica = replica;
+        state.outcome = ModelServiceGuard.Outcome.FAILURE;
+        replica.begin();
+        long startNanos = System.nanoTime();
+        boolean[] settled = new boolean[1];
+        int[] status = new int[1];
+        long[] responseBytes = {-1};
+        ModelServiceCallEvent event = ModelServiceCallEvent.start(replica.getBaseUrl(), RECOGNIZE_PATH,
+                ModelServiceClient.requestBytes(entity));
+
+        return modelServiceWebClient.post()
+                .uri(replica.getBaseUrl() + RECOGNIZE_PATH)
+                .headers(headers -> headers.addAll(entity.getHeaders()))
+                .bodyValue(entity.getBody())
+                .exchangeToMono(response -> {
+                    settled[0] = true;
+                    status[0] = response.statusCode().value();
+                    responseBytes[0] = response.headers().contentLength().orElse(-1);
+                    if (response.statusCode().is4xxClientError()) {
+                        // 请求本身被拒绝，与模型服务负载无关
+                        replicaPool.onSuccess(replica, System.nanoTime() - startNanos);
+                        state.outcome = ModelServiceGuard.Outcome.IGNORED;
+                        // 旧版模型服务不认识二进制请求，响应中没有X-Transport头
+                        if (isBinary(entity) && !"binary".equals(response.headers().asHttpHeaders().getFirst(HEADER_TRANSPORT))) {
+                            return response.releaseBody().then(Mono.error(new BinaryTransportUnsupportedException()));
+                        }
+                        log.warn("模型服务拒绝请求: {} - {}", response.statusCode(), replica.getBaseUrl());
+                        return response.releaseBody().then(Mono.empty());
+                    }
+                    if (response.statusCode().isError()) {
+                        replicaPool.onFailure(replica);
+                        log.warn("模型服务返回错误状态: {} - {}", response.statusCode(), replica.getBaseUrl());
+                        return response.releaseBody().then(Mono.empty());
+                    }
+
+                    replicaPool.onSuccess(replica, System.nanoTime() - startNanos);
+                    state.outcome = ModelServiceGuard.Outcome.SUCCESS;
+                    return response.bodyToMono(Map.class).flatMap(body -> {
+                        if ("success".equals(body.get("status"))) {
+                            return Mono.justOrEmpty((Map<String, Object>) body.get("data"));
+                        }
+                        log.warn("模型服务返回错误状态: {} - {}", response.statusCode(), replica.getBaseUrl());
+                        return Mono.empty();
+                    });
+                })
+                .doFinally(signal -> {
+                    event.finish(signal == SignalType.CANCEL && !settled[0] ? -1 : status[0], responseBytes[0]);
+                    if (settled[0]) {
+                        return;
+                    }
+                    if (signal == SignalType.CANCEL) {
+                        replicaPool.onCancelled(replica);
+                    } else {
+                        replicaPool.onFailure(replica);
+                    }
+                })
+                .onErrorResume(e -> !(e instanceof WebClientRequestException)
+                        && !(e instanceof BinaryTransportUnsupportedException), e -> {
+                    log.error("调用模型服务失败: {}", replica.getBaseUrl(), e);
+                    return Mono.empty();
+                });
+    }
+
+    private static boolean isBinary(HttpEntity<?> entity) {
+        return MediaType.APPLICATION_OCTET_STREAM.equals(entity.getHeaders().getContentType());
+    }
+
+    /**
+     * 一次调用（含重试）的状态：最近选择的实例和调用结果
+     */
+    private static class CallState {
+        private volatile ModelServiceReplicaPool.Replica replica;
+        private volatile ModelServiceGuard.Outcome outcome = ModelServiceGuard.Outcome.FAILURE;
+    }
+
+    /**
+     * 模型服务不支持二进制传输
+     */
+    private static class BinaryTransportUnsupportedException extends RuntimeException {
+        BinaryTransportUnsupportedException() {
+            super(null, null, false, false);
+        }
+    }
+}
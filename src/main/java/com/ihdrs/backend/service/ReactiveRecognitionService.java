@@ -0,0 +1,182 @@
+// ReactiveRecognitionService.java - 非阻塞识别服务
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.Result;
+import com.ihdrs.backend.common.exception.ImageDecodeRejectedException;
+import com.ihdrs.backend.common.exception.ModelServiceUnavailableException;
+import com.ihdrs.backend.config.RecognitionConfig;
+import com.ihdrs.backend.dto.request.ImagePayload;
+import com.ihdrs.backend.dto.request.RecognitionRequest;
+import com.ihdrs.backend.dto.response.RecognitionResponse;
+import com.ihdrs.backend.entity.Model;
+import com.ihdrs.backend.entity.RecognitionRecord;
+import com.ihdrs.backend.service.inference.InferenceRouter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 识别流程的响应式版本，语义和返回的Result与RecognitionService.recognize一致：
+ * 缓存经响应式Redis查询和写入，模型服务经WebClient调用，等待期间不占用线程；
+ * 笔画光栅化、画布预检、本地推理以及保存记录（号段领取、图像存储）等阻塞或CPU密集的步骤
+ * 交给有界的调度器执行，调度器队列满时返回503。
+ */
+@Slf4j
+@Service
+public class ReactiveRecognitionService {
+
+    private final ActiveModelHolder activeModelHolder;
+    private final RecognitionService recognitionService;
+    private final InferenceRouter inferenceRouter;
+    private final RecognitionResultCache resultCache;
+    private final RecognitionSingleFlight singleFlight;
+    private final Scheduler blockingScheduler;
+
+    public ReactiveRecognitionService(ActiveModelHolder activeModelHolder,
+                                      RecognitionService recognitionService,
+                                      InferenceRouter inferenceRouter,
+                                      RecognitionResultCache resultCache,
+                                      RecognitionSingleFlight singleFlight,
+                                      RecognitionConfig recognitionConfig) {
+        this.activeModelHolder = activeModelHolder;
+        this.recognitionService = recognitionService;
+        this.inferenceRouter = inferenceRouter;
+        this.resultCache = resultCache;
+        this.singleFlight = singleFlight;
+
+        RecognitionConfig.Reactive config = recognitionConfig.getReactive();
+        this.blockingScheduler = Schedulers.newBoundedElastic(config.getBlockingThreads(),
+                config.getBlockingQueueSize(), "recognition-reactive");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        blockingScheduler.dispose();
+    }
+
+    /**
+     * 执行数字识别，依次为：预检并取出模型输入 → 查缓存 → 推理 → 保存记录
+     */
+    public Mono<Result<RecognitionResponse>> recognize(RecognitionRequest request, Long userId) {
+        return Mono.defer(() -> {
+            long startTime = System.currentTimeMillis();
+
+            // 1. 获取当前活跃模型：只读内存快照，没有活跃模型时也不回查数据库或Redis，可以在事件循环线程上调用
+            ActiveModelHolder.ActiveModel active = activeModelHolder.current();
+            Model activeModel = active.getModel();
+            if (activeModel == null) {
+                return Mono.just(Result.<RecognitionResponse>error(500, "没有可用的识别模型"));
+            }
+            if (request.getImageData() != null && !request.getImageData().isValid()) {
+                return Mono.just(Result.<RecognitionResponse>error(400, "图像数据不是有效的Base64编码"));
+            }
+
+            // 2-3. 画布预检和笔画光栅化为CPU计算，不在请求线程上执行
+            Mono<Prepared> prepared = Mono.fromCallable(() -> prepare(request));
+            if (request.getStrokes() != null
+                    || RecognitionRecord.InputType.CANVAS.name().equals(request.getInputType())) {
+                prepared = prepared.subscribeOn(blockingScheduler);
+            }
+
+            return prepared.flatMap(input -> {
+                if (input.rejection != null) {
+                    return Mono.just(Result.success(RecognitionService.rejectedResponse(input.rejection,
+                            (int) (System.currentTimeMillis() - startTime))));
+                }
+                return recognize(active, input.payload, request, userId, startTime);
+            });
+        }).onErrorResume(this::errorResult);
+    }
+
+    private Mono<Result<RecognitionResponse>> recognize(ActiveModelHolder.ActiveModel active, ImagePayload payload,
+                                                         RecognitionRequest request, Long userId, long startTime) {
+        Model activeModel = active.getModel();
+        String cacheNamespace = active.getCacheNamespace();
+        String imageHash = payload.getHash();
+
+        // 4. 检查缓存（本地缓存 -> Redis）
+        Mono<Result<RecognitionResponse>> cached = resultCache.getAsync(cacheNamespace, imageHash)
+                .flatMap(cachedResult -> {
+                    log.info("从缓存获取识别结果: {}", imageHash);
+                    return save(userId, activeModel, cachedResult, payload, request,
+                            (int) (System.currentTimeMillis() - startTime));
+                });
+
+        // 5. 调用推理后端进行识别并缓存结果，同一图像的并发请求只调用一次
+        Mono<Result<RecognitionResponse>> inferred = Mono.defer(() -> singleFlight.executeAsync(
+                        cacheNamespace, imageHash, () -> inferenceRouter
+                                .recognizeAsync(payload.getData(), payload.isTensor(), activeModel, blockingScheduler)
+                                .onErrorResume(e -> !(e instanceof ModelServiceUnavailableException
+                                        || e instanceof ImageDecodeRejectedException), e -> {
+                                    log.error("调用模型服务失败", e);
+                                    return Mono.empty();
+                                })
+                                .map(result -> RecognitionService.buildResponse(result,
+                                        (int) (System.currentTimeMillis() - startTime)))
+                                .flatMap(result -> resultCache.putAsync(cacheNamespace, imageHash, result)
+                                        .thenReturn(result)))
+                .flatMap(response -> {
+                    // 6. 保存识别记录
+                    int processingTime = (int) (System.currentTimeMillis() - startTime);
+                    response.setProcessingTime(processingTime);
+                    return save(userId, activeModel, response, payload, request, processingTime)
+                            .doOnNext(result -> log.info("识别完成 - 结果: {}, 置信度: {}, 耗时: {}ms",
+                                    response.getRecognitionResult(), response.getConfidence(), processingTime));
+                })
+                .defaultIfEmpty(Result.error(500, "模型服务调用失败")));
+
+        return cached.switchIfEmpty(inferred);
+    }
+
+    /**
+     * 保存识别记录：领取记录ID和存储图像可能阻塞，在调度器上执行
+     */
+    private Mono<Result<RecognitionResponse>> save(Long userId, Model model, RecognitionResponse response,
+                                                   ImagePayload payload, RecognitionRequest request,
+                                                   int processingTime) {
+        return Mono.fromCallable(() -> {
+            RecognitionRecord record = recognitionService.saveRecognitionRecord(userId, model.getModelId(),
+                    response, payload, request, processingTime, null);
+            response.setRecordId(record.getRecordId());
+            return Result.success(response);
+        }).subscribeOn(blockingScheduler);
+    }
+
+    private Prepared prepare(RecognitionRequest request) {
+        CanvasPrecheck.Rejection rejection = recognitionService.precheck(request);
+        return rejection != null ? new Prepared(null, rejection)
+                : new Prepared(recognitionService.payload(request), null);
+    }
+
+    private Mono<Result<RecognitionResponse>> errorResult(Throwable e) {
+        if (e instanceof ModelServiceUnavailableException || e instanceof ImageDecodeRejectedException) {
+            // 缓存未命中且模型服务熔断或限流，或本地解码内存预算不足，快速失败
+            log.warn("识别请求被拒绝: {}", e.getMessage());
+            return Mono.just(Result.error(503, e.getMessage()));
+        }
+        if (e instanceof RejectedExecutionException) {
+            log.warn("识别请求被拒绝，阻塞任务队列已满: {}", e.getMessage());
+            return Mono.just(Result.error(503, "识别服务繁忙，请稍后重试"));
+        }
+        log.error("识别失败", e);
+        return Mono.just(Result.error(500, "识别服务异常: " + e.getMessage()));
+    }
+
+    /**
+     * 预检结果：被拒绝的画布，或待识别的模型输入
+     */
+    private static class Prepared {
+        private final ImagePayload payload;
+        private final CanvasPrecheck.Rejection rejection;
+
+        private Prepared(ImagePayload payload, CanvasPrecheck.Rejection rejection) {
+            this.payload = payload;
+            this.rejection = rejection;
+        }
+    }
+}
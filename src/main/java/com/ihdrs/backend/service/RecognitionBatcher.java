@@ -0,0 +1,201 @@
+// RecognitionBatcher.java - 识别请求微批处理器
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.exception.ModelServiceUnavailableException;
+import com.ihdrs.backend.common.utils.WorkerThreads;
+import com.ihdrs.backend.config.RecognitionConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 将并发到达的单张识别请求在几毫秒内攒成一批，通过一次批量调用发送给模型服务，
+ * 摊薄HTTP往返和模型调用开销。攒满maxSize或等待超过maxWait即发送。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RecognitionBatcher {
+
+    private final ModelServiceClient modelServiceClient;
+    private final RecognitionConfig recognitionConfig;
+    private final WorkerThreads workerThreads;
+
+    private final BlockingQueue<PendingRecognition> queue = new LinkedBlockingQueue<>();
+    private ExecutorService dispatchExecutor;
+    private Thread collector;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!recognitionConfig.getBatch().getEnabled()) {
+            log.info("识别微批处理未启用，单张请求将直接调用模型服务");
+            return;
+        }
+
+        // 虚拟线程模式下每批一个虚拟线程，不再受dispatchThreads限制，并发由模型服务的自适应限流控制
+        dispatchExecutor = workerThreads.executor("recognition-batch", () -> Executors.newFixedThreadPool(
+                recognitionConfig.getBatch().getDispatchThreads(), workerThreads.factory("recognition-batch")));
+
+        running = true;
+        collector = new Thread(this::collectLoop, "recognition-batch-collector");
+        collector.setDaemon(true);
+        collector.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (collector != null) {
+            collector.interrupt();
+        }
+        if (dispatchExecutor != null) {
+            dispatchExecutor.shutdown();
+        }
+
+        // 关闭时仍在排队的请求直接失败，避免调用方永久等待
+        PendingRecognition pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.complete(null);
+        }
+    }
+
+    /**
+     * 识别单张图像，未启用微批处理时直接调用模型服务。
+     * 模型服务熔断或限流时抛出ModelServiceUnavailableException
+     */
+    public Map<String, Object> recognize(byte[] imageData, Long modelId) {
+        if (!running) {
+            return modelServiceClient.recognize(imageData, modelId);
+        }
+        try {
+            return submit(imageData, modelId).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ModelServiceUnavailableException) {
+                throw (ModelServiceUnavailableException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 提交单张图像进入攒批队列
+     */
+    public CompletableFuture<Map<String, Object>> submit(byte[] imageData, Long modelId) {
+        PendingRecognition pending = new PendingRecognition(imageData, modelId);
+        queue.add(pending);
+
+        // 与stop()并发时可能已错过清空队列，这里兜底避免调用方永久等待
+        if (!running && queue.remove(pending)) {
+            pending.future.complete(null);
+        }
+        return pending.future;
+    }
+
+    private void collectLoop() {
+        int maxSize = recognitionConfig.getBatch().getMaxSize();
+        long maxWaitNanos = recognitionConfig.getBatch().getMaxWait().toNanos();
+
+        while (running) {
+            try {
+                PendingRecognition first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                List<PendingRecognition> batch = new ArrayList<>(maxSize);
+                batch.add(first);
+
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingRecognition next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                // 同一批次中可能包含不同模型的请求，按模型拆分后分别发送
+                Map<Long, List<PendingRecognition>> byModel = new LinkedHashMap<>();
+                for (PendingRecognition pending : batch) {
+                    byModel.computeIfAbsent(pending.modelId, k -> new ArrayList<>()).add(pending);
+                }
+                for (Map.Entry<Long, List<PendingRecognition>> entry : byModel.entrySet()) {
+                    dispatch(entry.getKey(), entry.getValue());
+                }
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("识别微批处理异常", e);
+            }
+        }
+    }
+
+    private void dispatch(Long modelId, List<PendingRecognition> batch) {
+        try {
+            dispatchExecutor.execute(() -> send(modelId, batch));
+        } catch (RejectedExecutionException e) {
+            log.warn("识别批次提交失败，执行器已关闭");
+            batch.forEach(pending -> pending.future.complete(null));
+        }
+    }
+
+    private void send(Long modelId, List<PendingRecognition> batch) {
+        try {
+            if (batch.size() == 1) {
+                PendingRecognition pending = batch.get(0);
+                pending.future.complete(modelServiceClient.recognize(pending.imageData, modelId));
+                return;
+            }
+
+            List<byte[]> images = new ArrayList<>(batch.size());
+            for (PendingRecognition pending : batch) {
+                images.add(pending.imageData);
+            }
+
+            List<Map<String, Object>> results = modelServiceClient.recognizeBatch(images, modelId);
+            log.debug("识别微批发送完成 - 模型: {}, 数量: {}", modelId, batch.size());
+
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(results != null ? results.get(i) : null);
+            }
+        } catch (ModelServiceUnavailableException e) {
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+        } catch (Exception e) {
+            log.error("识别批次发送失败 - 模型: {}, 数量: {}", modelId, batch.size(), e);
+            batch.forEach(pending -> pending.future.complete(null));
+        }
+    }
+
+    private static class PendingRecognition {
+        private final byte[] imageData;
+        private final Long modelId;
+        private final CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+
+        private PendingRecognition(byte[] imageData, Long modelId) {
+            this.imageData = imageData;
+            this.modelId = modelId;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+// RecognitionCacheWarmer.java - 切换模型后预热识别结果缓存
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.utils.StrokeRasterizer;
+import com.ihdrs.backend.common.utils.WorkerThreads;
+import com.ihdrs.backend.config.RecognitionConfig;
+import com.ihdrs.backend.repository.RecognitionRecordRepository;
+import com.ihdrs.backend.service.inference.InferenceRouter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 切换活跃模型后，新命名空间的缓存为空。由发起切换的节点在后台取近期识别次数最多的图像，
+ * 按批调用模型服务写入缓存，避免切换后的请求集中未命中。
+ * 笔画输入的缓存键是规范化笔画哈希，存储的是光栅化后的张量，按张量识别，与实时请求未命中时的结果一致。
+ */
+@Slf4j
+@Component
+public class RecognitionCacheWarmer {
+
+    private final RecognitionRecordRepository recordRepository;
+    private final ImageStore imageStore;
+    private final InferenceRouter inferenceRouter;
+    private final RecognitionResultCache resultCache;
+    private final ActiveModelHolder activeModelHolder;
+    private final RecognitionConfig recognitionConfig;
+    private final StrokeRasterizer strokeRasterizer;
+    private final ExecutorService executor;
+
+    public RecognitionCacheWarmer(RecognitionRecordRepository recordRepository,
+                                  ImageStore imageStore,
+                                  InferenceRouter inferenceRouter,
+                                  RecognitionResultCache resultCache,
+                                  ActiveModelHolder activeModelHolder,
+                                  RecognitionConfig recognitionConfig,
+                                  StrokeRasterizer strokeRasterizer,
+                                  WorkerThreads workerThreads) {
+        this.recordRepository = recordRepository;
+        this.imageStore = imageStore;
+        this.inferenceRouter = inferenceRouter;
+        this.resultCache = resultCache;
+        this.activeModelHolder = activeModelHolder;
+        this.recognitionConfig = recognitionConfig;
+        this.strokeRasterizer = strokeRasterizer;
+        // 单线程按顺序预热，连续切换时后一次预热等前一次结束（前一次发现命名空间已变化会提前退出）
+        this.executor = Executors.newSingleThreadExecutor(workerThreads.factory("recognition-cache-warmer"));
+    }
+
+    @EventListener
+    public void onActiveModelChanged(ActiveModelHolder.ActiveModelChangedEvent event) {
+        int size = recognitionConfig.getCache().getPrewarmSize();
+        if (!event.isInitiator() || size <= 0 || event.getActiveModel().getModel() == null) {
+            return;
+        }
+        executor.execute(() -> prewarm(event.getActiveModel(), size));
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    void prewarm(ActiveModelHolder.ActiveModel active, int size) {
+        long startTime = System.currentTimeMillis();
+        String namespace = active.getCacheNamespace();
+
+        try {
+            LocalDateTime since = LocalDateTime.now().minus(recognitionConfig.getCache().getPrewarmLookback());
+            List<String> hashes = recordRepository.findFrequentImageHashes(since, PageRequest.of(0, size));
+
+            int chunkSize = recognitionConfig.getBatch().getMaxSize();
+            int warmed = 0;
+            for (int from = 0; from < hashes.size(); from += chunkSize) {
+                // 预热期间再次切换模型则停止，结果已不会被使用
+                if (!namespace.equals(activeModelHolder.current().getCacheNamespace())) {
+                    log.info("活跃模型已再次切换，停止预热: {}", namespace);
+                    return;
+                }
+
+                Chunk images = new Chunk();
+                Chunk tensors = new Chunk();
+                for (String hash : hashes.subList(from, Math.min(from + chunkSize, hashes.size()))) {
+                    byte[] tensor = loadTensor(hash);
+                    if (tensor != null) {
+                        tensors.add(hash, tensor);
+                        continue;
+                    }
+                    byte[] image = loadImage(hash);
+                    if (image != null) {
+                        images.add(hash, image);
+                    }
+                }
+
+                int imagesWarmed = warm(namespace, images, false, active);
+                int tensorsWarmed = warm(namespace, tensors, true, active);
+                if (imagesWarmed < 0 || tensorsWarmed < 0) {
+                    log.warn("预热识别缓存时模型服务调用失败，停止预热");
+                    break;
+                }
+                warmed += imagesWarmed + tensorsWarmed;
+            }
+
+            log.info("识别缓存预热完成 - 命名空间: {}, 数量: {}, 耗时: {}ms",
+                    namespace, warmed, System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.error("识别缓存预热失败: {}", namespace, e);
+        }
+    }
+
+    /**
+     * 识别一组图像或张量并写入缓存，返回写入的数量，模型服务调用失败时返回-1
+     */
+    private int warm(String namespace, Chunk chunk, boolean tensor, ActiveModelHolder.ActiveModel active) {
+        if (chunk.hashes.isEmpty()) {
+            return 0;
+        }
+        long chunkStart = System.currentTimeMillis();
+        List<Map<String, Object>> results = tensor
+                ? inferenceRouter.recognizeTensorBatch(chunk.inputs, active.getModel())
+                : inferenceRouter.recognizeBatch(chunk.inputs, active.getModel());
+        if (results == null) {
+            return -1;
+        }
+
+        int processingTime = (int) (System.currentTimeMillis() - chunkStart);
+        int warmed = 0;
+        for (int i = 0; i < chunk.hashes.size(); i++) {
+            if (results.get(i) != null) {
+                resultCache.put(namespace, chunk.hashes.get(i),
+                        RecognitionService.buildResponse(results.get(i), processingTime));
+                warmed++;
+            }
+        }
+        return warmed;
+    }
+
+    /**
+     * 读取笔画输入存储的张量，不是笔画输入时返回null
+     */
+    private byte[] loadTensor(String imageHash) {
+        try {
+            byte[] png = imageStore.loadTensor(imageHash);
+            return png != null ? strokeRasterizer.fromPng(png) : null;
+        } catch (IllegalArgumentException | IOException e) {
+            log.debug("跳过无效的笔画张量: {}", imageHash);
+            return null;
+        }
+    }
+
+    private byte[] loadImage(String imageHash) {
+        try {
+            return imageStore.load(imageHash);
+        } catch (IllegalArgumentException e) {
+            log.debug("跳过无效的图像哈希: {}", imageHash);
+            return null;
+        }
+    }
+
+    /**
+     * 一批待预热的哈希及对应的模型输入
+     */
+    private static class Chunk {
+        private final List<String> hashes = new ArrayList<>();
+        private final List<byte[]> inputs = new ArrayList<>();
+
+        private void add(String hash, byte[] input) {
+            hashes.add(hash);
+            inputs.add(input);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+// RecognitionRecordWriter.java - 识别记录异步批量写入
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.jfr.RecordPersistEvent;
+import com.ihdrs.backend.common.utils.WorkerThreads;
+import com.ihdrs.backend.config.RecognitionConfig;
+import com.ihdrs.backend.entity.RecognitionRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 识别记录先进入有界内存队列，由后台线程按批次JDBC批量插入，识别接口无需等待写库。
+ * 记录ID在入队前分配，客户端拿到的recordId可直接用于反馈。
+ */
+@Slf4j
+@Component
+public class RecognitionRecordWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO recognition_records " +
+            "(record_id, user_id, model_id, recognition_result, confidence, image_path, image_hash, " +
+            "input_type, processing_time, processing_breakdown, client_info, is_correct, session_id, create_time) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final Duration FLUSH_WAIT_MARGIN = Duration.ofSeconds(5); // 等待批次写完的超时余量
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RecordIdGenerator recordIdGenerator;
+    private final RecognitionConfig.WriteBehind config;
+    private final WorkerThreads workerThreads;
+
+    private final BlockingQueue<RecognitionRecord> queue;
+    private final Map<Long, CompletableFuture<Void>> pending = new ConcurrentHashMap<>(); // 尚未写完的记录，批次写完（含失败）时完成
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+    private final Timer flushTimer;
+
+    private Thread flusher;
+    private volatile boolean running;
+
+    public RecognitionRecordWriter(JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   RecordIdGenerator recordIdGenerator,
+                                   RecognitionConfig recognitionConfig,
+                                   WorkerThreads workerThreads,
+                                   MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.recordIdGenerator = recordIdGenerator;
+        this.config = recognitionConfig.getWriteBehind();
+        this.workerThreads = workerThreads;
+        this.queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+
+        Gauge.builder("recognition.record.queue.size", queue, BlockingQueue::size)
+                .description("等待写入的识别记录数")
+                .register(meterRegistry);
+        this.writtenCounter = Counter.builder("recognition.record.written")
+                .description("已写入的识别记录数")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("recognition.record.dropped")
+                .description("队列已满被丢弃的识别记录数")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("recognition.record.write.failed")
+                .description("批量写入失败的识别记录数")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("recognition.record.flush")
+                .description("单次批量写入耗时")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!config.getEnabled()) {
+            log.info("识别记录异步写入未启用，记录将同步写入");
+            return;
+        }
+
+        running = true;
+        flusher = workerThreads.start("recognition-record-writer", this::flushLoop);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        // 关闭前把队列中剩余的记录写完
+        drainAndWrite();
+    }
+
+    /**
+     * 提交识别记录：分配ID后入队，未启用异步写入时直接写库
+     */
+    public RecognitionRecord submit(RecognitionRecord record) {
+        if (record.getRecordId() == null) {
+            record.setRecordId(recordIdGenerator.nextId());
+        }
+        if (record.getCreateTime() == null) {
+            record.setCreateTime(LocalDateTime.now());
+        }
+
+        if (!running) {
+            writeBatch(List.of(record));
+            return record;
+        }
+
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        pending.put(record.getRecordId(), written);
+        if (!queue.offer(record)) {
+            pending.remove(record.getRecordId());
+            written.complete(null);
+            droppedCounter.increment();
+            log.warn("识别记录队列已满，丢弃记录: recordId={}", record.getRecordId());
+        }
+        return record;
+    }
+
+    /**
+     * 如果记录尚未写库，把队列中的记录立即写完并等待该记录所在批次写完，保证随后的查询能读到该记录
+     */
+    public void flushIfPending(Long recordId) {
+        CompletableFuture<Void> written = recordId != null ? pending.get(recordId) : null;
+        if (written == null) {
+            return;
+        }
+        // 记录仍在队列中时直接写完；已被后台线程取出时等待其批次写完
+        drainAndWrite();
+        try {
+            written.get(config.getFlushInterval().plus(FLUSH_WAIT_MARGIN).toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            log.warn("等待识别记录写入超时: recordId={}", recordId);
+        } catch (ExecutionException e) {
+            // writeBatch只会正常完成，不会走到这里
+            log.error("等待识别记录写入失败: recordId={}", recordId, e);
+        }
+    }
+
+    private void flushLoop() {
+        int batchSize = config.getBatchSize();
+        long flushIntervalNanos = config.getFlushInterval().toNanos();
+
+        while (running) {
+            try {
+                RecognitionRecord first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                // 出队后即持有flushLock，flushIfPending可据此等到本批次写完
+                flushLock.lock();
+                try {
+                    List<RecognitionRecord> batch = new ArrayList<>(batchSize);
+                    batch.add(first);
+
+                    // 攒批时被中断（关闭）也要写完已出队的记录，stop()只处理仍在队列中的记录
+                    boolean interrupted = false;
+                    long deadline = System.nanoTime() + flushIntervalNanos;
+                    try {
+                        while (batch.size() < batchSize) {
+                            queue.drainTo(batch, batchSize - batch.size());
+                            long remaining = deadline - System.nanoTime();
+                            if (batch.size() >= batchSize || remaining <= 0) {
+                                break;
+                            }
+                            RecognitionRecord next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                            if (next == null) {
+                                break;
+                            }
+                            batch.add(next);
+                        }
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+
+                    writeBatch(batch);
+                    if (interrupted) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                } finally {
+                    flushLock.unlock();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("识别记录写入线程异常", e);
+            }
+        }
+    }
+
+    /**
+     * 在调用线程上写完队列中的全部记录，持有flushLock以等待后台线程正在写的批次完成
+     */
+    private void drainAndWrite() {
+        flushLock.lock();
+        try {
+            List<RecognitionRecord> batch = new ArrayList<>(config.getBatchSize());
+            while (queue.drainTo(batch, config.getBatchSize()) > 0) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void writeBatch(List<RecognitionRecord> batch) {
+        Timer.Sample sample = Timer.start();
+        RecordPersistEvent event = new RecordPersistEvent();
+        event.begin();
+        boolean success = false;
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            setParameters(ps, batch.get(i));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return batch.size();
+                        }
+                    }));
+            writtenCounter.increment(batch.size());
+            success = true;
+        } catch (Exception e) {
+            failedCounter.increment(batch.size());
+            log.error("识别记录批量写入失败，数量: {}", batch.size(), e);
+            if (!running) {
+                throw e;
+            }
+        } finally {
+            sample.stop(flushTimer);
+            event.finish(batch.size(), success);
+            for (RecognitionRecord record : batch) {
+                CompletableFuture<Void> written = pending.remove(record.getRecordId());
+                if (written != null) {
+                    written.complete(null);
+                }
+            }
+        }
+    }
+
+    private void setParameters(PreparedStatement ps, RecognitionRecord record) throws SQLException {
+        ps.setLong(1, record.getRecordId());
+        ps.setObject(2, record.getUserId(), Types.BIGINT);
+        ps.setLong(3, record.getModelId());
+        ps.setInt(4, record.getRecognitionResult());
+        ps.setBigDecimal(5, record.getConfidence());
+        ps.setString(6, record.getImagePath());
+        ps.setString(7, record.getImageHash());
+        ps.setString(8, record.getInputType() != null ? record.getInputType().name() : null);
+        ps.setObject(9, record.getProcessingTime(), Types.INTEGER);
+        ps.setString(10, record.getProcessingBreakdown());
+        ps.setString(11, record.getClientInfo());
+        ps.setObject(12, record.getIsCorrect(), Types.BOOLEAN);
+        ps.setString(13, record.getSessionId());
+        ps.setTimestamp(14, Timestamp.valueOf(record.getCreateTime()));
+    }
+}
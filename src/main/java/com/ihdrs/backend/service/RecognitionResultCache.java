@@ -0,0 +1,285 @@
+// RecognitionResultCache.java - 识别结果两级缓存
+package com.ihdrs.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ihdrs.backend.common.constants.Constants;
+import com.ihdrs.backend.config.RecognitionConfig;
+import com.ihdrs.backend.dto.response.RecognitionResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 识别结果缓存：一级为进程内Caffeine缓存（W-TinyLFU按访问频率准入和淘汰），二级为Redis。
+ * 写入时通过Redis发布订阅通知其它节点删除本地副本，下次访问从Redis重新加载。
+ * Redis不可用时按未命中处理，不影响识别流程。非阻塞识别接口通过getAsync/putAsync使用响应式Redis，与阻塞接口共用本地缓存。
+ * 缓存键为 recognition:result:{模型ID}:g{缓存代数}:{图像哈希}，命名空间由活跃模型快照提供。
+ */
+@Slf4j
+@Component
+public class RecognitionResultCache {
+
+    private static final String ALL_KEYS = "*";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+    private final ObjectProvider<RedisMessageListenerContainer> listenerContainer;
+    private final RecognitionConfig.Cache config;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Cache<String, RecognitionResponse> localCache;
+    private final Counter redisHitCounter;
+    private final Counter redisMissCounter;
+
+    public RecognitionResultCache(RedisTemplate<String, Object> redisTemplate,
+                                  StringRedisTemplate stringRedisTemplate,
+                                  ReactiveRedisTemplate<String, Object> reactiveRedisTemplate,
+                                  ReactiveStringRedisTemplate reactiveStringRedisTemplate,
+                                  ObjectProvider<RedisMessageListenerContainer> listenerContainer,
+                                  RecognitionConfig recognitionConfig,
+                                  MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.reactiveStringRedisTemplate = reactiveStringRedisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.config = recognitionConfig.getCache();
+
+        // 本地缓存过期时间不超过Redis中结果的过期时间
+        Duration expireAfterWrite = config.getL1ExpireAfterWrite();
+        Duration redisExpire = Duration.ofSeconds(Constants.CACHE_EXPIRE_RECOGNITION);
+        if (expireAfterWrite.compareTo(redisExpire) > 0) {
+            expireAfterWrite = redisExpire;
+        }
+
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(config.getL1Enabled() ? config.getL1MaximumSize() : 0)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "recognition.result.l1");
+
+        this.redisHitCounter = Counter.builder("recognition.result.l2")
+                .tag("result", "hit")
+                .description("Redis识别结果缓存命中次数")
+                .register(meterRegistry);
+        this.redisMissCounter = Counter.builder("recognition.result.l2")
+                .tag("result", "miss")
+                .description("Redis识别结果缓存未命中次数")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        RedisMessageListenerContainer container = listenerContainer.getIfAvailable();
+        if (container == null) {
+            log.info("识别结果缓存未启用跨节点失效通知");
+            return;
+        }
+
+        container.addMessageListener((message, pattern) -> {
+            String payload = new String(message.getBody(), StandardCharsets.UTF_8);
+            int separator = payload.indexOf('|');
+            if (separator < 0 || payload.substring(0, separator).equals(nodeId)) {
+                return;
+            }
+
+            String key = payload.substring(separator + 1);
+            if (ALL_KEYS.equals(key)) {
+                localCache.invalidateAll();
+            } else {
+                localCache.invalidate(key);
+            }
+        }, new ChannelTopic(Constants.REDIS_CHANNEL_RECOGNITION_CACHE));
+    }
+
+    /**
+     * 活跃模型或缓存代数变化后，旧命名空间的本地条目不会再被访问，直接清空释放内存
+     */
+    @EventListener
+    public void onActiveModelChanged(ActiveModelHolder.ActiveModelChangedEvent event) {
+        localCache.invalidateAll();
+    }
+
+    /**
+     * 查询缓存的识别结果，未命中返回null。返回的是副本，调用方可以修改recordId
+     */
+    public RecognitionResponse get(String namespace, String imageHash) {
+        String key = cacheKey(namespace, imageHash);
+
+        RecognitionResponse local = localCache.getIfPresent(key);
+        if (local != null) {
+            return copyOf(local);
+        }
+
+        try {
+            Object cached = redisTemplate.opsForValue().get(key);
+            if (cached instanceof RecognitionResponse) {
+                redisHitCounter.increment();
+                localCache.put(key, (RecognitionResponse) cached);
+                return copyOf((RecognitionResponse) cached);
+            }
+        } catch (Exception e) {
+            log.warn("读取Redis识别缓存失败: {}", e.getMessage());
+        }
+
+        redisMissCounter.increment();
+        return null;
+    }
+
+    /**
+     * 非阻塞查询，约定同get：先查本地缓存，再查询Redis；未命中或Redis不可用时为空
+     */
+    public Mono<RecognitionResponse> getAsync(String namespace, String imageHash) {
+        String key = cacheKey(namespace, imageHash);
+
+        RecognitionResponse local = localCache.getIfPresent(key);
+        if (local != null) {
+            return Mono.just(copyOf(local));
+        }
+
+        return reactiveRedisTemplate.opsForValue().get(key)
+                .ofType(RecognitionResponse.class)
+                .doOnNext(cached -> {
+                    redisHitCounter.increment();
+                    localCache.put(key, cached);
+                })
+                .map(this::copyOf)
+                .switchIfEmpty(Mono.fromRunnable(redisMissCounter::increment))
+                .onErrorResume(e -> {
+                    log.warn("读取Redis识别缓存失败: {}", e.getMessage());
+                    redisMissCounter.increment();
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * 批量查询，先查本地缓存，剩余的通过一次Redis MGET查询。返回列表与输入顺序一致
+     */
+    public List<RecognitionResponse> getAll(String namespace, List<String> imageHashes) {
+        List<RecognitionResponse> results = new ArrayList<>(imageHashes.size());
+        List<Integer> remoteIndexes = new ArrayList<>();
+        List<String> remoteKeys = new ArrayList<>();
+
+        for (int i = 0; i < imageHashes.size(); i++) {
+            String imageHash = imageHashes.get(i);
+            RecognitionResponse local = imageHash != null
+                    ? localCache.getIfPresent(cacheKey(namespace, imageHash)) : null;
+            results.add(local != null ? copyOf(local) : null);
+            if (local == null && imageHash != null) {
+                remoteIndexes.add(i);
+                remoteKeys.add(cacheKey(namespace, imageHash));
+            }
+        }
+
+        if (remoteKeys.isEmpty()) {
+            return results;
+        }
+
+        try {
+            List<Object> cached = redisTemplate.opsForValue().multiGet(remoteKeys);
+            for (int j = 0; j < remoteKeys.size(); j++) {
+                Object value = cached != null ? cached.get(j) : null;
+                if (value instanceof RecognitionResponse) {
+                    redisHitCounter.increment();
+                    localCache.put(remoteKeys.get(j), (RecognitionResponse) value);
+                    results.set(remoteIndexes.get(j), copyOf((RecognitionResponse) value));
+                } else {
+                    redisMissCounter.increment();
+                }
+            }
+        } catch (Exception e) {
+            log.warn("批量读取Redis识别缓存失败: {}", e.getMessage());
+            redisMissCounter.increment(remoteKeys.size());
+        }
+
+        return results;
+    }
+
+    /**
+     * 写入识别结果，同时通知其它节点删除本地旧副本
+     */
+    public void put(String namespace, String imageHash, RecognitionResponse response) {
+        String key = cacheKey(namespace, imageHash);
+        RecognitionResponse value = copyOf(response);
+        value.setRecordId(null); // 记录ID属于单次请求，不进入缓存
+
+        localCache.put(key, value);
+        try {
+            redisTemplate.opsForValue().set(key, value, Constants.CACHE_EXPIRE_RECOGNITION, TimeUnit.SECONDS);
+            publishInvalidation(key);
+        } catch (Exception e) {
+            log.warn("写入Redis识别缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 非阻塞写入，约定同put；Redis写入失败只记录日志
+     */
+    public Mono<Void> putAsync(String namespace, String imageHash, RecognitionResponse response) {
+        String key = cacheKey(namespace, imageHash);
+        RecognitionResponse value = copyOf(response);
+        value.setRecordId(null);
+
+        localCache.put(key, value);
+        return reactiveRedisTemplate.opsForValue()
+                .set(key, value, Duration.ofSeconds(Constants.CACHE_EXPIRE_RECOGNITION))
+                .then(config.getInvalidationEnabled()
+                        ? reactiveStringRedisTemplate.convertAndSend(Constants.REDIS_CHANNEL_RECOGNITION_CACHE,
+                                nodeId + "|" + key).then()
+                        : Mono.empty())
+                .onErrorResume(e -> {
+                    log.warn("写入Redis识别缓存失败: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * 清空所有节点的本地缓存
+     */
+    public void invalidateAll() {
+        localCache.invalidateAll();
+        publishInvalidation(ALL_KEYS);
+    }
+
+    private void publishInvalidation(String key) {
+        if (!config.getInvalidationEnabled()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.convertAndSend(Constants.REDIS_CHANNEL_RECOGNITION_CACHE, nodeId + "|" + key);
+        } catch (Exception e) {
+            log.warn("发布识别缓存失效通知失败: {}", e.getMessage());
+        }
+    }
+
+    private String cacheKey(String namespace, String imageHash) {
+        return Constants.REDIS_KEY_RECOGNITION_RESULT + namespace + ":" + imageHash;
+    }
+
+    private RecognitionResponse copyOf(RecognitionResponse response) {
+        return response.toBuilder().build();
+    }
+}
@@ -3,123 +3,158 @@ package com.ihdrs.backend.service;
 
 import com.ihdrs.backend.common.Result;
 import com.ihdrs.backend.common.constants.Constants;
-import com.ihdrs.backend.common.utils.FileUtil;
+import com.ihdrs.backend.common.exception.ImageDecodeRejectedException;
+import com.ihdrs.backend.common.exception.ImageTooLargeException;
+import com.ihdrs.backend.common.exception.ModelServiceUnavailableException;
 import com.ihdrs.backend.common.utils.ImageUtil;
-import com.ihdrs.backend.config.ModelServiceConfig;
+import com.ihdrs.backend.common.utils.StrokeRasterizer;
+import com.ihdrs.backend.config.RecognitionConfig;
+import com.ihdrs.backend.dto.request.BatchRecognitionRequest;
+import com.ihdrs.backend.dto.request.ImagePayload;
 import com.ihdrs.backend.dto.request.RecognitionRequest;
+import com.ihdrs.backend.dto.request.StrokePayload;
+import com.ihdrs.backend.dto.response.BatchRecognitionResponse;
 import com.ihdrs.backend.dto.response.RecognitionResponse;
 import com.ihdrs.backend.entity.Model;
 import com.ihdrs.backend.entity.RecognitionRecord;
-import com.ihdrs.backend.repository.ModelRepository;
-import com.ihdrs.backend.repository.RecognitionRecordRepository;
+import com.ihdrs.backend.service.RecognitionStageMetrics.Stage;
+import com.ihdrs.backend.service.inference.InferenceRouter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.util.Base64;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class RecognitionService {
 
-    private final ModelRepository modelRepository;
-    private final RecognitionRecordRepository recordRepository;
-    private final ModelServiceConfig modelServiceConfig;
-    private final RestTemplate restTemplate;
-    private final RedisTemplate<String, Object> redisTemplate;
-    private final FileUtil fileUtil;
+    private final ActiveModelHolder activeModelHolder;
+    private final RecognitionRecordWriter recordWriter;
+    private final ImageStore imageStore;
+    private final InferenceRouter inferenceRouter;
+    private final RecognitionConfig recognitionConfig;
+    private final RecognitionResultCache resultCache;
+    private final RecognitionSingleFlight singleFlight;
     private final ImageUtil imageUtil;
+    private final CanvasPrecheck canvasPrecheck;
+    private final StrokeRasterizer strokeRasterizer;
+    private final RecognitionStageMetrics stageMetrics;
 
     /**
-     * 执行数字识别
+     * 执行数字识别，依次为：取出图像和哈希并预检 → 查缓存 → 推理 → 保存记录。
+     * 整个流程不在数据库事务中：调用Redis和模型服务（最长可达数十秒）期间不占用JDBC连接，
+     * 只有保存记录时由RecognitionRecordWriter在独立的短事务中写库（记录ID号段同样单独领取）。
+     * 各阶段耗时由RecognitionStageMetrics统计，并写入识别记录的processing_breakdown
      */
-    @Transactional
     public Result<RecognitionResponse> recognize(RecognitionRequest request, Long userId) {
         long startTime = System.currentTimeMillis();
+        RecognitionStageMetrics.Timings timings = stageMetrics.start();
 
         try {
-            // 1. 获取当前活跃模型
-            Model activeModel = modelRepository.findByStatus(Model.ModelStatus.ACTIVE)
-                    .orElse(null);
+            // 1. 获取当前活跃模型（内存指针，不查询数据库）
+            ActiveModelHolder.ActiveModel active = activeModelHolder.current();
+            Model activeModel = active.getModel();
 
             if (activeModel == null) {
                 return Result.error(500, "没有可用的识别模型");
             }
 
-            // 2. 解码Base64图像数据
-            byte[] imageData = Base64.getDecoder().decode(request.getImageData());
+            String cacheNamespace = active.getCacheNamespace();
 
-            // 3. 计算图像哈希（用于缓存）
-            String imageHash = fileUtil.calculateFileHash(imageData);
+            // 2-3. 图像数据在读取请求体时已流式解码并计算哈希（用于缓存）
+            if (request.getImageData() != null && !request.getImageData().isValid()) {
+                return Result.error(400, "图像数据不是有效的Base64编码");
+            }
+
+            // 空白或无效画布直接要求重写：不查缓存、不调用模型、不保存记录
+            if (request.getImageData() != null) {
+                timings.addNanos(Stage.DECODE, request.getImageData().getDecodeNanos());
+            }
+            long stageStart = System.nanoTime();
+            CanvasPrecheck.Rejection rejection = precheck(request);
+            timings.add(Stage.PRECHECK, stageStart);
+            if (rejection != null) {
+                stageMetrics.record(timings, activeModel.getModelId(), request.getInputType(),
+                        RecognitionStageMetrics.CACHE_NONE);
+                return Result.success(rejectedResponse(rejection, (int) (System.currentTimeMillis() - startTime)));
+            }
+
+            // 笔画输入在此光栅化为模型输入，哈希为规范化笔画的哈希
+            ImagePayload payload = payload(request);
+            String imageHash = payload.getHash();
+            if (payload.isTensor()) {
+                timings.addNanos(Stage.DECODE, payload.getDecodeNanos());
+            }
 
-            // 4. 检查Redis缓存
-            String cacheKey = Constants.REDIS_KEY_RECOGNITION_RESULT + imageHash;
-            RecognitionResponse cachedResult = (RecognitionResponse) redisTemplate.opsForValue().get(cacheKey);
+            // 4. 检查缓存（本地缓存 -> Redis），缓存按活跃模型和缓存代数隔离
+            stageStart = System.nanoTime();
+            RecognitionResponse cachedResult = resultCache.get(cacheNamespace, imageHash);
+            stageStart = timings.add(Stage.CACHE, stageStart);
 
             if (cachedResult != null) {
                 log.info("从缓存获取识别结果: {}", imageHash);
 
-                // 保存识别记录（即使是缓存结果）
-                saveRecognitionRecord(userId, activeModel.getModelId(), cachedResult,
-                        imageData, imageHash, request, (int)(System.currentTimeMillis() - startTime));
+                // 保存识别记录（即使是缓存结果），返回本次请求对应的记录ID
+                RecognitionRecord record = saveRecognitionRecord(userId, activeModel.getModelId(), cachedResult,
+                        payload, request, (int)(System.currentTimeMillis() - startTime), timings);
+                cachedResult.setRecordId(record.getRecordId());
+                stageMetrics.record(timings, activeModel.getModelId(), request.getInputType(),
+                        RecognitionStageMetrics.CACHE_HIT);
 
                 return Result.success(cachedResult);
             }
 
-            // 5. 调用Flask模型服务进行识别
-            Map<String, Object> recognitionResult = callModelService(imageData, activeModel);
+            // 5. 调用推理后端进行识别并缓存结果，同一图像的并发请求只调用一次
+            RecognitionResponse response = singleFlight.execute(cacheNamespace, imageHash, () -> {
+                Map<String, Object> recognitionResult = callInference(payload, activeModel);
+                if (recognitionResult == null) {
+                    return null;
+                }
+
+                RecognitionResponse result = buildResponse(recognitionResult,
+                        (int) (System.currentTimeMillis() - startTime));
+                resultCache.put(cacheNamespace, imageHash, result);
+                return result;
+            });
+
+            timings.add(Stage.INFERENCE, stageStart);
 
-            if (recognitionResult == null) {
+            if (response == null) {
+                stageMetrics.record(timings, activeModel.getModelId(), request.getInputType(),
+                        RecognitionStageMetrics.CACHE_MISS);
                 return Result.error(500, "模型服务调用失败");
             }
 
-            // 6. 构建识别响应
-            Integer result = (Integer) recognitionResult.get("result");
-            Double confidenceValue = (Double) recognitionResult.get("confidence");
-            BigDecimal confidence = BigDecimal.valueOf(confidenceValue);
-
+            // 6. 保存识别记录：推理已结束，写库只占用一个短事务
             int processingTime = (int) (System.currentTimeMillis() - startTime);
-
-            // 判断是否需要重写（置信度低）
-            boolean needRewrite = confidence.compareTo(
-                    BigDecimal.valueOf(Constants.MIN_CONFIDENCE_THRESHOLD)) < 0;
-
-            String message = needRewrite ?
-                    "识别置信度较低，建议重新书写更清晰的数字" : "识别成功";
-
-            RecognitionResponse response = RecognitionResponse.builder()
-                    .recognitionResult(result)
-                    .confidence(confidence)
-                    .processingTime(processingTime)
-                    .message(message)
-                    .needRewrite(needRewrite)
-                    .build();
-
-            // 7. 保存识别记录
+            response.setProcessingTime(processingTime);
             RecognitionRecord record = saveRecognitionRecord(userId, activeModel.getModelId(),
-                    response, imageData, imageHash, request, processingTime);
+                    response, payload, request, processingTime, timings);
 
             response.setRecordId(record.getRecordId());
-
-            // 8. 缓存识别结果（1天）
-            redisTemplate.opsForValue().set(cacheKey, response,
-                    Constants.CACHE_EXPIRE_RECOGNITION, TimeUnit.SECONDS);
+            stageMetrics.record(timings, activeModel.getModelId(), request.getInputType(),
+                    RecognitionStageMetrics.CACHE_MISS);
 
             log.info("识别完成 - 结果: {}, 置信度: {}, 耗时: {}ms",
-                    result, confidence, processingTime);
+                    response.getRecognitionResult(), response.getConfidence(), processingTime);
 
             return Result.success(response);
 
+        } catch (ModelServiceUnavailableException | ImageDecodeRejectedException e) {
+            // 缓存未命中且模型服务熔断或限流，或本地解码内存预算不足，快速失败
+            log.warn("识别请求被拒绝: {}", e.getMessage());
+            return Result.error(503, e.getMessage());
         } catch (Exception e) {
             log.error("识别失败", e);
             return Result.error(500, "识别服务异常: " + e.getMessage());
@@ -127,38 +162,212 @@ public class RecognitionService {
     }
 
     /**
-     * 调用Flask模型服务
+     * 上传图像识别：multipart文件或原始图像请求体流式读取并计算哈希，先按文件头判断格式；
+     * 之后与JSON接口相同（缓存、推理、存储），返回相同的RecognitionResponse
+     */
+    public Result<RecognitionResponse> recognizeUpload(InputStream input, RecognitionRequest request, Long userId) {
+        try {
+            byte[] header = input.readNBytes(ImageUtil.FORMAT_HEADER_SIZE);
+            if (ImageUtil.detectFormat(header) == null) {
+                return Result.error(415, "不支持的图像格式，仅支持PNG和JPEG");
+            }
+            long maxBytes = recognitionConfig.getDecode().getMaxPayloadSize().toBytes();
+            request.setImageData(ImagePayload.read(
+                    new SequenceInputStream(new ByteArrayInputStream(header), input), maxBytes));
+        } catch (ImageTooLargeException e) {
+            return Result.error(413, e.getMessage());
+        } catch (IOException e) {
+            log.warn("读取上传图像失败: {}", e.getMessage());
+            return Result.error(400, "读取上传图像失败");
+        }
+
+        request.setInputType(RecognitionRecord.InputType.UPLOAD.name());
+        return recognize(request, userId);
+    }
+
+    /**
+     * 批量识别：缓存一次MGET批量查询，仅未命中的图像合并发送给模型服务。与recognize相同，不在数据库事务中执行
      */
-    private Map<String, Object> callModelService(byte[] imageData, Model model) {
+    public Result<BatchRecognitionResponse> recognizeBatch(BatchRecognitionRequest request, Long userId) {
+        long startTime = System.currentTimeMillis();
+
         try {
-            String url = modelServiceConfig.getBaseUrl() + "/api/recognize";
-
-            // 构建请求
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("image", Base64.getEncoder().encodeToString(imageData));
-            requestBody.put("model_id", model.getModelId());
-
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-
-            // 发送请求
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.POST,
-                    entity,
-                    Map.class
-            );
-
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                Map<String, Object> body = response.getBody();
-                if ("success".equals(body.get("status"))) {
-                    return (Map<String, Object>) body.get("data");
+            ActiveModelHolder.ActiveModel active = activeModelHolder.current();
+            Model activeModel = active.getModel();
+
+            if (activeModel == null) {
+                return Result.error(500, "没有可用的识别模型");
+            }
+
+            String cacheNamespace = active.getCacheNamespace();
+
+            List<RecognitionRequest> items = request.getItems();
+            int size = items.size();
+
+            // 1. 取出已解码的图像和哈希（笔画输入光栅化为张量），解码失败的项直接标记为失败
+            ImagePayload[] payloads = new ImagePayload[size];
+            String[] hashes = new String[size];
+            CanvasPrecheck.Rejection[] rejections = new CanvasPrecheck.Rejection[size];
+            for (int i = 0; i < size; i++) {
+                RecognitionRequest item = items.get(i);
+                if (item.getImageData() != null && !item.getImageData().isValid()) {
+                    log.warn("批量识别第 {} 项Base64解码失败", i);
+                    continue;
+                }
+                rejections[i] = precheck(item);
+                if (rejections[i] == null) {
+                    payloads[i] = payload(item);
+                    hashes[i] = payloads[i].getHash();
                 }
             }
 
+            // 2. 先查本地缓存，其余一次MGET查询Redis
+            List<RecognitionResponse> cached = resultCache.getAll(cacheNamespace, Arrays.asList(hashes));
+
+            RecognitionResponse[] responses = new RecognitionResponse[size];
+            int cacheHits = 0;
+            Map<String, List<Integer>> misses = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                if (hashes[i] == null) {
+                    continue;
+                }
+                RecognitionResponse hit = cached.get(i);
+                if (hit != null) {
+                    responses[i] = hit;
+                    cacheHits++;
+                } else {
+                    // 同一批次内重复的图像只识别一次
+                    misses.computeIfAbsent(hashes[i], k -> new ArrayList<>()).add(i);
+                }
+            }
+
+            // 3. 未命中的图像按批次大小分片调用模型服务（图像与笔画张量分开发送），模型服务不可用时仅返回缓存命中的结果
+            Map<String, Map<String, Object>> modelResults = new LinkedHashMap<>();
+            List<String> imageMisses = new ArrayList<>();
+            List<String> tensorMisses = new ArrayList<>();
+            for (String hash : misses.keySet()) {
+                (payloads[misses.get(hash).get(0)].isTensor() ? tensorMisses : imageMisses).add(hash);
+            }
+            int chunkSize = recognitionConfig.getBatch().getMaxSize();
+            String unavailableMessage = null;
+            for (List<String> group : List.of(imageMisses, tensorMisses)) {
+                boolean tensor = group == tensorMisses;
+                for (int from = 0; from < group.size() && unavailableMessage == null; from += chunkSize) {
+                    List<String> chunk = group.subList(from, Math.min(from + chunkSize, group.size()));
+                    List<byte[]> chunkImages = new ArrayList<>(chunk.size());
+                    for (String hash : chunk) {
+                        chunkImages.add(payloads[misses.get(hash).get(0)].getData());
+                    }
+
+                    List<Map<String, Object>> results;
+                    try {
+                        results = tensor ? inferenceRouter.recognizeTensorBatch(chunkImages, activeModel)
+                                : inferenceRouter.recognizeBatch(chunkImages, activeModel);
+                    } catch (ModelServiceUnavailableException | ImageDecodeRejectedException e) {
+                        log.warn("推理后端不可用，批量识别剩余 {} 张图像未识别: {}",
+                                misses.size() - modelResults.size(), e.getMessage());
+                        unavailableMessage = e.getMessage();
+                        break;
+                    }
+                    for (int j = 0; j < chunk.size(); j++) {
+                        modelResults.put(chunk.get(j), results != null ? results.get(j) : null);
+                    }
+                }
+            }
+
+            int processingTime = (int) (System.currentTimeMillis() - startTime);
+
+            // 4. 构建响应，保存记录并缓存新结果
+            for (int i = 0; i < size; i++) {
+                if (rejections[i] != null) {
+                    responses[i] = rejectedResponse(rejections[i], processingTime);
+                    continue;
+                }
+                boolean fromCache = responses[i] != null;
+                if (!fromCache) {
+                    Map<String, Object> modelResult = hashes[i] != null ? modelResults.get(hashes[i]) : null;
+                    if (modelResult == null) {
+                        responses[i] = RecognitionResponse.builder()
+                                .processingTime(processingTime)
+                                .message(hashes[i] != null && !modelResults.containsKey(hashes[i]) ? unavailableMessage : "识别失败")
+                                .needRewrite(true)
+                                .build();
+                        continue;
+                    }
+                    responses[i] = buildResponse(modelResult, processingTime);
+                }
+
+                RecognitionRecord record = saveRecognitionRecord(userId, activeModel.getModelId(),
+                        responses[i], payloads[i], items.get(i), processingTime, null);
+                responses[i].setRecordId(record.getRecordId());
+
+                if (!fromCache) {
+                    resultCache.put(cacheNamespace, hashes[i], responses[i]);
+                }
+            }
+
+            log.info("批量识别完成 - 数量: {}, 缓存命中: {}, 模型调用: {}, 耗时: {}ms",
+                    size, cacheHits, misses.size(), processingTime);
+
+            return Result.success(BatchRecognitionResponse.builder()
+                    .results(List.of(responses))
+                    .total(size)
+                    .cacheHits(cacheHits)
+                    .processingTime(processingTime)
+                    .build());
+
+        } catch (Exception e) {
+            log.error("批量识别失败", e);
+            return Result.error(500, "识别服务异常: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 画布输入的空白/无效预检：笔画输入按笔画几何检查，图像仅检查CANVAS类型
+     */
+    CanvasPrecheck.Rejection precheck(RecognitionRequest request) {
+        if (request.getStrokes() != null) {
+            return canvasPrecheck.check(request.getStrokes());
+        }
+        if (!RecognitionRecord.InputType.CANVAS.name().equals(request.getInputType())) {
             return null;
+        }
+        return canvasPrecheck.check(request.getImageData().getData());
+    }
+
+    /**
+     * 请求的模型输入：已解码的图像，或由笔画直接光栅化得到的28x28张量
+     */
+    ImagePayload payload(RecognitionRequest request) {
+        StrokePayload strokes = request.getStrokes();
+        if (strokes == null) {
+            return request.getImageData();
+        }
+        long startNanos = System.nanoTime();
+        byte[] pixels = strokeRasterizer.rasterize(strokes.getStrokes(), strokes.getPenWidth());
+        String hash = strokeRasterizer.canonicalHash(strokes.getStrokes(), strokes.getPenWidth());
+        return ImagePayload.tensor(pixels, hash, System.nanoTime() - startNanos);
+    }
+
+    static RecognitionResponse rejectedResponse(CanvasPrecheck.Rejection rejection, int processingTime) {
+        return RecognitionResponse.builder()
+                .processingTime(processingTime)
+                .message(rejection.getMessage())
+                .needRewrite(true)
+                .build();
+    }
+
+    /**
+     * 调用推理后端：Flask模型服务（并发请求经微批处理器合并发送）或进程内CNN
+     */
+    private Map<String, Object> callInference(ImagePayload payload, Model model) {
+        try {
+            if (payload.isTensor()) {
+                return inferenceRouter.recognizeTensor(payload.getData(), model);
+            }
+            return inferenceRouter.recognize(payload.getData(), model);
+        } catch (ModelServiceUnavailableException | ImageDecodeRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("调用模型服务失败", e);
             return null;
@@ -166,24 +375,74 @@ public class RecognitionService {
     }
 
     /**
-     * 保存识别记录
+     * 根据模型服务返回结果构建识别响应
+     */
+    static RecognitionResponse buildResponse(Map<String, Object> recognitionResult, int processingTime) {
+        Integer result = ((Number) recognitionResult.get("result")).intValue();
+        Double confidenceValue = ((Number) recognitionResult.get("confidence")).doubleValue();
+        BigDecimal confidence = BigDecimal.valueOf(confidenceValue);
+
+        // 判断是否需要重写（置信度低）
+        boolean needRewrite = confidence.compareTo(
+                BigDecimal.valueOf(Constants.MIN_CONFIDENCE_THRESHOLD)) < 0;
+
+        String message = needRewrite ?
+                "识别置信度较低，建议重新书写更清晰的数字" : "识别成功";
+
+        return RecognitionResponse.builder()
+                .recognitionResult(result)
+                .confidence(confidence)
+                .processingTime(processingTime)
+                .message(message)
+                .needRewrite(needRewrite)
+                .build();
+    }
+
+    /**
+     * 保存识别记录：分配记录ID后交给异步写入队列。timings不为null时累加persist阶段耗时，
+     * 并将各阶段耗时写入记录（记录中的persist只含图像存储）
      */
-    private RecognitionRecord saveRecognitionRecord(Long userId, Long modelId,
-                                                    RecognitionResponse response, byte[] imageData, String imageHash,
-                                                    RecognitionRequest request, int processingTime) {
+    RecognitionRecord saveRecognitionRecord(Long userId, Long modelId,
+                                            RecognitionResponse response, ImagePayload payload,
+                                            RecognitionRequest request, int processingTime,
+                                            RecognitionStageMetrics.Timings timings) {
+        long startNanos = System.nanoTime();
 
         RecognitionRecord record = new RecognitionRecord();
         record.setUserId(userId);
         record.setModelId(modelId);
         record.setRecognitionResult(response.getRecognitionResult());
         record.setConfidence(response.getConfidence());
-        record.setImageData(imageData);
-        record.setImageHash(imageHash);
+        record.setImageHash(payload.getHash());
+        record.setImagePath(storeImage(payload));
         record.setInputType(RecognitionRecord.InputType.valueOf(request.getInputType()));
         record.setProcessingTime(processingTime);
         record.setSessionId(request.getSessionId());
         record.setClientInfo(request.getClientInfo());
 
-        return recordRepository.save(record);
+        if (timings == null) {
+            return recordWriter.submit(record);
+        }
+        startNanos = timings.add(Stage.PERSIST, startNanos);
+        record.setProcessingBreakdown(timings.toJson());
+        RecognitionRecord submitted = recordWriter.submit(record);
+        timings.add(Stage.PERSIST, startNanos);
+        return submitted;
+    }
+
+    /**
+     * 按哈希存储图像，相同图像只写一次；笔画输入作为张量保存为28x28 PNG，仅首次存储时编码。
+     * 存储失败不影响识别结果返回
+     */
+    private String storeImage(ImagePayload payload) {
+        try {
+            if (payload.isTensor()) {
+                return imageStore.storeTensor(payload.getHash(), () -> strokeRasterizer.toPng(payload.getData()));
+            }
+            return imageStore.store(payload.getHash(), payload.getData());
+        } catch (Exception e) {
+            log.error("识别图像存储失败: {}", payload.getHash(), e);
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,243 @@
+// RecognitionSingleFlight.java - 相同图像并发识别合并
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.constants.Constants;
+import com.ihdrs.backend.common.exception.ModelServiceUnavailableException;
+import com.ihdrs.backend.config.RecognitionConfig;
+import com.ihdrs.backend.dto.response.RecognitionResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 同一图像哈希的并发识别只由第一个请求调用模型服务，其余请求等待并共享其结果。
+ * 节点内通过CompletableFuture合并；跨节点通过Redis标记键，未抢到标记的节点轮询结果缓存，
+ * 超时后自行调用，保证不会因持有者异常而一直等待。
+ * executeAsync为响应式版本，与execute共用节点内的合并表，只做节点内合并。
+ */
+@Slf4j
+@Component
+public class RecognitionSingleFlight {
+
+    // 只删除自己持有的标记键，避免误删过期后被其它节点重新设置的标记
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RecognitionResultCache resultCache;
+    private final RecognitionConfig.SingleFlight config;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<String, CompletableFuture<RecognitionResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Counter localCoalescedCounter;
+    private final Counter remoteCoalescedCounter;
+
+    public RecognitionSingleFlight(StringRedisTemplate stringRedisTemplate,
+                                   RecognitionResultCache resultCache,
+                                   RecognitionConfig recognitionConfig,
+                                   MeterRegistry meterRegistry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.resultCache = resultCache;
+        this.config = recognitionConfig.getSingleFlight();
+
+        this.localCoalescedCounter = Counter.builder("recognition.coalesced")
+                .tag("scope", "local")
+                .description("等待本节点相同图像识别结果的请求数")
+                .register(meterRegistry);
+        this.remoteCoalescedCounter = Counter.builder("recognition.coalesced")
+                .tag("scope", "remote")
+                .description("等待其它节点相同图像识别结果的请求数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 执行识别：loader负责调用模型服务并写入结果缓存。返回的响应为副本，调用方可以修改
+     */
+    public RecognitionResponse execute(String namespace, String imageHash, Supplier<RecognitionResponse> loader) {
+        if (!config.getEnabled() || imageHash == null) {
+            return loader.get();
+        }
+
+        String flightKey = namespace + ":" + imageHash;
+        CompletableFuture<RecognitionResponse> flight = new CompletableFuture<>();
+        CompletableFuture<RecognitionResponse> existing = inFlight.putIfAbsent(flightKey, flight);
+        if (existing != null) {
+            localCoalescedCounter.increment();
+            return awaitLocal(existing, loader);
+        }
+
+        Boolean markerHeld = null;
+        try {
+            // 上一轮请求可能刚写完缓存并退出，再查一次避免重复调用
+            RecognitionResponse response = resultCache.get(namespace, imageHash);
+            if (response != null) {
+                flight.complete(response);
+                return copyOf(response);
+            }
+
+            markerHeld = acquireMarker(flightKey);
+            if (Boolean.FALSE.equals(markerHeld)) {
+                remoteCoalescedCounter.increment();
+                response = awaitRemote(namespace, imageHash, flightKey);
+            }
+            if (response == null) {
+                response = loader.get();
+            }
+
+            flight.complete(response);
+            return copyOf(response);
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+            if (Boolean.TRUE.equals(markerHeld)) {
+                releaseMarker(flightKey);
+            }
+        }
+    }
+
+    /**
+     * 响应式执行识别：与阻塞请求共用节点内的合并表，loader返回的Mono完成后唤醒等待者。
+     * 不设置跨节点标记键（轮询缓存会占用线程），其它节点的相同请求各自调用模型服务
+     */
+    public Mono<RecognitionResponse> executeAsync(String namespace, String imageHash,
+                                                  Supplier<Mono<RecognitionResponse>> loader) {
+        if (!config.getEnabled() || imageHash == null) {
+            return Mono.defer(loader);
+        }
+
+        return Mono.defer(() -> {
+            String flightKey = namespace + ":" + imageHash;
+            CompletableFuture<RecognitionResponse> flight = new CompletableFuture<>();
+            CompletableFuture<RecognitionResponse> existing = inFlight.putIfAbsent(flightKey, flight);
+            if (existing != null) {
+                localCoalescedCounter.increment();
+                return Mono.fromFuture(existing, true)
+                        .timeout(config.getWaitTimeout())
+                        .map(this::copyOf)
+                        .onErrorResume(e -> !(e instanceof ModelServiceUnavailableException), e -> {
+                            log.debug("等待相同图像识别结果失败，自行调用模型服务: {}", e.getMessage());
+                            return Mono.defer(loader);
+                        });
+            }
+
+            // 上一轮请求可能刚写完缓存并退出，再查一次避免重复调用
+            return resultCache.getAsync(namespace, imageHash)
+                    .switchIfEmpty(Mono.defer(loader))
+                    .doOnNext(flight::complete)
+                    .doOnError(flight::completeExceptionally)
+                    .doFinally(signal -> {
+                        if (signal == SignalType.CANCEL) {
+                            // 持有者被取消，等待者自行调用
+                            flight.completeExceptionally(new IllegalStateException("识别请求已取消"));
+                        } else {
+                            // 识别失败没有结果时，等待者自行调用
+                            flight.complete(null);
+                        }
+                        inFlight.remove(flightKey, flight);
+                    })
+                    .map(this::copyOf);
+        });
+    }
+
+    private RecognitionResponse awaitLocal(CompletableFuture<RecognitionResponse> flight,
+                                           Supplier<RecognitionResponse> loader) {
+        try {
+            return copyOf(flight.get(config.getWaitTimeout().toMillis(), TimeUnit.MILLISECONDS));
+        } catch (ExecutionException e) {
+            // 模型服务熔断或限流时不再重复调用
+            if (e.getCause() instanceof ModelServiceUnavailableException) {
+                throw (ModelServiceUnavailableException) e.getCause();
+            }
+            log.debug("等待相同图像识别结果失败，自行调用模型服务: {}", e.getMessage());
+            return loader.get();
+        } catch (TimeoutException e) {
+            log.debug("等待相同图像识别结果失败，自行调用模型服务: {}", e.getMessage());
+            return loader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return loader.get();
+        }
+    }
+
+    /**
+     * 其它节点正在识别同一图像：轮询结果缓存直到写入或超时，超时返回null
+     */
+    private RecognitionResponse awaitRemote(String namespace, String imageHash, String flightKey) {
+        long deadline = System.nanoTime() + config.getWaitTimeout().toNanos();
+        try {
+            while (System.nanoTime() < deadline) {
+                Thread.sleep(config.getPollInterval().toMillis());
+                RecognitionResponse cached = resultCache.get(namespace, imageHash);
+                if (cached != null) {
+                    return cached;
+                }
+                if (!markerExists(flightKey)) {
+                    // 持有者已结束但未写入缓存（如识别失败），不再等待
+                    return null;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /**
+     * 设置跨节点标记键：true表示本节点持有，false表示其它节点正在识别，null表示未启用或Redis不可用
+     */
+    private Boolean acquireMarker(String flightKey) {
+        if (!config.getDistributed()) {
+            return null;
+        }
+        try {
+            return stringRedisTemplate.opsForValue().setIfAbsent(
+                    markerKey(flightKey), nodeId, config.getLockTtl());
+        } catch (Exception e) {
+            // Redis不可用时退化为仅节点内合并
+            log.debug("设置识别标记键失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean markerExists(String flightKey) {
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.hasKey(markerKey(flightKey)));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void releaseMarker(String flightKey) {
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(markerKey(flightKey)), nodeId);
+        } catch (Exception e) {
+            log.debug("删除识别标记键失败: {}", e.getMessage());
+        }
+    }
+
+    private String markerKey(String flightKey) {
+        return Constants.REDIS_KEY_RECOGNITION_INFLIGHT + flightKey;
+    }
+
+    private RecognitionResponse copyOf(RecognitionResponse response) {
+        return response != null ? response.toBuilder().build() : null;
+    }
+}
@@ -0,0 +1,122 @@
+// RecognitionStageMetrics.java - 识别各阶段耗时统计
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.jfr.RecognitionEvent;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按阶段统计单张识别的耗时：每个阶段一个recognition.stage计时器，整个请求一个recognition.total计时器，
+ * 均带model（模型ID）、input（输入类型）和cache（hit/miss，画布预检拒绝时为none）标签，
+ * 以Prometheus格式经 /actuator/prometheus 导出，SLO分桶见 management.metrics.distribution.slo。
+ * 同样的分阶段耗时以JSON写入识别记录的processing_breakdown字段，供离线分析，并作为RecognitionEvent写入JFR记录
+ */
+@Component
+public class RecognitionStageMetrics {
+
+    public static final String CACHE_HIT = "hit";
+    public static final String CACHE_MISS = "miss";
+    public static final String CACHE_NONE = "none";
+
+    /**
+     * 识别阶段：decode为Base64解码（或读取上传文件）并计算MD5，笔画输入为光栅化并计算规范化哈希；
+     * precheck为画布空白预检；cache为查询本地缓存和Redis；inference为推理（含等待相同图像的在途请求和写缓存）；
+     * persist为存储图像、领取记录ID并交给写入队列（写库为异步批量，耗时见recognition.record.flush）
+     */
+    public enum Stage {
+        DECODE, PRECHECK, CACHE, INFERENCE, PERSIST;
+
+        private final String tagValue = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final Meter.MeterProvider<Timer> stageTimers;
+    private final Meter.MeterProvider<Timer> totalTimers;
+
+    public RecognitionStageMetrics(MeterRegistry meterRegistry) {
+        this.stageTimers = Timer.builder("recognition.stage")
+                .description("单张识别各阶段的耗时")
+                .withRegistry(meterRegistry);
+        this.totalTimers = Timer.builder("recognition.total")
+                .description("单张识别的总耗时")
+                .withRegistry(meterRegistry);
+    }
+
+    /**
+     * 开始统计一次识别
+     */
+    public Timings start() {
+        return new Timings();
+    }
+
+    /**
+     * 记录一次识别各阶段和总耗时，未经过的阶段不记录
+     */
+    public void record(Timings timings, Long modelId, String inputType, String cache) {
+        Tags tags = Tags.of("model", String.valueOf(modelId),
+                "input", inputType != null ? inputType : "UNKNOWN",
+                "cache", cache);
+        for (Stage stage : Stage.values()) {
+            long nanos = timings.nanos[stage.ordinal()];
+            if (nanos >= 0) {
+                stageTimers.withTags(tags.and("stage", stage.tagValue)).record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        totalTimers.withTags(tags).record(System.nanoTime() - timings.startNanos, TimeUnit.NANOSECONDS);
+        timings.event.finish(modelId, inputType, cache, timings.nanos);
+    }
+
+    /**
+     * 一次识别的分阶段耗时，只在处理该请求的线程中使用
+     */
+    public static class Timings {
+
+        private final long startNanos = System.nanoTime();
+        private final long[] nanos = new long[Stage.values().length];
+        private final RecognitionEvent event = new RecognitionEvent();
+
+        private Timings() {
+            Arrays.fill(nanos, -1);
+            event.begin();
+        }
+
+        /**
+         * 累加阶段耗时，返回当前时刻，便于连续计时
+         */
+        public long add(Stage stage, long stageStartNanos) {
+            long now = System.nanoTime();
+            addNanos(stage, now - stageStartNanos);
+            return now;
+        }
+
+        public void addNanos(Stage stage, long stageNanos) {
+            int index = stage.ordinal();
+            nanos[index] = Math.max(nanos[index], 0) + stageNanos;
+        }
+
+        /**
+         * 已记录阶段的耗时，JSON对象，单位毫秒（保留两位小数），如 {"decode":0.42,"cache":1.3,"inference":85.1}
+         */
+        public String toJson() {
+            StringBuilder json = new StringBuilder(96).append('{');
+            for (Stage stage : Stage.values()) {
+                long stageNanos = nanos[stage.ordinal()];
+                if (stageNanos < 0) {
+                    continue;
+                }
+                if (json.length() > 1) {
+                    json.append(',');
+                }
+                json.append('"').append(stage.tagValue).append("\":")
+                        .append(Math.round(stageNanos / 10_000.0) / 100.0);
+            }
+            return json.append('}').toString();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+// RecordIdGenerator.java - 识别记录ID号段生成器
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.config.RecognitionConfig;
+import com.ihdrs.backend.entity.IdSegment;
+import com.ihdrs.backend.repository.IdSegmentRepository;
+import com.ihdrs.backend.repository.RecognitionRecordRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 识别记录ID在写库之前分配，异步批量写入时recordId也能立即返回给客户端。
+ * 每次从id_segments表领取一个号段，用完再领，多节点之间不会重复。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RecordIdGenerator {
+
+    static final String BIZ_TAG = "recognition_record";
+    private static final int MAX_ALLOCATE_ATTEMPTS = 3;
+
+    private final IdSegmentRepository idSegmentRepository;
+    private final RecognitionRecordRepository recordRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final RecognitionConfig recognitionConfig;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private long nextId = 1;
+    private long maxId = 0; // 当前号段为 [nextId, maxId]
+
+    /**
+     * 获取下一个记录ID
+     */
+    public Long nextId() {
+        lock.lock();
+        try {
+            if (nextId > maxId) {
+                allocateSegment();
+            }
+            return nextId++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void allocateSegment() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                IdSegment segment = transactionTemplate.execute(status -> {
+                    if (idSegmentRepository.increaseMaxId(BIZ_TAG) == 0) {
+                        // 首次使用：从现有记录的最大ID之后开始，避免与历史自增ID冲突
+                        int step = recognitionConfig.getWriteBehind().getIdStep();
+                        long seed = recordRepository.findMaxRecordId();
+                        return idSegmentRepository.saveAndFlush(
+                                new IdSegment(BIZ_TAG, seed + step, step, LocalDateTime.now()));
+                    }
+                    return idSegmentRepository.findById(BIZ_TAG).orElseThrow();
+                });
+
+                maxId = segment.getMaxId();
+                nextId = maxId - segment.getStep() + 1;
+                log.info("分配识别记录ID号段: [{}, {}]", nextId, maxId);
+                return;
+            } catch (DataIntegrityViolationException e) {
+                // 其它节点同时初始化了号段，重新走更新流程
+                if (attempt >= MAX_ALLOCATE_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("号段初始化冲突，重试第 {} 次", attempt);
+            }
+        }
+    }
+}
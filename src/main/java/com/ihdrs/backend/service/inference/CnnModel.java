@@ -0,0 +1,441 @@
+// CnnModel.java - 进程内CNN前向计算
+package com.ihdrs.backend.service.inference;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 从 .ihdt 张量文件加载的顺序CNN，在CPU上用基本类型数组完成前向计算。
+ * 激活值按NHWC（行、列、通道）排列，与Keras的Flatten顺序一致；最内层循环沿输出通道连续访问，便于JIT自动向量化。
+ *
+ * 文件格式（小端序，由模型服务 models_code/export_tensor_file.py 导出）：
+ * <pre>
+ * 头部:   "IHDT" | int32 版本(1) | int32 输入高 | int32 输入宽 | int32 输入通道 | int32 层数
+ * 每一层: int32 层类型，之后为该层参数
+ *   1 CONV2D      int32 kh, kw, inC, outC, padding(0=valid,1=same), activation | float32 权重[kh*kw*inC*outC](HWIO) | float32 偏置[outC]
+ *   2 MAX_POOL    int32 pool（步长等于pool）
+ *   3 DENSE       int32 in, out, activation | float32 权重[in*out](行=输入) | float32 偏置[out]
+ *   4 SCALE_SHIFT int32 channels | float32 scale[channels] | float32 shift[channels]
+ *   5 FLATTEN     无参数
+ * activation: 0=linear 1=relu 2=softmax
+ * </pre>
+ * 实例不可变，可被多个线程同时使用。
+ */
+public final class CnnModel {
+
+    static final int MAGIC = 0x54444849; // "IHDT" 小端序
+    static final int VERSION = 1;
+
+    static final int LAYER_CONV2D = 1;
+    static final int LAYER_MAX_POOL = 2;
+    static final int LAYER_DENSE = 3;
+    static final int LAYER_SCALE_SHIFT = 4;
+    static final int LAYER_FLATTEN = 5;
+
+    static final int ACTIVATION_LINEAR = 0;
+    static final int ACTIVATION_RELU = 1;
+    static final int ACTIVATION_SOFTMAX = 2;
+
+    private final Shape inputShape;
+    private final List<Layer> layers;
+    private final int outputSize;
+
+    private CnnModel(Shape inputShape, List<Layer> layers) {
+        this.inputShape = inputShape;
+        this.layers = layers;
+
+        Shape shape = inputShape;
+        for (Layer layer : layers) {
+            shape = layer.outputShape(shape);
+        }
+        this.outputSize = shape.size();
+    }
+
+    public static CnnModel load(Path path) throws IOException {
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(path))) {
+            return read(input);
+        }
+    }
+
+    public static CnnModel read(InputStream input) throws IOException {
+        LittleEndianReader reader = new LittleEndianReader(input);
+        if (reader.readInt() != MAGIC) {
+            throw new IOException("不是有效的张量文件");
+        }
+        int version = reader.readInt();
+        if (version != VERSION) {
+            throw new IOException("不支持的张量文件版本: " + version);
+        }
+
+        Shape inputShape = new Shape(reader.readInt(), reader.readInt(), reader.readInt());
+        int layerCount = reader.readInt();
+        List<Layer> layers = new ArrayList<>(layerCount);
+        Shape shape = inputShape;
+        for (int i = 0; i < layerCount; i++) {
+            Layer layer = readLayer(reader);
+            try {
+                shape = layer.outputShape(shape); // 校验各层形状是否衔接
+            } catch (IllegalStateException e) {
+                throw new IOException("第 " + (i + 1) + " 层" + e.getMessage(), e);
+            }
+            layers.add(layer);
+        }
+        return new CnnModel(inputShape, List.copyOf(layers));
+    }
+
+    private static Layer readLayer(LittleEndianReader reader) throws IOException {
+        int type = reader.readInt();
+        switch (type) {
+            case LAYER_CONV2D: {
+                int kh = reader.readInt();
+                int kw = reader.readInt();
+                int inC = reader.readInt();
+                int outC = reader.readInt();
+                boolean same = reader.readInt() == 1;
+                int activation = readActivation(reader);
+                float[] weights = reader.readFloats(kh * kw * inC * outC);
+                float[] bias = reader.readFloats(outC);
+                return new Conv2D(kh, kw, inC, outC, same, activation, weights, bias);
+            }
+            case LAYER_MAX_POOL:
+                return new MaxPool(reader.readInt());
+            case LAYER_DENSE: {
+                int in = reader.readInt();
+                int out = reader.readInt();
+                int activation = readActivation(reader);
+                float[] weights = reader.readFloats(in * out);
+                float[] bias = reader.readFloats(out);
+                return new Dense(in, out, activation, weights, bias);
+            }
+            case LAYER_SCALE_SHIFT: {
+                int channels = reader.readInt();
+                return new ScaleShift(reader.readFloats(channels), reader.readFloats(channels));
+            }
+            case LAYER_FLATTEN:
+                return new Flatten();
+            default:
+                throw new IOException("不支持的层类型: " + type);
+        }
+    }
+
+    private static int readActivation(LittleEndianReader reader) throws IOException {
+        int activation = reader.readInt();
+        if (activation < ACTIVATION_LINEAR || activation > ACTIVATION_SOFTMAX) {
+            throw new IOException("不支持的激活函数: " + activation);
+        }
+        return activation;
+    }
+
+    /**
+     * 前向计算，input为NHWC顺序的单张图像，返回最后一层输出（softmax时即各类别概率）
+     */
+    public float[] predict(float[] input) {
+        if (input.length != inputShape.size()) {
+            throw new IllegalArgumentException("输入长度应为 " + inputShape.size() + "，实际为 " + input.length);
+        }
+        float[] activations = input;
+        Shape shape = inputShape;
+        for (Layer layer : layers) {
+            activations = layer.forward(activations, shape);
+            shape = layer.outputShape(shape);
+        }
+        return activations;
+    }
+
+    public int getInputSize() {
+        return inputShape.size();
+    }
+
+    public int getOutputSize() {
+        return outputSize;
+    }
+
+    /**
+     * 激活值形状：高、宽、通道
+     */
+    private static final class Shape {
+        private final int height;
+        private final int width;
+        private final int channels;
+
+        private Shape(int height, int width, int channels) {
+            this.height = height;
+            this.width = width;
+            this.channels = channels;
+        }
+
+        private int size() {
+            return height * width * channels;
+        }
+    }
+
+    private interface Layer {
+        Shape outputShape(Shape input);
+
+        float[] forward(float[] input, Shape shape);
+    }
+
+    private static final class Conv2D implements Layer {
+        private final int kh, kw, inC, outC;
+        private final boolean same;
+        private final int activation;
+        private final float[] weights;
+        private final float[] bias;
+
+        private Conv2D(int kh, int kw, int inC, int outC, boolean same, int activation,
+                       float[] weights, float[] bias) {
+            this.kh = kh;
+            this.kw = kw;
+            this.inC = inC;
+            this.outC = outC;
+            this.same = same;
+            this.activation = activation;
+            this.weights = weights;
+            this.bias = bias;
+        }
+
+        @Override
+        public Shape outputShape(Shape input) {
+            if (input.channels != inC) {
+                throw new IllegalStateException("卷积层输入通道不匹配: " + input.channels + " != " + inC);
+            }
+            return same
+                    ? new Shape(input.height, input.width, outC)
+                    : new Shape(input.height - kh + 1, input.width - kw + 1, outC);
+        }
+
+        @Override
+        public float[] forward(float[] input, Shape shape) {
+            Shape out = outputShape(shape);
+            int padTop = same ? (kh - 1) / 2 : 0;
+            int padLeft = same ? (kw - 1) / 2 : 0;
+            float[] output = new float[out.size()];
+
+            for (int oy = 0; oy < out.height; oy++) {
+                for (int ox = 0; ox < out.width; ox++) {
+                    int outBase = (oy * out.width + ox) * outC;
+                    System.arraycopy(bias, 0, output, outBase, outC);
+
+                    for (int ky = 0; ky < kh; ky++) {
+                        int iy = oy + ky - padTop;
+                        if (iy < 0 || iy >= shape.height) {
+                            continue;
+                        }
+                        for (int kx = 0; kx < kw; kx++) {
+                            int ix = ox + kx - padLeft;
+                            if (ix < 0 || ix >= shape.width) {
+                                continue;
+                            }
+                            int inBase = (iy * shape.width + ix) * inC;
+                            int weightBase = (ky * kw + kx) * inC * outC;
+                            for (int ic = 0; ic < inC; ic++) {
+                                float value = input[inBase + ic];
+                                if (value == 0f) {
+                                    continue; // ReLU后大量为0，跳过整行乘加
+                                }
+                                int weightRow = weightBase + ic * outC;
+                                for (int oc = 0; oc < outC; oc++) {
+                                    output[outBase + oc] += value * weights[weightRow + oc];
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            activate(output, activation);
+            return output;
+        }
+    }
+
+    private static final class MaxPool implements Layer {
+        private final int pool;
+
+        private MaxPool(int pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public Shape outputShape(Shape input) {
+            return new Shape(input.height / pool, input.width / pool, input.channels);
+        }
+
+        @Override
+        public float[] forward(float[] input, Shape shape) {
+            Shape out = outputShape(shape);
+            int channels = shape.channels;
+            float[] output = new float[out.size()];
+            Arrays.fill(output, Float.NEGATIVE_INFINITY);
+
+            for (int oy = 0; oy < out.height; oy++) {
+                for (int ox = 0; ox < out.width; ox++) {
+                    int outBase = (oy * out.width + ox) * channels;
+                    for (int py = 0; py < pool; py++) {
+                        for (int px = 0; px < pool; px++) {
+                            int inBase = ((oy * pool + py) * shape.width + ox * pool + px) * channels;
+                            for (int c = 0; c < channels; c++) {
+                                output[outBase + c] = Math.max(output[outBase + c], input[inBase + c]);
+                            }
+                        }
+                    }
+                }
+            }
+            return output;
+        }
+    }
+
+    private static final class Dense implements Layer {
+        private final int in, out;
+        private final int activation;
+        private final float[] weights;
+        private final float[] bias;
+
+        private Dense(int in, int out, int activation, float[] weights, float[] bias) {
+            this.in = in;
+            this.out = out;
+            this.activation = activation;
+            this.weights = weights;
+            this.bias = bias;
+        }
+
+        @Override
+        public Shape outputShape(Shape input) {
+            if (input.size() != in) {
+                throw new IllegalStateException("全连接层输入长度不匹配: " + input.size() + " != " + in);
+            }
+            return new Shape(1, 1, out);
+        }
+
+        @Override
+        public float[] forward(float[] input, Shape shape) {
+            float[] output = bias.clone();
+            for (int i = 0; i < in; i++) {
+                float value = input[i];
+                if (value == 0f) {
+                    continue;
+                }
+                int row = i * out;
+                for (int o = 0; o < out; o++) {
+                    output[o] += value * weights[row + o];
+                }
+            }
+            activate(output, activation);
+            return output;
+        }
+    }
+
+    /**
+     * 逐通道仿射变换，由BatchNormalization在导出时折算而来
+     */
+    private static final class ScaleShift implements Layer {
+        private final float[] scale;
+        private final float[] shift;
+
+        private ScaleShift(float[] scale, float[] shift) {
+            this.scale = scale;
+            this.shift = shift;
+        }
+
+        @Override
+        public Shape outputShape(Shape input) {
+            if (input.channels != scale.length) {
+                throw new IllegalStateException("归一化层通道不匹配: " + input.channels + " != " + scale.length);
+            }
+            return input;
+        }
+
+        @Override
+        public float[] forward(float[] input, Shape shape) {
+            int channels = scale.length;
+            float[] output = new float[input.length];
+            for (int base = 0; base < input.length; base += channels) {
+                for (int c = 0; c < channels; c++) {
+                    output[base + c] = input[base + c] * scale[c] + shift[c];
+                }
+            }
+            return output;
+        }
+    }
+
+    /**
+     * NHWC排列下展平不改变数据顺序
+     */
+    private static final class Flatten implements Layer {
+        @Override
+        public Shape outputShape(Shape input) {
+            return new Shape(1, 1, input.size());
+        }
+
+        @Override
+        public float[] forward(float[] input, Shape shape) {
+            return input;
+        }
+    }
+
+    private static void activate(float[] values, int activation) {
+        switch (activation) {
+            case ACTIVATION_RELU:
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] < 0f) {
+                        values[i] = 0f;
+                    }
+                }
+                break;
+            case ACTIVATION_SOFTMAX: {
+                float max = Float.NEGATIVE_INFINITY;
+                for (float value : values) {
+                    max = Math.max(max, value);
+                }
+                float sum = 0f;
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = (float) Math.exp(values[i] - max);
+                    sum += values[i];
+                }
+                for (int i = 0; i < values.length; i++) {
+                    values[i] /= sum;
+                }
+                break;
+            }
+            case ACTIVATION_LINEAR:
+                break;
+            default:
+                throw new IllegalStateException("不支持的激活函数: " + activation);
+        }
+    }
+
+    /**
+     * 小端序读取int32和float32数组
+     */
+    private static final class LittleEndianReader {
+        private final DataInputStream input;
+        private final byte[] intBuffer = new byte[4];
+
+        private LittleEndianReader(InputStream input) {
+            this.input = new DataInputStream(input);
+        }
+
+        private int readInt() throws IOException {
+            input.readFully(intBuffer);
+            return ByteBuffer.wrap(intBuffer).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        }
+
+        private float[] readFloats(int count) throws IOException {
+            if (count < 0 || count > (1 << 26)) {
+                throw new IOException("张量长度无效: " + count);
+            }
+            byte[] bytes = new byte[count * 4];
+            input.readFully(bytes);
+            float[] values = new float[count];
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(values);
+            return values;
+        }
+    }
+}
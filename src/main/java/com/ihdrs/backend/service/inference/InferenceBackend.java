@@ -0,0 +1,44 @@
+// InferenceBackend.java - 推理后端接口
+package com.ihdrs.backend.service.inference;
+
+import com.ihdrs.backend.entity.Model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 识别推理后端。返回结果与Flask模型服务的响应一致：result、confidence、all_probabilities
+ */
+public interface InferenceBackend {
+
+    /**
+     * 后端名称，与 recognition.inference 配置中的取值对应
+     */
+    String getName();
+
+    /**
+     * 该后端当前能否识别指定模型
+     */
+    boolean isAvailable(Model model);
+
+    /**
+     * 识别单张图像，失败时返回null。
+     * 远程后端熔断或限流时抛出ModelServiceUnavailableException
+     */
+    Map<String, Object> recognize(byte[] imageData, Model model);
+
+    /**
+     * 批量识别，返回结果与输入顺序一致，单张失败的位置为null，整体失败时返回null
+     */
+    List<Map<String, Object>> recognizeBatch(List<byte[]> images, Model model);
+
+    /**
+     * 识别已预处理的28x28 uint8张量（784字节，255为笔迹），失败时返回null
+     */
+    Map<String, Object> recognizeTensor(byte[] pixels, Model model);
+
+    /**
+     * 批量识别张量，返回约定同recognizeBatch
+     */
+    List<Map<String, Object>> recognizeTensorBatch(List<byte[]> tensors, Model model);
+}
@@ -0,0 +1,162 @@
+// InferenceRouter.java - 推理后端选择
+package com.ihdrs.backend.service.inference;
+
+import com.ihdrs.backend.common.exception.ModelServiceUnavailableException;
+import com.ihdrs.backend.config.RecognitionConfig;
+import com.ihdrs.backend.entity.Model;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 按模型选择推理后端（recognition.inference.models，未配置时用defaultBackend）。
+ * 配置为本地但模型没有张量文件时使用远程后端；远程后端熔断、限流或调用失败时，
+ * 若开启fallbackToLocal且模型有张量文件，改用本地推理。
+ */
+@Slf4j
+@Component
+public class InferenceRouter {
+
+    private final RemoteInferenceBackend remoteBackend;
+    private final LocalCnnInferenceBackend localBackend;
+    private final RecognitionConfig.Inference config;
+    private final Timer remoteTimer;
+    private final Timer localTimer;
+    private final Counter fallbackCounter;
+
+    public InferenceRouter(RemoteInferenceBackend remoteBackend, LocalCnnInferenceBackend localBackend,
+                           RecognitionConfig recognitionConfig, MeterRegistry meterRegistry) {
+        this.remoteBackend = remoteBackend;
+        this.localBackend = localBackend;
+        this.config = recognitionConfig.getInference();
+
+        this.remoteTimer = Timer.builder("recognition.inference.latency")
+                .tag("backend", RemoteInferenceBackend.NAME)
+                .description("各推理后端的识别耗时")
+                .register(meterRegistry);
+        this.localTimer = Timer.builder("recognition.inference.latency")
+                .tag("backend", LocalCnnInferenceBackend.NAME)
+                .description("各推理后端的识别耗时")
+                .register(meterRegistry);
+        this.fallbackCounter = Counter.builder("recognition.inference.fallback")
+                .description("模型服务不可用时改用本地推理的次数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 识别单张图像，失败时返回null；远程后端不可用且无法降级时抛出ModelServiceUnavailableException
+     */
+    public Map<String, Object> recognize(byte[] imageData, Model model) {
+        return route(model, backend -> backend.recognize(imageData, model));
+    }
+
+    /**
+     * 批量识别，返回结果与输入顺序一致，单张失败的位置为null，整体失败时返回null
+     */
+    public List<Map<String, Object>> recognizeBatch(List<byte[]> images, Model model) {
+        return route(model, backend -> backend.recognizeBatch(images, model));
+    }
+
+    /**
+     * 识别已光栅化的28x28张量，后端选择和降级规则同recognize
+     */
+    public Map<String, Object> recognizeTensor(byte[] pixels, Model model) {
+        return route(model, backend -> backend.recognizeTensor(pixels, model));
+    }
+
+    /**
+     * 批量识别张量，返回约定同recognizeBatch
+     */
+    public List<Map<String, Object>> recognizeTensorBatch(List<byte[]> tensors, Model model) {
+        return route(model, backend -> backend.recognizeTensorBatch(tensors, model));
+    }
+
+    /**
+     * 非阻塞识别单张图像（tensor为true时为28x28张量），后端选择和降级规则同recognize：
+     * 远程后端不等待线程，本地推理在scheduler上执行；失败时为空，远程后端不可用且无法降级时以
+     * ModelServiceUnavailableException结束
+     */
+    public Mono<Map<String, Object>> recognizeAsync(byte[] data, boolean tensor, Model model, Scheduler scheduler) {
+        Function<InferenceBackend, Map<String, Object>> call = tensor
+                ? backend -> backend.recognizeTensor(data, model)
+                : backend -> backend.recognize(data, model);
+        if (select(model) == localBackend) {
+            return Mono.fromCallable(() -> localTimer.record(() -> call.apply(localBackend)))
+                    .subscribeOn(scheduler);
+        }
+
+        Mono<Map<String, Object>> fallback = Mono.fromCallable(() -> fallback(call)).subscribeOn(scheduler);
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            return remoteBackend.recognizeAsync(data, tensor, model)
+                    .doFinally(signal -> remoteTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS));
+        })
+                .switchIfEmpty(Mono.defer(() -> {
+                    if (!canFallback(model)) {
+                        return Mono.empty();
+                    }
+                    log.warn("模型服务调用失败，模型 {} 改用本地推理", model.getModelId());
+                    return fallback;
+                }))
+                .onErrorResume(ModelServiceUnavailableException.class, e -> {
+                    if (!canFallback(model)) {
+                        return Mono.error(e);
+                    }
+                    log.warn("模型服务不可用，模型 {} 改用本地推理: {}", model.getModelId(), e.getMessage());
+                    return fallback;
+                });
+    }
+
+    /**
+     * 当前为模型选择的后端
+     */
+    public InferenceBackend select(Model model) {
+        String name = config.getModels().getOrDefault(model.getModelId(), config.getDefaultBackend());
+        if (LocalCnnInferenceBackend.NAME.equalsIgnoreCase(name) && localBackend.isAvailable(model)) {
+            return localBackend;
+        }
+        return remoteBackend;
+    }
+
+    private <T> T route(Model model, Function<InferenceBackend, T> call) {
+        InferenceBackend backend = select(model);
+        if (backend == localBackend) {
+            return localTimer.record(() -> call.apply(localBackend));
+        }
+
+        T result;
+        try {
+            result = remoteTimer.record(() -> call.apply(remoteBackend));
+        } catch (ModelServiceUnavailableException e) {
+            if (!canFallback(model)) {
+                throw e;
+            }
+            log.warn("模型服务不可用，模型 {} 改用本地推理: {}", model.getModelId(), e.getMessage());
+            return fallback(call);
+        }
+
+        if (result == null && canFallback(model)) {
+            log.warn("模型服务调用失败，模型 {} 改用本地推理", model.getModelId());
+            return fallback(call);
+        }
+        return result;
+    }
+
+    private boolean canFallback(Model model) {
+        return config.getFallbackToLocal() && localBackend.isAvailable(model);
+    }
+
+    private <T> T fallback(Function<InferenceBackend, T> call) {
+        fallbackCounter.increment();
+        return localTimer.record(() -> call.apply(localBackend));
+    }
+}
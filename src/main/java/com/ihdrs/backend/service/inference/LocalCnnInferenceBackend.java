@@ -0,0 +1,200 @@
+// LocalCnnInferenceBackend.java - 进程内CNN推理后端
+package com.ihdrs.backend.service.inference;
+
+import com.ihdrs.backend.common.utils.ImageUtil;
+import com.ihdrs.backend.config.FileStorageConfig;
+import com.ihdrs.backend.entity.Model;
+import com.ihdrs.backend.service.ImageDecodeExecutor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 在JVM内完成识别：加载模型服务保存模型时导出的 .ihdt 张量文件，在CPU上执行前向计算，
+ * 不经过HTTP和Python进程。图像解码和预处理在ImageDecodeExecutor中按内存预算执行，张量输入直接计算。
+ * 张量文件位于 file.model.path 目录下，与模型文件同名。
+ * 已加载的模型按模型ID缓存；找不到张量文件时每分钟最多重新查找一次。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LocalCnnInferenceBackend implements InferenceBackend {
+
+    public static final String NAME = "local";
+
+    static final String TENSOR_FILE_EXTENSION = ".ihdt";
+    private static final long MISSING_RECHECK_MILLIS = 60_000;
+
+    private final FileStorageConfig fileStorageConfig;
+    private final ImageUtil imageUtil;
+    private final ImageDecodeExecutor decodeExecutor;
+
+    private final Map<Long, LoadedModel> loadedModels = new ConcurrentHashMap<>();
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isAvailable(Model model) {
+        return model != null && load(model) != null;
+    }
+
+    @Override
+    public Map<String, Object> recognize(byte[] imageData, Model model) {
+        CnnModel cnn = load(model);
+        if (cnn == null) {
+            throw new IllegalStateException("模型没有可用的张量文件: " + model.getModelId());
+        }
+        return recognize(cnn, imageData);
+    }
+
+    @Override
+    public List<Map<String, Object>> recognizeBatch(List<byte[]> images, Model model) {
+        CnnModel cnn = load(model);
+        if (cnn == null) {
+            throw new IllegalStateException("模型没有可用的张量文件: " + model.getModelId());
+        }
+        List<Map<String, Object>> results = new ArrayList<>(images.size());
+        for (byte[] imageData : images) {
+            results.add(recognize(cnn, imageData));
+        }
+        return results;
+    }
+
+    @Override
+    public Map<String, Object> recognizeTensor(byte[] pixels, Model model) {
+        CnnModel cnn = load(model);
+        if (cnn == null) {
+            throw new IllegalStateException("模型没有可用的张量文件: " + model.getModelId());
+        }
+        return toResult(cnn.predict(toInput(pixels)));
+    }
+
+    @Override
+    public List<Map<String, Object>> recognizeTensorBatch(List<byte[]> tensors, Model model) {
+        CnnModel cnn = load(model);
+        if (cnn == null) {
+            throw new IllegalStateException("模型没有可用的张量文件: " + model.getModelId());
+        }
+        List<Map<String, Object>> results = new ArrayList<>(tensors.size());
+        for (byte[] pixels : tensors) {
+            results.add(toResult(cnn.predict(toInput(pixels))));
+        }
+        return results;
+    }
+
+    /**
+     * uint8张量归一化到[0,1]，与ImageUtil.toMnistTensor一致
+     */
+    static float[] toInput(byte[] pixels) {
+        if (pixels.length != ImageUtil.MNIST_PIXELS) {
+            throw new IllegalArgumentException("张量长度应为 " + ImageUtil.MNIST_PIXELS + "，实际为 " + pixels.length);
+        }
+        float[] input = new float[ImageUtil.MNIST_PIXELS];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (pixels[i] & 0xFF) / 255f;
+        }
+        return input;
+    }
+
+    private Map<String, Object> recognize(CnnModel cnn, byte[] imageData) {
+        float[] input;
+        try {
+            input = decodeExecutor.execute(imageData, imageUtil::toMnistTensor);
+        } catch (IOException e) {
+            log.warn("本地推理图像解析失败: {}", e.getMessage());
+            return null;
+        }
+        return toResult(cnn.predict(input));
+    }
+
+    /**
+     * 按模型服务的响应格式组装结果
+     */
+    static Map<String, Object> toResult(float[] probabilities) {
+        int best = 0;
+        List<Double> all = new ArrayList<>(probabilities.length);
+        for (int i = 0; i < probabilities.length; i++) {
+            all.add((double) probabilities[i]);
+            if (probabilities[i] > probabilities[best]) {
+                best = i;
+            }
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("result", best);
+        result.put("confidence", (double) probabilities[best]);
+        result.put("all_probabilities", all);
+        return result;
+    }
+
+    /**
+     * 模型对应的张量文件：file.model.path 下与模型文件同名、扩展名为 .ihdt 的文件
+     */
+    Path tensorFile(Model model) {
+        String fileName = Path.of(model.getModelPath()).getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return Path.of(fileStorageConfig.getModel().getPath()).resolve(baseName + TENSOR_FILE_EXTENSION);
+    }
+
+    private CnnModel load(Model model) {
+        if (model.getModelPath() == null) {
+            return null;
+        }
+        LoadedModel loaded = loadedModels.get(model.getModelId());
+        if (loaded != null && loaded.isFresh(model.getModelPath())) {
+            return loaded.cnn;
+        }
+        return loadedModels.compute(model.getModelId(), (id, current) ->
+                current != null && current.isFresh(model.getModelPath()) ? current : read(model)).cnn;
+    }
+
+    private LoadedModel read(Model model) {
+        Path path = tensorFile(model);
+        CnnModel cnn = null;
+        if (Files.isRegularFile(path)) {
+            try {
+                cnn = CnnModel.load(path);
+                log.info("已加载本地推理模型: {} (输入 {}，输出 {})", path, cnn.getInputSize(), cnn.getOutputSize());
+            } catch (IOException | RuntimeException e) {
+                log.warn("张量文件加载失败: {}", path, e);
+            }
+        } else {
+            log.debug("模型 {} 没有张量文件: {}", model.getModelId(), path);
+        }
+        return new LoadedModel(model.getModelPath(), cnn, System.currentTimeMillis());
+    }
+
+    /**
+     * 已加载的模型，cnn为null表示张量文件不存在或无法加载
+     */
+    private static class LoadedModel {
+        private final String modelPath;
+        private final CnnModel cnn;
+        private final long loadedAt;
+
+        private LoadedModel(String modelPath, CnnModel cnn, long loadedAt) {
+            this.modelPath = modelPath;
+            this.cnn = cnn;
+            this.loadedAt = loadedAt;
+        }
+
+        private boolean isFresh(String currentModelPath) {
+            return Objects.equals(modelPath, currentModelPath)
+                    && (cnn != null || System.currentTimeMillis() - loadedAt < MISSING_RECHECK_MILLIS);
+        }
+    }
+}
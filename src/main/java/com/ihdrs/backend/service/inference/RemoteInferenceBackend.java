@@ -0,0 +1,68 @@
+// RemoteInferenceBackend.java - Flask模型服务推理后端
+package com.ihdrs.backend.service.inference;
+
+import com.ihdrs.backend.entity.Model;
+import com.ihdrs.backend.service.ModelServiceClient;
+import com.ihdrs.backend.service.ReactiveModelServiceClient;
+import com.ihdrs.backend.service.RecognitionBatcher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 通过HTTP调用Flask模型服务识别，单张请求经微批处理器合并发送；
+ * 张量请求体只有784字节且模型服务无需预处理，直接发送，不经过微批处理器。
+ * 响应式识别接口经recognizeAsync以非阻塞方式直接发送，不经过微批处理器
+ */
+@Component
+@RequiredArgsConstructor
+public class RemoteInferenceBackend implements InferenceBackend {
+
+    public static final String NAME = "remote";
+
+    private final RecognitionBatcher recognitionBatcher;
+    private final ModelServiceClient modelServiceClient;
+    private final ReactiveModelServiceClient reactiveModelServiceClient;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isAvailable(Model model) {
+        return true;
+    }
+
+    @Override
+    public Map<String, Object> recognize(byte[] imageData, Model model) {
+        return recognitionBatcher.recognize(imageData, model.getModelId());
+    }
+
+    @Override
+    public List<Map<String, Object>> recognizeBatch(List<byte[]> images, Model model) {
+        return modelServiceClient.recognizeBatch(images, model.getModelId());
+    }
+
+    @Override
+    public Map<String, Object> recognizeTensor(byte[] pixels, Model model) {
+        return modelServiceClient.recognizeTensor(pixels, model.getModelId());
+    }
+
+    /**
+     * 非阻塞识别单张图像或张量，失败时为空
+     */
+    public Mono<Map<String, Object>> recognizeAsync(byte[] data, boolean tensor, Model model) {
+        return tensor
+                ? reactiveModelServiceClient.recognizeTensor(data, model.getModelId())
+                : reactiveModelServiceClient.recognize(data, model.getModelId());
+    }
+
+    @Override
+    public List<Map<String, Object>> recognizeTensorBatch(List<byte[]> tensors, Model model) {
+        return modelServiceClient.recognizeTensorBatch(tensors, model.getModelId());
+    }
+}
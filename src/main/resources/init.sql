@@ -16,6 +16,7 @@ DROP TABLE IF EXISTS training_tasks;
 DROP TABLE IF EXISTS models;
 DROP TABLE IF EXISTS system_configs;
 DROP TABLE IF EXISTS users;
+DROP TABLE IF EXISTS id_segments;
 
 -- 创建用户表
 CREATE TABLE IF NOT EXISTS `users` (
@@ -65,16 +66,17 @@ CREATE TABLE IF NOT EXISTS `models` (
 
 -- 创建识别记录表
 CREATE TABLE IF NOT EXISTS `recognition_records` (
-                                                     `record_id` bigint NOT NULL AUTO_INCREMENT COMMENT '记录ID',
+                                                     `record_id` bigint NOT NULL AUTO_INCREMENT COMMENT '记录ID（由id_segments号段预分配）',
                                                      `user_id` bigint DEFAULT NULL COMMENT '用户ID（可为空，支持匿名识别）',
                                                      `model_id` bigint NOT NULL COMMENT '使用的模型ID',
                                                      `recognition_result` int NOT NULL COMMENT '识别结果（0-9）',
                                                      `confidence` decimal(5,4) NOT NULL COMMENT '置信度',
-                                                     `image_data` longblob COMMENT '原始图像数据',
-                                                     `image_path` varchar(500) COMMENT '图像文件路径',
+                                                     `image_data` longblob COMMENT '原始图像数据（历史字段，新图像按哈希存入文件存储）',
+                                                     `image_path` varchar(500) COMMENT '图像文件路径（按image_hash去重存储）',
                                                      `image_hash` varchar(64) COMMENT '图像MD5哈希',
                                                      `input_type` enum('CANVAS','UPLOAD','CAMERA') DEFAULT 'CANVAS' COMMENT '输入类型',
                                                      `processing_time` int DEFAULT NULL COMMENT '处理时间（毫秒）',
+                                                     `processing_breakdown` json COMMENT '各阶段耗时（毫秒），如{"decode":0.4,"cache":1.2,"inference":85.0}',
                                                      `client_info` json COMMENT '客户端信息',
                                                      `is_correct` tinyint DEFAULT NULL COMMENT '是否正确：1-正确，0-错误，NULL-未知',
                                                      `session_id` varchar(64) COMMENT '会话ID',
@@ -188,6 +190,15 @@ CREATE TABLE IF NOT EXISTS `operation_logs` (
                                                 KEY `idx_create_time` (`create_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='操作日志表';
 
+-- 创建号段ID分配表（识别记录ID在异步写库前预先分配）
+CREATE TABLE IF NOT EXISTS `id_segments` (
+                                             `biz_tag` varchar(64) NOT NULL COMMENT '业务标识',
+                                             `max_id` bigint NOT NULL COMMENT '已分配的最大ID',
+                                             `step` int NOT NULL COMMENT '号段步长',
+                                             `update_time` datetime DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+                                             PRIMARY KEY (`biz_tag`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='号段ID分配表';
+
 -- 添加外键约束
 ALTER TABLE `models` ADD CONSTRAINT `fk_models_creator` FOREIGN KEY (`creator_id`) REFERENCES `users` (`user_id`) ON DELETE RESTRICT ON UPDATE CASCADE;
 ALTER TABLE `recognition_records` ADD CONSTRAINT `fk_records_user` FOREIGN KEY (`user_id`) REFERENCES `users` (`user_id`) ON DELETE SET NULL ON UPDATE CASCADE;
@@ -220,7 +231,12 @@ INSERT INTO `system_configs` (`config_key`, `config_value`, `config_type`, `desc
                                                                                                            ('recognition_timeout', '10000', 'NUMBER', '识别超时时间（毫秒）', 0),
                                                                                                            ('default_model_config', '{"learning_rate": 0.001, "batch_size": 32, "epochs": 10}', 'JSON', '默认模型配置', 0),
                                                                                                            ('system_name', 'IHDRS', 'STRING', '系统名称', 1),
-                                                                                                           ('system_version', '1.0.0', 'STRING', '系统版本', 1)
+                                                                                                           ('system_version', '1.0.0', 'STRING', '系统版本', 1),
+                                                                                                           ('canvas_precheck_enabled', 'true', 'BOOLEAN', '画布预检开关：拦截空白或无效画布，不调用模型', 0),
+                                                                                                           ('canvas_precheck_min_contrast', '40', 'NUMBER', '画布预检：背景与笔迹平均亮度之差下限（0-255）', 0),
+                                                                                                           ('canvas_precheck_min_ink_ratio', '0.002', 'NUMBER', '画布预检：笔迹像素占比下限', 0),
+                                                                                                           ('canvas_precheck_max_ink_ratio', '0.5', 'NUMBER', '画布预检：笔迹像素占比上限', 0),
+                                                                                                           ('canvas_precheck_min_box_ratio', '0.08', 'NUMBER', '画布预检：笔迹包围盒相对画布的比例下限', 0)
 ON DUPLICATE KEY UPDATE `config_value` = VALUES(`config_value`);
 
 -- 创建默认模型记录（示例）
@@ -0,0 +1,133 @@
+// ImageDecodeBenchmark.java - 大图解码基准测试
+package com.ihdrs.backend.benchmark;
+
+import com.ihdrs.backend.common.utils.ImageUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比相机照片大小的JPEG两种解码方式：ImageIO.read解出全分辨率图像，ImageUtil.decode按最长边1024降采样解码。
+ * 每轮迭代结束时打印堆内存峰值（各堆内存池峰值之和，迭代开始时重置）；分配量通过GC profiler的gc.alloc.rate.norm查看。
+ * 堆峰值受GC时机影响，宜用较小堆运行（如 -Xmx512m）以便对比。
+ *
+ * 运行：mvn test-compile 后执行本类的main方法
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+@State(Scope.Benchmark)
+public class ImageDecodeBenchmark {
+
+    @Param({"4000x3000", "6000x4000"})
+    private String resolution;
+
+    private final ImageUtil imageUtil = new ImageUtil();
+    private byte[] jpeg;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String[] size = resolution.split("x");
+        jpeg = photo(Integer.parseInt(size[0]), Integer.parseInt(size[1]), new Random(42));
+        System.out.printf("%n[decode] %s jpeg=%.1f MB%n", resolution, jpeg.length / 1024.0 / 1024.0);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void printPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        System.out.printf(" [peak heap %.1f MB]", peak / 1024.0 / 1024.0);
+    }
+
+    @Benchmark
+    public BufferedImage imageIoRead() throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(jpeg));
+    }
+
+    @Benchmark
+    public BufferedImage boundedDecode() throws IOException {
+        return imageUtil.decode(jpeg);
+    }
+
+    /**
+     * 生成类似手机拍摄的JPEG：带噪点的渐变背景上写一个数字，质量0.92
+     */
+    private static byte[] photo(int width, int height, Random random) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, new Color(235, 230, 220), width, height, new Color(180, 175, 170)));
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(new Color(30, 30, 40));
+        graphics.setFont(new Font(Font.SANS_SERIF, Font.BOLD, height / 2));
+        graphics.drawString("7", width / 3, height * 3 / 4);
+        graphics.dispose();
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int rgb = image.getRGB(x, y);
+                int noise = random.nextInt(25) - 12;
+                int r = clamp(((rgb >> 16) & 0xFF) + noise);
+                int g = clamp(((rgb >> 8) & 0xFF) + noise);
+                int b = clamp((rgb & 0xFF) + noise);
+                image.setRGB(x, y, r << 16 | g << 8 | b);
+            }
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(0.92f);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(output)) {
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ImageDecodeBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
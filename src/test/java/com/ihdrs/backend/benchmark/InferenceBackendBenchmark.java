@@ -0,0 +1,177 @@
+// InferenceBackendBenchmark.java - 推理后端基准测试
+package com.ihdrs.backend.benchmark;
+
+import com.ihdrs.backend.common.utils.ImageUtil;
+import com.ihdrs.backend.service.inference.CnnModel;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比两种推理后端单张识别的耗时：
+ * local为LocalCnnInferenceBackend的路径（解码预处理+进程内前向计算），模型结构与 cnn_model.py 的默认CNN相同、权重随机；
+ * remoteTransport为RemoteInferenceBackend的HTTP往返，对端是进程内的桩服务，只读取请求体并返回固定结果，
+ * 因此只是远程路径的下限，实际还要加上Flask端的解码、预处理和TensorFlow推理耗时。
+ *
+ * 运行：mvn test-compile 后执行本类的main方法
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InferenceBackendBenchmark {
+
+    private static final byte[] STUB_RESPONSE =
+            "{\"success\":true,\"data\":{\"result\":7,\"confidence\":0.98}}".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"280"})
+    private int canvasSize;
+
+    private final ImageUtil imageUtil = new ImageUtil();
+    private byte[] image;
+    private CnnModel model;
+    private float[] tensor;
+    private HttpServer server;
+    private RestTemplate restTemplate;
+    private String url;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        image = drawDigit(canvasSize, new Random(42));
+        model = CnnModel.read(new ByteArrayInputStream(defaultCnnTensorFile(new Random(7))));
+        tensor = imageUtil.toMnistTensor(image);
+
+        // 关闭Nagle算法，避免桩服务分两次写响应头和响应体时触发延迟确认，掩盖真实的往返耗时
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/recognize", exchange -> {
+            try (InputStream body = exchange.getRequestBody()) {
+                body.readAllBytes();
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, STUB_RESPONSE.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(STUB_RESPONSE);
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/recognize?model_id=1";
+        restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Benchmark
+    public float[] local() throws IOException {
+        return model.predict(imageUtil.toMnistTensor(image));
+    }
+
+    @Benchmark
+    public float[] localForwardOnly() {
+        return model.predict(tensor);
+    }
+
+    @Benchmark
+    @SuppressWarnings("rawtypes")
+    public Map remoteTransport() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        return restTemplate.postForObject(url, new HttpEntity<>(image, headers), Map.class);
+    }
+
+    /**
+     * 与 cnn_model.py 默认CNN相同的结构：Conv(32)-Pool-Conv(64)-Pool-Conv(64)-Flatten-Dense(64)-Dense(10)
+     */
+    private static byte[] defaultCnnTensorFile(Random random) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0x54444849).putInt(1).putInt(28).putInt(28).putInt(1).putInt(8); // "IHDT" 版本1 28x28x1 8层
+        buffer.putInt(1).putInt(3).putInt(3).putInt(1).putInt(32).putInt(0).putInt(1);
+        putRandom(buffer, random, 3 * 3 * 32, 32);
+        buffer.putInt(2).putInt(2);
+        buffer.putInt(1).putInt(3).putInt(3).putInt(32).putInt(64).putInt(0).putInt(1);
+        putRandom(buffer, random, 3 * 3 * 32 * 64, 64);
+        buffer.putInt(2).putInt(2);
+        buffer.putInt(1).putInt(3).putInt(3).putInt(64).putInt(64).putInt(0).putInt(1);
+        putRandom(buffer, random, 3 * 3 * 64 * 64, 64);
+        buffer.putInt(5);
+        buffer.putInt(3).putInt(576).putInt(64).putInt(1);
+        putRandom(buffer, random, 576 * 64, 64);
+        buffer.putInt(3).putInt(64).putInt(10).putInt(2);
+        putRandom(buffer, random, 64 * 10, 10);
+
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip().get(bytes);
+        return bytes;
+    }
+
+    private static void putRandom(ByteBuffer buffer, Random random, int weights, int bias) {
+        for (int i = 0; i < weights + bias; i++) {
+            buffer.putFloat((float) (random.nextGaussian() * 0.05));
+        }
+    }
+
+    /**
+     * 生成与前端画布相近的PNG：白底黑色随机笔画
+     */
+    private static byte[] drawDigit(int size, Random random) throws IOException {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, size, size);
+        graphics.setColor(Color.BLACK);
+        graphics.setStroke(new BasicStroke(size / 20f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        int x = size / 2;
+        int y = size / 4;
+        for (int i = 0; i < 12; i++) {
+            int nextX = Math.max(size / 8, Math.min(size * 7 / 8, x + random.nextInt(size / 4) - size / 8));
+            int nextY = Math.max(size / 8, Math.min(size * 7 / 8, y + random.nextInt(size / 5)));
+            graphics.drawLine(x, y, nextX, nextY);
+            x = nextX;
+            y = nextY;
+        }
+        graphics.dispose();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(InferenceBackendBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,113 @@
+// MnistPreprocessBenchmark.java - MNIST预处理基准测试
+package com.ihdrs.backend.benchmark;
+
+import com.ihdrs.backend.common.utils.ImageUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比ImageUtil的三种28x28预处理：
+ * resizeToMNIST（Graphics2D缩放后重新编码为PNG）、extractCenterRegion（Graphics2D裁剪缩放为BufferedImage）
+ * 与toMnistBytes（直接读取像素数组，MNIST归一化后写入复用的784字节数组）。
+ * 带Decoded后缀的方法使用已解码的图像，只比较预处理本身；分配量通过GC profiler的gc.alloc.rate.norm查看。
+ *
+ * 运行：mvn test-compile 后执行本类的main方法
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MnistPreprocessBenchmark {
+
+    @Param({"280", "1024"})
+    private int canvasSize;
+
+    private final ImageUtil imageUtil = new ImageUtil();
+    private byte[] image;
+    private BufferedImage decoded;
+
+    @State(Scope.Thread)
+    public static class Output {
+        private final byte[] pixels = new byte[ImageUtil.MNIST_PIXELS];
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        image = drawDigit(canvasSize, new Random(42));
+        decoded = ImageIO.read(new ByteArrayInputStream(image));
+    }
+
+    @Benchmark
+    public byte[] resizeToMNIST() throws IOException {
+        return imageUtil.resizeToMNIST(image);
+    }
+
+    @Benchmark
+    public BufferedImage extractCenterRegion() throws IOException {
+        return imageUtil.extractCenterRegion(ImageIO.read(new ByteArrayInputStream(image)), ImageUtil.MNIST_SIZE);
+    }
+
+    @Benchmark
+    public byte[] toMnistBytes(Output output) throws IOException {
+        imageUtil.toMnistBytes(image, output.pixels);
+        return output.pixels;
+    }
+
+    @Benchmark
+    public BufferedImage extractCenterRegionDecoded() {
+        return imageUtil.extractCenterRegion(decoded, ImageUtil.MNIST_SIZE);
+    }
+
+    @Benchmark
+    public byte[] toMnistBytesDecoded(Output output) {
+        imageUtil.toMnistBytes(decoded, output.pixels);
+        return output.pixels;
+    }
+
+    /**
+     * 生成与前端画布相近的PNG：白底黑色随机笔画
+     */
+    private static byte[] drawDigit(int size, Random random) throws IOException {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, size, size);
+        graphics.setColor(Color.BLACK);
+        graphics.setStroke(new BasicStroke(size / 20f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        int x = size / 2;
+        int y = size / 4;
+        for (int i = 0; i < 12; i++) {
+            int nextX = Math.max(size / 8, Math.min(size * 7 / 8, x + random.nextInt(size / 4) - size / 8));
+            int nextY = Math.max(size / 8, Math.min(size * 7 / 8, y + random.nextInt(size / 5)));
+            graphics.drawLine(x, y, nextX, nextY);
+            x = nextX;
+            y = nextY;
+        }
+        graphics.dispose();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MnistPreprocessBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,127 @@
+// ModelServicePayloadBenchmark.java - 模型服务请求体编码基准测试
+package com.ihdrs.backend.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比发送给模型服务的两种请求体：Base64+JSON与application/octet-stream原始字节。
+ * 与ModelServiceClient一致，JSON请求体由Jackson序列化Map得到，二进制请求体即图像字节（批量时拼接）。
+ * 启动时打印两种方式的请求体字节数；分配量通过GC profiler的gc.alloc.rate.norm查看。
+ *
+ * 运行：mvn test-compile 后执行本类的main方法
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModelServicePayloadBenchmark {
+
+    @Param({"280", "1024"})
+    private int canvasSize;
+
+    @Param({"1", "16"})
+    private int batchSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<byte[]> images;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        images = new ArrayList<>(batchSize);
+        Random random = new Random(42);
+        for (int i = 0; i < batchSize; i++) {
+            images.add(drawDigit(canvasSize, random));
+        }
+
+        System.out.printf("%n[payload] canvas=%d batch=%d json=%d bytes binary=%d bytes%n",
+                canvasSize, batchSize, jsonPayload().length, binaryPayload().length);
+    }
+
+    @Benchmark
+    public byte[] jsonPayload() throws IOException {
+        Map<String, Object> requestBody = new HashMap<>();
+        if (batchSize == 1) {
+            requestBody.put("image", Base64.getEncoder().encodeToString(images.get(0)));
+        } else {
+            List<String> encodedImages = new ArrayList<>(images.size());
+            for (byte[] image : images) {
+                encodedImages.add(Base64.getEncoder().encodeToString(image));
+            }
+            requestBody.put("images", encodedImages);
+        }
+        requestBody.put("model_id", 1L);
+        return objectMapper.writeValueAsBytes(requestBody);
+    }
+
+    @Benchmark
+    public byte[] binaryPayload() {
+        if (batchSize == 1) {
+            return images.get(0);
+        }
+
+        int totalLength = 0;
+        for (byte[] image : images) {
+            totalLength += image.length;
+        }
+        byte[] body = new byte[totalLength];
+        int offset = 0;
+        for (byte[] image : images) {
+            System.arraycopy(image, 0, body, offset, image.length);
+            offset += image.length;
+        }
+        return body;
+    }
+
+    /**
+     * 生成与前端画布相近的PNG：白底黑色随机笔画
+     */
+    private static byte[] drawDigit(int size, Random random) throws IOException {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, size, size);
+        graphics.setColor(Color.BLACK);
+        graphics.setStroke(new BasicStroke(size / 20f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        int x = size / 2;
+        int y = size / 4;
+        for (int i = 0; i < 12; i++) {
+            int nextX = Math.max(size / 8, Math.min(size * 7 / 8, x + random.nextInt(size / 4) - size / 8));
+            int nextY = Math.max(size / 8, Math.min(size * 7 / 8, y + random.nextInt(size / 5)));
+            graphics.drawLine(x, y, nextX, nextY);
+            x = nextX;
+            y = nextY;
+        }
+        graphics.dispose();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ModelServicePayloadBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,203 @@
+// ReactiveRecognitionBenchmark.java - 阻塞与非阻塞模型服务调用并发基准测试
+package com.ihdrs.backend.benchmark;
+
+import com.ihdrs.backend.common.utils.WorkerThreads;
+import com.ihdrs.backend.config.ModelServiceConfig;
+import com.ihdrs.backend.service.ModelServiceClient;
+import com.ihdrs.backend.service.ModelServiceGuard;
+import com.ihdrs.backend.service.ModelServiceHedger;
+import com.ihdrs.backend.service.ModelServiceReplicaPool;
+import com.ihdrs.backend.service.ReactiveModelServiceClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 同时发起concurrency个识别调用，模型服务为本地启动的桩服务（每个请求延迟100ms后返回），
+ * 测量全部完成的耗时，吞吐量 = concurrency / 单次耗时。两种调用方式：
+ * servlet 为200个平台线程（Tomcat默认最大线程数）各自经ModelServiceClient阻塞调用，超出的请求排队，
+ * RestTemplate与应用一样由ModelServiceConfig构建（HttpComponents连接池）；
+ * reactive 为ReactiveModelServiceClient经WebClient非阻塞调用，全部请求同时在途。
+ * 两种方式的连接池上限均放宽到concurrency并关闭自适应并发限制，只比较线程模型。
+ * 每轮结束打印峰值线程数、堆内存、进程常驻内存和失败数，分配量通过GC profiler的gc.alloc.rate.norm查看。
+ *
+ * 每种组合预热1轮、测量2轮。
+ *
+ * 运行：mvn test-compile 后执行本类的main方法
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReactiveRecognitionBenchmark {
+
+    private static final long MODEL_LATENCY_MILLIS = 100;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final String SUCCESS_BODY =
+            "{\"status\":\"success\",\"data\":{\"result\":7,\"confidence\":0.98}}";
+
+    @Param({"1000", "5000"})
+    private int concurrency;
+
+    @Param({"servlet", "reactive"})
+    private String mode;
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final byte[] image = new byte[784];
+    private DisposableServer modelServer;
+    private ExecutorService servletThreads;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private ModelServiceClient blockingClient;
+    private ReactiveModelServiceClient reactiveClient;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        modelServer = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(routes -> routes.post("/api/recognize", (request, response) -> request.receive()
+                        .then()
+                        .then(Mono.delay(Duration.ofMillis(MODEL_LATENCY_MILLIS)))
+                        .then(response.header("Content-Type", "application/json")
+                                .header("X-Transport", "binary")
+                                .sendString(Mono.just(SUCCESS_BODY))
+                                .then())))
+                .bindNow();
+
+        ModelServiceConfig config = new ModelServiceConfig();
+        config.setBaseUrl("http://127.0.0.1:" + modelServer.port());
+        config.setMaxConnections(concurrency);
+        config.setMaxConnectionsPerRoute(concurrency);
+        config.setMaxRetries(1);
+        config.getConcurrencyLimit().setEnabled(false);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ModelServiceGuard guard = new ModelServiceGuard(config, meterRegistry);
+        ModelServiceReplicaPool replicaPool = new ModelServiceReplicaPool(config, meterRegistry);
+
+        switch (mode) {
+            case "servlet":
+                servletThreads = Executors.newFixedThreadPool(TOMCAT_MAX_THREADS,
+                        new WorkerThreads(false).factory("http-nio"));
+                connectionManager = config.modelServiceConnectionManager(
+                        new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry))
+                                .getBeanProvider(MeterRegistry.class));
+                httpClient = config.modelServiceHttpClient(connectionManager);
+                blockingClient = new ModelServiceClient(
+                        config.restTemplate(config.clientHttpRequestFactory(httpClient)),
+                        config, guard, replicaPool,
+                        new ModelServiceHedger(replicaPool, config, new WorkerThreads(false), meterRegistry),
+                        new WorkerThreads(false));
+                break;
+            case "reactive":
+                reactiveClient = new ReactiveModelServiceClient(config.modelServiceWebClient(WebClient.builder()),
+                        config, guard, replicaPool);
+                break;
+            default:
+                throw new IllegalArgumentException("未知的调用方式: " + mode);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (servletThreads != null) {
+            servletThreads.shutdownNow();
+        }
+        if (httpClient != null) {
+            httpClient.close();
+            connectionManager.close();
+        }
+        modelServer.disposeNow();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeak() {
+        threadBean.resetPeakThreadCount();
+        failures.set(0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void printFootprint() {
+        System.out.printf("%n[footprint] mode=%s concurrency=%d peakThreads=%d heapUsed=%dMB rss=%s failures=%d%n",
+                mode, concurrency, threadBean.getPeakThreadCount(),
+                memoryBean.getHeapMemoryUsage().getUsed() >> 20, residentMemory(), failures.get());
+    }
+
+    private static String residentMemory() {
+        try {
+            return Files.readAllLines(Path.of("/proc/self/status")).stream()
+                    .filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> line.substring("VmRSS:".length()).trim())
+                    .findFirst()
+                    .orElse("n/a");
+        } catch (IOException e) {
+            return "n/a";
+        }
+    }
+
+    @Benchmark
+    public int recognitions() throws InterruptedException {
+        if (reactiveClient != null) {
+            Long completed = Flux.range(0, concurrency)
+                    .flatMap(i -> reactiveClient.recognize(image, 1L)
+                            .switchIfEmpty(Mono.fromRunnable(failures::incrementAndGet)), concurrency)
+                    .count()
+                    .block();
+            return completed.intValue();
+        }
+
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            servletThreads.execute(() -> {
+                try {
+                    if (blockingClient.recognize(image, 1L) == null) {
+                        failures.incrementAndGet();
+                    }
+                } catch (RuntimeException e) {
+                    failures.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        return concurrency;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ReactiveRecognitionBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
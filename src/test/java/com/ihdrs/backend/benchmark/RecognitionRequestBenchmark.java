@@ -0,0 +1,91 @@
+// RecognitionRequestBenchmark.java - 识别请求体解析基准测试
+package com.ihdrs.backend.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ihdrs.backend.dto.request.ImagePayload;
+import com.ihdrs.backend.dto.request.RecognitionRequest;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比 /recognition/recognize 请求体的两种读取方式：
+ * stringThenDecode 为原流程（Jackson解析出Base64字符串，再Base64解码，再计算MD5并用String.format拼接十六进制），
+ * streaming 为ImagePayloadDeserializer（从输入流直接解码到池化缓冲区并同时计算MD5）。
+ * 每次请求的分配量通过GC profiler的gc.alloc.rate.norm查看。
+ *
+ * 运行：mvn test-compile 后执行本类的main方法
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecognitionRequestBenchmark {
+
+    /**
+     * 解码后的图像字节数：画布PNG约20KB，手机照片约2MB
+     */
+    @Param({"20000", "2000000"})
+    private int imageSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] body;
+
+    /**
+     * 原请求结构：imageData为Base64字符串
+     */
+    public static class StringRecognitionRequest {
+        public String imageData;
+        public String inputType;
+        public String sessionId;
+        public String clientInfo;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        byte[] image = new byte[imageSize];
+        new Random(42).nextBytes(image);
+        body = ("{\"imageData\":\"" + Base64.getEncoder().encodeToString(image)
+                + "\",\"inputType\":\"CANVAS\",\"sessionId\":\"bench\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String stringThenDecode() throws IOException, NoSuchAlgorithmException {
+        StringRecognitionRequest request = objectMapper.readValue(new ByteArrayInputStream(body),
+                StringRecognitionRequest.class);
+        byte[] imageData = Base64.getDecoder().decode(request.imageData);
+        byte[] hash = MessageDigest.getInstance("MD5").digest(imageData);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : hash) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    public String streaming() throws IOException {
+        RecognitionRequest request = objectMapper.readValue(new ByteArrayInputStream(body), RecognitionRequest.class);
+        ImagePayload image = request.getImageData();
+        return image.getHash();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RecognitionRequestBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
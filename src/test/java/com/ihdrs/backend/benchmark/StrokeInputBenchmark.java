@@ -0,0 +1,150 @@
+// StrokeInputBenchmark.java - 笔画输入与PNG输入对比基准测试
+package com.ihdrs.backend.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ihdrs.backend.common.utils.ImageUtil;
+import com.ihdrs.backend.common.utils.StrokeRasterizer;
+import com.ihdrs.backend.dto.request.RecognitionRequest;
+import com.ihdrs.backend.dto.request.StrokePayload;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比 /recognition/recognize 的两种画布输入从请求体到28x28模型输入的耗时：
+ * png 为Base64 PNG（流式解码并计算MD5，再解码PNG并做MNIST归一化），
+ * strokes 为笔画数据（解析点列表，光栅化并计算规范化笔画哈希）。
+ * 笔画按前端采样方式生成（每笔约每4像素一个点，坐标保留一位小数）；启动时打印两种请求体的字节数。
+ * 分配量通过GC profiler的gc.alloc.rate.norm查看。
+ *
+ * 运行：mvn test-compile 后执行本类的main方法
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StrokeInputBenchmark {
+
+    private static final float PEN_WIDTH = 18;
+
+    /**
+     * 画布边长：网页画布280，移动端高分屏画布约1024
+     */
+    @Param({"280", "1024"})
+    private int canvasSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ImageUtil imageUtil = new ImageUtil();
+    private final StrokeRasterizer rasterizer = new StrokeRasterizer();
+    private byte[] pngBody;
+    private byte[] strokeBody;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<float[]> strokes = sampleStrokes(canvasSize, new Random(42));
+        float penWidth = PEN_WIDTH * canvasSize / 280;
+
+        pngBody = ("{\"imageData\":\"" + Base64.getEncoder().encodeToString(drawPng(strokes, penWidth, canvasSize))
+                + "\",\"inputType\":\"CANVAS\",\"sessionId\":\"bench\"}").getBytes(StandardCharsets.UTF_8);
+
+        StringJoiner json = new StringJoiner(",", "[", "]");
+        for (float[] stroke : strokes) {
+            StringJoiner points = new StringJoiner(",", "[", "]");
+            for (float value : stroke) {
+                points.add(String.format(Locale.ROOT, "%.1f", value));
+            }
+            json.add(points.toString());
+        }
+        strokeBody = ("{\"strokes\":{\"width\":" + canvasSize + ",\"height\":" + canvasSize
+                + ",\"penWidth\":" + penWidth + ",\"strokes\":" + json
+                + "},\"inputType\":\"CANVAS\",\"sessionId\":\"bench\"}").getBytes(StandardCharsets.UTF_8);
+
+        System.out.printf("%n[payload] canvas=%d png=%d bytes strokes=%d bytes%n",
+                canvasSize, pngBody.length, strokeBody.length);
+    }
+
+    @Benchmark
+    public byte[] png() throws IOException {
+        RecognitionRequest request = objectMapper.readValue(new ByteArrayInputStream(pngBody), RecognitionRequest.class);
+        request.getImageData().getHash();
+        return imageUtil.toMnistBytes(request.getImageData().getData());
+    }
+
+    @Benchmark
+    public byte[] strokes() throws IOException {
+        RecognitionRequest request = objectMapper.readValue(new ByteArrayInputStream(strokeBody), RecognitionRequest.class);
+        StrokePayload strokes = request.getStrokes();
+        rasterizer.canonicalHash(strokes.getStrokes(), strokes.getPenWidth());
+        return rasterizer.rasterize(strokes.getStrokes(), strokes.getPenWidth());
+    }
+
+    /**
+     * 手写“4”的三笔，加入少量抖动，按约每4像素（280画布）一个点采样
+     */
+    private static List<float[]> sampleStrokes(int canvasSize, Random random) {
+        float scale = canvasSize / 280f;
+        float[][] segments = {{90, 50, 70, 170}, {70, 170, 210, 165}, {170, 60, 175, 240}};
+        List<float[]> strokes = new ArrayList<>();
+        for (float[] segment : segments) {
+            float length = (float) Math.hypot(segment[2] - segment[0], segment[3] - segment[1]);
+            int count = Math.max(2, Math.round(length / 4));
+            float[] stroke = new float[count * 2];
+            for (int i = 0; i < count; i++) {
+                float t = i / (float) (count - 1);
+                stroke[2 * i] = (segment[0] + t * (segment[2] - segment[0]) + random.nextFloat() - 0.5f) * scale;
+                stroke[2 * i + 1] = (segment[1] + t * (segment[3] - segment[1]) + random.nextFloat() - 0.5f) * scale;
+            }
+            strokes.add(stroke);
+        }
+        return strokes;
+    }
+
+    private static byte[] drawPng(List<float[]> strokes, float penWidth, int size) throws IOException {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, size, size);
+        graphics.setColor(Color.BLACK);
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.setStroke(new BasicStroke(penWidth, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        for (float[] stroke : strokes) {
+            Path2D.Float path = new Path2D.Float();
+            path.moveTo(stroke[0], stroke[1]);
+            for (int i = 2; i < stroke.length; i += 2) {
+                path.lineTo(stroke[i], stroke[i + 1]);
+            }
+            graphics.draw(path);
+        }
+        graphics.dispose();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StrokeInputBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,140 @@
+// VirtualThreadLoadBenchmark.java - 平台线程与虚拟线程并发慢调用基准测试
+package com.ihdrs.backend.benchmark;
+
+import com.ihdrs.backend.common.resilience.CircuitBreaker;
+import com.ihdrs.backend.common.utils.WorkerThreads;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同时发起concurrency个慢速模型调用（阻塞100ms，经过熔断器的加锁临界区），测量全部完成的耗时，
+ * 吞吐量 = concurrency / 单次耗时。三种执行方式：
+ * pool 为200个平台线程（Tomcat默认最大线程数），超出的调用排队；
+ * platform 为每个调用一个平台线程；
+ * virtual 为WorkerThreads的虚拟线程（需JDK 21，在JDK 17上该组参数会失败）。
+ * 每轮结束打印峰值线程数、堆内存和进程常驻内存（Linux下读取/proc/self/status，包含平台线程栈），
+ * 分配量通过GC profiler的gc.alloc.rate.norm查看。
+ *
+ * 运行：mvn test-compile 后执行本类的main方法
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadLoadBenchmark {
+
+    private static final long MODEL_LATENCY_MILLIS = 100;
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    @Param({"1000", "10000"})
+    private int concurrency;
+
+    @Param({"pool", "platform", "virtual"})
+    private String mode;
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+    private ExecutorService executor;
+    private CircuitBreaker circuitBreaker;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        WorkerThreads platformThreads = new WorkerThreads(false);
+        switch (mode) {
+            case "pool":
+                executor = Executors.newFixedThreadPool(TOMCAT_MAX_THREADS, platformThreads.factory("pool"));
+                break;
+            case "platform":
+                executor = Executors.newCachedThreadPool(platformThreads.factory("platform"));
+                break;
+            case "virtual":
+                executor = new WorkerThreads(true).executor("virtual", null);
+                break;
+            default:
+                throw new IllegalArgumentException("未知的执行方式: " + mode);
+        }
+        circuitBreaker = new CircuitBreaker(50, 20, 0.5, Duration.ofSeconds(5), Duration.ofSeconds(10), 3);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeak() {
+        threadBean.resetPeakThreadCount();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printFootprint() {
+        System.out.printf("%n[footprint] mode=%s concurrency=%d peakThreads=%d heapUsed=%dMB rss=%s%n",
+                mode, concurrency, threadBean.getPeakThreadCount(),
+                memoryBean.getHeapMemoryUsage().getUsed() >> 20, residentMemory());
+    }
+
+    private static String residentMemory() {
+        try {
+            return Files.readAllLines(Path.of("/proc/self/status")).stream()
+                    .filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> line.substring("VmRSS:".length()).trim())
+                    .findFirst()
+                    .orElse("n/a");
+        } catch (IOException e) {
+            return "n/a";
+        }
+    }
+
+    @Benchmark
+    public int slowCalls() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            executor.execute(() -> {
+                try {
+                    callModel();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        return concurrency;
+    }
+
+    private void callModel() {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            Thread.sleep(MODEL_LATENCY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        circuitBreaker.onSuccess(System.nanoTime() - start);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(VirtualThreadLoadBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
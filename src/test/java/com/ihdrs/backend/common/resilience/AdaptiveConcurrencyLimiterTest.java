@@ -0,0 +1,88 @@
+// AdaptiveConcurrencyLimiterTest.java - 自适应并发限制器测试
+package com.ihdrs.backend.common.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofSeconds(3).toNanos();
+
+    @Test
+    void testRejectsWhenLimitReached() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 0.5, Duration.ofSeconds(1));
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1, limiter.getRejectedCalls());
+
+        limiter.onIgnore();
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void testLimitGrowsByAboutOnePerWindowWhenSaturatedAndFast() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 5, 0.5, Duration.ofSeconds(1));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+
+        // 一轮往返（4个调用）后上限增长不到1
+        completeAndReacquire(limiter, 4);
+        assertEquals(4, limiter.getLimit());
+        completeAndReacquire(limiter, 1);
+        assertEquals(5, limiter.getLimit());
+
+        // 不超过上限
+        completeAndReacquire(limiter, 50);
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    void testBurstOfFastCallsDoesNotRampExponentially() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 1000, 0.5, Duration.ofSeconds(1));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+
+        // 10轮往返，每轮约加1
+        completeAndReacquire(limiter, 100);
+
+        assertTrue(limiter.getLimit() >= 15 && limiter.getLimit() <= 20, "limit=" + limiter.getLimit());
+        assertEquals(10, limiter.getInFlight());
+    }
+
+    @Test
+    void testLimitShrinksOnSlowCallsAndDrops() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(16, 2, 32, 0.5, Duration.ofSeconds(1));
+
+        assertTrue(limiter.tryAcquire());
+        limiter.onSuccess(SLOW);
+        assertEquals(8, limiter.getLimit());
+
+        assertTrue(limiter.tryAcquire());
+        limiter.onDropped();
+        assertEquals(4, limiter.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.onDropped();
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+
+    /**
+     * 保持在途数不变：每完成一个调用再申请一个
+     */
+    private static void completeAndReacquire(AdaptiveConcurrencyLimiter limiter, int calls) {
+        for (int i = 0; i < calls; i++) {
+            limiter.onSuccess(FAST);
+            assertTrue(limiter.tryAcquire());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+// CancellationScopeTest.java - 阻塞请求取消作用域测试
+package com.ihdrs.backend.common.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CancellationScopeTest {
+
+    @Test
+    void testAbortsRunOnceOutsideTheLock() {
+        CancellationScope scope = new CancellationScope();
+        AtomicInteger aborted = new AtomicInteger();
+        CompletableFuture<Boolean> observed = new CompletableFuture<>();
+        scope.run(() -> {
+            CancellationScope.register(() -> {
+                aborted.incrementAndGet();
+                // 中止回调执行时锁已释放，其它线程可以查询状态
+                CompletableFuture.supplyAsync(scope::isCancelled)
+                        .orTimeout(5, TimeUnit.SECONDS)
+                        .whenComplete((cancelled, e) -> observed.complete(e == null && cancelled));
+                assertTrue(observed.join());
+            });
+            return null;
+        });
+
+        scope.cancel();
+        scope.cancel();
+
+        assertEquals(1, aborted.get());
+    }
+
+    @Test
+    void testRequestRegisteredAfterCancelIsAbortedImmediately() {
+        CancellationScope scope = new CancellationScope();
+        AtomicInteger aborted = new AtomicInteger();
+        scope.cancel();
+
+        scope.run(() -> {
+            CancellationScope.register(aborted::incrementAndGet);
+            assertTrue(CancellationScope.isCurrentCancelled());
+            return null;
+        });
+
+        assertEquals(1, aborted.get());
+        // 作用域外登记的请求被忽略
+        CancellationScope.register(aborted::incrementAndGet);
+        assertEquals(1, aborted.get());
+        assertFalse(CancellationScope.isCurrentCancelled());
+    }
+}
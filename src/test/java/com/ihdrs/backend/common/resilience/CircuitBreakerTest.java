@@ -0,0 +1,87 @@
+// CircuitBreakerTest.java - 熔断器测试
+package com.ihdrs.backend.common.resilience;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new CircuitBreaker(10, 4, 0.5, Duration.ofSeconds(1), Duration.ofSeconds(5), 2, clock::get);
+    }
+
+    @Test
+    void testOpensWhenFailureRateReachesThreshold() {
+        succeed(2);
+        fail(1);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        fail(1);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+        assertEquals(1, breaker.getRejectedCalls());
+    }
+
+    @Test
+    void testSlowCallsCountAsFailures() {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(breaker.tryAcquirePermission());
+            breaker.onSuccess(Duration.ofSeconds(2).toNanos());
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void testHalfOpenProbesCloseCircuit() {
+        fail(4);
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+
+        assertTrue(breaker.tryAcquirePermission());
+        assertTrue(breaker.tryAcquirePermission());
+        // 半开状态只放行配置数量的探测请求
+        assertFalse(breaker.tryAcquirePermission());
+
+        breaker.onSuccess(0);
+        breaker.onSuccess(0);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getBufferedCalls());
+    }
+
+    @Test
+    void testHalfOpenFailureReopensCircuit() {
+        fail(4);
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+
+        assertTrue(breaker.tryAcquirePermission());
+        breaker.onError();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    private void succeed(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.tryAcquirePermission());
+            breaker.onSuccess(0);
+        }
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.tryAcquirePermission());
+            breaker.onError();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+// ImageUtilTest.java - 图像预处理测试
+package com.ihdrs.backend.common.utils;
+
+import com.ihdrs.backend.common.exception.ImageTooLargeException;
+import com.ihdrs.backend.config.RecognitionConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageUtilTest {
+
+    private final ImageUtil imageUtil = new ImageUtil();
+
+    @Test
+    void testCentersDigitByCenterOfMass() throws IOException {
+        // 笔画画在画布左上角，预处理后质心应在28x28中心附近
+        byte[] image = png(drawRect(BufferedImage.TYPE_INT_RGB, 280, 20, 20, 60, 120));
+
+        byte[] pixels = imageUtil.toMnistBytes(image);
+
+        double mass = 0, massX = 0, massY = 0;
+        int minX = 28, maxX = -1, minY = 28, maxY = -1;
+        for (int y = 0; y < 28; y++) {
+            for (int x = 0; x < 28; x++) {
+                int value = pixels[y * 28 + x] & 0xFF;
+                if (value > 0) {
+                    minX = Math.min(minX, x);
+                    maxX = Math.max(maxX, x);
+                    minY = Math.min(minY, y);
+                    maxY = Math.max(maxY, y);
+                }
+                mass += value;
+                massX += value * (x + 0.5);
+                massY += value * (y + 0.5);
+            }
+        }
+        assertEquals(14, massX / mass, 1.0);
+        assertEquals(14, massY / mass, 1.0);
+        // 最长边缩放到20像素，保持宽高比
+        assertEquals(20, maxY - minY + 1);
+        assertEquals(10, maxX - minX + 1, 1);
+    }
+
+    @Test
+    void testBlankCanvasProducesEmptyTensor() throws IOException {
+        BufferedImage blank = new BufferedImage(100, 100, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = blank.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, 100, 100);
+        graphics.dispose();
+
+        float[] tensor = imageUtil.toMnistTensor(png(blank));
+
+        for (float value : tensor) {
+            assertEquals(0f, value);
+        }
+    }
+
+    @Test
+    void testSameResultForAllRasterTypes() throws IOException {
+        byte[] expected = imageUtil.toMnistBytes(png(drawRect(BufferedImage.TYPE_INT_RGB, 200, 80, 30, 40, 140)));
+
+        for (int type : new int[]{BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_3BYTE_BGR,
+                BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_INDEXED}) {
+            byte[] pixels = new byte[ImageUtil.MNIST_PIXELS];
+            imageUtil.toMnistBytes(drawRect(type, 200, 80, 30, 40, 140), pixels);
+            assertArrayEquals(expected, pixels, "raster type " + type);
+        }
+    }
+
+    @Test
+    void testTransparentBackgroundTreatedAsWhite() throws IOException {
+        // 透明背景上的黑色笔画（前端画布导出的常见格式）
+        BufferedImage image = new BufferedImage(200, 200, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.BLACK);
+        graphics.fillRect(80, 30, 40, 140);
+        graphics.dispose();
+
+        byte[] expected = imageUtil.toMnistBytes(png(drawRect(BufferedImage.TYPE_INT_RGB, 200, 80, 30, 40, 140)));
+        assertArrayEquals(expected, imageUtil.toMnistBytes(png(image)));
+    }
+
+    @Test
+    void testTensorMatchesBytesAndBuffersAreReused() throws IOException {
+        byte[] large = png(drawRect(BufferedImage.TYPE_INT_RGB, 600, 100, 100, 200, 300));
+        byte[] small = png(drawRect(BufferedImage.TYPE_INT_RGB, 50, 10, 10, 20, 30));
+
+        byte[] smallBytes = imageUtil.toMnistBytes(small);
+        imageUtil.toMnistBytes(large);
+        float[] tensor = new float[ImageUtil.MNIST_PIXELS];
+        imageUtil.toMnistTensor(small, tensor);
+
+        for (int i = 0; i < ImageUtil.MNIST_PIXELS; i++) {
+            assertEquals((smallBytes[i] & 0xFF) / 255f, tensor[i], 1e-6);
+        }
+    }
+
+    @Test
+    void testRejectsInvalidInput() {
+        assertThrows(IOException.class, () -> imageUtil.toMnistBytes(new byte[]{1, 2, 3}));
+        assertThrows(IllegalArgumentException.class,
+                () -> imageUtil.toMnistTensor(new byte[]{1, 2, 3}, new float[100]));
+    }
+
+    @Test
+    void testSubsamplesLargeImagesToWorkingSize() throws IOException {
+        BufferedImage photo = drawRect(BufferedImage.TYPE_3BYTE_BGR, 3000, 1000, 500, 800, 2000);
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(photo, "jpg", jpeg);
+
+        BufferedImage decoded = imageUtil.decode(jpeg.toByteArray());
+
+        assertEquals(3, imageUtil.subsampling(3000, 3000));
+        assertEquals(1000, decoded.getWidth());
+        assertEquals(1000, decoded.getHeight());
+        // 小图按原尺寸解码
+        assertEquals(280, imageUtil.decode(png(drawRect(BufferedImage.TYPE_INT_RGB, 280, 0, 0, 1, 1))).getWidth());
+    }
+
+    @Test
+    void testRejectsDecompressionBombFromHeader() {
+        // 只有头部的PNG，声明 100000x100000 像素
+        assertThrows(ImageTooLargeException.class, () -> imageUtil.decode(pngHeader(100_000, 100_000)));
+    }
+
+    @Test
+    void testRejectsWhenDecodeMemoryExceedsLimit() throws IOException {
+        RecognitionConfig config = new RecognitionConfig();
+        config.getDecode().setMaxDecodeSize(DataSize.ofKilobytes(100));
+        ImageUtil limited = new ImageUtil(config);
+        byte[] image = png(drawRect(BufferedImage.TYPE_INT_RGB, 200, 80, 30, 40, 140));
+
+        // 200x200x3字节 = 120KB
+        assertThrows(ImageTooLargeException.class, () -> limited.decode(image));
+
+        config.getDecode().setMaxWorkingSize(100);
+        assertEquals(100, new ImageUtil(config).decode(image).getWidth());
+    }
+
+    @Test
+    void testDetectsFormatFromMagicBytes() throws IOException {
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(drawRect(BufferedImage.TYPE_3BYTE_BGR, 20, 0, 0, 1, 1), "jpg", jpeg);
+
+        assertEquals("png", ImageUtil.detectFormat(png(drawRect(BufferedImage.TYPE_INT_RGB, 20, 0, 0, 1, 1))));
+        assertEquals("jpeg", ImageUtil.detectFormat(jpeg.toByteArray()));
+        assertNull(ImageUtil.detectFormat("GIF89a".getBytes(StandardCharsets.US_ASCII)));
+        assertNull(ImageUtil.detectFormat(new byte[]{(byte) 0x89, 'P'}));
+    }
+
+    private static byte[] pngHeader(int width, int height) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(output);
+        data.write(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'});
+
+        ByteBuffer ihdr = ByteBuffer.allocate(17);
+        ihdr.put("IHDR".getBytes(StandardCharsets.US_ASCII)).putInt(width).putInt(height)
+                .put((byte) 8).put((byte) 2).put((byte) 0).put((byte) 0).put((byte) 0); // 8位RGB
+        CRC32 crc = new CRC32();
+        crc.update(ihdr.array());
+        data.writeInt(13);
+        data.write(ihdr.array());
+        data.writeInt((int) crc.getValue());
+        return output.toByteArray();
+    }
+
+    private static BufferedImage drawRect(int type, int size, int x, int y, int width, int height) {
+        BufferedImage image = new BufferedImage(size, size, type);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, size, size);
+        graphics.setColor(Color.BLACK);
+        graphics.fillRect(x, y, width, height);
+        graphics.dispose();
+        return image;
+    }
+
+    private static byte[] png(BufferedImage image) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+}
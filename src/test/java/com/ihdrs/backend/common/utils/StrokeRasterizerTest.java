@@ -0,0 +1,145 @@
+// StrokeRasterizerTest.java - 笔画光栅化测试
+package com.ihdrs.backend.common.utils;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StrokeRasterizerTest {
+
+    // 与前端画布相同：280x280，18像素粗笔画；“7”的横线和斜线分两笔
+    private static final List<float[]> SEVEN = List.of(
+            new float[]{70, 60, 150, 58, 210, 62},
+            new float[]{210, 62, 170, 140, 130, 230});
+    private static final float PEN_WIDTH = 18;
+
+    private final StrokeRasterizer rasterizer = new StrokeRasterizer();
+    private final ImageUtil imageUtil = new ImageUtil();
+
+    @Test
+    void testMatchesCanvasImagePreprocessing() throws IOException {
+        byte[] fromStrokes = rasterizer.rasterize(SEVEN, PEN_WIDTH);
+        byte[] fromImage = imageUtil.toMnistBytes(canvasPng(SEVEN, PEN_WIDTH));
+
+        long difference = 0;
+        for (int i = 0; i < ImageUtil.MNIST_PIXELS; i++) {
+            difference += Math.abs((fromStrokes[i] & 0xFF) - (fromImage[i] & 0xFF));
+        }
+        double meanDifference = difference / (double) ImageUtil.MNIST_PIXELS;
+        assertTrue(meanDifference < 12, "mean difference " + meanDifference);
+        assertEquals(centroid(fromImage)[0], centroid(fromStrokes)[0], 0.5);
+        assertEquals(centroid(fromImage)[1], centroid(fromStrokes)[1], 0.5);
+    }
+
+    @Test
+    void testAntiAliasedAndCentered() {
+        byte[] pixels = rasterizer.rasterize(SEVEN, PEN_WIDTH);
+
+        int partial = 0;
+        int minRow = ImageUtil.MNIST_SIZE, maxRow = 0;
+        for (int i = 0; i < ImageUtil.MNIST_PIXELS; i++) {
+            int value = pixels[i] & 0xFF;
+            if (value > 0 && value < 255) {
+                partial++;
+            }
+            if (value > 0) {
+                minRow = Math.min(minRow, i / ImageUtil.MNIST_SIZE);
+                maxRow = Math.max(maxRow, i / ImageUtil.MNIST_SIZE);
+            }
+        }
+        assertTrue(partial > 10, "partial pixels " + partial);
+        // 最长边（竖直方向）缩放到20像素
+        assertEquals(20, maxRow - minRow + 1);
+        assertEquals(14, centroid(pixels)[1], 1.0);
+    }
+
+    @Test
+    void testCanonicalHashIgnoresPositionScaleAndDuplicatePoints() {
+        String hash = rasterizer.canonicalHash(SEVEN, PEN_WIDTH);
+
+        // 在更大的画布上平移并放大一倍书写，笔宽同比放大，并带有重复采样点
+        List<float[]> scaled = List.of(
+                new float[]{240, 220, 400, 216, 400, 216, 520, 224},
+                new float[]{520, 224, 440, 380, 360, 560});
+        assertEquals(hash, rasterizer.canonicalHash(scaled, PEN_WIDTH * 2));
+        assertArrayEquals(rasterizer.rasterize(SEVEN, PEN_WIDTH), rasterizer.rasterize(scaled, PEN_WIDTH * 2));
+
+        assertNotEquals(hash, rasterizer.canonicalHash(SEVEN, PEN_WIDTH * 2));
+        assertNotEquals(hash, rasterizer.canonicalHash(List.of(new float[]{140, 40, 140, 240}), PEN_WIDTH));
+    }
+
+    @Test
+    void testEmptyStrokesAndSinglePoint() {
+        assertArrayEquals(new byte[ImageUtil.MNIST_PIXELS], rasterizer.rasterize(List.of(), PEN_WIDTH));
+        assertEquals(0, StrokeRasterizer.inkStats(List.of(), PEN_WIDTH, 280, 280).getInkRatio());
+
+        // 单个点光栅化为圆点，放大后占满20像素的数字区域
+        byte[] dot = rasterizer.rasterize(List.of(new float[]{100, 100}), PEN_WIDTH);
+        assertEquals(255, dot[14 * ImageUtil.MNIST_SIZE + 14] & 0xFF);
+        ImageUtil.InkStats stats = StrokeRasterizer.inkStats(List.of(new float[]{100, 100}), PEN_WIDTH, 280, 280);
+        assertEquals(PEN_WIDTH / 280, stats.getBoxRatio(), 1e-6);
+    }
+
+    @Test
+    void testPngIsDarkInkOnLightBackground() throws IOException {
+        byte[] pixels = rasterizer.rasterize(SEVEN, PEN_WIDTH);
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(rasterizer.toPng(pixels)));
+
+        assertEquals(ImageUtil.MNIST_SIZE, image.getWidth());
+        for (int i = 0; i < ImageUtil.MNIST_PIXELS; i++) {
+            int gray = image.getRaster().getSample(i % ImageUtil.MNIST_SIZE, i / ImageUtil.MNIST_SIZE, 0);
+            assertEquals(255 - (pixels[i] & 0xFF), gray);
+        }
+    }
+
+    @Test
+    void testPngRoundTripsToSameTensor() throws IOException {
+        byte[] pixels = rasterizer.rasterize(SEVEN, PEN_WIDTH);
+
+        assertArrayEquals(pixels, rasterizer.fromPng(rasterizer.toPng(pixels)));
+        assertThrows(IOException.class, () -> rasterizer.fromPng(canvasPng(SEVEN, PEN_WIDTH)));
+    }
+
+    private static byte[] canvasPng(List<float[]> strokes, float penWidth) throws IOException {
+        BufferedImage image = new BufferedImage(280, 280, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, 280, 280);
+        graphics.setColor(Color.BLACK);
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.setStroke(new BasicStroke(penWidth, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        for (float[] stroke : strokes) {
+            Path2D.Float path = new Path2D.Float();
+            path.moveTo(stroke[0], stroke[1]);
+            for (int i = 2; i < stroke.length; i += 2) {
+                path.lineTo(stroke[i], stroke[i + 1]);
+            }
+            graphics.draw(path);
+        }
+        graphics.dispose();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+    private static double[] centroid(byte[] pixels) {
+        double mass = 0, x = 0, y = 0;
+        for (int i = 0; i < pixels.length; i++) {
+            int value = pixels[i] & 0xFF;
+            mass += value;
+            x += value * (i % ImageUtil.MNIST_SIZE + 0.5);
+            y += value * (i / ImageUtil.MNIST_SIZE + 0.5);
+        }
+        return new double[]{x / mass, y / mass};
+    }
+}
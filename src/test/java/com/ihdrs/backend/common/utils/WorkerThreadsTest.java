@@ -0,0 +1,63 @@
+// WorkerThreadsTest.java - 后台阻塞任务线程测试
+package com.ihdrs.backend.common.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class WorkerThreadsTest {
+
+    private static final boolean VIRTUAL_THREADS_SUPPORTED = Runtime.version().feature() >= 21;
+
+    @Test
+    void testPlatformThreadsAreNamedDaemons() throws Exception {
+        WorkerThreads workerThreads = new WorkerThreads(false);
+
+        ThreadFactory factory = workerThreads.factory("worker");
+        Thread thread = factory.newThread(() -> { });
+        assertEquals("worker-1", thread.getName());
+        assertTrue(thread.isDaemon());
+        assertEquals("worker-2", factory.newThread(() -> { }).getName());
+
+        ExecutorService executor = workerThreads.executor("worker", () -> Executors.newFixedThreadPool(1));
+        try {
+            assertEquals(42, executor.submit(() -> 42).get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFollowsSpringVirtualThreadSwitch() {
+        MockEnvironment environment = new MockEnvironment();
+        assertFalse(new WorkerThreads(environment).isVirtual());
+
+        // 低于JDK 21时开关不生效，退回平台线程
+        environment.setProperty("spring.threads.virtual.enabled", "true");
+        assertEquals(VIRTUAL_THREADS_SUPPORTED, new WorkerThreads(environment).isVirtual());
+    }
+
+    @Test
+    void testVirtualExecutorStartsThreadPerTask() throws Exception {
+        assumeTrue(VIRTUAL_THREADS_SUPPORTED, "需要JDK 21");
+        WorkerThreads workerThreads = new WorkerThreads(true);
+
+        ExecutorService executor = workerThreads.executor("worker", Executors::newSingleThreadExecutor);
+        try {
+            String first = executor.submit(() -> Thread.currentThread().toString()).get(5, TimeUnit.SECONDS);
+            String second = executor.submit(() -> Thread.currentThread().toString()).get(5, TimeUnit.SECONDS);
+            assertTrue(first.contains("worker-"), first);
+            assertNotEquals(first, second);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(workerThreads.start("flusher", () -> { }).isDaemon());
+    }
+}
@@ -0,0 +1,86 @@
+// JfrEndpointTest.java - 按需JFR记录端点测试
+package com.ihdrs.backend.config;
+
+import com.ihdrs.backend.common.jfr.RecognitionEvent;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrEndpointTest {
+
+    private JfrConfig config;
+    private JfrEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() {
+        config = new JfrConfig();
+        config.setMaxDuration(Duration.ofMinutes(1));
+        config.setSettings("default");
+        endpoint = new JfrEndpoint(config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        endpoint.shutdown();
+    }
+
+    @Test
+    void testRecordingContainsCustomEvents() throws Exception {
+        WebEndpointResponse<Map<String, Object>> started = endpoint.control("start", 30L, null);
+        assertEquals(200, started.getStatus());
+        assertEquals("RUNNING", started.getBody().get("state"));
+        assertEquals("PT30S", started.getBody().get("duration"));
+
+        RecognitionEvent event = new RecognitionEvent();
+        event.begin();
+        event.finish(3L, "UPLOAD", "miss", new long[]{1_000, -1, 2_000, 3_000_000, 4_000});
+
+        assertEquals(200, endpoint.control("stop", null, null).getStatus());
+        WebEndpointResponse<Resource> download = endpoint.download("download");
+        assertEquals(200, download.getStatus());
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(download.getBody().getFile().toPath());
+        RecordedEvent recorded = events.stream()
+                .filter(e -> "ihdrs.Recognition".equals(e.getEventType().getName()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(3L, recorded.getLong("modelId"));
+        assertEquals("miss", recorded.getString("cache"));
+        assertEquals(Duration.ofMillis(3), recorded.getDuration("inference"));
+    }
+
+    @Test
+    void testOnlyOneRecordingAtATime() {
+        assertEquals(200, endpoint.control("start", null, null).getStatus());
+        // 未指定时长时使用上限
+        assertEquals("PT1M", endpoint.status().get("duration"));
+
+        assertEquals(400, endpoint.control("start", null, null).getStatus());
+        assertEquals(200, endpoint.control("stop", null, null).getStatus());
+        assertEquals(400, endpoint.control("stop", null, null).getStatus());
+        // 停止后可以启动新的记录
+        assertEquals(200, endpoint.control("start", null, null).getStatus());
+    }
+
+    @Test
+    void testDurationIsCappedAndInvalidRequestsRejected() {
+        assertEquals(400, endpoint.control("start", null, "no-such-settings").getStatus());
+        assertEquals(404, endpoint.control("restart", null, null).getStatus());
+        assertEquals(404, endpoint.download("download").getStatus());
+        assertEquals("NONE", endpoint.status().get("state"));
+
+        endpoint.control("start", 3600L, null);
+        assertEquals("PT1M", endpoint.status().get("duration"));
+        assertEquals(404, endpoint.download("other").getStatus());
+    }
+}
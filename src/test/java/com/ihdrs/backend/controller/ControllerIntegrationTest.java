@@ -11,10 +11,18 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureWebMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Base64;
+
+import static org.hamcrest.Matchers.containsString;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -39,6 +47,25 @@ class ControllerIntegrationTest {
                 .andExpect(jsonPath("$.data.status").value("UP"));
     }
 
+    @Test
+    void testPrometheusEndpoint() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("jvm_memory_used_bytes")));
+    }
+
+    @Test
+    void testJfrEndpointRequiresAdmin() throws Exception {
+        mockMvc.perform(get("/actuator/jfr"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void testModelServiceEndpointRequiresAdmin() throws Exception {
+        mockMvc.perform(get("/actuator/modelservice"))
+                .andExpect(status().isForbidden());
+    }
+
     @Test
     void testPingEndpoint() throws Exception {
         mockMvc.perform(get("/health/ping"))
@@ -96,6 +123,82 @@ class ControllerIntegrationTest {
                 .andExpect(jsonPath("$.data.database").value("connected"));
     }
 
+    @Test
+    void testOversizedImageRejectedWhileReadingBody() throws Exception {
+        // 解码后超过 recognition.decode.max-payload-size（5MB）
+        String imageData = Base64.getEncoder().encodeToString(new byte[5 * 1024 * 1024 + 1]);
+
+        mockMvc.perform(post("/recognition/recognize")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"imageData\":\"" + imageData + "\"}"))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.code").value(413));
+    }
+
+    @Test
+    void testStrokeInputReachesRecognition() throws Exception {
+        mockMvc.perform(post("/recognition/recognize")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"strokes\":{\"width\":280,\"height\":280,\"penWidth\":18,"
+                                + "\"strokes\":[[70,60,210,62],[210,62,130,230]]}}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("没有可用的识别模型"));
+
+        // 坐标个数为奇数
+        mockMvc.perform(post("/recognition/recognize")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"strokes\":{\"width\":280,\"height\":280,\"penWidth\":18,"
+                                + "\"strokes\":[[70,60,210]]}}"))
+                .andExpect(status().isBadRequest());
+        // 图像和笔画都没有提供
+        mockMvc.perform(post("/recognition/recognize")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"inputType\":\"CANVAS\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testReactiveRecognitionUsesSameEnvelope() throws Exception {
+        MvcResult result = mockMvc.perform(post("/recognition/reactive/recognize")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"strokes\":{\"width\":280,\"height\":280,\"penWidth\":18,"
+                                + "\"strokes\":[[70,60,210,62],[210,62,130,230]]}}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(500))
+                .andExpect(jsonPath("$.message").value("没有可用的识别模型"));
+
+        mockMvc.perform(post("/recognition/reactive/recognize")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"inputType\":\"CANVAS\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testUploadChecksMagicBytesNotContentType() throws Exception {
+        mockMvc.perform(post("/recognition/recognize/upload")
+                        .contentType(MediaType.IMAGE_PNG)
+                        .content("not an image".getBytes()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(415));
+    }
+
+    @Test
+    void testMultipartUploadReachesRecognition() throws Exception {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(28, 28, BufferedImage.TYPE_BYTE_GRAY), "png", png);
+        MockMultipartFile file = new MockMultipartFile("file", "digit.png",
+                MediaType.APPLICATION_OCTET_STREAM_VALUE, png.toByteArray());
+
+        // 测试库中没有活跃模型：通过文件头检查后进入与JSON接口相同的识别流程
+        mockMvc.perform(multipart("/recognition/recognize/upload").file(file).param("sessionId", "s1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("没有可用的识别模型"));
+    }
+
     @Test
     void testUnauthorizedAccess() throws Exception {
         mockMvc.perform(get("/models/list"))
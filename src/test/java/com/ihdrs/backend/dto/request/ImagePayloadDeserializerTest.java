@@ -0,0 +1,130 @@
+// ImagePayloadDeserializerTest.java - 请求图像流式解码测试
+package com.ihdrs.backend.dto.request;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ihdrs.backend.common.exception.ImageTooLargeException;
+import com.ihdrs.backend.common.utils.FileUtil;
+import com.ihdrs.backend.config.RecognitionConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.http.converter.json.SpringHandlerInstantiator;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImagePayloadDeserializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testDecodesAndHashesInOnePass() throws IOException {
+        byte[] image = randomBytes(300_000);
+        String json = "{\"inputType\":\"UPLOAD\",\"imageData\":\"" + Base64.getEncoder().encodeToString(image)
+                + "\",\"sessionId\":\"s1\"}";
+
+        RecognitionRequest request = objectMapper.readValue(json.getBytes(StandardCharsets.US_ASCII), RecognitionRequest.class);
+
+        assertArrayEquals(image, request.getImageData().getData());
+        assertEquals(new FileUtil().calculateFileHash(image), request.getImageData().getHash());
+        assertEquals("UPLOAD", request.getInputType());
+        assertEquals("s1", request.getSessionId());
+    }
+
+    @Test
+    void testInvalidBase64FailsOnlyThatItem() throws IOException {
+        byte[] image = randomBytes(100);
+        String json = "{\"items\":[{\"imageData\":\"QUJD!!RUY=\"},{\"imageData\":\""
+                + Base64.getEncoder().encodeToString(image) + "\"}]}";
+
+        BatchRecognitionRequest request = objectMapper.readValue(json.getBytes(StandardCharsets.US_ASCII), BatchRecognitionRequest.class);
+
+        assertFalse(request.getItems().get(0).getImageData().isValid());
+        assertArrayEquals(image, request.getItems().get(1).getImageData().getData());
+    }
+
+    @Test
+    void testRejectsOversizedImageBeforeReadingWholeBody() {
+        RecognitionConfig config = new RecognitionConfig();
+        config.getDecode().setMaxPayloadSize(DataSize.ofKilobytes(16));
+        // 与Spring的ObjectMapper相同，通过SpringHandlerInstantiator注入配置
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("recognitionConfig", config);
+        AutowiredAnnotationBeanPostProcessor autowiredProcessor = new AutowiredAnnotationBeanPostProcessor();
+        autowiredProcessor.setBeanFactory(beanFactory);
+        beanFactory.addBeanPostProcessor(autowiredProcessor);
+        ObjectMapper limited = new ObjectMapper();
+        limited.setHandlerInstantiator(new SpringHandlerInstantiator(beanFactory));
+        byte[] json = ("{\"imageData\":\"" + Base64.getEncoder().encodeToString(randomBytes(2_000_000)) + "\"}")
+                .getBytes(StandardCharsets.US_ASCII);
+        CountingInputStream body = new CountingInputStream(json);
+
+        Exception e = assertThrows(IOException.class, () -> limited.readValue(body, RecognitionRequest.class));
+
+        Throwable cause = e instanceof JsonMappingException && e.getCause() != null ? e.getCause() : e;
+        assertInstanceOf(ImageTooLargeException.class, cause);
+        // 超限后停止读取，只消耗了请求体开头的少量数据
+        assertTrue(body.count < 64 * 1024, "read " + body.count + " bytes");
+    }
+
+    @Test
+    void testReadsUploadStreamWithLimit() throws IOException {
+        byte[] image = randomBytes(200_000);
+
+        ImagePayload payload = ImagePayload.read(new ByteArrayInputStream(image), image.length);
+
+        assertArrayEquals(image, payload.getData());
+        assertEquals(new FileUtil().calculateFileHash(image), payload.getHash());
+
+        CountingInputStream body = new CountingInputStream(randomBytes(2_000_000));
+        assertThrows(ImageTooLargeException.class, () -> ImagePayload.read(body, 100_000));
+        assertTrue(body.count <= 100_001, "read " + body.count + " bytes");
+    }
+
+    @Test
+    void testRejectsNonStringImageData() {
+        assertThrows(JsonMappingException.class,
+                () -> objectMapper.readValue("{\"imageData\":123}", RecognitionRequest.class));
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static class CountingInputStream extends InputStream {
+        private final InputStream delegate;
+        private long count;
+
+        private CountingInputStream(byte[] data) {
+            this.delegate = new ByteArrayInputStream(data);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = delegate.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+// ActiveModelHolderTest.java - 活跃模型内存指针测试
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.constants.Constants;
+import com.ihdrs.backend.common.utils.WorkerThreads;
+import com.ihdrs.backend.config.RecognitionConfig;
+import com.ihdrs.backend.entity.Model;
+import com.ihdrs.backend.repository.ModelRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ActiveModelHolderTest {
+
+    private ModelRepository modelRepository;
+    private ValueOperations<String, String> valueOperations;
+    private ApplicationEventPublisher eventPublisher;
+    private ActiveModelHolder holder;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        modelRepository = mock(ModelRepository.class);
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+
+        holder = new ActiveModelHolder(modelRepository, stringRedisTemplate,
+                mock(ObjectProvider.class), eventPublisher, new WorkerThreads(false), new RecognitionConfig());
+    }
+
+    @Test
+    void testActiveModelIsReadFromMemoryAfterLoad() {
+        when(modelRepository.findByStatus(Model.ModelStatus.ACTIVE)).thenReturn(Optional.of(model(1L)));
+        when(valueOperations.get(Constants.REDIS_KEY_RECOGNITION_GENERATION)).thenReturn("3");
+
+        holder.refresh();
+        holder.get();
+        holder.get();
+
+        assertEquals(1L, holder.get().getModelId());
+        assertEquals("1:g3", holder.current().getCacheNamespace());
+        verify(modelRepository, times(1)).findByStatus(any());
+    }
+
+    @Test
+    void testMissingActiveModelIsNotReloadedOnRead() {
+        when(modelRepository.findByStatus(Model.ModelStatus.ACTIVE)).thenReturn(Optional.empty());
+
+        holder.refresh();
+        for (int i = 0; i < 3; i++) {
+            assertNull(holder.current().getModel());
+        }
+        verify(modelRepository, times(1)).findByStatus(any());
+
+        // 直接写库启用的模型由下一次后台刷新加载
+        when(modelRepository.findByStatus(Model.ModelStatus.ACTIVE)).thenReturn(Optional.of(model(5L)));
+        holder.refresh();
+        assertEquals(5L, holder.get().getModelId());
+    }
+
+    @Test
+    void testActivateChangesNamespaceAndPublishesEvent() {
+        when(modelRepository.findByStatus(Model.ModelStatus.ACTIVE)).thenReturn(Optional.of(model(1L)));
+        when(valueOperations.get(Constants.REDIS_KEY_RECOGNITION_GENERATION)).thenReturn("3");
+        when(valueOperations.increment(Constants.REDIS_KEY_RECOGNITION_GENERATION)).thenReturn(4L);
+        long version = holder.refresh().getVersion();
+
+        holder.activate(model(2L));
+
+        assertEquals(2L, holder.get().getModelId());
+        assertEquals("2:g4", holder.current().getCacheNamespace());
+        assertEquals(version + 1, holder.current().getVersion());
+        ArgumentCaptor<Object> event = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, times(2)).publishEvent(event.capture());
+        assertTrue(((ActiveModelHolder.ActiveModelChangedEvent) event.getValue()).isInitiator());
+    }
+
+    private Model model(Long modelId) {
+        Model model = new Model();
+        model.setModelId(modelId);
+        model.setStatus(Model.ModelStatus.ACTIVE);
+        return model;
+    }
+}
@@ -0,0 +1,205 @@
+// CanvasPrecheckTest.java - 画布输入预检测试
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.utils.ImageUtil;
+import com.ihdrs.backend.common.utils.WorkerThreads;
+import com.ihdrs.backend.config.RecognitionConfig;
+import com.ihdrs.backend.dto.request.StrokePayload;
+import com.ihdrs.backend.entity.SystemConfig;
+import com.ihdrs.backend.repository.SystemConfigRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class CanvasPrecheckTest {
+
+    private final ImageUtil imageUtil = new ImageUtil();
+    private final WorkerThreads workerThreads = new WorkerThreads(false);
+    private SystemConfigRepository systemConfigRepository;
+    private ImageDecodeExecutor decodeExecutor;
+    private SimpleMeterRegistry meterRegistry;
+    private CanvasPrecheck precheck;
+
+    @BeforeEach
+    void setUp() {
+        systemConfigRepository = mock(SystemConfigRepository.class);
+        when(systemConfigRepository.findByConfigKeyContaining(anyString())).thenReturn(List.of());
+        meterRegistry = new SimpleMeterRegistry();
+        decodeExecutor = new ImageDecodeExecutor(imageUtil, new RecognitionConfig(), meterRegistry);
+        precheck = new CanvasPrecheck(imageUtil, decodeExecutor, systemConfigRepository, workerThreads,
+                meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        decodeExecutor.shutdown();
+    }
+
+    @Test
+    void testAcceptsHandwrittenDigit() throws IOException {
+        assertNull(precheck.check(canvas(g -> g.drawLine(140, 60, 140, 220))));
+    }
+
+    @Test
+    void testRejectsBlankAndNearlyBlankCanvas() throws IOException {
+        assertEquals(CanvasPrecheck.Rejection.BLANK, precheck.check(canvas(g -> { })));
+        // 浅色噪点：对比度不足
+        assertEquals(CanvasPrecheck.Rejection.LOW_CONTRAST, precheck.check(noisyCanvas()));
+        // 清空后残留的一个小点
+        assertEquals(CanvasPrecheck.Rejection.BLANK, precheck.check(canvas(g -> g.fillRect(100, 100, 2, 2))));
+
+        assertEquals(1, meterRegistry.get("recognition.precheck.rejected").tag("reason", "low_contrast")
+                .counter().count());
+        assertEquals(2, meterRegistry.get("recognition.precheck.rejected").tag("reason", "blank")
+                .counter().count());
+    }
+
+    @Test
+    void testRejectsTinyAndOverfilledStrokes() throws IOException {
+        assertEquals(CanvasPrecheck.Rejection.TOO_SMALL, precheck.check(canvas(g -> g.fillRect(130, 130, 20, 20))));
+        assertEquals(CanvasPrecheck.Rejection.OVERFILLED, precheck.check(canvas(g -> g.fillRect(0, 0, 280, 200))));
+    }
+
+    @Test
+    void testThresholdsFromSystemConfig() throws IOException {
+        when(systemConfigRepository.findByConfigKeyContaining(CanvasPrecheck.KEY_PREFIX)).thenReturn(List.of(
+                config(CanvasPrecheck.KEY_MIN_BOX_RATIO, "0.01"),
+                config(CanvasPrecheck.KEY_MIN_CONTRAST, "not a number")));
+        CanvasPrecheck tuned = new CanvasPrecheck(imageUtil, decodeExecutor, systemConfigRepository,
+                workerThreads, new SimpleMeterRegistry());
+
+        assertNull(tuned.check(canvas(g -> g.fillRect(130, 130, 20, 20))));
+        // 格式错误的项使用默认值
+        assertEquals(40, tuned.thresholds().minContrast);
+
+        when(systemConfigRepository.findByConfigKeyContaining(CanvasPrecheck.KEY_PREFIX)).thenReturn(List.of(
+                config(CanvasPrecheck.KEY_ENABLED, "false")));
+        CanvasPrecheck disabled = new CanvasPrecheck(imageUtil, decodeExecutor, systemConfigRepository,
+                workerThreads, new SimpleMeterRegistry());
+        assertNull(disabled.check(canvas(g -> { })));
+    }
+
+    @Test
+    void testChecksStrokesWithoutDecoding() {
+        assertNull(precheck.check(strokes(new float[]{140, 60, 140, 220})));
+        assertEquals(CanvasPrecheck.Rejection.BLANK, precheck.check(strokes()));
+        assertEquals(CanvasPrecheck.Rejection.TOO_SMALL, precheck.check(strokes(new float[]{138, 138, 140, 139})));
+        // 反复涂抹
+        float[] scribble = new float[80];
+        for (int i = 0; i < scribble.length; i += 2) {
+            scribble[i] = i % 4 == 0 ? 0 : 280;
+            scribble[i + 1] = i * 3.5f;
+        }
+        assertEquals(CanvasPrecheck.Rejection.OVERFILLED, precheck.check(strokes(scribble)));
+    }
+
+    @Test
+    void testThresholdsAreReadFromMemoryUntilRefreshed() throws IOException {
+        verify(systemConfigRepository, times(1)).findByConfigKeyContaining(CanvasPrecheck.KEY_PREFIX);
+        when(systemConfigRepository.findByConfigKeyContaining(CanvasPrecheck.KEY_PREFIX)).thenReturn(List.of(
+                config(CanvasPrecheck.KEY_ENABLED, "false")));
+
+        // 请求线程不查询数据库，阈值由后台刷新更新
+        assertEquals(CanvasPrecheck.Rejection.BLANK, precheck.check(canvas(g -> { })));
+        verify(systemConfigRepository, times(1)).findByConfigKeyContaining(CanvasPrecheck.KEY_PREFIX);
+
+        precheck.refresh();
+        assertNull(precheck.check(canvas(g -> { })));
+
+        // 读取失败时保留当前阈值
+        when(systemConfigRepository.findByConfigKeyContaining(CanvasPrecheck.KEY_PREFIX))
+                .thenThrow(new IllegalStateException("db down"));
+        precheck.refresh();
+        assertFalse(precheck.thresholds().enabled);
+    }
+
+    @Test
+    void testImageIsDecodedOnBudgetedDecodeThread() throws IOException {
+        AtomicReference<String> decodeThread = new AtomicReference<>();
+        ImageUtil recordingImageUtil = new ImageUtil() {
+            @Override
+            public InkStats inkStats(byte[] imageData, int maxSize) throws IOException {
+                decodeThread.set(Thread.currentThread().getName());
+                return super.inkStats(imageData, maxSize);
+            }
+        };
+        CanvasPrecheck budgeted = new CanvasPrecheck(recordingImageUtil, decodeExecutor, systemConfigRepository,
+                workerThreads, new SimpleMeterRegistry());
+
+        assertNull(budgeted.check(canvas(g -> g.drawLine(140, 60, 140, 220))));
+        assertTrue(decodeThread.get().startsWith("image-decode-"));
+        assertEquals(0, decodeExecutor.getInFlightBytes());
+    }
+
+    @Test
+    void testUnreadableImagePassesThrough() {
+        assertNull(precheck.check(new byte[]{1, 2, 3}));
+    }
+
+    private static SystemConfig config(String key, String value) {
+        SystemConfig config = new SystemConfig();
+        config.setConfigKey(key);
+        config.setConfigValue(value);
+        return config;
+    }
+
+    private static StrokePayload strokes(float[]... strokes) {
+        StrokePayload payload = new StrokePayload();
+        payload.setWidth(280);
+        payload.setHeight(280);
+        payload.setPenWidth(18f);
+        payload.setStrokes(List.of(strokes));
+        return payload;
+    }
+
+    private interface Stroke {
+        void draw(Graphics2D graphics);
+    }
+
+    /**
+     * 与前端画布相同：280x280白底，黑色18像素粗笔画
+     */
+    private static byte[] canvas(Stroke stroke) throws IOException {
+        BufferedImage image = new BufferedImage(280, 280, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, 280, 280);
+        graphics.setColor(Color.BLACK);
+        graphics.setStroke(new BasicStroke(18, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        stroke.draw(graphics);
+        graphics.dispose();
+        return png(image);
+    }
+
+    private static byte[] noisyCanvas() throws IOException {
+        BufferedImage image = new BufferedImage(280, 280, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < 280; y++) {
+            for (int x = 0; x < 280; x++) {
+                int value = 240 + random.nextInt(16);
+                image.setRGB(x, y, value << 16 | value << 8 | value);
+            }
+        }
+        return png(image);
+    }
+
+    private static byte[] png(BufferedImage image) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+}
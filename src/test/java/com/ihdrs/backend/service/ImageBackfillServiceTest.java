@@ -0,0 +1,85 @@
+// ImageBackfillServiceTest.java - 历史识别图像迁移测试
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.Result;
+import com.ihdrs.backend.common.utils.FileUtil;
+import com.ihdrs.backend.common.utils.WorkerThreads;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ImageBackfillServiceTest {
+
+    private final CountDownLatch queried = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger queries = new AtomicInteger();
+    private ImageBackfillService backfillService;
+
+    @BeforeEach
+    void setUp() {
+        // 第一次查询阻塞到release，模拟正在处理的一块；之后没有待迁移的记录
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any())).thenAnswer(inv -> {
+            if (queries.getAndIncrement() == 0) {
+                queried.countDown();
+                release.await();
+            }
+            return List.of();
+        });
+        backfillService = new ImageBackfillService(jdbcTemplate, mock(PlatformTransactionManager.class),
+                mock(ImageStore.class), mock(FileUtil.class), new WorkerThreads(false));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        backfillService.shutdown();
+    }
+
+    @Test
+    void testRestartIsRefusedUntilStoppedWorkerExits() throws Exception {
+        assertEquals(200, backfillService.start(100, 0).getCode());
+        assertTrue(queried.await(5, TimeUnit.SECONDS));
+        assertEquals(400, backfillService.start(100, 0).getCode());
+
+        backfillService.stop();
+        // 旧线程仍在处理当前块，不能启动第二个线程
+        Result<Map<String, Object>> restart = backfillService.start(100, 0);
+        assertEquals(400, restart.getCode());
+        assertEquals(true, backfillService.getStatus().getData().get("stopping"));
+
+        release.countDown();
+        awaitFinished();
+        assertEquals(200, backfillService.start(100, 0).getCode());
+        awaitFinished();
+        assertEquals(2, queries.get());
+        assertNotNull(backfillService.getStatus().getData().get("finishTime"));
+    }
+
+    private void awaitFinished() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            Map<String, Object> status = backfillService.getStatus().getData();
+            if (!(Boolean) status.get("running") && !(Boolean) status.get("stopping")) {
+                return;
+            }
+            assertTrue(System.nanoTime() < deadline, "迁移线程未退出");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+// ImageDecodeExecutorTest.java - 图像解码准入测试
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.exception.ImageDecodeRejectedException;
+import com.ihdrs.backend.common.exception.ImageTooLargeException;
+import com.ihdrs.backend.common.utils.ImageUtil;
+import com.ihdrs.backend.config.RecognitionConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageDecodeExecutorTest {
+
+    private RecognitionConfig config;
+    private SimpleMeterRegistry meterRegistry;
+    private ImageDecodeExecutor executor;
+
+    // 200x200 RGB，估算解码内存120000字节
+    private byte[] image;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        config = new RecognitionConfig();
+        config.getDecode().setThreads(2);
+        config.getDecode().setMemoryBudget(DataSize.ofKilobytes(150));
+        config.getDecode().setQueueTimeout(Duration.ZERO);
+        meterRegistry = new SimpleMeterRegistry();
+        executor = new ImageDecodeExecutor(new ImageUtil(config), config, meterRegistry);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB), "png", output);
+        image = output.toByteArray();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testRunsTaskAndReleasesBudget() throws IOException {
+        Integer width = executor.execute(image, data -> ImageIO.read(new ByteArrayInputStream(data)).getWidth());
+
+        assertEquals(200, width);
+        assertEquals(0, executor.getInFlightBytes());
+        assertEquals(1, meterRegistry.get("image.decode.queue.wait").timer().count());
+    }
+
+    @Test
+    void testRejectsWhenBudgetExhausted() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return executor.execute(image, data -> {
+                    started.countDown();
+                    await(release);
+                    return 1;
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(120_000, executor.getInFlightBytes());
+
+        // 线程池还有空闲线程，但内存预算不足以再准入一张同样大小的图像
+        assertThrows(ImageDecodeRejectedException.class, () -> executor.execute(image, data -> 2));
+        assertEquals(1, meterRegistry.get("image.decode.rejected").counter().count());
+
+        release.countDown();
+        assertEquals(1, first.get(5, TimeUnit.SECONDS));
+        assertEquals(0, executor.getInFlightBytes());
+        assertEquals(Integer.valueOf(2), executor.execute(image, data -> 2));
+    }
+
+    @Test
+    void testQueuesUntilBudgetFreed() throws Exception {
+        config.getDecode().setQueueTimeout(Duration.ofSeconds(5));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return executor.execute(image, data -> {
+                    started.countDown();
+                    await(release);
+                    return 1;
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Integer> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return executor.execute(image, data -> 2);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(second.isDone());
+
+        release.countDown();
+        assertEquals(1, first.get(5, TimeUnit.SECONDS));
+        assertEquals(2, second.get(5, TimeUnit.SECONDS));
+        assertEquals(0, meterRegistry.get("image.decode.rejected").counter().count());
+    }
+
+    @Test
+    void testPropagatesTaskExceptionAndReleasesBudget() {
+        IOException failure = new IOException("broken");
+
+        IOException thrown = assertThrows(IOException.class, () -> executor.execute(image, data -> {
+            throw failure;
+        }));
+
+        assertSame(failure, thrown);
+        assertEquals(0, executor.getInFlightBytes());
+    }
+
+    @Test
+    void testRejectsOversizedImageBeforeAdmission() {
+        config.getDecode().setMaxPixels(10_000L);
+        ImageDecodeExecutor limited = new ImageDecodeExecutor(new ImageUtil(config), config, new SimpleMeterRegistry());
+        try {
+            assertThrows(ImageTooLargeException.class, () -> limited.execute(image, data -> 1));
+            assertEquals(0, limited.getInFlightBytes());
+        } finally {
+            limited.shutdown();
+        }
+    }
+
+    @Test
+    void testInterruptedWaiterDoesNotReleaseRunningTaskBudget() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                executor.execute(image, data -> {
+                    started.countDown();
+                    await(release);
+                    finished.countDown();
+                    return 1;
+                });
+            } catch (Throwable e) {
+                thrown.set(e);
+            }
+        });
+        waiter.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        waiter.interrupt();
+        waiter.join(5000);
+        assertInstanceOf(InterruptedIOException.class, thrown.get());
+        // 任务仍在解码，预算仍被占用
+        assertEquals(120_000, executor.getInFlightBytes());
+        assertTrue(executor.getAvailablePermits() < executor.getBudgetPermits());
+
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        awaitBudgetReleased();
+        assertEquals(executor.getBudgetPermits(), executor.getAvailablePermits());
+        assertEquals(0, executor.getInFlightBytes());
+    }
+
+    @Test
+    void testInterruptedWaiterReleasesBudgetOfQueuedTask() throws Exception {
+        config.getDecode().setThreads(1);
+        config.getDecode().setMemoryBudget(DataSize.ofKilobytes(500));
+        ImageDecodeExecutor single = new ImageDecodeExecutor(new ImageUtil(config), config, new SimpleMeterRegistry());
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            CompletableFuture<Integer> busy = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return single.execute(image, data -> {
+                        started.countDown();
+                        await(release);
+                        return 1;
+                    });
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // 唯一的解码线程被占用，第二个任务排队，调用方被中断后任务不再执行
+            AtomicReference<Throwable> thrown = new AtomicReference<>();
+            CountDownLatch ran = new CountDownLatch(1);
+            Thread waiter = new Thread(() -> {
+                try {
+                    single.execute(image, data -> {
+                        ran.countDown();
+                        return 2;
+                    });
+                } catch (Throwable e) {
+                    thrown.set(e);
+                }
+            });
+            waiter.start();
+            while (single.getInFlightBytes() < 240_000) {
+                Thread.sleep(5);
+            }
+            waiter.interrupt();
+            waiter.join(5000);
+            assertInstanceOf(InterruptedIOException.class, thrown.get());
+            assertEquals(120_000, single.getInFlightBytes());
+
+            release.countDown();
+            assertEquals(1, busy.get(5, TimeUnit.SECONDS));
+            assertFalse(ran.await(100, TimeUnit.MILLISECONDS));
+            assertEquals(single.getBudgetPermits(), single.getAvailablePermits());
+            assertEquals(0, single.getInFlightBytes());
+        } finally {
+            release.countDown();
+            single.shutdown();
+        }
+    }
+
+    /**
+     * 任务在返回结果后才释放预算，等待其完成
+     */
+    private void awaitBudgetReleased() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.getInFlightBytes() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+// ImageStoreTest.java - 图像存储测试
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.config.FileStorageConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageStoreTest {
+
+    private static final String HASH = "0123456789abcdef0123456789abcdef";
+
+    @TempDir
+    Path uploadDir;
+
+    private ImageStore imageStore;
+
+    @BeforeEach
+    void setUp() {
+        FileStorageConfig config = new FileStorageConfig();
+        config.getUpload().setPath(uploadDir.toString());
+        imageStore = new ImageStore(config);
+    }
+
+    @Test
+    void testStoreShardsByHashPrefix() {
+        String path = imageStore.store(HASH, new byte[]{1, 2, 3});
+
+        assertEquals("images/01/23/" + HASH + ".img", path);
+        assertTrue(Files.exists(uploadDir.resolve(path)));
+        assertArrayEquals(new byte[]{1, 2, 3}, imageStore.load(HASH));
+    }
+
+    @Test
+    void testSameHashIsWrittenOnce() throws Exception {
+        String first = imageStore.store(HASH, new byte[]{1, 2, 3});
+        long modified = Files.getLastModifiedTime(uploadDir.resolve(first)).toMillis();
+
+        String second = imageStore.store(HASH, new byte[]{1, 2, 3});
+
+        assertEquals(first, second);
+        assertEquals(modified, Files.getLastModifiedTime(uploadDir.resolve(second)).toMillis());
+        try (var files = Files.list(uploadDir.resolve("images/01/23"))) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void testTensorIsStoredSeparatelyFromImage() {
+        String path = imageStore.storeTensor(HASH, () -> new byte[]{4, 5});
+
+        assertEquals("images/01/23/" + HASH + ".tensor.png", path);
+        assertArrayEquals(new byte[]{4, 5}, imageStore.loadTensor(HASH));
+        // 原始图像和张量互不影响
+        assertNull(imageStore.load(HASH));
+        assertFalse(imageStore.exists(HASH));
+        imageStore.store(HASH, new byte[]{1});
+        assertArrayEquals(new byte[]{4, 5}, imageStore.loadTensor(HASH));
+        assertNull(imageStore.loadTensor("fedcba9876543210"));
+    }
+
+    @Test
+    void testInvalidHashIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> imageStore.store("../../etc/passwd", new byte[]{1}));
+        assertNull(imageStore.load("abcdef0123"));
+    }
+}
@@ -0,0 +1,176 @@
+// ModelServiceClientTest.java - 模型服务客户端测试
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.exception.ModelServiceUnavailableException;
+import com.ihdrs.backend.common.utils.WorkerThreads;
+import com.ihdrs.backend.config.ModelServiceConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.ExpectedCount.times;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+class ModelServiceClientTest {
+
+    private static final String SUCCESS_BODY =
+            "{\"status\":\"success\",\"data\":{\"result\":7,\"confidence\":0.98}}";
+
+    private MockRestServiceServer server;
+    private ModelServiceConfig config;
+    private ModelServiceClient client;
+
+    @BeforeEach
+    void setUp() {
+        config = new ModelServiceConfig();
+        config.setBaseUrl("http://model-service");
+        config.setMaxRetries(1);
+        client = newClient();
+    }
+
+    private ModelServiceClient newClient() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ModelServiceReplicaPool replicaPool = new ModelServiceReplicaPool(config, meterRegistry);
+        return new ModelServiceClient(restTemplate, config, new ModelServiceGuard(config, meterRegistry),
+                replicaPool, new ModelServiceHedger(replicaPool, config, new WorkerThreads(false), meterRegistry),
+                new WorkerThreads(false));
+    }
+
+    @Test
+    void testImageIsSentAsRawBytes() {
+        byte[] image = {1, 2, 3, 4};
+        server.expect(requestTo("http://model-service/api/recognize"))
+                .andExpect(header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM_VALUE))
+                .andExpect(header(ModelServiceClient.HEADER_MODEL_ID, "3"))
+                .andExpect(content().bytes(image))
+                .andRespond(withSuccess(SUCCESS_BODY, MediaType.APPLICATION_JSON));
+
+        Map<String, Object> result = client.recognize(image, 3L);
+
+        assertEquals(7, result.get("result"));
+        server.verify();
+    }
+
+    @Test
+    void testBatchImagesAreConcatenatedWithLengths() {
+        server.expect(requestTo("http://model-service/api/recognize/batch"))
+                .andExpect(header(ModelServiceClient.HEADER_IMAGE_LENGTHS, "2,3"))
+                .andExpect(content().bytes(new byte[]{1, 2, 3, 4, 5}))
+                .andRespond(withSuccess("{\"status\":\"success\",\"data\":{\"results\":"
+                        + "[{\"result\":1,\"confidence\":0.9},null]}}", MediaType.APPLICATION_JSON));
+
+        List<Map<String, Object>> results = client.recognizeBatch(List.of(new byte[]{1, 2}, new byte[]{3, 4, 5}), 1L);
+
+        assertEquals(1, results.get(0).get("result"));
+        assertNull(results.get(1));
+        server.verify();
+    }
+
+    @Test
+    void testTensorIsSentWithPayloadType() {
+        byte[] tensor = new byte[784];
+        tensor[400] = (byte) 255;
+        server.expect(requestTo("http://model-service/api/recognize"))
+                .andExpect(header(ModelServiceClient.HEADER_PAYLOAD_TYPE, ModelServiceClient.PAYLOAD_TYPE_TENSOR))
+                .andExpect(content().bytes(tensor))
+                .andRespond(withStatus(HttpStatus.BAD_REQUEST));
+        // 旧版模型服务退回JSON时以payload_type字段标明张量
+        server.expect(requestTo("http://model-service/api/recognize"))
+                .andExpect(jsonPath("$.payload_type").value(ModelServiceClient.PAYLOAD_TYPE_TENSOR))
+                .andRespond(withSuccess(SUCCESS_BODY, MediaType.APPLICATION_JSON));
+
+        assertEquals(7, client.recognizeTensor(tensor, 1L).get("result"));
+        server.verify();
+    }
+
+    @Test
+    void testFallsBackToJsonWhenBinaryIsNotSupported() {
+        server.expect(requestTo("http://model-service/api/recognize"))
+                .andExpect(header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM_VALUE))
+                .andRespond(withStatus(HttpStatus.BAD_REQUEST));
+        server.expect(requestTo("http://model-service/api/recognize"))
+                .andExpect(header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(jsonPath("$.image").value("AQID"))
+                .andRespond(withSuccess(SUCCESS_BODY, MediaType.APPLICATION_JSON));
+        // 协商失败后的后续请求直接使用JSON
+        server.expect(requestTo("http://model-service/api/recognize"))
+                .andExpect(header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE))
+                .andRespond(withSuccess(SUCCESS_BODY, MediaType.APPLICATION_JSON));
+
+        assertEquals(7, client.recognize(new byte[]{1, 2, 3}, 1L).get("result"));
+        assertEquals(7, client.recognize(new byte[]{1, 2, 3}, 1L).get("result"));
+        server.verify();
+    }
+
+    @Test
+    void testBinaryRejectionFromNewServiceDoesNotFallBack() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(ModelServiceClient.HEADER_TRANSPORT, "binary");
+        server.expect(requestTo("http://model-service/api/recognize"))
+                .andRespond(withStatus(HttpStatus.BAD_REQUEST).headers(headers));
+
+        assertNull(client.recognize(new byte[]{1, 2, 3}, 1L));
+        server.verify();
+    }
+
+    @Test
+    void testOpenCircuitFailsFastWithoutCallingService() {
+        config.getCircuitBreaker().setWindowSize(2);
+        config.getCircuitBreaker().setMinimumCalls(2);
+        config.getCircuitBreaker().setOpenDuration(Duration.ofMinutes(1));
+        client = newClient();
+        server.expect(times(2), requestTo("http://model-service/api/recognize"))
+                .andRespond(withServerError());
+
+        assertNull(client.recognize(new byte[]{1}, 1L));
+        assertNull(client.recognize(new byte[]{1}, 1L));
+
+        assertThrows(ModelServiceUnavailableException.class, () -> client.recognize(new byte[]{1}, 1L));
+        server.verify();
+    }
+
+    @Test
+    void testRejectedRequestsDoNotOpenCircuit() {
+        config.getCircuitBreaker().setWindowSize(2);
+        config.getCircuitBreaker().setMinimumCalls(2);
+        client = newClient();
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(ModelServiceClient.HEADER_TRANSPORT, "binary");
+        server.expect(times(3), requestTo("http://model-service/api/recognize"))
+                .andRespond(withStatus(HttpStatus.BAD_REQUEST).headers(headers));
+
+        for (int i = 0; i < 3; i++) {
+            assertNull(client.recognize(new byte[]{1}, 1L));
+        }
+        server.verify();
+    }
+
+    @Test
+    void testRetryGoesToAnotherReplica() {
+        config.setBaseUrls(List.of("http://replica-a", "http://replica-b"));
+        config.setMaxRetries(2);
+        config.setRetryDelay(Duration.ZERO);
+        client = newClient();
+        server.expect(requestTo("http://replica-a/api/recognize"))
+                .andRespond(withException(new IOException("timeout")));
+        server.expect(requestTo("http://replica-b/api/recognize"))
+                .andRespond(withSuccess(SUCCESS_BODY, MediaType.APPLICATION_JSON));
+
+        assertEquals(7, client.recognize(new byte[]{1}, 1L).get("result"));
+        server.verify();
+    }
+}
@@ -0,0 +1,203 @@
+// ModelServiceHedgerTest.java - 模型服务对冲请求测试
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.utils.WorkerThreads;
+import com.ihdrs.backend.config.ModelServiceConfig;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelServiceHedgerTest {
+
+    private ModelServiceConfig config;
+    private SimpleMeterRegistry meterRegistry;
+    private ModelServiceReplicaPool pool;
+    private ModelServiceHedger hedger;
+    private final CountDownLatch slowReplica = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        config = new ModelServiceConfig();
+        config.setBaseUrls(List.of("http://a", "http://b"));
+        config.getHedging().setEnabled(true);
+        config.getHedging().setWindowSize(20);
+        config.getHedging().setMinSamples(10);
+        config.getHedging().setMinDelay(Duration.ofMillis(20));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        slowReplica.countDown();
+        hedger.shutdown();
+    }
+
+    @Test
+    void testSlowPrimaryIsHedgedToOtherReplica() {
+        config.getHedging().setMaxExtraLoad(1.0);
+        newHedger();
+        ModelServiceReplicaPool.Replica a = pool.getReplicas().get(0);
+        warmUp(a);
+
+        String result = hedger.execute(a, this::respond);
+
+        assertEquals("http://b", result);
+        assertEquals(1.0, meterRegistry.get("model.service.hedge.fired").counter().count());
+        assertEquals(1.0, meterRegistry.get("model.service.hedge.won").counter().count());
+    }
+
+    @Test
+    void testHedgingIsDisabledWithHttp2() {
+        config.setHttp2(true);
+        newHedger();
+
+        // JDK HttpClient的请求不登记到CancellationScope，落败的请求无法中止
+        assertFalse(hedger.isEnabled());
+        hedger.shutdown();
+        config.setHttp2(false);
+        newHedger();
+        assertTrue(hedger.isEnabled());
+    }
+
+    @Test
+    void testNoHedgeWhenBudgetIsExhausted() throws Exception {
+        config.getHedging().setMaxExtraLoad(0.0);
+        newHedger();
+        ModelServiceReplicaPool.Replica a = pool.getReplicas().get(0);
+        warmUp(a);
+
+        new Thread(() -> {
+            sleep(100);
+            slowReplica.countDown();
+        }).start();
+        String result = hedger.execute(a, this::respond);
+
+        assertEquals("http://a", result);
+        assertEquals(0.0, meterRegistry.get("model.service.hedge.fired").counter().count());
+        assertEquals(1.0, meterRegistry.get("model.service.hedge.skipped").counter().count());
+    }
+
+    @Test
+    void testLosingRequestIsAbortedAndReleasesConnection() throws Exception {
+        HttpServer slowServer = startServer("slow", true);
+        HttpServer fastServer = startServer("fast", false);
+        try {
+            config.setBaseUrls(List.of(baseUrl(slowServer), baseUrl(fastServer)));
+            config.getHedging().setMaxExtraLoad(1.0);
+            // 与应用相同的HttpComponents连接池和请求工厂
+            PoolingHttpClientConnectionManager connectionManager = config.modelServiceConnectionManager(
+                    new DefaultListableBeanFactory().getBeanProvider(MeterRegistry.class));
+            RestTemplate restTemplate = config.restTemplate(
+                    config.clientHttpRequestFactory(config.modelServiceHttpClient(connectionManager)));
+            Function<ModelServiceReplicaPool.Replica, String> call = replica ->
+                    restTemplate.postForObject(replica.getBaseUrl() + "/api/recognize", "x", String.class);
+            newHedger();
+            ModelServiceReplicaPool.Replica slow = pool.getReplicas().get(0);
+            warmUp(pool.getReplicas().get(1), call);
+
+            assertEquals("fast", hedger.execute(slow, call));
+
+            // 落败的请求被中止，不等慢实例返回或读取超时就归还连接
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while (connectionManager.getTotalStats().getLeased() > 0) {
+                assertTrue(System.nanoTime() < deadline, "落败请求的连接未释放");
+                Thread.sleep(10);
+            }
+        } finally {
+            slowReplica.countDown();
+            slowServer.stop(0);
+            fastServer.stop(0);
+        }
+    }
+
+    private void newHedger() {
+        pool = new ModelServiceReplicaPool(config, meterRegistry);
+        hedger = new ModelServiceHedger(pool, config, new WorkerThreads(false), meterRegistry);
+    }
+
+    private void warmUp(ModelServiceReplicaPool.Replica replica) {
+        warmUp(replica, target -> "warm");
+    }
+
+    private void warmUp(ModelServiceReplicaPool.Replica replica, Function<ModelServiceReplicaPool.Replica, String> call) {
+        for (int i = 0; i < 10; i++) {
+            hedger.execute(replica, call);
+        }
+    }
+
+    /**
+     * 本地HTTP服务，slow为true时阻塞到slowReplica放行再返回body
+     */
+    private HttpServer startServer(String body, boolean slow) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/recognize", exchange -> {
+            try {
+                exchange.getRequestBody().readAllBytes();
+                if (slow) {
+                    slowReplica.await(10, TimeUnit.SECONDS);
+                }
+                byte[] response = body.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain");
+                exchange.sendResponseHeaders(200, response.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(response);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                // 客户端已中止请求
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
+
+    private static String baseUrl(HttpServer server) {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * 实例a阻塞直到放行，实例b立即返回
+     */
+    private String respond(ModelServiceReplicaPool.Replica replica) {
+        if (replica.getBaseUrl().equals("http://a")) {
+            try {
+                slowReplica.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("cancelled");
+            }
+        }
+        return replica.getBaseUrl();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+// ModelServiceReplicaPoolTest.java - 模型服务多实例负载均衡测试
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.config.ModelServiceConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelServiceReplicaPoolTest {
+
+    private ModelServiceReplicaPool pool;
+    private ModelServiceReplicaPool.Replica a;
+    private ModelServiceReplicaPool.Replica b;
+
+    @BeforeEach
+    void setUp() {
+        ModelServiceConfig config = new ModelServiceConfig();
+        config.setBaseUrls(List.of("http://a/", "http://b"));
+        config.setEjectAfterFailures(2);
+        pool = new ModelServiceReplicaPool(config, new SimpleMeterRegistry());
+        a = pool.getReplicas().get(0);
+        b = pool.getReplicas().get(1);
+    }
+
+    @Test
+    void testRoutesToLeastOutstandingThenLowestLatency() {
+        assertEquals("http://a", a.getBaseUrl());
+
+        a.begin();
+        assertSame(b, pool.choose(null));
+
+        pool.onSuccess(a, 50_000_000L);
+        b.begin();
+        pool.onSuccess(b, 10_000_000L);
+
+        // 在途数相同，选延迟EWMA更低的实例
+        assertSame(b, pool.choose(null));
+        assertSame(a, pool.choose(b));
+    }
+
+    @Test
+    void testFailingReplicaIsEjectedUntilHealthCheckPasses() {
+        a.begin();
+        pool.onFailure(a);
+        assertTrue(a.isHealthy());
+        a.begin();
+        pool.onFailure(a);
+        assertFalse(a.isHealthy());
+
+        b.begin();
+        pool.onSuccess(b, 10_000_000L);
+        b.begin();
+        assertSame(b, pool.choose(null));
+
+        pool.onHealthCheck(a, true);
+        assertSame(a, pool.choose(null));
+    }
+
+    @Test
+    void testAllEjectedStillRoutes() {
+        pool.onHealthCheck(a, false);
+        pool.onHealthCheck(b, false);
+
+        assertNotNull(pool.choose(null));
+    }
+}
@@ -0,0 +1,80 @@
+// ModelServiceTest.java - 模型服务测试
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.Result;
+import com.ihdrs.backend.entity.Model;
+import com.ihdrs.backend.entity.User;
+import com.ihdrs.backend.repository.ModelRepository;
+import com.ihdrs.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ModelServiceTest {
+
+    @Autowired
+    private ModelService modelService;
+
+    @Autowired
+    private ModelRepository modelRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Model activeModel;
+    private Model completedModel;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername("model_admin");
+        user.setPasswordHash("hash");
+        user.setSalt("salt");
+        user.setRole(User.UserRole.ADMIN);
+        user.setStatus(true);
+        user = userRepository.save(user);
+
+        activeModel = modelRepository.save(newModel("v1.0.0", Model.ModelStatus.ACTIVE, user.getUserId()));
+        completedModel = modelRepository.save(newModel("v1.1.0", Model.ModelStatus.COMPLETED, user.getUserId()));
+    }
+
+    @Test
+    void testSwitchActiveModelUpdatesBothModels() {
+        Result<Void> result = modelService.switchActiveModel(completedModel.getModelId());
+
+        assertEquals(200, result.getCode());
+        assertEquals(Model.ModelStatus.COMPLETED,
+                modelRepository.findById(activeModel.getModelId()).orElseThrow().getStatus());
+        assertEquals(Model.ModelStatus.ACTIVE,
+                modelRepository.findById(completedModel.getModelId()).orElseThrow().getStatus());
+        assertEquals(completedModel.getModelId(),
+                modelRepository.findByStatus(Model.ModelStatus.ACTIVE).orElseThrow().getModelId());
+    }
+
+    @Test
+    void testSwitchToNonCompletedModelIsRejected() {
+        Result<Void> result = modelService.switchActiveModel(activeModel.getModelId());
+
+        assertEquals(400, result.getCode());
+        assertEquals(Model.ModelStatus.ACTIVE,
+                modelRepository.findById(activeModel.getModelId()).orElseThrow().getStatus());
+    }
+
+    private Model newModel(String version, Model.ModelStatus status, Long creatorId) {
+        Model model = new Model();
+        model.setModelName("SwitchCNN");
+        model.setModelVersion(version);
+        model.setModelPath("models/switch_cnn_" + version + ".h5");
+        model.setStatus(status);
+        model.setCreatorId(creatorId);
+        return model;
+    }
+}
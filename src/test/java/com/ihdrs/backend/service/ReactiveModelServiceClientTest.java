@@ -0,0 +1,154 @@
+// ReactiveModelServiceClientTest.java - 非阻塞模型服务客户端测试
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.config.ModelServiceConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactiveModelServiceClientTest {
+
+    private static final String SUCCESS_BODY =
+            "{\"status\":\"success\",\"data\":{\"result\":7,\"confidence\":0.98}}";
+
+    private ModelServiceConfig config;
+    private List<ClientRequest> requests;
+    private Function<ClientRequest, Mono<ClientResponse>> responder;
+    private ModelServiceGuard guard;
+    private ReactiveModelServiceClient client;
+
+    @BeforeEach
+    void setUp() {
+        config = new ModelServiceConfig();
+        config.setBaseUrl("http://model-service");
+        config.setMaxRetries(1);
+        requests = new ArrayList<>();
+
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    requests.add(request);
+                    return responder.apply(request);
+                })
+                .build();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        guard = new ModelServiceGuard(config, meterRegistry);
+        client = new ReactiveModelServiceClient(webClient, config, guard,
+                new ModelServiceReplicaPool(config, meterRegistry));
+    }
+
+    @Test
+    void testImageIsSentAsRawBytes() {
+        responder = request -> Mono.just(json(HttpStatus.OK, SUCCESS_BODY));
+
+        Map<String, Object> result = client.recognize(new byte[]{1, 2, 3, 4}, 3L).block();
+
+        assertEquals(7, result.get("result"));
+        ClientRequest request = requests.get(0);
+        assertEquals(HttpMethod.POST, request.method());
+        assertEquals(URI.create("http://model-service/api/recognize"), request.url());
+        assertEquals(MediaType.APPLICATION_OCTET_STREAM, request.headers().getContentType());
+        assertEquals("3", request.headers().getFirst(ModelServiceClient.HEADER_MODEL_ID));
+        assertEquals(ModelServiceClient.PAYLOAD_TYPE_IMAGE,
+                request.headers().getFirst(ModelServiceClient.HEADER_PAYLOAD_TYPE));
+    }
+
+    @Test
+    void testFallsBackToJsonWhenBinaryIsNotAcknowledged() {
+        responder = request -> Mono.just(MediaType.APPLICATION_OCTET_STREAM.equals(request.headers().getContentType())
+                ? json(HttpStatus.BAD_REQUEST, "{\"status\":\"error\"}")
+                : json(HttpStatus.OK, SUCCESS_BODY));
+
+        assertEquals(7, client.recognizeTensor(new byte[784], 3L).block().get("result"));
+        // 协商失败后一段时间内直接使用JSON
+        assertEquals(7, client.recognize(new byte[]{1}, 3L).block().get("result"));
+
+        assertEquals(3, requests.size());
+        assertEquals(MediaType.APPLICATION_JSON, requests.get(1).headers().getContentType());
+        assertEquals(MediaType.APPLICATION_JSON, requests.get(2).headers().getContentType());
+    }
+
+    @Test
+    void testRejectedRequestWithAcknowledgementIsNotRetriedAsJson() {
+        responder = request -> Mono.just(ClientResponse.create(HttpStatus.BAD_REQUEST)
+                .header(ModelServiceClient.HEADER_TRANSPORT, "binary")
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"status\":\"error\"}")
+                .build());
+
+        assertNull(client.recognize(new byte[]{1}, 3L).block());
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void testConnectionFailureIsRetriedThenEmpty() {
+        config.setMaxRetries(3);
+        config.setRetryDelay(Duration.ofMillis(1));
+        responder = request -> Mono.error(new WebClientRequestException(new IOException("Connection refused"),
+                request.method(), request.url(), request.headers()));
+
+        assertNull(client.recognize(new byte[]{1}, 3L).block());
+        assertEquals(3, requests.size());
+        // 整个调用（含重试）只计入熔断器一次，并发名额已释放
+        Map<?, ?> breaker = (Map<?, ?>) guard.snapshot().get("circuitBreaker");
+        assertEquals(1, breaker.get("bufferedCalls"));
+        assertEquals(1.0, breaker.get("failureRate"));
+        assertEquals(0, ((Map<?, ?>) guard.snapshot().get("concurrencyLimit")).get("inFlight"));
+    }
+
+    @Test
+    void testGuardIsReleasedBeforeSuccessIsDelivered() {
+        responder = request -> Mono.just(json(HttpStatus.OK, SUCCESS_BODY)).delayElement(Duration.ofMillis(5));
+
+        // 下游收到结果时熔断器已记录本次调用，并发名额已释放
+        Map<?, ?> inFlight = client.recognize(new byte[]{1}, 3L)
+                .map(result -> (Map<?, ?>) guard.snapshot().get("concurrencyLimit"))
+                .block();
+        assertEquals(0, inFlight.get("inFlight"));
+        assertEquals(1, ((Map<?, ?>) guard.snapshot().get("circuitBreaker")).get("bufferedCalls"));
+    }
+
+    @Test
+    void testCancelledCallReleasesGuardWithoutRecordingFailure() {
+        responder = request -> Mono.never();
+
+        client.recognize(new byte[]{1}, 3L).subscribe().dispose();
+
+        assertEquals(0, ((Map<?, ?>) guard.snapshot().get("concurrencyLimit")).get("inFlight"));
+        // 取消不算作失败
+        assertEquals(0.0, ((Map<?, ?>) guard.snapshot().get("circuitBreaker")).get("failureRate"));
+    }
+
+    @Test
+    void testServerErrorReturnsEmptyWithoutRetry() {
+        responder = request -> Mono.just(json(HttpStatus.INTERNAL_SERVER_ERROR, "{\"status\":\"error\"}"));
+
+        assertNull(client.recognize(new byte[]{1}, 3L).block());
+        assertEquals(1, requests.size());
+    }
+
+    private static ClientResponse json(HttpStatus status, String body) {
+        return ClientResponse.create(status)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build();
+    }
+}
@@ -0,0 +1,55 @@
+// ReactiveRecognitionServiceTest.java - 非阻塞识别服务测试
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.Result;
+import com.ihdrs.backend.common.utils.WorkerThreads;
+import com.ihdrs.backend.config.RecognitionConfig;
+import com.ihdrs.backend.dto.request.RecognitionRequest;
+import com.ihdrs.backend.dto.response.RecognitionResponse;
+import com.ihdrs.backend.repository.ModelRepository;
+import com.ihdrs.backend.service.inference.InferenceRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReactiveRecognitionServiceTest {
+
+    private ModelRepository modelRepository;
+    private StringRedisTemplate stringRedisTemplate;
+    private ReactiveRecognitionService reactiveRecognitionService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        modelRepository = mock(ModelRepository.class);
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        RecognitionConfig recognitionConfig = new RecognitionConfig();
+        ActiveModelHolder activeModelHolder = new ActiveModelHolder(modelRepository, stringRedisTemplate,
+                mock(ObjectProvider.class), mock(ApplicationEventPublisher.class), new WorkerThreads(false),
+                recognitionConfig);
+        reactiveRecognitionService = new ReactiveRecognitionService(activeModelHolder,
+                mock(RecognitionService.class), mock(InferenceRouter.class), mock(RecognitionResultCache.class),
+                mock(RecognitionSingleFlight.class), recognitionConfig);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reactiveRecognitionService.shutdown();
+    }
+
+    @Test
+    void testNoActiveModelIsAnsweredWithoutBlockingLookups() {
+        Result<RecognitionResponse> result = reactiveRecognitionService
+                .recognize(new RecognitionRequest(), 1L).block();
+
+        assertEquals(500, result.getCode());
+        // 没有活跃模型时只读内存快照，不在事件循环线程上查询数据库或Redis
+        verifyNoInteractions(modelRepository, stringRedisTemplate);
+    }
+}
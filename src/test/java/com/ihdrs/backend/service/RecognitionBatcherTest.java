@@ -0,0 +1,86 @@
+// RecognitionBatcherTest.java - 识别微批处理测试
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.utils.WorkerThreads;
+import com.ihdrs.backend.config.RecognitionConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RecognitionBatcherTest {
+
+    private ModelServiceClient modelServiceClient;
+    private RecognitionBatcher batcher;
+
+    @BeforeEach
+    void setUp() {
+        modelServiceClient = mock(ModelServiceClient.class);
+
+        RecognitionConfig config = new RecognitionConfig();
+        config.getBatch().setMaxSize(4);
+        config.getBatch().setMaxWait(Duration.ofMillis(200));
+
+        batcher = new RecognitionBatcher(modelServiceClient, config, new WorkerThreads(false));
+        batcher.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        batcher.stop();
+    }
+
+    @Test
+    void testConcurrentRequestsAreMergedIntoOneBatch() {
+        when(modelServiceClient.recognizeBatch(anyList(), eq(1L))).thenAnswer(invocation -> {
+            List<byte[]> images = invocation.getArgument(0);
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (byte[] image : images) {
+                results.add(Map.of("result", (int) image[0], "confidence", 0.99));
+            }
+            return results;
+        });
+
+        List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(batcher.submit(new byte[]{(byte) i}, 1L));
+        }
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, futures.get(i).join().get("result"));
+        }
+        verify(modelServiceClient, times(1)).recognizeBatch(anyList(), eq(1L));
+        verify(modelServiceClient, never()).recognize(any(), anyLong());
+    }
+
+    @Test
+    void testSingleRequestUsesSingleCall() {
+        when(modelServiceClient.recognize(any(), eq(1L)))
+                .thenReturn(Map.of("result", 7, "confidence", 0.95));
+
+        Map<String, Object> result = batcher.recognize(new byte[]{7}, 1L);
+
+        assertEquals(7, result.get("result"));
+        verify(modelServiceClient, never()).recognizeBatch(anyList(), anyLong());
+    }
+
+    @Test
+    void testBatchFailureCompletesAllWithNull() {
+        when(modelServiceClient.recognizeBatch(anyList(), anyLong())).thenReturn(null);
+
+        CompletableFuture<Map<String, Object>> first = batcher.submit(new byte[]{1}, 1L);
+        CompletableFuture<Map<String, Object>> second = batcher.submit(new byte[]{2}, 1L);
+
+        assertNull(first.join());
+        assertNull(second.join());
+    }
+}
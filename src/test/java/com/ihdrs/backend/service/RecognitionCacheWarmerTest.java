@@ -0,0 +1,104 @@
+// RecognitionCacheWarmerTest.java - 识别结果缓存预热测试
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.utils.StrokeRasterizer;
+import com.ihdrs.backend.common.utils.WorkerThreads;
+import com.ihdrs.backend.config.FileStorageConfig;
+import com.ihdrs.backend.config.RecognitionConfig;
+import com.ihdrs.backend.dto.response.RecognitionResponse;
+import com.ihdrs.backend.entity.Model;
+import com.ihdrs.backend.repository.RecognitionRecordRepository;
+import com.ihdrs.backend.service.inference.InferenceRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RecognitionCacheWarmerTest {
+
+    private static final String IMAGE_HASH = "0123456789abcdef0123456789abcdef";
+    private static final String STROKE_HASH = "fedcba9876543210fedcba9876543210";
+
+    @TempDir
+    Path uploadDir;
+
+    private RecognitionRecordRepository recordRepository;
+    private InferenceRouter inferenceRouter;
+    private RecognitionResultCache resultCache;
+    private ImageStore imageStore;
+    private StrokeRasterizer strokeRasterizer;
+    private ActiveModelHolder.ActiveModel active;
+    private RecognitionCacheWarmer warmer;
+
+    @BeforeEach
+    void setUp() {
+        FileStorageConfig storageConfig = new FileStorageConfig();
+        storageConfig.getUpload().setPath(uploadDir.toString());
+        imageStore = new ImageStore(storageConfig);
+        strokeRasterizer = new StrokeRasterizer();
+        recordRepository = mock(RecognitionRecordRepository.class);
+        inferenceRouter = mock(InferenceRouter.class);
+        resultCache = mock(RecognitionResultCache.class);
+
+        Model model = new Model();
+        model.setModelId(3L);
+        active = new ActiveModelHolder.ActiveModel(model, 1, 0);
+        ActiveModelHolder activeModelHolder = mock(ActiveModelHolder.class);
+        when(activeModelHolder.current()).thenReturn(active);
+
+        warmer = new RecognitionCacheWarmer(recordRepository, imageStore, inferenceRouter, resultCache,
+                activeModelHolder, new RecognitionConfig(), strokeRasterizer, new WorkerThreads(false));
+    }
+
+    @Test
+    void testStrokeHashesArePrewarmedAsTensors() throws Exception {
+        byte[] image = {1, 2, 3};
+        byte[] tensor = strokeRasterizer.rasterize(List.of(new float[]{10, 10, 90, 10, 40, 90}), 8);
+        imageStore.store(IMAGE_HASH, image);
+        imageStore.storeTensor(STROKE_HASH, () -> strokeRasterizer.toPng(tensor));
+        when(recordRepository.findFrequentImageHashes(any(), any())).thenReturn(List.of(IMAGE_HASH, STROKE_HASH));
+        when(inferenceRouter.recognizeBatch(anyList(), any()))
+                .thenReturn(List.of(Map.of("result", 1, "confidence", 0.9)));
+        when(inferenceRouter.recognizeTensorBatch(anyList(), any()))
+                .thenReturn(List.of(Map.of("result", 7, "confidence", 0.95)));
+
+        warmer.prewarm(active, 10);
+
+        // 原始图像走图像预处理，笔画张量直接作为模型输入，不再经过图像预处理
+        ArgumentCaptor<List<byte[]>> images = ArgumentCaptor.forClass(List.class);
+        verify(inferenceRouter).recognizeBatch(images.capture(), eq(active.getModel()));
+        assertEquals(1, images.getValue().size());
+        assertArrayEquals(image, images.getValue().get(0));
+        ArgumentCaptor<List<byte[]>> tensors = ArgumentCaptor.forClass(List.class);
+        verify(inferenceRouter).recognizeTensorBatch(tensors.capture(), eq(active.getModel()));
+        assertEquals(1, tensors.getValue().size());
+        assertArrayEquals(tensor, tensors.getValue().get(0));
+
+        ArgumentCaptor<RecognitionResponse> stroke = ArgumentCaptor.forClass(RecognitionResponse.class);
+        verify(resultCache).put(eq(active.getCacheNamespace()), eq(STROKE_HASH), stroke.capture());
+        assertEquals(7, stroke.getValue().getRecognitionResult());
+        verify(resultCache).put(eq(active.getCacheNamespace()), eq(IMAGE_HASH), any());
+    }
+
+    @Test
+    void testStopsWhenModelServiceFails() {
+        imageStore.store(IMAGE_HASH, new byte[]{1});
+        when(recordRepository.findFrequentImageHashes(any(), any())).thenReturn(List.of(IMAGE_HASH));
+        when(inferenceRouter.recognizeBatch(anyList(), any())).thenReturn(null);
+
+        warmer.prewarm(active, 10);
+
+        verify(inferenceRouter, never()).recognizeTensorBatch(anyList(), any());
+        verifyNoInteractions(resultCache);
+    }
+}
@@ -0,0 +1,188 @@
+// RecognitionConcurrencyTest.java - 识别并发与数据库连接占用测试
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.Result;
+import com.ihdrs.backend.dto.request.ImagePayload;
+import com.ihdrs.backend.dto.request.RecognitionRequest;
+import com.ihdrs.backend.dto.response.RecognitionResponse;
+import com.ihdrs.backend.entity.Model;
+import com.ihdrs.backend.entity.User;
+import com.ihdrs.backend.repository.ModelRepository;
+import com.ihdrs.backend.repository.UserRepository;
+import com.ihdrs.backend.service.inference.InferenceRouter;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * 模拟慢速模型服务：并发识别请求全部停在推理阶段时，不应占用任何数据库连接，
+ * 在途请求数只受推理并发限制，不受连接池大小（与生产环境相同为10）限制
+ */
+@SpringBootTest(properties = "spring.datasource.hikari.maximum-pool-size=10")
+@ActiveProfiles("test")
+class RecognitionConcurrencyTest {
+
+    private static final int POOL_SIZE = 10;
+    private static final int IN_FLIGHT = 100;
+
+    @Autowired
+    private RecognitionService recognitionService;
+
+    @Autowired
+    private ModelRepository modelRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private ActiveModelHolder activeModelHolder;
+
+    @MockBean
+    private InferenceRouter inferenceRouter;
+
+    @MockBean
+    private RecognitionResultCache resultCache;
+
+    @MockBean
+    private RecognitionSingleFlight singleFlight;
+
+    @MockBean
+    private ImageStore imageStore;
+
+    private User user;
+    private Model model;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("concurrency_user");
+        user.setPasswordHash("hash");
+        user.setSalt("salt");
+        user.setRole(User.UserRole.USER);
+        user.setStatus(true);
+        user = userRepository.save(user);
+
+        model = new Model();
+        model.setModelName("ConcurrencyCNN");
+        model.setModelVersion("v1.0.0");
+        model.setModelPath("models/concurrency_cnn.h5");
+        model.setStatus(Model.ModelStatus.ACTIVE);
+        model.setCreatorId(user.getUserId());
+        model = modelRepository.save(model);
+
+        when(activeModelHolder.current()).thenReturn(new ActiveModelHolder.ActiveModel(model, 1, 0));
+        when(singleFlight.execute(anyString(), anyString(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<RecognitionResponse>>getArgument(2).get());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM recognition_records WHERE model_id = ?", model.getModelId());
+        modelRepository.deleteById(model.getModelId());
+        userRepository.deleteById(user.getUserId());
+    }
+
+    @Test
+    void testInFlightRecognitionsDoNotHoldConnections() throws Exception {
+        HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+        assertEquals(POOL_SIZE, hikari.getMaximumPoolSize());
+
+        CountDownLatch arrived = new CountDownLatch(IN_FLIGHT);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger inTransaction = new AtomicInteger();
+        AtomicInteger maxActiveConnections = new AtomicInteger();
+        when(inferenceRouter.recognize(any(), any())).thenAnswer(invocation -> {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                inTransaction.incrementAndGet();
+            }
+            arrived.countDown();
+            maxActiveConnections.accumulateAndGet(hikari.getHikariPoolMXBean().getActiveConnections(), Math::max);
+            // 模拟模型服务响应缓慢
+            release.await(30, TimeUnit.SECONDS);
+            return Map.of("result", 7, "confidence", 0.95);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(IN_FLIGHT);
+        try {
+            List<Future<Result<RecognitionResponse>>> futures = new ArrayList<>();
+            for (int i = 0; i < IN_FLIGHT; i++) {
+                RecognitionRequest request = new RecognitionRequest();
+                request.setImageData(ImagePayload.fromBase64(Base64.getEncoder()
+                        .encodeToString(("digit-" + i).getBytes())));
+                request.setInputType("UPLOAD");
+                futures.add(executor.submit(() -> recognitionService.recognize(request, null)));
+            }
+
+            // 连接池只有10个连接，但100个请求同时处于推理阶段
+            assertTrue(arrived.await(20, TimeUnit.SECONDS),
+                    "只有 " + (IN_FLIGHT - arrived.getCount()) + " 个请求进入推理阶段");
+            assertEquals(0, inTransaction.get());
+            assertEquals(0, maxActiveConnections.get());
+            assertEquals(0, hikari.getHikariPoolMXBean().getActiveConnections());
+
+            release.countDown();
+            for (Future<Result<RecognitionResponse>> future : futures) {
+                Result<RecognitionResponse> result = future.get(30, TimeUnit.SECONDS);
+                assertEquals(200, result.getCode(), result.getMessage());
+                assertEquals(7, result.getData().getRecognitionResult());
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        // 记录在推理结束后的短事务中写入
+        assertEquals(IN_FLIGHT, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM recognition_records WHERE model_id = ?", Integer.class, model.getModelId()));
+
+        // 各阶段耗时：推理阶段包含等待模型服务的时间，带SLO分桶，并写入记录
+        Timer inference = meterRegistry.get("recognition.stage")
+                .tags("model", String.valueOf(model.getModelId()), "input", "UPLOAD",
+                        "cache", "miss", "stage", "inference")
+                .timer();
+        assertEquals(IN_FLIGHT, inference.count());
+        assertTrue(inference.takeSnapshot().histogramCounts().length > 0);
+        assertEquals(IN_FLIGHT, meterRegistry.get("recognition.total")
+                .tags("model", String.valueOf(model.getModelId())).timer().count());
+        String breakdown = jdbcTemplate.queryForObject(
+                "SELECT CAST(processing_breakdown AS VARCHAR) FROM recognition_records WHERE model_id = ? LIMIT 1",
+                String.class, model.getModelId());
+        assertTrue(breakdown.contains("inference"), breakdown);
+    }
+}
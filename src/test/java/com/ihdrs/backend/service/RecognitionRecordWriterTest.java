@@ -0,0 +1,227 @@
+// RecognitionRecordWriterTest.java - 识别记录写入测试
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.utils.WorkerThreads;
+import com.ihdrs.backend.config.RecognitionConfig;
+import com.ihdrs.backend.entity.Model;
+import com.ihdrs.backend.entity.RecognitionRecord;
+import com.ihdrs.backend.entity.User;
+import com.ihdrs.backend.repository.ModelRepository;
+import com.ihdrs.backend.repository.RecognitionRecordRepository;
+import com.ihdrs.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class RecognitionRecordWriterTest {
+
+    @Autowired
+    private RecognitionRecordWriter recordWriter;
+
+    @Autowired
+    private RecognitionRecordRepository recordRepository;
+
+    @Autowired
+    private ModelRepository modelRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Model testModel;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername("writer_user");
+        user.setPasswordHash("hash");
+        user.setSalt("salt");
+        user.setRole(User.UserRole.USER);
+        user.setStatus(true);
+        user = userRepository.save(user);
+
+        testModel = new Model();
+        testModel.setModelName("WriterCNN");
+        testModel.setModelVersion("v1.0.0");
+        testModel.setModelPath("models/writer_cnn.h5");
+        testModel.setStatus(Model.ModelStatus.ACTIVE);
+        testModel.setCreatorId(user.getUserId());
+        testModel = modelRepository.save(testModel);
+    }
+
+    @Test
+    void testRecordIdAssignedBeforeWrite() {
+        RecognitionRecord first = recordWriter.submit(newRecord(3));
+        RecognitionRecord second = recordWriter.submit(newRecord(4));
+
+        assertNotNull(first.getRecordId());
+        assertEquals(first.getRecordId() + 1, second.getRecordId());
+        assertNotNull(first.getCreateTime());
+    }
+
+    @Test
+    void testSubmittedRecordIsPersisted() {
+        RecognitionRecord record = recordWriter.submit(newRecord(7));
+
+        RecognitionRecord saved = recordRepository.findById(record.getRecordId()).orElse(null);
+
+        assertNotNull(saved);
+        assertEquals(7, saved.getRecognitionResult());
+        assertEquals(RecognitionRecord.InputType.CANVAS, saved.getInputType());
+        assertEquals("hash-7", saved.getImageHash());
+    }
+
+    @Test
+    void testRecordsInAssembledBatchAreWrittenOnStop() throws Exception {
+        // 攒批时间足够长，stop()的中断落在攒批等待中
+        QueuedWriter writer = new QueuedWriter(100, 100, Duration.ofSeconds(30), null);
+        List<Long> ids = LongStream.rangeClosed(1, 5)
+                .mapToObj(i -> writer.writer.submit(newRecord((int) i)).getRecordId())
+                .collect(Collectors.toList());
+        writer.awaitDequeued();
+
+        writer.writer.stop();
+
+        assertEquals(Set.copyOf(ids), writer.written);
+        assertEquals(5.0, writer.meterRegistry.get("recognition.record.written").counter().count());
+    }
+
+    @Test
+    void testRecordIsDroppedWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        QueuedWriter writer = new QueuedWriter(2, 1, Duration.ZERO, release);
+        // 第一条被后台线程取出并阻塞在写库，随后两条占满队列，第四条被丢弃
+        Long first = writer.writer.submit(newRecord(1)).getRecordId();
+        writer.awaitDequeued();
+        writer.writer.submit(newRecord(2));
+        writer.writer.submit(newRecord(3));
+        Long dropped = writer.writer.submit(newRecord(4)).getRecordId();
+
+        assertEquals(1.0, writer.meterRegistry.get("recognition.record.dropped").counter().count());
+        // 被丢弃的记录不再等待写入
+        writer.writer.flushIfPending(dropped);
+
+        release.countDown();
+        writer.awaitWritten(first);
+        writer.writer.stop();
+        assertEquals(3, writer.written.size());
+        assertFalse(writer.written.contains(dropped));
+    }
+
+    @Test
+    void testFlushIfPendingWaitsForDequeuedBatch() throws Exception {
+        QueuedWriter writer = new QueuedWriter(100, 100, Duration.ofMillis(300), null);
+        Long recordId = writer.writer.submit(newRecord(1)).getRecordId();
+        // 记录已被后台线程取出，队列为空，仍需等到该批次写完
+        writer.awaitDequeued();
+
+        writer.writer.flushIfPending(recordId);
+
+        assertTrue(writer.written.contains(recordId));
+        writer.writer.stop();
+    }
+
+    private RecognitionRecord newRecord(int result) {
+        RecognitionRecord record = new RecognitionRecord();
+        record.setModelId(testModel.getModelId());
+        record.setRecognitionResult(result);
+        record.setConfidence(new BigDecimal("0.9500"));
+        record.setImageHash("hash-" + result);
+        record.setInputType(RecognitionRecord.InputType.CANVAS);
+        record.setProcessingTime(12);
+        return record;
+    }
+
+    /**
+     * 开启异步写入的写入器，写库为mock：记录写入的recordId，release不为空时写库阻塞到其释放
+     */
+    private static class QueuedWriter {
+        private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        private final Set<Long> written = ConcurrentHashMap.newKeySet();
+        private final RecognitionRecordWriter writer;
+
+        QueuedWriter(int queueCapacity, int batchSize, Duration flushInterval, CountDownLatch release) throws Exception {
+            JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+            when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class))).thenAnswer(inv -> {
+                if (release != null) {
+                    release.await();
+                }
+                BatchPreparedStatementSetter setter = inv.getArgument(1);
+                PreparedStatement ps = mock(PreparedStatement.class);
+                doAnswer(set -> {
+                    if ((int) set.getArgument(0) == 1) {
+                        written.add(set.getArgument(1));
+                    }
+                    return null;
+                }).when(ps).setLong(anyInt(), anyLong());
+                for (int i = 0; i < setter.getBatchSize(); i++) {
+                    setter.setValues(ps, i);
+                }
+                return new int[setter.getBatchSize()];
+            });
+            AtomicLong ids = new AtomicLong();
+            RecordIdGenerator idGenerator = mock(RecordIdGenerator.class);
+            when(idGenerator.nextId()).thenAnswer(inv -> ids.incrementAndGet());
+
+            RecognitionConfig config = new RecognitionConfig();
+            config.getWriteBehind().setEnabled(true);
+            config.getWriteBehind().setQueueCapacity(queueCapacity);
+            config.getWriteBehind().setBatchSize(batchSize);
+            config.getWriteBehind().setFlushInterval(flushInterval);
+            writer = new RecognitionRecordWriter(jdbcTemplate, mock(PlatformTransactionManager.class), idGenerator,
+                    config, new WorkerThreads(false), meterRegistry);
+            writer.start();
+        }
+
+        void awaitWritten(Long recordId) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!written.contains(recordId)) {
+                assertTrue(System.nanoTime() < deadline, "记录未写入: " + recordId);
+                Thread.sleep(5);
+            }
+        }
+
+        /**
+         * 等待后台线程从队列中取出记录
+         */
+        void awaitDequeued() throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (meterRegistry.get("recognition.record.queue.size").gauge().value() > 0) {
+                assertTrue(System.nanoTime() < deadline, "后台线程未取出记录");
+                Thread.sleep(5);
+            }
+            // 出队后还需加锁攒批，留出时间进入攒批等待
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+// RecognitionResultCacheTest.java - 识别结果两级缓存测试
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.common.constants.Constants;
+import com.ihdrs.backend.config.RecognitionConfig;
+import com.ihdrs.backend.dto.response.RecognitionResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RecognitionResultCacheTest {
+
+    private static final String NAMESPACE = "1:g0";
+
+    private ValueOperations<String, Object> valueOperations;
+    private ReactiveValueOperations<String, Object> reactiveValueOperations;
+    private SimpleMeterRegistry meterRegistry;
+    private RecognitionResultCache cache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        ReactiveRedisTemplate<String, Object> reactiveRedisTemplate = mock(ReactiveRedisTemplate.class);
+        reactiveValueOperations = mock(ReactiveValueOperations.class);
+        when(reactiveRedisTemplate.opsForValue()).thenReturn(reactiveValueOperations);
+
+        RecognitionConfig config = new RecognitionConfig();
+        config.getCache().setInvalidationEnabled(false);
+        meterRegistry = new SimpleMeterRegistry();
+
+        cache = new RecognitionResultCache(redisTemplate, mock(StringRedisTemplate.class),
+                reactiveRedisTemplate, mock(ReactiveStringRedisTemplate.class),
+                mock(ObjectProvider.class), config, meterRegistry);
+    }
+
+    @Test
+    void testRedisHitIsServedLocallyAfterwards() {
+        when(valueOperations.get(Constants.REDIS_KEY_RECOGNITION_RESULT + "1:g0:abc")).thenReturn(response(5));
+
+        RecognitionResponse first = cache.get(NAMESPACE, "abc");
+        RecognitionResponse second = cache.get(NAMESPACE, "abc");
+
+        assertEquals(5, first.getRecognitionResult());
+        assertEquals(5, second.getRecognitionResult());
+        verify(valueOperations, times(1)).get(anyString());
+        assertEquals(1.0, meterRegistry.get("recognition.result.l2").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void testReturnedResponseIsCopy() {
+        cache.put(NAMESPACE, "abc", response(3));
+
+        cache.get(NAMESPACE, "abc").setRecordId(42L);
+
+        assertNull(cache.get(NAMESPACE, "abc").getRecordId());
+    }
+
+    @Test
+    void testRedisFailureIsTreatedAsMiss() {
+        when(valueOperations.get(anyString())).thenThrow(new RedisConnectionFailureException("down"));
+        when(valueOperations.multiGet(anyList())).thenThrow(new RedisConnectionFailureException("down"));
+        cache.put(NAMESPACE, "local", response(1));
+
+        assertNull(cache.get(NAMESPACE, "missing"));
+
+        List<RecognitionResponse> results = cache.getAll(NAMESPACE, Arrays.asList("local", "missing", null));
+        assertEquals(1, results.get(0).getRecognitionResult());
+        assertNull(results.get(1));
+        assertNull(results.get(2));
+    }
+
+    @Test
+    void testAsyncAccessSharesLocalCache() {
+        when(reactiveValueOperations.get(anyString())).thenReturn(Mono.error(new RedisConnectionFailureException("down")));
+        when(reactiveValueOperations.set(anyString(), any(), any(Duration.class))).thenReturn(Mono.just(true));
+
+        // Redis不可用时按未命中处理
+        assertNull(cache.getAsync(NAMESPACE, "abc").block());
+
+        cache.putAsync(NAMESPACE, "abc", response(4)).block();
+        RecognitionResponse blocking = cache.get(NAMESPACE, "abc");
+        assertEquals(4, blocking.getRecognitionResult());
+        assertNull(blocking.getRecordId());
+
+        cache.put(NAMESPACE, "def", response(6));
+        assertEquals(6, cache.getAsync(NAMESPACE, "def").block().getRecognitionResult());
+        verify(valueOperations, never()).get(anyString());
+        verify(reactiveValueOperations, times(1)).get(anyString());
+    }
+
+    private RecognitionResponse response(int result) {
+        return RecognitionResponse.builder()
+                .recordId(100L)
+                .recognitionResult(result)
+                .confidence(new BigDecimal("0.99"))
+                .processingTime(10)
+                .message("识别成功")
+                .needRewrite(false)
+                .build();
+    }
+}
@@ -3,6 +3,7 @@ package com.ihdrs.backend.service;
 
 import com.ihdrs.backend.TestApplication;
 import com.ihdrs.backend.common.Result;
+import com.ihdrs.backend.dto.request.ImagePayload;
 import com.ihdrs.backend.dto.request.RecognitionRequest;
 import com.ihdrs.backend.dto.response.RecognitionResponse;
 import com.ihdrs.backend.entity.Model;
@@ -85,7 +86,7 @@ class RecognitionServiceTest {
 
         // 准备测试数据
         RecognitionRequest request = new RecognitionRequest();
-        request.setImageData(Base64.getEncoder().encodeToString("test image data".getBytes()));
+        request.setImageData(ImagePayload.fromBase64(Base64.getEncoder().encodeToString("test image data".getBytes())));
         request.setInputType("CANVAS");
         request.setSessionId("test-session-123");
 
@@ -105,7 +106,7 @@ class RecognitionServiceTest {
         modelRepository.save(testModel);
 
         RecognitionRequest request = new RecognitionRequest();
-        request.setImageData(Base64.getEncoder().encodeToString("test image data".getBytes()));
+        request.setImageData(ImagePayload.fromBase64(Base64.getEncoder().encodeToString("test image data".getBytes())));
 
         Result<RecognitionResponse> result = recognitionService.recognize(request, testUser.getUserId());
 
@@ -0,0 +1,142 @@
+// RecognitionSingleFlightTest.java - 相同图像并发识别合并测试
+package com.ihdrs.backend.service;
+
+import com.ihdrs.backend.config.RecognitionConfig;
+import com.ihdrs.backend.dto.response.RecognitionResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RecognitionSingleFlightTest {
+
+    private StringRedisTemplate stringRedisTemplate;
+    private ValueOperations<String, String> valueOperations;
+    private RecognitionResultCache resultCache;
+    private RecognitionConfig config;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        resultCache = mock(RecognitionResultCache.class);
+
+        config = new RecognitionConfig();
+        config.getSingleFlight().setPollInterval(Duration.ofMillis(10));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testConcurrentRequestsShareOneModelCall() throws Exception {
+        config.getSingleFlight().setDistributed(false);
+        RecognitionSingleFlight singleFlight = newSingleFlight();
+
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<RecognitionResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> singleFlight.execute("1:g0", "abc", () -> {
+                loads.incrementAndGet();
+                await(release);
+                return response(8);
+            })));
+        }
+
+        // 等其它请求都进入等待后再放行模型调用
+        while (meterRegistry.get("recognition.coalesced").tag("scope", "local").counter().count() < 3) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        for (CompletableFuture<RecognitionResponse> future : futures) {
+            assertEquals(8, future.get(5, TimeUnit.SECONDS).getRecognitionResult());
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testAsyncRequestsShareFlightWithBlockingRequests() throws Exception {
+        config.getSingleFlight().setDistributed(false);
+        when(resultCache.getAsync("1:g0", "abc")).thenReturn(Mono.empty());
+        RecognitionSingleFlight singleFlight = newSingleFlight();
+
+        Sinks.One<RecognitionResponse> modelCall = Sinks.one();
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<RecognitionResponse> owner = singleFlight.executeAsync("1:g0", "abc", () -> {
+            loads.incrementAndGet();
+            return modelCall.asMono();
+        }).toFuture();
+        CompletableFuture<RecognitionResponse> asyncWaiter = singleFlight.executeAsync("1:g0", "abc",
+                () -> Mono.error(new AssertionError("不应调用模型服务"))).toFuture();
+        CompletableFuture<RecognitionResponse> blockingWaiter = CompletableFuture.supplyAsync(() ->
+                singleFlight.execute("1:g0", "abc", () -> fail("不应调用模型服务")));
+
+        while (meterRegistry.get("recognition.coalesced").tag("scope", "local").counter().count() < 2) {
+            Thread.sleep(5);
+        }
+        modelCall.tryEmitValue(response(5));
+
+        assertEquals(5, owner.get(5, TimeUnit.SECONDS).getRecognitionResult());
+        assertEquals(5, asyncWaiter.get(5, TimeUnit.SECONDS).getRecognitionResult());
+        assertEquals(5, blockingWaiter.get(5, TimeUnit.SECONDS).getRecognitionResult());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testWaitsForResultFromOtherNode() {
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+        when(stringRedisTemplate.hasKey(anyString())).thenReturn(true);
+        when(resultCache.get("1:g0", "abc")).thenReturn(null, null, response(6));
+        RecognitionSingleFlight singleFlight = newSingleFlight();
+
+        RecognitionResponse result = singleFlight.execute("1:g0", "abc", () -> fail("不应调用模型服务"));
+
+        assertEquals(6, result.getRecognitionResult());
+        assertEquals(1.0, meterRegistry.get("recognition.coalesced").tag("scope", "remote").counter().count());
+    }
+
+    @Test
+    void testRedisUnavailableFallsBackToLocalCall() {
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenThrow(new IllegalStateException("down"));
+        RecognitionSingleFlight singleFlight = newSingleFlight();
+
+        RecognitionResponse result = singleFlight.execute("1:g0", "abc", () -> response(2));
+
+        assertEquals(2, result.getRecognitionResult());
+    }
+
+    private RecognitionSingleFlight newSingleFlight() {
+        return new RecognitionSingleFlight(stringRedisTemplate, resultCache, config, meterRegistry);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static RecognitionResponse response(int result) {
+        return RecognitionResponse.builder().recognitionResult(result).build();
+    }
+}
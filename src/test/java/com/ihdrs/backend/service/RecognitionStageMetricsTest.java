@@ -0,0 +1,98 @@
+// RecognitionStageMetricsTest.java - 识别各阶段耗时统计测试
+package com.ihdrs.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecognitionStageMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RecognitionStageMetrics stageMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        stageMetrics = new RecognitionStageMetrics(meterRegistry);
+    }
+
+    @Test
+    void testOnlyVisitedStagesAreRecordedWithTags() {
+        RecognitionStageMetrics.Timings timings = stageMetrics.start();
+        timings.addNanos(RecognitionStageMetrics.Stage.DECODE, 2_000_000);
+        timings.addNanos(RecognitionStageMetrics.Stage.CACHE, 1_000_000);
+        timings.addNanos(RecognitionStageMetrics.Stage.CACHE, 500_000);
+
+        stageMetrics.record(timings, 3L, "BASE64", RecognitionStageMetrics.CACHE_HIT);
+
+        Tags tags = Tags.of("model", "3", "input", "BASE64", "cache", "hit");
+        Timer decode = meterRegistry.get("recognition.stage").tags(tags).tag("stage", "decode").timer();
+        assertEquals(1, decode.count());
+        assertEquals(2.0, decode.totalTime(TimeUnit.MILLISECONDS), 1e-9);
+        Timer cache = meterRegistry.get("recognition.stage").tags(tags).tag("stage", "cache").timer();
+        assertEquals(1, cache.count());
+        assertEquals(1.5, cache.totalTime(TimeUnit.MILLISECONDS), 1e-9);
+        // 未经过的阶段不产生计时器
+        assertEquals(2, meterRegistry.find("recognition.stage").timers().size());
+        for (String stage : List.of("precheck", "inference", "persist")) {
+            assertNull(meterRegistry.find("recognition.stage").tag("stage", stage).timer());
+        }
+
+        Timer total = meterRegistry.get("recognition.total").tags(tags).timer();
+        assertEquals(1, total.count());
+        assertNull(total.getId().getTag("stage"));
+    }
+
+    @Test
+    void testMissingInputTypeIsTaggedUnknown() {
+        RecognitionStageMetrics.Timings timings = stageMetrics.start();
+        timings.addNanos(RecognitionStageMetrics.Stage.PRECHECK, 100_000);
+
+        stageMetrics.record(timings, 1L, null, RecognitionStageMetrics.CACHE_NONE);
+
+        Timer precheck = meterRegistry.get("recognition.stage").tag("stage", "precheck").timer();
+        assertEquals("UNKNOWN", precheck.getId().getTag("input"));
+        assertEquals("none", precheck.getId().getTag("cache"));
+    }
+
+    @Test
+    void testToJsonContainsVisitedStagesInMillis() throws Exception {
+        RecognitionStageMetrics.Timings timings = stageMetrics.start();
+        timings.addNanos(RecognitionStageMetrics.Stage.DECODE, 420_000);
+        timings.addNanos(RecognitionStageMetrics.Stage.INFERENCE, 85_123_456);
+        timings.addNanos(RecognitionStageMetrics.Stage.PERSIST, 0);
+
+        String json = timings.toJson();
+
+        JsonNode breakdown = new ObjectMapper().readTree(json);
+        assertEquals(List.of("decode", "inference", "persist"), fieldNames(breakdown));
+        assertEquals(0.42, breakdown.get("decode").asDouble(), 1e-9);
+        // 保留两位小数
+        assertEquals(85.12, breakdown.get("inference").asDouble(), 1e-9);
+        assertEquals(0.0, breakdown.get("persist").asDouble(), 1e-9);
+    }
+
+    @Test
+    void testToJsonIsEmptyObjectWhenNoStageVisited() throws Exception {
+        String json = stageMetrics.start().toJson();
+
+        assertEquals("{}", json);
+        assertTrue(new ObjectMapper().readTree(json).isEmpty());
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
@@ -0,0 +1,178 @@
+// CnnModelTest.java - 进程内CNN前向计算测试
+package com.ihdrs.backend.service.inference;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CnnModelTest {
+
+    @Test
+    void testConvolutionWithSamePaddingSumsNeighbourhood() throws IOException {
+        float[] ones = new float[9];
+        Arrays.fill(ones, 1f);
+        CnnModel model = read(new TensorFileBuilder(3, 3, 1)
+                .conv2d(3, 3, 1, 1, true, CnnModel.ACTIVATION_LINEAR, ones, new float[]{0.5f}));
+
+        float[] input = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+        float[] output = model.predict(input);
+
+        assertEquals(9, output.length);
+        assertEquals(1 + 2 + 4 + 5 + 0.5f, output[0], 1e-5);
+        assertEquals(45 + 0.5f, output[4], 1e-5);
+        assertEquals(5 + 6 + 8 + 9 + 0.5f, output[8], 1e-5);
+    }
+
+    @Test
+    void testConvolutionUsesHwioWeightLayout() throws IOException {
+        // 1x1卷积，2个输入通道、3个输出通道：权重按 [ic][oc] 排列
+        float[] weights = {1, 2, 3, 10, 20, 30};
+        CnnModel model = read(new TensorFileBuilder(1, 1, 2)
+                .conv2d(1, 1, 2, 3, false, CnnModel.ACTIVATION_LINEAR, weights, new float[3]));
+
+        float[] output = model.predict(new float[]{1, 2});
+
+        assertArrayEquals(new float[]{21, 42, 63}, output, 1e-5f);
+    }
+
+    @Test
+    void testPoolsFlattensAndClassifies() throws IOException {
+        // 4x4 -> 池化为2x2 -> 展平为4 -> 全连接2类softmax，第二类只看右下角
+        float[] dense = {
+                1, 0,
+                1, 0,
+                1, 0,
+                0, 10
+        };
+        CnnModel model = read(new TensorFileBuilder(4, 4, 1)
+                .maxPool(2)
+                .flatten()
+                .dense(4, 2, CnnModel.ACTIVATION_SOFTMAX, dense, new float[2]));
+
+        float[] input = new float[16];
+        input[15] = 1f; // 右下角
+        float[] probabilities = model.predict(input);
+
+        assertEquals(2, model.getOutputSize());
+        assertEquals(1f, probabilities[0] + probabilities[1], 1e-5);
+        assertTrue(probabilities[1] > 0.99f);
+    }
+
+    @Test
+    void testAppliesReluAndScaleShift() throws IOException {
+        CnnModel model = read(new TensorFileBuilder(1, 1, 2)
+                .scaleShift(new float[]{2f, 2f}, new float[]{-3f, 1f})
+                .flatten()
+                .dense(2, 2, CnnModel.ACTIVATION_RELU, new float[]{1, 0, 0, 1}, new float[2]));
+
+        float[] output = model.predict(new float[]{1f, 1f});
+
+        assertArrayEquals(new float[]{0f, 3f}, output, 1e-5f);
+    }
+
+    @Test
+    void testRejectsWrongInputLength() throws IOException {
+        CnnModel model = read(new TensorFileBuilder(2, 2, 1).flatten());
+
+        assertThrows(IllegalArgumentException.class, () -> model.predict(new float[3]));
+    }
+
+    @Test
+    void testRejectsInvalidFiles() {
+        byte[] notTensorFile = "PK\u0003\u0004 not a tensor file".getBytes();
+        assertThrows(IOException.class, () -> CnnModel.read(new ByteArrayInputStream(notTensorFile)));
+
+        // 全连接层输入长度与上一层输出不一致
+        TensorFileBuilder mismatched = new TensorFileBuilder(2, 2, 1)
+                .flatten()
+                .dense(3, 1, CnnModel.ACTIVATION_LINEAR, new float[3], new float[1]);
+        assertThrows(IOException.class, () -> read(mismatched));
+
+        // 文件被截断
+        byte[] truncated = Arrays.copyOf(new TensorFileBuilder(1, 1, 1)
+                .dense(1, 1, CnnModel.ACTIVATION_LINEAR, new float[]{1}, new float[]{0}).toBytes(), 40);
+        assertThrows(IOException.class, () -> CnnModel.read(new ByteArrayInputStream(truncated)));
+    }
+
+    private static CnnModel read(TensorFileBuilder builder) throws IOException {
+        return CnnModel.read(new ByteArrayInputStream(builder.toBytes()));
+    }
+
+    /**
+     * 按 export_tensor_file.py 的格式生成张量文件
+     */
+    static class TensorFileBuilder {
+        private final ByteBuffer body = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        private final int height, width, channels;
+        private int layers;
+
+        TensorFileBuilder(int height, int width, int channels) {
+            this.height = height;
+            this.width = width;
+            this.channels = channels;
+        }
+
+        TensorFileBuilder conv2d(int kh, int kw, int inC, int outC, boolean same, int activation,
+                                 float[] weights, float[] bias) {
+            ints(CnnModel.LAYER_CONV2D, kh, kw, inC, outC, same ? 1 : 0, activation);
+            floats(weights);
+            floats(bias);
+            layers++;
+            return this;
+        }
+
+        TensorFileBuilder maxPool(int pool) {
+            ints(CnnModel.LAYER_MAX_POOL, pool);
+            layers++;
+            return this;
+        }
+
+        TensorFileBuilder dense(int in, int out, int activation, float[] weights, float[] bias) {
+            ints(CnnModel.LAYER_DENSE, in, out, activation);
+            floats(weights);
+            floats(bias);
+            layers++;
+            return this;
+        }
+
+        TensorFileBuilder scaleShift(float[] scale, float[] shift) {
+            ints(CnnModel.LAYER_SCALE_SHIFT, scale.length);
+            floats(scale);
+            floats(shift);
+            layers++;
+            return this;
+        }
+
+        TensorFileBuilder flatten() {
+            ints(CnnModel.LAYER_FLATTEN);
+            layers++;
+            return this;
+        }
+
+        byte[] toBytes() {
+            ByteBuffer file = ByteBuffer.allocate(24 + body.position()).order(ByteOrder.LITTLE_ENDIAN);
+            file.putInt(CnnModel.MAGIC).putInt(CnnModel.VERSION)
+                    .putInt(height).putInt(width).putInt(channels).putInt(layers);
+            file.put(body.array(), 0, body.position());
+            return file.array();
+        }
+
+        private void ints(int... values) {
+            for (int value : values) {
+                body.putInt(value);
+            }
+        }
+
+        private void floats(float[] values) {
+            for (float value : values) {
+                body.putFloat(value);
+            }
+        }
+    }
+}
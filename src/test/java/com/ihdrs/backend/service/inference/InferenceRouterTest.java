@@ -0,0 +1,102 @@
+// InferenceRouterTest.java - 推理后端选择测试
+package com.ihdrs.backend.service.inference;
+
+import com.ihdrs.backend.common.exception.ModelServiceUnavailableException;
+import com.ihdrs.backend.config.RecognitionConfig;
+import com.ihdrs.backend.entity.Model;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class InferenceRouterTest {
+
+    private static final byte[] IMAGE = {1, 2, 3};
+    private static final Map<String, Object> REMOTE_RESULT = Map.of("result", 3, "confidence", 0.9);
+    private static final Map<String, Object> LOCAL_RESULT = Map.of("result", 3, "confidence", 0.91);
+
+    private RemoteInferenceBackend remote;
+    private LocalCnnInferenceBackend local;
+    private RecognitionConfig config;
+    private SimpleMeterRegistry meterRegistry;
+    private InferenceRouter router;
+    private Model model;
+
+    @BeforeEach
+    void setUp() {
+        remote = mock(RemoteInferenceBackend.class);
+        local = mock(LocalCnnInferenceBackend.class);
+        config = new RecognitionConfig();
+        meterRegistry = new SimpleMeterRegistry();
+        router = new InferenceRouter(remote, local, config, meterRegistry);
+
+        model = new Model();
+        model.setModelId(1L);
+        model.setModelPath("models/default_cnn_v1.0.0.h5");
+    }
+
+    @Test
+    void testUsesRemoteBackendByDefault() {
+        when(remote.recognize(IMAGE, model)).thenReturn(REMOTE_RESULT);
+
+        assertEquals(REMOTE_RESULT, router.recognize(IMAGE, model));
+        verify(local, never()).recognize(any(), any());
+    }
+
+    @Test
+    void testUsesLocalBackendWhenConfiguredForModel() {
+        config.getInference().getModels().put(1L, LocalCnnInferenceBackend.NAME);
+        when(local.isAvailable(model)).thenReturn(true);
+        when(local.recognizeBatch(List.of(IMAGE), model)).thenReturn(List.of(LOCAL_RESULT));
+
+        assertEquals(List.of(LOCAL_RESULT), router.recognizeBatch(List.of(IMAGE), model));
+        verifyNoInteractions(remote);
+    }
+
+    @Test
+    void testUsesRemoteBackendWhenLocalModelHasNoTensorFile() {
+        config.getInference().setDefaultBackend(LocalCnnInferenceBackend.NAME);
+        when(local.isAvailable(model)).thenReturn(false);
+        when(remote.recognize(IMAGE, model)).thenReturn(REMOTE_RESULT);
+
+        assertEquals(REMOTE_RESULT, router.recognize(IMAGE, model));
+    }
+
+    @Test
+    void testFallsBackToLocalWhenModelServiceUnavailable() {
+        when(remote.recognize(IMAGE, model)).thenThrow(new ModelServiceUnavailableException("模型服务暂不可用"));
+        when(local.isAvailable(model)).thenReturn(true);
+        when(local.recognize(IMAGE, model)).thenReturn(LOCAL_RESULT);
+
+        assertEquals(LOCAL_RESULT, router.recognize(IMAGE, model));
+        assertEquals(1.0, meterRegistry.counter("recognition.inference.fallback").count());
+    }
+
+    @Test
+    void testFallsBackToLocalWhenModelServiceCallFails() {
+        when(remote.recognizeBatch(List.of(IMAGE), model)).thenReturn(null);
+        when(local.isAvailable(model)).thenReturn(true);
+        when(local.recognizeBatch(List.of(IMAGE), model)).thenReturn(List.of(LOCAL_RESULT));
+
+        assertEquals(List.of(LOCAL_RESULT), router.recognizeBatch(List.of(IMAGE), model));
+    }
+
+    @Test
+    void testRethrowsWhenFallbackNotPossible() {
+        when(remote.recognize(IMAGE, model)).thenThrow(new ModelServiceUnavailableException("模型服务暂不可用"));
+        when(local.isAvailable(model)).thenReturn(false);
+
+        assertThrows(ModelServiceUnavailableException.class, () -> router.recognize(IMAGE, model));
+
+        config.getInference().setFallbackToLocal(false);
+        when(local.isAvailable(model)).thenReturn(true);
+        assertThrows(ModelServiceUnavailableException.class, () -> router.recognize(IMAGE, model));
+        verify(local, never()).recognize(any(), any());
+    }
+}
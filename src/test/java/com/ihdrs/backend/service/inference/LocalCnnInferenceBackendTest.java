@@ -0,0 +1,98 @@
+// LocalCnnInferenceBackendTest.java - 进程内CNN推理后端测试
+package com.ihdrs.backend.service.inference;
+
+import com.ihdrs.backend.common.utils.ImageUtil;
+import com.ihdrs.backend.config.FileStorageConfig;
+import com.ihdrs.backend.config.RecognitionConfig;
+import com.ihdrs.backend.entity.Model;
+import com.ihdrs.backend.service.ImageDecodeExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalCnnInferenceBackendTest {
+
+    @TempDir
+    Path modelDir;
+
+    private LocalCnnInferenceBackend backend;
+    private Model model;
+
+    @BeforeEach
+    void setUp() {
+        FileStorageConfig fileStorageConfig = new FileStorageConfig();
+        fileStorageConfig.getModel().setPath(modelDir.toString());
+        ImageUtil imageUtil = new ImageUtil();
+        ImageDecodeExecutor decodeExecutor = new ImageDecodeExecutor(imageUtil, new RecognitionConfig(),
+                new SimpleMeterRegistry());
+        backend = new LocalCnnInferenceBackend(fileStorageConfig, imageUtil, decodeExecutor);
+
+        model = new Model();
+        model.setModelId(1L);
+        model.setModelPath("models/default_cnn_v1.0.0.h5");
+    }
+
+    @Test
+    void testResolvesTensorFileNextToModelFile() {
+        assertEquals(modelDir.resolve("default_cnn_v1.0.0.ihdt"), backend.tensorFile(model));
+    }
+
+    @Test
+    void testUnavailableWithoutTensorFile() {
+        assertFalse(backend.isAvailable(model));
+        assertThrows(IllegalStateException.class, () -> backend.recognize(new byte[]{1}, model));
+    }
+
+    @Test
+    void testRecognizesWithModelServiceResultFormat() throws IOException {
+        // 10类模型：第7类的权重覆盖全部像素，其余类别权重为0
+        float[] weights = new float[784 * 10];
+        for (int i = 0; i < 784; i++) {
+            weights[i * 10 + 7] = 0.1f;
+        }
+        byte[] tensorFile = new CnnModelTest.TensorFileBuilder(28, 28, 1)
+                .flatten()
+                .dense(784, 10, CnnModel.ACTIVATION_SOFTMAX, weights, new float[10])
+                .toBytes();
+        Files.write(backend.tensorFile(model), tensorFile);
+
+        assertTrue(backend.isAvailable(model));
+        Map<String, Object> result = backend.recognize(drawStroke(), model);
+
+        assertEquals(7, result.get("result"));
+        assertTrue((Double) result.get("confidence") > 0.5);
+        assertEquals(10, ((List<?>) result.get("all_probabilities")).size());
+
+        List<Map<String, Object>> batch = backend.recognizeBatch(List.of(drawStroke(), new byte[]{1, 2, 3}), model);
+        assertEquals(7, batch.get(0).get("result"));
+        assertNull(batch.get(1)); // 无法解析的图像
+    }
+
+    private static byte[] drawStroke() throws IOException {
+        BufferedImage image = new BufferedImage(280, 280, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, 280, 280);
+        graphics.setColor(Color.BLACK);
+        graphics.setStroke(new BasicStroke(20f));
+        graphics.drawLine(140, 40, 140, 240);
+        graphics.dispose();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+}